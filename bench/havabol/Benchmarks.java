@@ -0,0 +1,302 @@
+package havabol;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @desc
+ * The interpreter's JMH benchmarks, which 'gradle jmh' runs
+ * <p>
+ * Each benchmark is one of the interpreter's hot paths, set up the same way
+ * the interpreter sets it up when it runs a script:
+ * <pre>
+ *   lex           creating a 'Scanner', which lexes the whole file
+ *   getNext       'Scanner.getNext' through every token of a lexed file
+ *   vmExecute     'BytecodeVM.execute' on the compiled instructions of an expression,
+ *                 which is how every expression of a built program is evaluated
+ *   parserExpr    'Parser.expr' on an expression that was already converted once, which
+ *                 is only the fallback path (a file that can not be built, or 'debug Token')
+ *   utilityAdd, utilityMultiplyFloat, utilityConcat, utilityCoerce
+ *                 the 'Utility' operators on values that already have their numbers
+ *   arrayAssign   'StorageManager.arrayAssignElem' into a fixed array
+ *   script        running a script of Testing/Positive end to end
+ * </pre>
+ * The scripts are run with their output thrown away. A script that raises
+ * an error (on purpose, such as a tokenizing test) is timed up to its error.
+ * The scripts are found from the directory JMH is run in, or from the
+ * directory in the 'havabol.testing' system property.
+ *
+ * @authors Taylor Brauer, Caleb Mussulman, Steven Cenci
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Benchmarks
+{
+    // Output that is thrown away, for the scripts
+    private static final Output nullOutput = new Output(Channels.newChannel(OutputStream.nullOutputStream()));
+    private static final PrintStream nullStream = new PrintStream(OutputStream.nullOutputStream());
+    
+    /**
+     * A file with the statements of a typical loop, repeated, and the scanner that lexed it
+     */
+    @State(Scope.Thread)
+    public static class Lexed
+    {
+        String fileNm;
+        Scanner scan;
+        
+        @Setup
+        public void setup() throws Exception
+        {
+            StringBuilder sb = new StringBuilder("Int i;\nInt total;\nString s;\nFloat f;\nInt arr[10];\n");
+            for(int i = 0; i < 500; i++)
+            {
+                sb.append("i = 0;\nwhile i < 10:\n    total += i * 2 - (i / 3);\n")
+                  .append("    s = \"item \" # i;\n    f = 1.5 * i;\n    arr[i] = i ^ 2;\n")
+                  .append("    if total > 100 and s != \"x\":\n        print(s, f);\n    endif;\n")
+                  .append("    i += 1;\nendwhile;\n");
+            }
+            fileNm = writeScript("lex", sb.toString());
+            scan = new Scanner(fileNm, new SymbolTable());
+        }
+    }
+    
+    /**
+     * A script that was run, whose variables have values, and the start and the
+     * compiled instructions of the expression of its last assignment
+     */
+    @State(Scope.Thread)
+    public static class Loaded
+    {
+        Parser parser;
+        Token exprStartToken;
+        BytecodeVM vm;
+        Bytecode exprCode;
+        ResultValue resInt1;
+        ResultValue resInt2;
+        ResultValue resFloat;
+        ResultValue resStr;
+        int iArrSlot;
+        ResultValue[] resIndexM;
+        int iNext;
+        
+        @Setup
+        public void setup() throws Exception
+        {
+            String fileNm = writeScript("expr", "Int x;\nInt y;\nFloat z;\nInt arr[100];\nx = 7;\nz = 2.5;\narr[7] = 3;\n"
+                                        + "y = (x * 3 + 4) / 2 - x ^ 2 + z * 4 - arr[x];\n");
+            parser = run(fileNm);
+            for(Token token : parser.scan.tokenM)
+            {
+                if(token.iLexemeId == LexemeTable.ASSIGN)
+                {
+                    exprStartToken = token;
+                }
+            }
+            
+            // The last statement of the tree is the assignment, whose last expression is its source
+            ASTNode assignNode = parser.program.childM[parser.program.childM.length - 1];
+            exprCode = assignNode.exprM[assignNode.exprM.length - 1].code;
+            vm = new BytecodeVM(parser);
+            
+            resInt1 = new ResultValue();
+            resInt1.setInteger(123456);
+            resInt2 = new ResultValue();
+            resInt2.setInteger(789);
+            resFloat = new ResultValue();
+            resFloat.setFloat(3.25);
+            resStr = new ResultValue();
+            resStr.type = Token.STRING;
+            resStr.setValue("12345");
+            resStr.structure = STIdentifier.PRIMITVE;
+            
+            iArrSlot = parser.symbolTable.getSlot("arr");
+            resIndexM = new ResultValue[100];
+            for(int i = 0; i < resIndexM.length; i++)
+            {
+                resIndexM[i] = new ResultValue();
+                resIndexM[i].setInteger(i);
+            }
+        }
+    }
+    
+    /**
+     * A script of Testing/Positive, by its path in the directory (others may be given with '-p script=...')
+     */
+    @State(Scope.Benchmark)
+    public static class Script
+    {
+        @Param({"Arrays/Fixed/p5FixedArrayTest01.txt", "Arrays/Fixed/p5FixedArrayTest02.txt"
+              , "Arrays/Unbound/p5UnboundedArrayTest.txt", "Arrays/Unbound/p5SparseUnboundedArrayTest.txt"
+              , "Arrays/Unbound/p5INAfterElementChanges.txt", "Arrays/p5ArrayElementValues.txt"
+              , "BuiltInFunctionsTests", "BuiltinForLoop"
+              , "Coercions/p5Coercion_valid.txt", "DateTests", "LoopTests", "PlusEqualAndMinusEqual1"
+              , "PlusEqualAndMinusEqual2", "TokenizingFor", "p1Input.txt", "p2Input.txt", "p3Input.txt"
+              , "p3SimpExpr.txt", "p4Array.txt", "p4Expr.txt", "p4Func.txt", "p4String.txt"
+              , "UserFunctions/p6ArrayParameters.txt", "UserFunctions/p6CallBeforeDefinition.txt"
+              , "UserFunctions/p6NestedFunctions.txt", "UserFunctions/p6Recursion.txt"
+              , "UserFunctions/p6RefParameters.txt", "HotLoops/p7HotLoops.txt", "HotLoops/p7HotLoopGuards.txt"
+              , "HotLoops/p7HotLoopControlVariable.txt"})
+        public String script;
+        
+        String fileNm;
+        
+        @Setup
+        public void setup() throws IOException
+        {
+            File file = new File(System.getProperty("havabol.testing", "Testing/Positive"), script);
+            if(! file.isFile())
+            {
+                throw new IOException("Script '" + file + "' was not found; run from the top of the repository");
+            }
+            fileNm = file.getPath();
+        }
+    }
+    
+    @Benchmark
+    public Scanner lex(Lexed lexed) throws Exception
+    {
+        return new Scanner(lexed.fileNm, new SymbolTable());
+    }
+    
+    @Benchmark
+    public int getNext(Lexed lexed) throws Exception
+    {
+        Scanner scan = lexed.scan;
+        scan.rewind();
+        int iCnt = 0;
+        while(scan.currentToken.primClassif != Token.EOF)
+        {
+            scan.getNext();
+            iCnt++;
+        }
+        return iCnt;
+    }
+    
+    @Benchmark
+    public ResultValue vmExecute(Loaded loaded) throws Exception
+    {
+        return loaded.vm.execute(loaded.exprCode);
+    }
+    
+    // The fallback path: a built program never calls 'Parser.expr' (see 'vmExecute')
+    @Benchmark
+    public ResultValue parserExpr(Loaded loaded) throws Exception
+    {
+        loaded.parser.scan.setPosition(loaded.exprStartToken);
+        return loaded.parser.expr();
+    }
+    
+    @Benchmark
+    public ResultValue utilityAdd(Loaded loaded) throws Exception
+    {
+        return Utility.add(loaded.parser, loaded.resInt1, loaded.resInt2, "+");
+    }
+    
+    @Benchmark
+    public ResultValue utilityMultiplyFloat(Loaded loaded) throws Exception
+    {
+        return Utility.multiply(loaded.parser, loaded.resFloat, loaded.resInt2);
+    }
+    
+    @Benchmark
+    public ResultValue utilityConcat(Loaded loaded) throws Exception
+    {
+        return Utility.concat(loaded.parser, loaded.resStr, loaded.resInt2);
+    }
+    
+    @Benchmark
+    public ResultValue utilityCoerce(Loaded loaded) throws Exception
+    {
+        // A copy each time, since coercing changes the value
+        ResultValue resCoerced = Utility.getResultValueCopy(loaded.resStr);
+        Utility.coerce(loaded.parser, Token.INTEGER, resCoerced, "+");
+        return resCoerced;
+    }
+    
+    @Benchmark
+    public ResultValue arrayAssign(Loaded loaded) throws Exception
+    {
+        ResultValue resIndex = loaded.resIndexM[loaded.iNext++ % loaded.resIndexM.length];
+        loaded.parser.symbolTable.storageManager.arrayAssignElem(loaded.parser, loaded.iArrSlot, loaded.resInt2, resIndex);
+        return resIndex;
+    }
+    
+    @Benchmark
+    public Parser script(Script script) throws Exception
+    {
+        return run(script.fileNm);
+    }
+    
+    /**
+     * Runs a script end to end, with its output thrown away
+     * @param fileNm      the script
+     * @return            the parser that ran it
+     * @throws Exception  if the script could not be read
+     *                    if the output could not be thrown away
+     */
+    private static Parser run(String fileNm) throws Exception
+    {
+        SymbolTable symbolTable = new SymbolTable();
+        Scanner scan = new Scanner(fileNm, symbolTable);
+        Parser parser = new Parser(scan, symbolTable);
+        parser.output = nullOutput;
+        
+        // The debuggers print to 'System.out'
+        PrintStream savedOut = System.out;
+        System.setOut(nullStream);
+        try
+        {
+            parser.parse();
+        }
+        catch(Exception e)
+        {
+            // The script's own error (a parse or lexing error), which is part of what it tests
+        }
+        finally
+        {
+            System.setOut(savedOut);
+            nullOutput.flush();
+        }
+        return parser;
+    }
+    
+    /**
+     * Writes a script to a temporary file, which is deleted when the JVM exits
+     * @param prefix       the start of the file's name
+     * @param text         the script
+     * @return             the name of the file
+     * @throws IOException if the file could not be written
+     */
+    private static String writeScript(String prefix, String text) throws IOException
+    {
+        File file = File.createTempFile("havabol-" + prefix, ".txt");
+        file.deleteOnExit();
+        try(Writer writer = new FileWriter(file))
+        {
+            writer.write(text);
+        }
+        return file.getPath();
+    }
+}
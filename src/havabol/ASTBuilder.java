@@ -0,0 +1,867 @@
+package havabol;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Stack;
+
+/**
+ * @desc
+ * Builds the whole source file into a tree of 'ASTNode's, without executing it
+ * <p>
+ * The statements are parsed the same way that 'Parser' parses them when it is
+ * executing, and the expressions are converted by 'Parser.infixToPostfix', so
+ * the tree is what the parser would have executed. Each expression's tree is also
+ * compiled into the instructions that 'BytecodeVM' executes. Every variable is
+ * resolved to its storage manager slot while it is built, so executing the tree
+ * does not look variables up by name. Any syntax error, or anything
+ * that the tree does not handle, makes 'buildProgram' return null; the parser then
+ * parses and executes the file one statement at a time, which gives the same
+ * output and the same error message as it always did.
+ *
+ * @authors Taylor Brauer, Caleb Mussulman, Steven Cenci
+ */
+public class ASTBuilder
+{
+    public Parser parser;
+    public Scanner scan;
+    public SymbolTable symbolTable;
+    private STFunction function; // The function whose definition is being built, null outside of a function
+    
+    ASTBuilder(Parser parser)
+    {
+        this.parser = parser;
+        this.scan = parser.scan;
+        this.symbolTable = parser.symbolTable;
+    }
+    
+    /**
+     * Builds the statements of the whole source file
+     * <p>
+     * The scanner is left wherever the build stopped; if null is returned, the
+     * scanner must be rewound before the file is parsed again.
+     * @return  the statement list of the file, or null if it could not be built
+     */
+    public ASTNode buildProgram()
+    {
+        try
+        {
+            parser.bBuildingAST = true;
+            ASTNode program = statements();
+            
+            // The statements must have ended from EOF
+            if(scan.currentToken.primClassif != Token.EOF)
+            {
+                unsupported();
+            }
+            return program;
+        }
+        catch(Exception e)
+        {
+            return null;
+        }
+        finally
+        {
+            parser.bBuildingAST = false;
+            parser.bGettingArraySize = false;
+            parser.bCalledExprFromStmts = false;
+        }
+    }
+    
+    /**
+     * Stops the build, for anything that is not an executable statement
+     * @throws ParserException always
+     */
+    private void unsupported() throws ParserException
+    {
+        parser.error("Can not build '%s'", scan.currentToken.tokenStr);
+    }
+    
+    /**
+     * Builds statements until EOF or an end of flow token
+     * @return           the statement list
+     * @throws Exception if a statement could not be built
+     */
+    private ASTNode statements() throws Exception
+    {
+        ArrayList<ASTNode> stmtList = new ArrayList<ASTNode>();
+        
+        while(true)
+        {
+            scan.getNext();
+            
+            // Stop at the end of file or an end of flow token, the caller checks which
+            if((scan.currentToken.primClassif == Token.EOF)
+                || ((scan.currentToken.primClassif == Token.CONTROL) && (scan.currentToken.subClassif == Token.END)))
+            {
+                break;
+            }
+            
+            switch(scan.currentToken.iLexemeId)
+            {
+                case LexemeTable.IF:
+                    stmtList.add(ifStmt());
+                    break;
+                case LexemeTable.WHILE:
+                    stmtList.add(whileStmt());
+                    break;
+                case LexemeTable.FOR:
+                    stmtList.add(forStmt());
+                    break;
+                case LexemeTable.DEBUG:
+                    stmtList.add(debugStmt());
+                    break;
+                case LexemeTable.DEF:
+                    stmtList.add(defStmt());
+                    break;
+                case LexemeTable.RETURN:
+                    stmtList.add(returnStmt());
+                    break;
+                default:
+                    if((scan.currentToken.primClassif == Token.OPERAND) && (scan.currentToken.subClassif == Token.IDENTIFIER))
+                    {
+                        stmtList.add(assignStmt());
+                    }
+                    else if((scan.currentToken.primClassif == Token.CONTROL) && (scan.currentToken.subClassif == Token.DECLARE))
+                    {
+                        stmtList.add(declareStmt());
+                    }
+                    else if(scan.currentToken.primClassif == Token.FUNCTION)
+                    {
+                        stmtList.add(callStmt());
+                    }
+                    else
+                    {
+                        unsupported();
+                    }
+                    break;
+            }
+        }
+        
+        ASTNode stmtListNode = new ASTNode(ASTNode.STMT_LIST, null);
+        stmtListNode.childM = stmtList.toArray(new ASTNode[stmtList.size()]);
+        return stmtListNode;
+    }
+    
+    /**
+     * Checks that the statements of a flow statement ended with the given end of flow
+     * token, and that it is followed by ';'
+     * @param endStr     the end of flow token, e.g., "endwhile"
+     * @throws Exception if they did not
+     */
+    private void endFlow(String endStr) throws Exception
+    {
+        if(! scan.currentToken.tokenStr.equals(endStr))
+        {
+            unsupported();
+        }
+        if(! scan.getNext().equals(";"))
+        {
+            unsupported();
+        }
+    }
+    
+    /**
+     * Checks that the scanner is on the given token
+     * @param tokenStr   the expected token, e.g., ":"
+     * @throws Exception if it is not
+     */
+    private void expect(String tokenStr) throws Exception
+    {
+        if(! scan.currentToken.tokenStr.equals(tokenStr))
+        {
+            unsupported();
+        }
+    }
+    
+    private ASTNode ifStmt() throws Exception
+    {
+        ASTNode ifNode = new ASTNode(ASTNode.IF_STMT, scan.currentToken);
+        
+        ifNode.exprM = new ASTNode[] { expr() };
+        expect(":");
+        ifNode.stmtsM = new ASTNode[2];
+        ifNode.stmtsM[0] = statements();
+        
+        if(scan.currentToken.tokenStr.equals("else"))
+        {
+            if(! scan.getNext().equals(":"))
+            {
+                unsupported();
+            }
+            ifNode.stmtsM[1] = statements();
+        }
+        endFlow("endif");
+        return ifNode;
+    }
+    
+    private ASTNode whileStmt() throws Exception
+    {
+        ASTNode whileNode = new ASTNode(ASTNode.WHILE_STMT, scan.currentToken);
+        
+        whileNode.exprM = new ASTNode[] { expr() };
+        expect(":");
+        whileNode.stmtsM = new ASTNode[] { statements() };
+        endFlow("endwhile");
+        return whileNode;
+    }
+    
+    private ASTNode forStmt() throws Exception
+    {
+        ASTNode forNode;
+        Token forToken = scan.currentToken;
+        
+        // Next token should be the control variable used in the loop
+        scan.getNext();
+        if(scan.currentToken.primClassif != Token.OPERAND || scan.currentToken.subClassif != Token.IDENTIFIER)
+        {
+            unsupported();
+        }
+        String variableStr = scan.currentToken.tokenStr;
+        
+        scan.getNext();
+        // 1) for cv = sv to limit by incr:
+        if(scan.currentToken.tokenStr.equals("="))
+        {
+            forNode = new ASTNode(ASTNode.FOR_COUNT, forToken);
+            forNode.exprM = new ASTNode[3];
+            forNode.exprM[0] = expr();
+            expect("to");
+            forNode.exprM[1] = expr();
+            if(scan.currentToken.tokenStr.equals("by"))
+            {
+                forNode.exprM[2] = expr();
+            }
+            expect(":");
+        }
+        // 2) and 3) for item in string or array:
+        else if(scan.currentToken.tokenStr.equals("in"))
+        {
+            forNode = new ASTNode(ASTNode.FOR_IN, forToken);
+            forNode.exprM = new ASTNode[] { expr() };
+            expect(":");
+        }
+        // 4) for stringCV from string by delimiter:
+        else if(scan.currentToken.tokenStr.equals("from"))
+        {
+            forNode = new ASTNode(ASTNode.FOR_FROM, forToken);
+            forNode.exprM = new ASTNode[2];
+            forNode.exprM[0] = expr();
+            expect("by");
+            forNode.exprM[1] = expr();
+            expect(":");
+        }
+        else
+        {
+            unsupported();
+            return null; // Never reached
+        }
+        forNode.variableStr = variableStr;
+        forNode.iSlot = symbolTable.getSlot(variableStr);
+        
+        forNode.stmtsM = new ASTNode[] { statements() };
+        endFlow("endfor");
+        // The control variable is checked on the ';' after every iteration
+        forNode.endToken = scan.currentToken;
+        return forNode;
+    }
+    
+    private ASTNode assignStmt() throws Exception
+    {
+        Token variableToken = scan.currentToken;
+        ASTNode indexExpr = null;
+        
+        // An array element or string index is the target
+        if(scan.nextToken.tokenStr.equals("["))
+        {
+            indexExpr = bracketExpr(variableToken);
+        }
+        else
+        {
+            scan.getNext();
+        }
+        
+        // Only '=', '-=', and '+=' are assigned
+        if(scan.currentToken.primClassif != Token.OPERATOR)
+        {
+            unsupported();
+        }
+        if(! Arrays.asList("=", "-=", "+=").contains(scan.currentToken.tokenStr))
+        {
+            unsupported();
+        }
+        ASTNode assignNode = new ASTNode(ASTNode.ASSIGN_STMT, scan.currentToken);
+        assignNode.variableStr = variableToken.tokenStr;
+        assignNode.iSlot = symbolTable.getSlot(variableToken);
+        assignNode.exprM = new ASTNode[] { indexExpr, expr() };
+        expect(";");
+        
+        if(indexExpr == null && assignNode.token.tokenStr.equals("="))
+        {
+            appendOperands(assignNode);
+        }
+        return assignNode;
+    }
+    
+    /**
+     * Compiles the appended operands of an assignment that appends to its own variable
+     * <p>
+     * For 's = s # a # b', the left-most operand of the '#' operators is the
+     * target variable, so 'a' and 'b' can be appended to the variable's value
+     * instead of copying it into a new string (see 'ResultValue.append').
+     * The whole expression is still compiled, for when the variable is not a
+     * string or a debugger is on.
+     * @param assignNode  the ASSIGN_STMT node, assigning with '=' to a variable
+     */
+    private void appendOperands(ASTNode assignNode)
+    {
+        ASTNode exprNode = assignNode.exprM[1];
+        ArrayList<Bytecode> appendCodeList = new ArrayList<Bytecode>();
+        
+        // Go down the left operands of the '#' operators to the variable
+        ASTNode node = exprNode.childM[0];
+        while(node.nodeType == ASTNode.BINARY_OP && node.token.tokenStr.equals("#"))
+        {
+            appendCodeList.add(0, new Bytecode(node.childM[1], parser));
+            node = node.childM[0];
+        }
+        if(node.nodeType == ASTNode.VARIABLE && node.token.tokenStr.equals(assignNode.variableStr)
+                && ! appendCodeList.isEmpty())
+        {
+            exprNode.appendCodeM = appendCodeList.toArray(new Bytecode[appendCodeList.size()]);
+        }
+    }
+    
+    private ASTNode declareStmt() throws Exception
+    {
+        Token declareToken = scan.currentToken;
+        ASTNode declareNode;
+        int declareType;
+        
+        switch(declareToken.iLexemeId)
+        {
+            case LexemeTable.INT:
+                declareType = Token.INTEGER;
+                break;
+            case LexemeTable.FLOAT:
+                declareType = Token.FLOAT;
+                break;
+            case LexemeTable.STRING:
+                declareType = Token.STRING;
+                break;
+            case LexemeTable.BOOL:
+                declareType = Token.BOOLEAN;
+                break;
+            case LexemeTable.DATE:
+                declareType = Token.DATE;
+                break;
+            default:
+                unsupported();
+                return null; // Never reached
+        }
+        
+        scan.getNext();
+        if((scan.currentToken.primClassif != Token.OPERAND) || (scan.currentToken.subClassif != Token.IDENTIFIER))
+        {
+            unsupported();
+        }
+        Token variableToken = scan.currentToken;
+        
+        // Array declaration
+        if(scan.nextToken.tokenStr.equals("["))
+        {
+            declareNode = new ASTNode(ASTNode.DECLARE_ARRAY, declareToken);
+            declareNode.structure = STIdentifier.FIXED_ARRAY;
+            declareNode.exprM = new ASTNode[1];
+            
+            // Move to the '['
+            scan.getNext();
+            
+            // 1) Int arr[] = 2, 3, 1;
+            if(scan.nextToken.tokenStr.equals("]"))
+            {
+                scan.getNext();
+                scan.getNext();
+                expect("=");
+            }
+            // 4) and 5) Int arr[unbound] ...
+            else if(scan.nextToken.tokenStr.equals("unbound"))
+            {
+                declareNode.structure = STIdentifier.UNBOUNDED_ARRAY;
+                scan.getNext();
+                scan.getNext();
+                expect("]");
+                scan.getNext();
+            }
+            // 2) and 3) Int arr[3] ...
+            else
+            {
+                scan.setPosition(declareToken);
+                scan.getNext();
+                declareNode.exprM[0] = bracketExpr(variableToken);
+            }
+            
+            // Value list
+            ArrayList<ASTNode> valueList = new ArrayList<ASTNode>();
+            if(scan.currentToken.tokenStr.equals("="))
+            {
+                do
+                {
+                    scan.getNext();
+                    valueList.add(literal());
+                }while(scan.getNext().equals(","));
+            }
+            declareNode.childM = valueList.toArray(new ASTNode[valueList.size()]);
+        }
+        // Primitive declaration
+        else
+        {
+            declareNode = new ASTNode(ASTNode.DECLARE_STMT, declareToken);
+            declareNode.childM = new ASTNode[1];
+            scan.getNext();
+            if(scan.currentToken.tokenStr.equals("="))
+            {
+                scan.getNext();
+                declareNode.childM[0] = literal();
+                scan.getNext();
+            }
+        }
+        declareNode.variableStr = variableToken.tokenStr;
+        declareNode.iSlot = symbolTable.getSlot(variableToken);
+        declareNode.dclType = declareType;
+        expect(";");
+        return declareNode;
+    }
+    
+    /**
+     * Builds the value of a declaration, which is a literal that may have a unary minus
+     * @return           the literal
+     * @throws Exception if it is not a literal
+     */
+    private ASTNode literal() throws Exception
+    {
+        boolean bNegative = false;
+        
+        if(scan.currentToken.tokenStr.equals("-") && scan.currentToken.subClassif == Token.UNARY)
+        {
+            scan.getNext();
+            bNegative = true;
+        }
+        if((scan.currentToken.primClassif != Token.OPERAND) || (scan.currentToken.subClassif == Token.IDENTIFIER))
+        {
+            unsupported();
+        }
+        ASTNode literalNode = new ASTNode(ASTNode.LITERAL, scan.currentToken);
+        literalNode.bNegative = bNegative;
+        return literalNode;
+    }
+    
+    private ASTNode callStmt() throws Exception
+    {
+        ASTNode callNode = new ASTNode(ASTNode.CALL_STMT, scan.currentToken);
+        
+        // 'expr' starts on the function token
+        parser.bCalledExprFromStmts = true;
+        callNode.exprM = new ASTNode[] { expr() };
+        parser.bCalledExprFromStmts = false;
+        expect(";");
+        return callNode;
+    }
+    
+    /**
+     * Builds a function's definition, whose statements are built with the function's
+     * locals, and those of the functions it is in, resolved to their slots
+     * @return           the FUNC_DEF node
+     * @throws Exception if the definition is not valid
+     */
+    private ASTNode defStmt() throws Exception
+    {
+        Token defToken = scan.currentToken;
+        STFunction defFunction = parser.functionDefiner.defined(defToken);
+        if(defFunction == null || defFunction.scope.parent != ((function == null) ? null : function.scope))
+        {
+            unsupported();
+        }
+        ASTNode defNode = new ASTNode(ASTNode.FUNC_DEF, defToken);
+        defNode.variableStr = defFunction.symbol;
+        defNode.iSlot = symbolTable.intern(defFunction.symbol);
+        
+        // The statements start after the ':'
+        scan.setPosition(defFunction.bodyToken);
+        StorageManager storageManager = symbolTable.storageManager;
+        STFunction outerFunction = function;
+        function = defFunction;
+        storageManager.scope = defFunction.scope;
+        try
+        {
+            defNode.stmtsM = new ASTNode[] { statements() };
+        }
+        finally
+        {
+            function = outerFunction;
+            storageManager.scope = defFunction.scope.parent;
+        }
+        endFlow("enddef");
+        return defNode;
+    }
+    
+    private ASTNode returnStmt() throws Exception
+    {
+        ASTNode returnNode = new ASTNode(ASTNode.RETURN_STMT, scan.currentToken);
+        if(function == null)
+        {
+            unsupported();
+        }
+        
+        // A 'Void' function returns without a value, any other function with one
+        boolean bHasValue = ! (scan.nextToken.primClassif == Token.SEPARATOR && scan.nextToken.tokenStr.equals(";"));
+        if(bHasValue != (function.returnType != Token.VOID))
+        {
+            unsupported();
+        }
+        if(bHasValue)
+        {
+            returnNode.exprM = new ASTNode[] { expr() };
+        }
+        else
+        {
+            returnNode.exprM = new ASTNode[1];
+            scan.getNext();
+        }
+        expect(";");
+        return returnNode;
+    }
+    
+    private ASTNode debugStmt() throws Exception
+    {
+        ASTNode debugNode = new ASTNode(ASTNode.DEBUG_STMT, scan.currentToken);
+        
+        // 'debug Token' prints from the scanner, so only the other debuggers are built
+        debugNode.variableStr = scan.getNext();
+        if(! Arrays.asList("Assign", "Expr", "Postfix", "Profile").contains(debugNode.variableStr))
+        {
+            unsupported();
+        }
+        String debugOnOff = scan.getNext();
+        if(! (debugOnOff.equals("on") || debugOnOff.equals("off")))
+        {
+            unsupported();
+        }
+        debugNode.bNegative = debugOnOff.equals("on");
+        if(! scan.getNext().equals(";"))
+        {
+            unsupported();
+        }
+        return debugNode;
+    }
+    
+    /**
+     * Builds the expression inside the brackets after the given identifier, which
+     * is the current token
+     * <p>
+     * 'infixToPostfix' takes the identifier off the end of the post-fix list. The
+     * brackets after the identifier must be the whole expression, so that it is
+     * the identifier that was taken off.
+     * @param identToken the identifier before the brackets
+     * @return           the expression inside the brackets
+     * @throws Exception if the expression could not be built
+     */
+    private ASTNode bracketExpr(Token identToken) throws Exception
+    {
+        parser.bGettingArraySize = true;
+        ASTNode exprNode = expr();
+        parser.bGettingArraySize = false;
+        
+        // The '[' after the identifier must match the ']' before the end of the expression
+        int iDepth = 0;
+        for(int i = identToken.iTokenIndex + 1; i < exprNode.endToken.iTokenIndex; i++)
+        {
+            Token token = scan.tokenM[i];
+            if(token.primClassif == Token.SEPARATOR && token.tokenStr.equals("["))
+            {
+                iDepth++;
+            }
+            else if(token.primClassif == Token.SEPARATOR && token.tokenStr.equals("]"))
+            {
+                iDepth--;
+                if(iDepth == 0 && i != exprNode.endToken.iTokenIndex - 1)
+                {
+                    unsupported();
+                }
+            }
+        }
+        if(iDepth != 0)
+        {
+            unsupported();
+        }
+        return exprNode;
+    }
+    
+    /**
+     * Builds the expression after the scanner's position
+     * <p>
+     * The expression is converted by 'infixToPostfix', and the post-fix list is
+     * then built into a tree the same way 'evalPostfix' would have taken values
+     * off its stack. The scanner is left on the token that ended the expression.
+     * @return           the EXPR node
+     * @throws Exception if the expression could not be built
+     */
+    private ASTNode expr() throws Exception
+    {
+        parser.exprCheckList = new ArrayList<Token>();
+        ArrayList<Token> outList = parser.infixToPostfix();
+        
+        ASTNode exprNode = new ASTNode(ASTNode.EXPR, null);
+        exprNode.endToken = scan.currentToken;
+        exprNode.postfixList = outList;
+        exprNode.checkM = parser.exprCheckList.toArray(new Token[parser.exprCheckList.size()]);
+        for(Token checkToken : exprNode.checkM)
+        {
+            // An 'IN'/'NOTIN' is checked with the identifier after it
+            if(checkToken.primClassif == Token.FUNCTION)
+            {
+                checkToken = scan.tokenM[checkToken.iTokenIndex + 1];
+            }
+            symbolTable.getSlot(checkToken);
+        }
+        exprNode.bFoundAnOperator = parser.bFoundAnOperator;
+        exprNode.childM = new ASTNode[] { postfixToTree(outList) };
+        exprNode.code = new Bytecode(exprNode.childM[0], parser);
+        
+        if(exprNode.endToken.primClassif == Token.EOF)
+        {
+            unsupported();
+        }
+        return exprNode;
+    }
+    
+    /**
+     * Builds a post-fix list into a tree
+     * <p>
+     * Nodes take their operands off a stack, like 'evalPostfix' takes values off its
+     * stack. FUNC_ARGS and VALUE_LIST nodes stand in for the stack's markers. Where
+     * 'evalPostfix' would have errored (or would have taken a marker as a value), the
+     * build stops instead.
+     * @param outList    the post-fix list
+     * @return           the root of the tree
+     * @throws Exception if the post-fix list could not be built
+     */
+    private ASTNode postfixToTree(ArrayList<Token> outList) throws Exception
+    {
+        Stack<ASTNode> nodeStack = new Stack<ASTNode>();
+        
+        for(Token outToken : outList)
+        {
+            ASTNode node;
+            switch(outToken.primClassif)
+            {
+                case Token.OPERAND:
+                    if(outToken.subClassif != Token.IDENTIFIER)
+                    {
+                        node = new ASTNode(ASTNode.LITERAL, outToken);
+                    }
+                    else if(outToken.identifierType == Token.ARRAY_ELEM)
+                    {
+                        node = new ASTNode(ASTNode.ELEMENT_REF, outToken);
+                        node.childM = new ASTNode[] { popValue(nodeStack) };
+                        symbolTable.getSlot(outToken);
+                    }
+                    else
+                    {
+                        node = new ASTNode(ASTNode.VARIABLE, outToken);
+                        symbolTable.getSlot(outToken);
+                    }
+                    break;
+                
+                case Token.OPERATOR:
+                    if(outToken.subClassif == Token.UNARY)
+                    {
+                        if(! Arrays.asList("-", "not").contains(outToken.tokenStr))
+                        {
+                            unsupported();
+                        }
+                        node = new ASTNode(ASTNode.UNARY_OP, outToken);
+                        node.childM = new ASTNode[] { popValue(nodeStack) };
+                    }
+                    else
+                    {
+                        if(! Arrays.asList("^", "*", "/", "+", "-", "#", "<", ">", "<=", ">=", "==", "!=", "and", "or")
+                                   .contains(outToken.tokenStr))
+                        {
+                            unsupported();
+                        }
+                        node = new ASTNode(ASTNode.BINARY_OP, outToken);
+                        ASTNode op2 = popValue(nodeStack);
+                        ASTNode op1 = popValue(nodeStack);
+                        node.childM = new ASTNode[] { op1, op2 };
+                    }
+                    break;
+                
+                case Token.FUNCTION:
+                    node = function(outToken, nodeStack);
+                    break;
+                
+                case Token.FUNC_ARGS:
+                    node = new ASTNode(ASTNode.FUNC_ARGS, outToken);
+                    break;
+                
+                case Token.VALUE_LIST:
+                    node = new ASTNode(ASTNode.VALUE_LIST, outToken);
+                    break;
+                
+                default:
+                    unsupported();
+                    return null; // Never reached
+            }
+            nodeStack.push(node);
+        }
+        
+        // There must be exactly the one value left
+        ASTNode root = popValue(nodeStack);
+        if(! nodeStack.isEmpty())
+        {
+            unsupported();
+        }
+        return root;
+    }
+    
+    /**
+     * Builds a function call of a post-fix list, taking its parameters off the stack
+     * @param funcToken  the function token
+     * @param nodeStack  the stack of nodes built so far
+     * @return           the function's node
+     * @throws Exception if the function or its parameters could not be built
+     */
+    private ASTNode function(Token funcToken, Stack<ASTNode> nodeStack) throws Exception
+    {
+        ArrayList<ASTNode> paramList = new ArrayList<ASTNode>();
+        ASTNode node;
+        
+        if(funcToken.subClassif == Token.USER)
+        {
+            return userFunction(funcToken, nodeStack);
+        }
+        switch(funcToken.iLexemeId)
+        {
+            case LexemeTable.LENGTH:
+            case LexemeTable.SPACES:
+            case LexemeTable.ELEM:
+            case LexemeTable.MAXELEM:
+                paramList.add(popValue(nodeStack));
+                popMarker(nodeStack, ASTNode.FUNC_ARGS);
+                node = new ASTNode(ASTNode.BUILTIN_CALL, funcToken);
+                break;
+            
+            case LexemeTable.DATE_DIFF:
+            case LexemeTable.DATE_ADJ:
+            case LexemeTable.DATE_AGE:
+                paramList.add(0, popValue(nodeStack));
+                paramList.add(0, popValue(nodeStack));
+                popMarker(nodeStack, ASTNode.FUNC_ARGS);
+                node = new ASTNode(ASTNode.BUILTIN_CALL, funcToken);
+                break;
+            
+            case LexemeTable.PRINT:
+                while(nodeStack.isEmpty() || nodeStack.peek().nodeType != ASTNode.FUNC_ARGS)
+                {
+                    paramList.add(0, popValue(nodeStack));
+                }
+                nodeStack.pop();
+                node = new ASTNode(ASTNode.BUILTIN_CALL, funcToken);
+                break;
+            
+            case LexemeTable.IN_FUNC:
+            case LexemeTable.NOTIN_FUNC:
+                if(! nodeStack.isEmpty() && nodeStack.peek().nodeType == ASTNode.VALUE_LIST)
+                {
+                    nodeStack.pop();
+                    while(nodeStack.isEmpty() || nodeStack.peek().nodeType != ASTNode.FUNC_ARGS)
+                    {
+                        paramList.add(0, popValue(nodeStack));
+                    }
+                    nodeStack.pop();
+                    node = new ASTNode(ASTNode.IN_VALUE_LIST, funcToken);
+                }
+                else
+                {
+                    paramList.add(popValue(nodeStack));
+                    popMarker(nodeStack, ASTNode.FUNC_ARGS);
+                    node = new ASTNode(ASTNode.IN_ARRAY, funcToken);
+                }
+                // The value to look for is before the function's parameters
+                paramList.add(0, popValue(nodeStack));
+                break;
+            
+            default:
+                unsupported();
+                return null; // Never reached
+        }
+        node.childM = paramList.toArray(new ASTNode[paramList.size()]);
+        return node;
+    }
+    
+    /**
+     * Builds a user defined function call, whose parameters are all of the values after its FUNC_ARGS marker
+     * <p>
+     * A 'Ref' parameter must be given a variable, which gets the parameter's value
+     * back when the function returns.
+     * @param funcToken  the function token
+     * @param nodeStack  the stack of nodes built so far
+     * @return           the USER_CALL node
+     * @throws Exception if the parameters are not valid for the function
+     */
+    private ASTNode userFunction(Token funcToken, Stack<ASTNode> nodeStack) throws Exception
+    {
+        STFunction callFunction = (STFunction) symbolTable.getSymbol(funcToken.iLexemeId);
+        ArrayList<ASTNode> paramList = new ArrayList<ASTNode>();
+        while(nodeStack.isEmpty() || nodeStack.peek().nodeType != ASTNode.FUNC_ARGS)
+        {
+            paramList.add(0, popValue(nodeStack));
+        }
+        nodeStack.pop();
+        if(paramList.size() != callFunction.numArgs)
+        {
+            unsupported();
+        }
+        for(int i = 0; i < paramList.size(); i++)
+        {
+            if(callFunction.parmM[i].parm == STIdentifier.BY_REFERENCE && paramList.get(i).nodeType != ASTNode.VARIABLE)
+            {
+                unsupported();
+            }
+        }
+        ASTNode node = new ASTNode(ASTNode.USER_CALL, funcToken);
+        node.childM = paramList.toArray(new ASTNode[paramList.size()]);
+        return node;
+    }
+    
+    /**
+     * Takes a value (not a marker) off the stack
+     * @param nodeStack  the stack of nodes built so far
+     * @return           the node of the value
+     * @throws Exception if there was no value
+     */
+    private ASTNode popValue(Stack<ASTNode> nodeStack) throws Exception
+    {
+        if(nodeStack.isEmpty() || nodeStack.peek().nodeType == ASTNode.FUNC_ARGS
+                               || nodeStack.peek().nodeType == ASTNode.VALUE_LIST)
+        {
+            unsupported();
+        }
+        return nodeStack.pop();
+    }
+    
+    /**
+     * Takes the given marker off the stack
+     * @param nodeStack  the stack of nodes built so far
+     * @param nodeType   FUNC_ARGS or VALUE_LIST
+     * @throws Exception if the marker was not on top of the stack
+     */
+    private void popMarker(Stack<ASTNode> nodeStack, int nodeType) throws Exception
+    {
+        if(nodeStack.isEmpty() || nodeStack.peek().nodeType != nodeType)
+        {
+            unsupported();
+        }
+        nodeStack.pop();
+    }
+}
@@ -0,0 +1,768 @@
+package havabol;
+
+/**
+ * @desc
+ * Executes the tree that 'ASTBuilder' built from the source file
+ * <p>
+ * Each statement does what 'Parser' does when it executes the same statement,
+ * calling the same methods of 'Parser', 'Utility', and the symbol table, but
+ * without parsing anything; loop bodies are just executed again. Before anything
+ * that may error, the scanner's current token is set to the token the parser
+ * would have been on, so that error messages have the same line numbers.
+ *
+ * @authors Taylor Brauer, Caleb Mussulman, Steven Cenci
+ */
+public class ASTExecutor
+{
+    public Parser parser;
+    public Scanner scan;
+    public SymbolTable symbolTable;
+    public BytecodeVM vm;
+    private boolean bReturning;   // Set by a 'return' until the function's statements have all stopped
+    private ResultValue resReturn;// The value of that 'return', null for a 'Void' function
+    
+    ASTExecutor(Parser parser)
+    {
+        this.parser = parser;
+        this.scan = parser.scan;
+        this.symbolTable = parser.symbolTable;
+        this.vm = new BytecodeVM(parser);
+        this.vm.executor = this;
+    }
+    
+    /**
+     * Executes the statement list of the whole source file
+     * <p>
+     * The statements of each function's definition are given to the function first,
+     * so the function can be called before the definition is reached.
+     * @param program    the STMT_LIST node of the file
+     * @throws Exception if there is an error while executing
+     */
+    public void executeProgram(ASTNode program) throws Exception
+    {
+        defineFunctions(program);
+        executeStmts(program);
+    }
+    
+    /**
+     * Gives each function defined in a statement list (or in the blocks of its
+     * statements, or in another function) the statements of its definition
+     * @param stmtList  the STMT_LIST node
+     */
+    private void defineFunctions(ASTNode stmtList)
+    {
+        for(ASTNode stmt : stmtList.childM)
+        {
+            if(stmt.nodeType == ASTNode.FUNC_DEF)
+            {
+                ((STFunction) symbolTable.getSymbol(stmt.iSlot)).body = stmt.stmtsM[0];
+                defineFunctions(stmt.stmtsM[0]);
+            }
+            else if(stmt.stmtsM != null)
+            {
+                for(ASTNode stmts : stmt.stmtsM)
+                {
+                    if(stmts != null)
+                    {
+                        defineFunctions(stmts);
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Executes a statement list
+     * @param stmtList   the STMT_LIST node
+     * @throws Exception if there is an error while executing
+     */
+    public void executeStmts(ASTNode stmtList) throws Exception
+    {
+        executeStmts(stmtList, 0);
+    }
+    
+    /**
+     * Executes the statements of a statement list from one of them
+     * @param stmtList   the STMT_LIST node
+     * @param iFirst     the index of the first statement to execute
+     * @throws Exception if there is an error while executing
+     */
+    private void executeStmts(ASTNode stmtList, int iFirst) throws Exception
+    {
+        Profiler profiler = parser.profiler;
+        ASTNode[] stmtM = stmtList.childM;
+        for(int i = iFirst; i < stmtM.length; i++)
+        {
+            ASTNode stmt = stmtM[i];
+            // Each executed statement is a frame of the profiler
+            int iProfileDepth = profiler.bOn ? profiler.enterLine(stmt.token.iSourceLineNr) : -1;
+            
+            switch(stmt.nodeType)
+            {
+                case ASTNode.IF_STMT:
+                    ifStmt(stmt);
+                    break;
+                case ASTNode.WHILE_STMT:
+                    whileStmt(stmt);
+                    break;
+                case ASTNode.FOR_COUNT:
+                    forCountStmt(stmt);
+                    break;
+                case ASTNode.FOR_IN:
+                    forInStmt(stmt);
+                    break;
+                case ASTNode.FOR_FROM:
+                    forFromStmt(stmt);
+                    break;
+                case ASTNode.ASSIGN_STMT:
+                    assignStmt(stmt);
+                    break;
+                case ASTNode.DECLARE_STMT:
+                    declareStmt(stmt);
+                    break;
+                case ASTNode.DECLARE_ARRAY:
+                    declareArrayStmt(stmt);
+                    break;
+                case ASTNode.CALL_STMT:
+                    evalExpr(stmt.exprM[0]);
+                    break;
+                case ASTNode.DEBUG_STMT:
+                    debugStmt(stmt);
+                    break;
+                case ASTNode.FUNC_DEF:
+                    // The function was defined before anything was executed
+                    break;
+                case ASTNode.RETURN_STMT:
+                    returnStmt(stmt);
+                    break;
+                default:
+                    // Only reached if a statement is built but never added here
+                    parser.errorLineNr(stmt.token.iSourceLineNr, "Unknown statement type: '%s'", stmt.token.tokenStr);
+            }
+            profiler.exit(iProfileDepth);
+            
+            // The rest of the function's statements are not executed after a 'return'
+            if(bReturning)
+            {
+                return;
+            }
+        }
+    }
+    
+    private void ifStmt(ASTNode stmt) throws Exception
+    {
+        ResultValue resCond = evalExpr(stmt.exprM[0]);
+        
+        // The resulting condition must be a boolean value
+        if(resCond.type != Token.BOOLEAN)
+        {
+            parser.errorLineNr(stmt.token.iSourceLineNr, "Expected a 'BOOLEAN' type for the evaluation of 'if' statement's condition"
+                               + ", found '%s' type", Token.getType(parser, resCond.type));
+        }
+        
+        if(resCond.isTrue())
+        {
+            executeStmts(stmt.stmtsM[0]);
+        }
+        else if(stmt.stmtsM[1] != null)
+        {
+            executeStmts(stmt.stmtsM[1]);
+        }
+    }
+    
+    private void whileStmt(ASTNode stmt) throws Exception
+    {
+        ResultValue resCond = evalExpr(stmt.exprM[0]);
+        
+        // The resulting condition must be a boolean value (only checked the first time)
+        if(resCond.type != Token.BOOLEAN)
+        {
+            parser.errorLineNr(stmt.token.iSourceLineNr, "Expected a 'BOOLEAN' type for the evaluation of 'while' statement's condition"
+                               + ", found '%s' with type '%s'", resCond.getValue(), Token.getType(parser, resCond.type));
+        }
+        
+        HotLoop hotLoop = hotLoop(stmt);
+        boolean bTier = true; // the compiled loop may be run, until the variables do not fit it
+        while(resCond.isTrue())
+        {
+            int iResume = bTier ? hotLoop.backEdge(parser, stmt, 0, 0) : HotLoop.NOT_RUN;
+            if(iResume == HotLoop.DONE)
+            {
+                scan.currentToken = stmt.exprM[0].endToken;
+                return;
+            }
+            bTier = (iResume != HotLoop.GUARD_FAILED);
+            
+            if(iResume != HotLoop.BACK_EDGE)
+            {
+                loopStmts(stmt, hotLoop, iResume);
+                if(bReturning)
+                {
+                    return;
+                }
+            }
+            resCond = evalExpr(stmt.exprM[0]);
+        }
+    }
+    
+    private void forCountStmt(ASTNode stmt) throws Exception
+    {
+        String variableStr = stmt.variableStr;
+        
+        // Get the source value for the control variable
+        ResultValue resSourceVal = evalExpr(stmt.exprM[0]);
+        if(resSourceVal.structure != STIdentifier.PRIMITVE)
+        {
+            parser.error("Expected a primitive value to assign to '%s', found array '%s'", variableStr, resSourceVal.getValue());
+        }
+        Utility.coerce(parser, Token.INTEGER, resSourceVal, "for loop control variable initialization");
+        
+        // Get the limit
+        ResultValue resLimit = evalExpr(stmt.exprM[1]);
+        if(resLimit.structure != STIdentifier.PRIMITVE)
+        {
+            parser.error("Expected a primitive value as the 'for' loop limit, found array '%s'", resLimit.getValue());
+        }
+        Utility.coerce(parser, Token.INTEGER, resLimit, "for loop limit value");
+        
+        // Get the increment amount, which is 1 if there was no 'by'
+        ResultValue resIncr;
+        if(stmt.exprM[2] != null)
+        {
+            resIncr = evalExpr(stmt.exprM[2]);
+            if(resIncr.structure != STIdentifier.PRIMITVE)
+            {
+                parser.error("Expected a primitive value as the 'for' loop increment amount, found array '%s'", resIncr.getValue());
+            }
+            Utility.coerce(parser, Token.INTEGER, resIncr, "for loop increment value");
+        }
+        else
+        {
+            resIncr = new ResultValue();
+            resIncr.setValue("1");
+            resIncr.type = Token.INTEGER;
+            resIncr.structure = STIdentifier.PRIMITVE;
+        }
+        
+        // Declare the control variable and initialize to the source value
+        STIdentifier STControlVar = new STIdentifier(variableStr, Token.OPERAND, Token.INTEGER, STIdentifier.NOT_A_PARAMETER
+                                                                , STIdentifier.PRIMITVE, STIdentifier.LOCAL);
+        symbolTable.putSymbol(variableStr, STControlVar);
+        symbolTable.storeVariableValue(parser, stmt.iSlot, resSourceVal);
+        
+        Numeric numControlVar = new Numeric(parser, resSourceVal, "for", "control variable");
+        Numeric numLimit = new Numeric(parser, resLimit, "for", "limit value");
+        Numeric numIncr = new Numeric(parser, resIncr, "for", "increment value");
+        
+        if(numIncr.integerValue <= 0)
+        {
+            parser.error("The increment value for 'for' must be a positive integer, found '%s'", resIncr.getValue());
+        }
+        
+        // Continue in the 'for' loop as long as 'controlVar < limit'
+        HotLoop hotLoop = hotLoop(stmt);
+        boolean bTier = true; // the compiled loop may be run, until the variables do not fit it
+        while(numControlVar.integerValue < numLimit.integerValue)
+        {
+            int iResume = bTier ? hotLoop.backEdge(parser, stmt, numLimit.integerValue, numIncr.integerValue) : HotLoop.NOT_RUN;
+            if(iResume == HotLoop.DONE)
+            {
+                scan.currentToken = stmt.endToken;
+                return;
+            }
+            bTier = (iResume != HotLoop.GUARD_FAILED);
+            
+            loopStmts(stmt, hotLoop, iResume);
+            if(bReturning)
+            {
+                return;
+            }
+            
+            // The control variable is checked on the ';' after the 'endfor'
+            scan.currentToken = stmt.endToken;
+            
+            // The user may re-declare the control variable and change it's value or type
+            ResultValue resControlVarVal = symbolTable.storageManager.getValue(stmt.iSlot);
+            if(resControlVarVal == null)
+            {
+                parser.error("Control variable '%s' was re-declared but not initialized", variableStr);
+            }
+            if(resControlVarVal.structure != STIdentifier.PRIMITVE)
+            {
+                parser.error("Control variable '%s' was redeclared as an array, must be primitive", variableStr);
+            }
+            Utility.coerce(parser, Token.INTEGER, resControlVarVal, "for loop control variable comparison");
+            
+            // Add the increment value to the control variable
+            numControlVar = new Numeric(parser, resControlVarVal, "for", "control variable");
+            numControlVar.integerValue += numIncr.integerValue;
+            resControlVarVal.setInteger(numControlVar.integerValue);
+        }
+    }
+    
+    /**
+     * Gets the 'HotLoop' of a 'while' or counting 'for', which it is given the first time it is executed
+     * @param stmt  the WHILE_STMT or FOR_COUNT node
+     * @return      its 'HotLoop'
+     */
+    private HotLoop hotLoop(ASTNode stmt)
+    {
+        if(stmt.hotLoop == null)
+        {
+            stmt.hotLoop = new HotLoop();
+        }
+        return stmt.hotLoop;
+    }
+    
+    /**
+     * Executes the statements of a loop, or the rest of them after its compiled
+     * code stopped at one of them
+     * @param stmt       the WHILE_STMT or FOR_COUNT node
+     * @param hotLoop    its 'HotLoop'
+     * @param iResume    the index of the statement the compiled code stopped at,
+     *                   or NOT_RUN or GUARD_FAILED to execute all of them
+     * @throws Exception if there is an error while executing
+     */
+    private void loopStmts(ASTNode stmt, HotLoop hotLoop, int iResume) throws Exception
+    {
+        if(iResume >= 0)
+        {
+            resumeStmts(stmt.stmtsM[0], hotLoop.stmtM[iResume]);
+        }
+        else
+        {
+            executeStmts(stmt.stmtsM[0]);
+        }
+    }
+    
+    /**
+     * Executes a statement list from a statement, which may be in the block of one
+     * of its 'if' statements; the rest of that block is executed, then the rest of
+     * the list after the 'if'
+     * @param stmtList   the STMT_LIST node
+     * @param target     the statement to execute first
+     * @return           false if the statement is not in the list
+     * @throws Exception if there is an error while executing
+     */
+    private boolean resumeStmts(ASTNode stmtList, ASTNode target) throws Exception
+    {
+        ASTNode[] stmtM = stmtList.childM;
+        for(int i = 0; i < stmtM.length; i++)
+        {
+            ASTNode stmt = stmtM[i];
+            if(stmt == target)
+            {
+                executeStmts(stmtList, i);
+                return true;
+            }
+            if(stmt.nodeType == ASTNode.IF_STMT && (resumeStmts(stmt.stmtsM[0], target)
+                                                    || stmt.stmtsM[1] != null && resumeStmts(stmt.stmtsM[1], target)))
+            {
+                executeStmts(stmtList, i + 1);
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private void forInStmt(ASTNode stmt) throws Exception
+    {
+        String variableStr = stmt.variableStr;
+        ASTNode iterExpr = stmt.exprM[0];
+        
+        ResultValue resExpr = evalExpr(iterExpr);
+        
+        // 2) A primitive is iterated over character by character
+        if(resExpr.structure == STIdentifier.PRIMITVE)
+        {
+            String strIterate = resExpr.getValue();
+            
+            for(int i = 0; i < strIterate.length(); i++)
+            {
+                ResultValue resChar = new ResultValue();
+                resChar.setValue(Character.toString(strIterate.charAt(i)));
+                resChar.type = Token.STRING;
+                resChar.structure = STIdentifier.PRIMITVE;
+                
+                STIdentifier STChar = new STIdentifier(variableStr, Token.OPERAND, Token.STRING, STIdentifier.NOT_A_PARAMETER
+                                                                  , STIdentifier.PRIMITVE, STIdentifier.LOCAL);
+                symbolTable.putSymbol(variableStr, STChar);
+                symbolTable.storeVariableValue(parser, stmt.iSlot, resChar);
+                
+                executeStmts(stmt.stmtsM[0]);
+                if(bReturning)
+                {
+                    return;
+                }
+            }
+        }
+        // 3) An array is iterated over element by element
+        else
+        {
+            ResultArray resArray = (ResultArray) resExpr;
+            
+            // Get the number of elements currently in the array
+            int iForIterateNum = resArray.countSet();
+            
+            int iCurrentElementAmount = 0;
+            for(int i = resArray.nextSet(0); i >= 0 && iCurrentElementAmount < iForIterateNum; i = resArray.nextSet(i + 1))
+            {
+                ResultValue resArrayElem = resArray.get(i);
+                
+                // Only iterate if there was actually an element at that index
+                if(resArrayElem != null)
+                {
+                    iCurrentElementAmount++;
+                    STIdentifier STItem = new STIdentifier(variableStr, Token.OPERAND, Token.STRING, STIdentifier.NOT_A_PARAMETER
+                                                                      , STIdentifier.PRIMITVE, STIdentifier.LOCAL);
+                    symbolTable.putSymbol(variableStr, STItem);
+                    
+                    // The element is stored while on the ':' after the parameters
+                    scan.currentToken = iterExpr.endToken;
+                    ResultValue resArrayElemCopy = Utility.getResultValueCopy(resArrayElem);
+                    symbolTable.storeVariableValue(parser, stmt.iSlot, resArrayElemCopy);
+                    
+                    executeStmts(stmt.stmtsM[0]);
+                    if(bReturning)
+                    {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+    
+    private void forFromStmt(ASTNode stmt) throws Exception
+    {
+        String variableStr = stmt.variableStr;
+        
+        // Get the string to iterate over and check that it is primitive
+        ResultValue resIterStr = evalExpr(stmt.exprM[0]);
+        if(resIterStr.structure != STIdentifier.PRIMITVE)
+        {
+            parser.error("Expected a primitive string value to iterate over, found array '%s'", resIterStr.getValue());
+        }
+        
+        // Get the delimiting string and check that it is primitive
+        ResultValue resDelimStr = evalExpr(stmt.exprM[1]);
+        if(resDelimStr.structure != STIdentifier.PRIMITVE)
+        {
+            parser.error("Expected a primitive string value as the delimiter, found array '%s'", resDelimStr.getValue());
+        }
+        
+        int iStartOfSubstring = 0;
+        int iEndOfSubstring = -1;
+        
+        // If both strings are empty, there are no characters, so don't enter the loop at all
+        if(resIterStr.getValue().isEmpty() && resDelimStr.getValue().isEmpty())
+        {
+            iStartOfSubstring = 1;
+        }
+        
+        while((iStartOfSubstring <= resIterStr.getValue().length()))
+        {
+            STIdentifier STString = new STIdentifier(variableStr, Token.OPERAND, Token.STRING, STIdentifier.NOT_A_PARAMETER
+                                                                , STIdentifier.PRIMITVE, STIdentifier.LOCAL);
+            symbolTable.putSymbol(variableStr, STString);
+            
+            ResultValue resStringCV = new ResultValue();
+            resStringCV.type = Token.STRING;
+            resStringCV.structure = STIdentifier.PRIMITVE;
+            symbolTable.storeVariableValue(parser, stmt.iSlot, resStringCV);
+            
+            // An empty delimiter iterates character by character
+            if(resDelimStr.getValue().isEmpty())
+            {
+                iEndOfSubstring = iStartOfSubstring + 1;
+                resStringCV.setValue(resIterStr.getValue().substring(iStartOfSubstring, iEndOfSubstring));
+                if(iStartOfSubstring == (resIterStr.getValue().length() - 1))
+                {
+                    iStartOfSubstring += 2;
+                }
+                else
+                {
+                    iStartOfSubstring += 1;
+                }
+            }
+            // Otherwise, get a substring up to the next delimiting string
+            else
+            {
+                iEndOfSubstring = resIterStr.getValue().indexOf(resDelimStr.getValue(), iStartOfSubstring);
+                if(iEndOfSubstring < 0)
+                {
+                    iEndOfSubstring = resIterStr.getValue().length();
+                }
+                resStringCV.setValue(resIterStr.getValue().substring(iStartOfSubstring, iEndOfSubstring));
+                iStartOfSubstring = iEndOfSubstring + resDelimStr.getValue().length();
+            }
+            
+            executeStmts(stmt.stmtsM[0]);
+            if(bReturning)
+            {
+                return;
+            }
+        }
+    }
+    
+    private void assignStmt(ASTNode stmt) throws Exception
+    {
+        String variableStr = stmt.variableStr;
+        ResultValue resIndex = new ResultValue();
+        boolean bArrayElemAssign = (stmt.exprM[0] != null);
+        
+        // Get the value of the index of an array element or string index target
+        if(bArrayElemAssign)
+        {
+            resIndex = evalExpr(stmt.exprM[0]);
+            parser.iParseTokenLineNr = stmt.token.iSourceLineNr;
+            Utility.coerce(parser, Token.INTEGER, resIndex, "index of assignment target");
+        }
+        
+        // Get the target variable and check that it has been declared
+        scan.currentToken = stmt.token;
+        STIdentifier STVariable = (STIdentifier) symbolTable.getSymbol(stmt.iSlot);
+        if(STVariable == null)
+        {
+            parser.error("Variable '%s' has not been declared", variableStr);
+        }
+        
+        if(stmt.exprM[1].appendCodeM != null && appendStmt(stmt, STVariable))
+        {
+            return;
+        }
+        
+        ResultValue resSource = evalExpr(stmt.exprM[1]);
+        ResultValue resAssign = parser.assignValue(STVariable, variableStr, stmt.iSlot, stmt.token.tokenStr, bArrayElemAssign, resIndex, resSource);
+        parser.showAssign(variableStr, resAssign);
+    }
+    
+    /**
+     * Assigns 's = s # a # b' by appending 'a' and 'b' to the value of 's'
+     * <p>
+     * This is only done when the variable is a string with a STRING value and
+     * no debugger would show the expression or the assignment. Each operand is
+     * evaluated and converted the same as 'Utility.concat' does, in the same
+     * order as the whole expression.
+     * @param stmt         the ASSIGN_STMT node, whose expression has 'appendCodeM'
+     * @param STVariable   the target variable
+     * @return             false if the assignment must be done the usual way
+     * @throws Exception   if an operand could not be evaluated or converted to a string
+     */
+    private boolean appendStmt(ASTNode stmt, STIdentifier STVariable) throws Exception
+    {
+        ASTNode exprNode = stmt.exprM[1];
+        
+        if(parser.bShowAssign || parser.bShowExpr || parser.bShowPostfix)
+        {
+            return false;
+        }
+        if(STVariable.dclType != Token.STRING || STVariable.structure != STIdentifier.PRIMITVE)
+        {
+            return false;
+        }
+        ResultValue resTarget = symbolTable.storageManager.getAppendValue(stmt.iSlot);
+        if(resTarget == null || resTarget.type != Token.STRING || resTarget instanceof ResultArray)
+        {
+            return false;
+        }
+        
+        scan.currentToken = exprNode.endToken;
+        parser.checkIdentifiers(exprNode.checkM);
+        
+        for(Bytecode appendCode : exprNode.appendCodeM)
+        {
+            ResultValue resOperand = vm.execute(appendCode);
+            if(resOperand instanceof ResultArray)
+            {
+                resTarget.flatten();
+                Utility.concat(parser, resTarget, resOperand);
+            }
+            ResultValue resOperandStr = Utility.getResultValueCopy(resOperand);
+            Utility.coerce(parser, Token.STRING, resOperandStr, "#");
+            resTarget = resTarget.append(resOperandStr.getValue());
+        }
+        symbolTable.storeVariableValue(parser, stmt.iSlot, resTarget);
+        return true;
+    }
+    
+    private void declareStmt(ASTNode stmt) throws Exception
+    {
+        String variableStr = stmt.variableStr;
+        
+        STIdentifier STVariable = new STIdentifier(variableStr, Token.OPERAND, stmt.dclType, STIdentifier.NOT_A_PARAMETER
+                                                              , STIdentifier.PRIMITVE, STIdentifier.LOCAL);
+        symbolTable.putSymbol(variableStr, STVariable);
+        
+        // There may be a value to initialize the variable with
+        if(stmt.childM[0] != null)
+        {
+            ResultValue resVal = literalValue(stmt.childM[0]);
+            Utility.coerce(parser, stmt.dclType, resVal, "variable initialization");
+            symbolTable.storeVariableValue(parser, stmt.iSlot, resVal);
+        }
+    }
+    
+    private void declareArrayStmt(ASTNode stmt) throws Exception
+    {
+        String variableStr = stmt.variableStr;
+        ASTNode sizeExpr = stmt.exprM[0];
+        
+        // If there is no declared size, the number of values determine the size of a fixed-size array
+        boolean bFirstType = (stmt.structure == STIdentifier.FIXED_ARRAY && sizeExpr == null);
+        
+        ResultArray resArray = new ResultArray();
+        resArray.type = stmt.dclType;
+        resArray.setValue(variableStr);
+        resArray.structure = stmt.structure;
+        resArray.maxElem = 0;
+        
+        STIdentifier STArrayVariable = new STIdentifier(variableStr, Token.OPERAND, stmt.dclType, STIdentifier.NOT_A_PARAMETER
+                                                                   , resArray.structure, STIdentifier.LOCAL);
+        symbolTable.putSymbol(variableStr, STArrayVariable);
+        symbolTable.storageManager.putResultArray(parser, variableStr, resArray);
+        
+        // The declared size is evaluated after the array has been declared
+        if(sizeExpr != null)
+        {
+            ResultValue resSize = evalExpr(sizeExpr);
+            parser.iParseTokenLineNr = stmt.token.iSourceLineNr;
+            Utility.coerce(parser, Token.INTEGER, resSize, "declared size of array");
+            resArray.maxElem = Integer.parseInt(resSize.getValue());
+        }
+        
+        // Assign the value list, beginning at index zero
+        for(int iIndex = 0; iIndex < stmt.childM.length; iIndex++)
+        {
+            ResultValue resVal = literalValue(stmt.childM[iIndex]);
+            Utility.coerce(parser, resArray.type, resVal, "array initialization");
+            
+            if(bFirstType)
+            {
+                resArray.maxElem++;
+            }
+            
+            ResultValue resIndex = new ResultValue();
+            resIndex.setValue(Integer.toString(iIndex));
+            resIndex.type = Token.INTEGER;
+            
+            symbolTable.storageManager.arrayAssignElem(parser, stmt.iSlot, resVal, resIndex);
+        }
+    }
+    
+    /**
+     * Gets the value of a literal in a declaration, while on the literal's token
+     * @param literalNode  the LITERAL node
+     * @return             the value, made negative if it had a unary minus
+     * @throws Exception   if the unary minus is not valid for the literal
+     */
+    private ResultValue literalValue(ASTNode literalNode) throws Exception
+    {
+        scan.currentToken = literalNode.token;
+        
+        String negativeStr = null;
+        if(literalNode.bNegative)
+        {
+            negativeStr = Utility.uminus(parser, literalNode.token.toResultValue(parser)).getValue();
+        }
+        ResultValue resVal = literalNode.token.toResultValue(parser);
+        if(negativeStr != null)
+        {
+            resVal.setValue(negativeStr);
+        }
+        return resVal;
+    }
+    
+    private void returnStmt(ASTNode stmt) throws Exception
+    {
+        resReturn = null;
+        if(stmt.exprM[0] != null)
+        {
+            resReturn = parser.returnValue(evalExpr(stmt.exprM[0]));
+        }
+        bReturning = true;
+    }
+    
+    /**
+     * Calls a user defined function, for the 'CALL_USER' instruction
+     * <p>
+     * The function's statements are executed in a new activation record, and the
+     * scanner is put back on the token it was on for the rest of the caller's expression.
+     * @param funcToken  the function's token in the call
+     * @param argM       the stack of values, with the parameters from 'iFirstArg'
+     * @param iFirstArg  index of the first parameter
+     * @param iArgCnt    number of parameters
+     * @param argTokenM  token of each parameter that is a variable, for the 'Ref' parameters
+     * @return           the value the function returned
+     * @throws Exception if the parameters are not valid for the function, or there is
+     *                   an error while executing it
+     */
+    public ResultValue callFunction(Token funcToken, ResultValue[] argM, int iFirstArg, int iArgCnt, Token[] argTokenM) throws Exception
+    {
+        STFunction function = (STFunction) symbolTable.getSymbol(funcToken.iLexemeId);
+        Token callerToken = scan.currentToken;
+        
+        int iCallDepth = symbolTable.storageManager.callDepth();
+        
+        parser.enterFunction(funcToken, function, argM, iFirstArg, iArgCnt, argTokenM);
+        try
+        {
+            executeStmts(function.body);
+        }
+        catch(StackOverflowError e)
+        {
+            parser.tooManyCalls(funcToken, iCallDepth, e);
+        }
+        ResultValue resFuncReturn = bReturning ? resReturn : null;
+        bReturning = false;
+        resReturn = null;
+        
+        scan.currentToken = function.endToken;
+        ResultValue resValue = parser.leaveFunction(function, resFuncReturn, argTokenM);
+        scan.currentToken = callerToken;
+        return resValue;
+    }
+    
+    private void debugStmt(ASTNode stmt)
+    {
+        switch(stmt.variableStr)
+        {
+            case "Assign":
+                parser.bShowAssign = stmt.bNegative;
+                break;
+            case "Expr":
+                parser.bShowExpr = stmt.bNegative;
+                break;
+            case "Postfix":
+                parser.bShowPostfix = stmt.bNegative;
+                break;
+            case "Profile":
+                parser.profiler.setOn(stmt.bNegative);
+                break;
+        }
+    }
+    
+    /**
+     * Evaluates an expression
+     * <p>
+     * The identifiers of the expression are checked with the symbol table, the
+     * same as 'infixToPostfix' checks them, and then the compiled expression is executed.
+     * The scanner is on the token that ended the expression for the whole time.
+     * @param exprNode   the EXPR node
+     * @return           the result of the expression
+     * @throws Exception if the expression could not be evaluated
+     */
+    public ResultValue evalExpr(ASTNode exprNode) throws Exception
+    {
+        scan.currentToken = exprNode.endToken;
+        
+        parser.checkIdentifiers(exprNode.checkM);
+        
+        parser.showPostfix(exprNode.postfixList);
+        
+        ResultValue resReturnVal = vm.execute(exprNode.code);
+        
+        parser.showExpr(resReturnVal, exprNode.bFoundAnOperator);
+        
+        return resReturnVal;
+    }
+}
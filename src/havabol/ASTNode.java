@@ -0,0 +1,82 @@
+package havabol;
+
+import java.util.ArrayList;
+
+/**
+ * @desc
+ * A node of the tree that 'ASTBuilder' builds from the source file
+ * <p>
+ * Statements and expressions are both ASTNodes; the node type says which
+ * fields are used. A statement list has its statements in 'childM'. An
+ * expression is an EXPR node whose only child is the root of the expression's
+ * tree, and whose own fields hold what the expression debuggers and the symbol
+ * table checks need. The nodes of an expression's tree have their operands,
+ * parameters, or value list in 'childM', in source order.
+ * <p>
+ * 'endToken' is the token the scanner would have been on when the statement
+ * or expression was finished being parsed. 'ASTExecutor' puts it back in the
+ * scanner's current token before anything that may error, so that errors are
+ * reported on the same line as when the statement is parsed and executed.
+ *
+ * @authors Taylor Brauer, Caleb Mussulman, Steven Cenci
+ */
+public class ASTNode
+{
+    // Constants for statement node types
+    public static final int STMT_LIST     = 1;  // list of statements
+    public static final int IF_STMT       = 2;  // exprM: condition                  stmtsM: true part, false part
+    public static final int WHILE_STMT    = 3;  // exprM: condition                  stmtsM: body
+    public static final int FOR_COUNT     = 4;  // exprM: source, limit, increment    stmtsM: body
+    public static final int FOR_IN        = 5;  // exprM: string or array             stmtsM: body
+    public static final int FOR_FROM      = 6;  // exprM: string, delimiter           stmtsM: body
+    public static final int ASSIGN_STMT   = 7;  // exprM: index, source
+    public static final int DECLARE_STMT  = 8;  // childM: initial value
+    public static final int DECLARE_ARRAY = 9;  // exprM: declared size               childM: value list
+    public static final int CALL_STMT     = 10; // exprM: the function call
+    public static final int DEBUG_STMT    = 11;
+    public static final int FUNC_DEF      = 12; // stmtsM: the function's statements
+    public static final int RETURN_STMT   = 13; // exprM: the returned value (null for a 'Void' function)
+    
+    // Constants for expression node types
+    public static final int EXPR          = 20; // childM: root of the expression's tree
+    public static final int LITERAL       = 21;
+    public static final int VARIABLE      = 22;
+    public static final int ELEMENT_REF   = 23; // childM: index
+    public static final int UNARY_OP      = 24; // childM: operand
+    public static final int BINARY_OP     = 25; // childM: first operand, second operand
+    public static final int BUILTIN_CALL  = 26; // childM: parameters
+    public static final int IN_ARRAY      = 27; // childM: value, array
+    public static final int IN_VALUE_LIST = 28; // childM: value, values of the value list
+    public static final int FUNC_ARGS     = 29; // only used while building, start of a function's parameters
+    public static final int VALUE_LIST    = 30; // only used while building, end of a value list
+    public static final int USER_CALL     = 31; // childM: parameters
+    
+    public int nodeType;         // type of the node (constants above)
+    public Token token;          // first token of a statement (operator of an assignment); token of an expression node
+    public Token endToken;       // token the scanner is on when the statement or expression has been parsed
+    public ASTNode[] childM;     // statements of a list; operands, parameters, or values of an expression node
+    public ASTNode[] exprM;      // expressions of a statement, in source order (null if left out)
+    public ASTNode[] stmtsM;     // statement lists of a statement (null if left out)
+    public String variableStr;   // variable of an assignment, declaration, or 'for'; type of a 'debug'; function of a 'def'
+    public int iSlot;            // storage manager slot of the variable of an assignment, declaration, or 'for';
+                                 // id of the function of a 'def'
+    public int dclType;          // declared type of a declaration
+    public int structure;        // structure of a declared array
+    public boolean bNegative;    // a literal in a declaration had a unary minus; 'debug' is turning on
+    
+    // Only used by EXPR nodes
+    public ArrayList<Token> postfixList; // post-fix list of the expression, for the 'Postfix' debugger
+    public Token[] checkM;               // tokens to check with the symbol table before evaluating
+    public boolean bFoundAnOperator;     // the expression had an operator, for the 'Expr' debugger
+    public Bytecode code;                // the compiled expression, which is what is executed
+    public Bytecode[] appendCodeM;       // 's = s # a # b' assigns to 's': the compiled 'a' and 'b', to append to 's'
+    
+    // Only used by WHILE_STMT and FOR_COUNT nodes, while they are executed
+    public HotLoop hotLoop;              // how many times the loop went around, and its compiled code once it is hot
+    
+    ASTNode(int nodeType, Token token)
+    {
+        this.nodeType = nodeType;
+        this.token = token;
+    }
+}
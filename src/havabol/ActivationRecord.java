@@ -0,0 +1,51 @@
+package havabol;
+
+import java.util.Arrays;
+
+/**
+ * @desc
+ * The locals of one call of a user defined function, by their index in the function's scope
+ * <p>
+ * The storage manager keeps a stack of records that is reused from call to call:
+ * a call takes the record above the caller's, and only clears as many slots as
+ * the function has locals, so a call makes no new objects once its record has
+ * been used before. The record also keeps what the call replaced, so that it can
+ * be put back when the call returns.
+ *
+ * @authors Taylor Brauer, Caleb Mussulman, Steven Cenci
+ */
+public class ActivationRecord
+{
+    public Scope scope;               // the scope of the function being called
+    public STEntry[] entryM;          // entry of each local, null if it has not been declared
+    public ResultValue[] valueM;      // value of each local, null if it has no value
+    ActivationRecord savedRecord;     // the record the display had at the scope's depth before the call
+    Scope savedScope;                 // the scope identifiers were resolved in before the call
+    
+    ActivationRecord()
+    {
+        this.entryM = new STEntry[8];
+        this.valueM = new ResultValue[8];
+    }
+    
+    /**
+     * Makes the record ready for a call of a function with the given scope
+     * @param scope  the scope of the function
+     */
+    void reset(Scope scope)
+    {
+        this.scope = scope;
+        int iSize = scope.size();
+        if(iSize > entryM.length)
+        {
+            int iLength = Math.max(iSize, entryM.length * 2);
+            entryM = new STEntry[iLength];
+            valueM = new ResultValue[iLength];
+        }
+        else
+        {
+            Arrays.fill(entryM, 0, iSize, null);
+            Arrays.fill(valueM, 0, iSize, null);
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package havabol;
+
+import java.util.ArrayList;
+
+/**
+ * @desc
+ * The instructions of one compiled expression, which 'BytecodeVM' executes
+ * <p>
+ * An expression's tree is compiled once, when the program is built, into a
+ * flat list of instructions for a stack machine. Each instruction has an opcode,
+ * the token it came from (for its operand, name, and line number in errors), and
+ * a count of values it takes off the stack when that is not fixed. The values
+ * of the operators are the same as evaluating the post-fix list, because the
+ * instructions are in the same order as the post-fix list.
+ * <p>
+ * The instructions are never changed after they are compiled. A value list of
+ * only literals is not pushed; its array is made the first time the instruction
+ * is executed and kept, with the index that 'IN' makes of it.
+ * <p>
+ * A subexpression of only literals (e.g., '60 * 60 * 24', '"a" # "b"', or
+ * 'dateAdj("2017-01-01", 7)') is folded into its value while compiling, by the
+ * same 'Utility' methods that would compute it when it is executed, so it is
+ * only computed once. If computing it raises an error, it is compiled as it is,
+ * so the error is still raised where and when it would have been.
+ *
+ * @authors Taylor Brauer, Caleb Mussulman, Steven Cenci
+ */
+public class Bytecode
+{
+    // Constants for opcodes
+    public static final int PUSH_LITERAL = 1;  // push the value of the token
+    public static final int LOAD_VAR     = 2;  // push the value of the variable
+    public static final int LOAD_ELEM    = 3;  // pop index, push the array element or string character
+    public static final int NEG          = 4;  // unary operators
+    public static final int NOT          = 5;
+    public static final int EXP          = 6;  // binary operators
+    public static final int MUL          = 7;
+    public static final int DIV          = 8;
+    public static final int ADD          = 9;
+    public static final int SUB          = 10;
+    public static final int CONCAT       = 11;
+    public static final int LT           = 12;
+    public static final int GT           = 13;
+    public static final int LE           = 14;
+    public static final int GE           = 15;
+    public static final int EQ           = 16;
+    public static final int NE           = 17;
+    public static final int AND          = 18;
+    public static final int OR           = 19;
+    public static final int CALL_BUILTIN = 20; // pop 'argc' parameters, push the result of the built-in function
+    public static final int PRINT        = 21; // pop 'argc' parameters, print them
+    public static final int IN_ARRAY     = 22; // pop array and value, push 'IN'/'NOTIN'
+    public static final int IN_LIST      = 23; // pop 'argc' values of a value list and the value, push 'IN'/'NOTIN'
+    public static final int IN_LITERALS  = 24; // pop the value, push 'IN'/'NOTIN' for the 'argc' literals of a value list
+    public static final int PUSH_CONST   = 25; // push a copy of the value a constant subexpression was folded into
+    public static final int CALL_USER    = 26; // pop 'argc' parameters, push the value the user defined function returns
+    
+    public int[] opM;        // opcode of each instruction
+    public Token[] tokenM;   // token of each instruction
+    public int[] argcM;      // number of parameters or values, for CALL_BUILTIN, PRINT, IN_LIST, and CALL_USER
+    public int iMaxStack;    // most values that are ever on the stack at once
+    public Token[][] listTokenM;        // literals of the value list, for IN_LITERALS; for CALL_USER, the token
+                                        // of each parameter that is a variable (null for any other expression);
+                                        // for PUSH_CONST, the token of each built-in function call folded into
+                                        // it, which the profiler counts (null if there are none)
+    public ResultArray[] constListM;    // value list of IN_LITERALS, made the first time it is executed
+    public ResultValue[] constM;        // folded value of PUSH_CONST
+    
+    private int iDepth;      // values on the stack at this point of compiling
+    private ArrayList<Token[]> listTokenList = new ArrayList<Token[]>(); // literals of each instruction so far
+    private ArrayList<ResultValue> constList = new ArrayList<ResultValue>(); // folded value of each instruction so far
+    private Parser parser;   // computes the folded values, only while compiling
+    
+    /**
+     * Makes an expression with no instructions, which 'ProgramCache' fills in
+     * with the instructions of an expression that was compiled before
+     */
+    Bytecode()
+    {
+        listTokenList = null;
+        constList = null;
+    }
+    
+    /**
+     * Compiles the tree of an expression
+     * @param root    the root node of the expression's tree (the child of the EXPR node)
+     * @param parser  the parser, whose 'Utility' methods fold the constant subexpressions
+     */
+    Bytecode(ASTNode root, Parser parser)
+    {
+        this.parser = parser;
+        ArrayList<Integer> opList = new ArrayList<Integer>();
+        ArrayList<Token> tokenList = new ArrayList<Token>();
+        ArrayList<Integer> argcList = new ArrayList<Integer>();
+        
+        compile(root, opList, tokenList, argcList);
+        
+        int iSize = opList.size();
+        this.opM = new int[iSize];
+        this.tokenM = tokenList.toArray(new Token[iSize]);
+        this.argcM = new int[iSize];
+        this.listTokenM = listTokenList.toArray(new Token[iSize][]);
+        this.constListM = new ResultArray[iSize];
+        this.constM = constList.toArray(new ResultValue[iSize]);
+        listTokenList = null;
+        constList = null;
+        this.parser = null;
+        for(int i = 0; i < iSize; i++)
+        {
+            this.opM[i] = opList.get(i);
+            this.argcM[i] = argcList.get(i);
+        }
+    }
+    
+    /**
+     * Adds the instructions for a node, after the instructions for its children
+     * @param node       the node to compile
+     * @param opList     opcodes so far
+     * @param tokenList  tokens so far
+     * @param argcList   counts so far
+     */
+    private void compile(ASTNode node, ArrayList<Integer> opList, ArrayList<Token> tokenList, ArrayList<Integer> argcList)
+    {
+        int op;
+        int iPopped; // number of values the instruction takes off the stack
+        ASTNode[] compileM = node.childM; // children whose instructions go before this one
+        Token[] listTokens = null;        // literals of a value list that is not pushed
+        
+        // A constant subexpression is pushed as the value it folds into
+        if(node.nodeType != ASTNode.LITERAL)
+        {
+            ResultValue resConst = fold(node);
+            if(resConst != null)
+            {
+                ArrayList<Token> builtinList = new ArrayList<Token>();
+                foldedBuiltins(node, builtinList);
+                opList.add(PUSH_CONST);
+                tokenList.add(node.token);
+                argcList.add(0);
+                listTokenList.add(builtinList.isEmpty() ? null : builtinList.toArray(new Token[builtinList.size()]));
+                constList.add(resConst);
+                iDepth++;
+                iMaxStack = Math.max(iMaxStack, iDepth);
+                return;
+            }
+        }
+        
+        if(node.nodeType == ASTNode.IN_VALUE_LIST && isLiteralList(node))
+        {
+            compileM = new ASTNode[] { node.childM[0] };
+            listTokens = new Token[node.childM.length - 1];
+            for(int i = 1; i < node.childM.length; i++)
+            {
+                listTokens[i - 1] = node.childM[i].token;
+            }
+        }
+        
+        if(compileM != null)
+        {
+            for(ASTNode child : compileM)
+            {
+                compile(child, opList, tokenList, argcList);
+            }
+        }
+        iPopped = (compileM == null) ? 0 : compileM.length;
+        
+        switch(node.nodeType)
+        {
+            case ASTNode.LITERAL:
+                op = PUSH_LITERAL;
+                break;
+            case ASTNode.VARIABLE:
+                op = LOAD_VAR;
+                break;
+            case ASTNode.ELEMENT_REF:
+                op = LOAD_ELEM;
+                break;
+            case ASTNode.UNARY_OP:
+                op = (node.token.iLexemeId == LexemeTable.MINUS) ? NEG : NOT;
+                break;
+            case ASTNode.BINARY_OP:
+                op = binaryOp(node.token.iLexemeId);
+                break;
+            case ASTNode.BUILTIN_CALL:
+                op = (node.token.iLexemeId == LexemeTable.PRINT) ? PRINT : CALL_BUILTIN;
+                break;
+            case ASTNode.IN_ARRAY:
+                op = IN_ARRAY;
+                break;
+            case ASTNode.USER_CALL:
+                // A 'Ref' parameter's variable gets the parameter's value back when the function returns
+                op = CALL_USER;
+                listTokens = new Token[iPopped];
+                for(int i = 0; i < iPopped; i++)
+                {
+                    if(node.childM[i].nodeType == ASTNode.VARIABLE)
+                    {
+                        listTokens[i] = node.childM[i].token;
+                    }
+                }
+                break;
+            default:
+                // The value list does not count the value to look for
+                op = (listTokens != null) ? IN_LITERALS : IN_LIST;
+                break;
+        }
+        opList.add(op);
+        tokenList.add(node.token);
+        argcList.add((op == IN_LIST) ? iPopped - 1 : (op == IN_LITERALS) ? listTokens.length : iPopped);
+        listTokenList.add(listTokens);
+        constList.add(null);
+        
+        // Every instruction pushes one value
+        iDepth = iDepth - iPopped + 1;
+        iMaxStack = Math.max(iMaxStack, iDepth);
+    }
+    
+    /**
+     * Computes the value of a subexpression of only literals
+     * <p>
+     * The operators and the built-in functions other than 'print' are computed
+     * by the same methods 'BytecodeVM' calls, on the literals' values. Only
+     * the value is kept, so each execution pushes a copy of it.
+     * @param node  the node of the subexpression
+     * @return      the value, or null if the subexpression is not constant
+     *              or computing it raised an error
+     */
+    private ResultValue fold(ASTNode node)
+    {
+        if(! isConstant(node))
+        {
+            return null;
+        }
+        try
+        {
+            ResultValue resConst = evaluate(node);
+            // Its string is made now, so that a constant is never changed when it is run
+            resConst.getValue();
+            return resConst;
+        }
+        catch(Exception e)
+        {
+            // Left for the error to be raised when it is executed
+            return null;
+        }
+    }
+    
+    /**
+     * Gets the built-in function calls of a constant subexpression, so that the
+     * profiler still counts them each time the folded value is pushed
+     * @param node         the node of the subexpression
+     * @param builtinList  the tokens of the calls so far
+     */
+    private static void foldedBuiltins(ASTNode node, ArrayList<Token> builtinList)
+    {
+        if(node.childM == null)
+        {
+            return;
+        }
+        for(ASTNode child : node.childM)
+        {
+            foldedBuiltins(child, builtinList);
+        }
+        if(node.nodeType == ASTNode.BUILTIN_CALL)
+        {
+            builtinList.add(node.token);
+        }
+    }
+    
+    /**
+     * Checks if a subexpression only has literals, and operators or built-in functions that
+     * always give the same value for the same literals
+     * @param node  the node of the subexpression
+     * @return      true if the subexpression can be folded
+     */
+    private static boolean isConstant(ASTNode node)
+    {
+        switch(node.nodeType)
+        {
+            case ASTNode.LITERAL:
+                return true;
+            case ASTNode.UNARY_OP:
+            case ASTNode.BINARY_OP:
+                break;
+            case ASTNode.BUILTIN_CALL:
+                // 'print' has output, and 'ELEM' and 'MAXELEM' need an array
+                switch(node.token.iLexemeId)
+                {
+                    case LexemeTable.LENGTH:
+                    case LexemeTable.SPACES:
+                    case LexemeTable.DATE_DIFF:
+                    case LexemeTable.DATE_ADJ:
+                    case LexemeTable.DATE_AGE:
+                        break;
+                    default:
+                        return false;
+                }
+                break;
+            default:
+                return false;
+        }
+        for(ASTNode child : node.childM)
+        {
+            if(! isConstant(child))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Computes the value of a constant subexpression
+     * @param node       the node of the subexpression, which 'isConstant'
+     * @return           the value
+     * @throws Exception if an operation is not valid for its operands
+     */
+    private ResultValue evaluate(ASTNode node) throws Exception
+    {
+        switch(node.nodeType)
+        {
+            case ASTNode.LITERAL:
+                return node.token.toResultValue(parser);
+            case ASTNode.UNARY_OP:
+                if(node.token.iLexemeId == LexemeTable.MINUS)
+                {
+                    return Utility.uminus(parser, evaluate(node.childM[0]));
+                }
+                return Utility.not(parser, evaluate(node.childM[0]));
+            case ASTNode.BINARY_OP:
+                ResultValue resOp1 = evaluate(node.childM[0]);
+                return parser.binaryOperation(node.token, resOp1, evaluate(node.childM[1]));
+            default:
+                ResultValue resParam1 = evaluate(node.childM[0]);
+                ResultValue resParam2 = (node.childM.length > 1) ? evaluate(node.childM[1]) : null;
+                return parser.callBuiltin(node.token, resParam1, resParam2);
+        }
+    }
+    
+    /**
+     * Checks if every value of a value list is a literal
+     * @param node  the IN_VALUE_LIST node
+     * @return      true if the value list is always the same
+     */
+    private static boolean isLiteralList(ASTNode node)
+    {
+        for(int i = 1; i < node.childM.length; i++)
+        {
+            if(node.childM[i].nodeType != ASTNode.LITERAL)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Gets the opcode of a binary operator
+     * @param iOperatorId  the lexeme id of the operator, which 'ASTBuilder' already checked
+     * @return             the opcode
+     */
+    private static int binaryOp(int iOperatorId)
+    {
+        switch(iOperatorId)
+        {
+            case LexemeTable.EXPONENT:
+                return EXP;
+            case LexemeTable.MULTIPLY:
+                return MUL;
+            case LexemeTable.DIVIDE:
+                return DIV;
+            case LexemeTable.PLUS:
+                return ADD;
+            case LexemeTable.MINUS:
+                return SUB;
+            case LexemeTable.CONCAT:
+                return CONCAT;
+            case LexemeTable.LESS:
+                return LT;
+            case LexemeTable.GREATER:
+                return GT;
+            case LexemeTable.LESS_EQUAL:
+                return LE;
+            case LexemeTable.GREATER_EQUAL:
+                return GE;
+            case LexemeTable.EQUAL:
+                return EQ;
+            case LexemeTable.NOT_EQUAL:
+                return NE;
+            case LexemeTable.AND:
+                return AND;
+            default:
+                return OR;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package havabol;
+
+import java.util.Arrays;
+
+/**
+ * @desc
+ * Executes the instructions of a compiled expression ('Bytecode')
+ * <p>
+ * The values are kept on an array used as a stack, and each instruction calls
+ * the same 'Utility' and 'Parser' methods that evaluating the post-fix list does.
+ * Before each instruction, the parser's current parsing line number is set to
+ * the line of the instruction's token, for error messages.
+ *
+ * @authors Taylor Brauer, Caleb Mussulman, Steven Cenci
+ */
+public class BytecodeVM
+{
+    public Parser parser;
+    public SymbolTable symbolTable;
+    public ASTExecutor executor; // Executes the statements of a user defined function that is called
+    
+    BytecodeVM(Parser parser)
+    {
+        this.parser = parser;
+        this.symbolTable = parser.symbolTable;
+    }
+    
+    /**
+     * Executes the instructions of an expression
+     * @param code       the compiled expression
+     * @return           the value of the expression
+     * @throws Exception if an instruction could not be executed
+     */
+    public ResultValue execute(Bytecode code) throws Exception
+    {
+        ResultValue[] stackM = new ResultValue[code.iMaxStack];
+        int iTop = -1; // index of the value on top of the stack
+        int[] opM = code.opM;
+        Token[] tokenM = code.tokenM;
+        
+        for(int ip = 0; ip < opM.length; ip++)
+        {
+            Token token = tokenM[ip];
+            parser.iParseTokenLineNr = token.iSourceLineNr;
+            
+            switch(opM[ip])
+            {
+                case Bytecode.PUSH_LITERAL:
+                    stackM[++iTop] = token.toResultValue(parser);
+                    break;
+                
+                case Bytecode.PUSH_CONST:
+                    stackM[++iTop] = Utility.getResultValueCopy(code.constM[ip]);
+                    if(parser.profiler.bOn && code.listTokenM[ip] != null)
+                    {
+                        parser.profiler.countFolded(code.listTokenM[ip]);
+                    }
+                    break;
+                
+                case Bytecode.LOAD_VAR:
+                    stackM[++iTop] = symbolTable.retrieveVariableValue(parser, token);
+                    break;
+                
+                case Bytecode.LOAD_ELEM:
+                    stackM[iTop] = parser.getElement(token, stackM[iTop]);
+                    break;
+                
+                case Bytecode.NEG:
+                    stackM[iTop] = Utility.uminus(parser, stackM[iTop]);
+                    break;
+                
+                case Bytecode.NOT:
+                    stackM[iTop] = Utility.not(parser, stackM[iTop]);
+                    break;
+                
+                case Bytecode.EXP:
+                    iTop--;
+                    stackM[iTop] = Utility.exponent(parser, stackM[iTop], stackM[iTop + 1]);
+                    break;
+                
+                case Bytecode.MUL:
+                    iTop--;
+                    stackM[iTop] = Utility.multiply(parser, stackM[iTop], stackM[iTop + 1]);
+                    break;
+                
+                case Bytecode.DIV:
+                    iTop--;
+                    stackM[iTop] = Utility.divide(parser, stackM[iTop], stackM[iTop + 1]);
+                    break;
+                
+                case Bytecode.ADD:
+                    iTop--;
+                    stackM[iTop] = Utility.add(parser, stackM[iTop], stackM[iTop + 1], "+");
+                    break;
+                
+                case Bytecode.SUB:
+                    iTop--;
+                    stackM[iTop] = Utility.subtract(parser, stackM[iTop], stackM[iTop + 1], "-");
+                    break;
+                
+                case Bytecode.CONCAT:
+                    iTop--;
+                    stackM[iTop] = Utility.concat(parser, stackM[iTop], stackM[iTop + 1]);
+                    break;
+                
+                case Bytecode.LT:
+                    iTop--;
+                    stackM[iTop] = Utility.compare(parser, Utility.LESS_THAN, stackM[iTop], stackM[iTop + 1]);
+                    break;
+                
+                case Bytecode.GT:
+                    iTop--;
+                    stackM[iTop] = Utility.compare(parser, Utility.GREATER_THAN, stackM[iTop], stackM[iTop + 1]);
+                    break;
+                
+                case Bytecode.LE:
+                    iTop--;
+                    stackM[iTop] = Utility.compare(parser, Utility.LESS_THAN_EQUAL, stackM[iTop], stackM[iTop + 1]);
+                    break;
+                
+                case Bytecode.GE:
+                    iTop--;
+                    stackM[iTop] = Utility.compare(parser, Utility.GREATER_THAN_EQUAL, stackM[iTop], stackM[iTop + 1]);
+                    break;
+                
+                case Bytecode.EQ:
+                    iTop--;
+                    stackM[iTop] = Utility.compare(parser, Utility.EQUAL, stackM[iTop], stackM[iTop + 1]);
+                    break;
+                
+                case Bytecode.NE:
+                    iTop--;
+                    stackM[iTop] = Utility.compare(parser, Utility.NOT_EQUAL, stackM[iTop], stackM[iTop + 1]);
+                    break;
+                
+                case Bytecode.AND:
+                    iTop--;
+                    stackM[iTop] = Utility.compare(parser, Utility.AND, stackM[iTop], stackM[iTop + 1]);
+                    break;
+                
+                case Bytecode.OR:
+                    iTop--;
+                    stackM[iTop] = Utility.compare(parser, Utility.OR, stackM[iTop], stackM[iTop + 1]);
+                    break;
+                
+                case Bytecode.CALL_BUILTIN:
+                    if(code.argcM[ip] == 1)
+                    {
+                        stackM[iTop] = parser.callBuiltin(token, stackM[iTop], null);
+                    }
+                    else
+                    {
+                        iTop--;
+                        stackM[iTop] = parser.callBuiltin(token, stackM[iTop], stackM[iTop + 1]);
+                    }
+                    break;
+                
+                case Bytecode.PRINT:
+                    iTop -= code.argcM[ip];
+                    ResultValue resPrint = parser.print(Arrays.asList(stackM).subList(iTop + 1, iTop + 1 + code.argcM[ip]));
+                    stackM[++iTop] = resPrint;
+                    break;
+                
+                case Bytecode.CALL_USER:
+                    iTop -= code.argcM[ip];
+                    stackM[iTop + 1] = executor.callFunction(token, stackM, iTop + 1, code.argcM[ip], code.listTokenM[ip]);
+                    iTop++;
+                    break;
+                
+                case Bytecode.IN_ARRAY:
+                    iTop--;
+                    ResultArray resArray = parser.toInArray(token, stackM[iTop + 1]);
+                    stackM[iTop] = parser.inArray(token, stackM[iTop], resArray);
+                    break;
+                
+                case Bytecode.IN_LIST:
+                    // The values are added last to first, as 'evalPostfix' takes them off its stack
+                    ResultArray resArrValueList = new ResultArray();
+                    resArrValueList.structure = STIdentifier.FIXED_ARRAY;
+                    for(int i = 0; i < code.argcM[ip]; i++)
+                    {
+                        parser.addToValueList(token, resArrValueList, stackM[iTop--]);
+                    }
+                    stackM[iTop] = parser.inArray(token, stackM[iTop], resArrValueList);
+                    break;
+                
+                case Bytecode.IN_LITERALS:
+                    // The literals are added last to first, the same as IN_LIST
+                    if(code.constListM[ip] == null)
+                    {
+                        ResultArray resArrConstList = new ResultArray();
+                        resArrConstList.structure = STIdentifier.FIXED_ARRAY;
+                        Token[] listTokens = code.listTokenM[ip];
+                        for(int i = listTokens.length - 1; i >= 0; i--)
+                        {
+                            parser.addToValueList(token, resArrConstList, listTokens[i].toResultValue(parser));
+                        }
+                        code.constListM[ip] = resArrConstList;
+                    }
+                    stackM[iTop] = parser.inArray(token, stackM[iTop], code.constListM[ip]);
+                    break;
+                
+                default:
+                    // Only reached if an opcode is compiled but never added here
+                    parser.errorWithCurrent("Unknown opcode '%d' for '%s'", opM[ip], token.tokenStr);
+            }
+        }
+        return stackM[iTop];
+    }
+}
@@ -0,0 +1,220 @@
+package havabol;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+
+/**
+ * @desc
+ * Writes the bytes of a JVM class file, for a class that 'LoopCompiler' makes
+ * <p>
+ * Only what a compiled loop needs is written: a constant pool of strings, classes,
+ * integers and method references, one interface, and methods with their code.
+ * The class file has version 49, whose code is verified without stack map frames,
+ * so none have to be computed for the branches of the code.
+ *
+ * @authors Taylor Brauer, Caleb Mussulman, Steven Cenci
+ */
+public class ClassFileWriter
+{
+    public static final int ACC_PUBLIC = 0x0001;
+    public static final int ACC_FINAL  = 0x0010;
+    public static final int ACC_SUPER  = 0x0020;
+    
+    private static final int MAGIC         = 0xCAFEBABE;
+    private static final int MAJOR_VERSION = 49;
+    
+    // Tags of the constant pool entries
+    private static final int CONSTANT_UTF8          = 1;
+    private static final int CONSTANT_INTEGER       = 3;
+    private static final int CONSTANT_CLASS         = 7;
+    private static final int CONSTANT_METHODREF     = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    
+    private ByteArrayOutputStream pool;         // entries of the constant pool
+    private int iPoolCnt;                       // index the next entry gets
+    private HashMap<String, Integer> poolMap;   // index of each entry, so it is only written once
+    private ByteArrayOutputStream methods;      // the methods written so far
+    private int iMethodCnt;
+    private int iThisClass;
+    private int iSuperClass;
+    private int iInterface;
+    
+    /**
+     * Starts a class
+     * @param classNm      the internal name of the class (e.g., "havabol/Loop")
+     * @param superNm      the internal name of its superclass
+     * @param interfaceNm  the internal name of the interface it implements
+     */
+    ClassFileWriter(String classNm, String superNm, String interfaceNm)
+    {
+        this.pool = new ByteArrayOutputStream();
+        this.iPoolCnt = 1;
+        this.poolMap = new HashMap<String, Integer>();
+        this.methods = new ByteArrayOutputStream();
+        this.iThisClass = classRef(classNm);
+        this.iSuperClass = classRef(superNm);
+        this.iInterface = classRef(interfaceNm);
+    }
+    
+    int utf8(String str)
+    {
+        Integer iIndex = poolMap.get("s" + str);
+        if(iIndex == null)
+        {
+            iIndex = newEntry("s" + str, CONSTANT_UTF8);
+            byte[] strBytes = modifiedUtf8(str);
+            u2(pool, strBytes.length);
+            pool.write(strBytes, 0, strBytes.length);
+        }
+        return iIndex;
+    }
+    
+    int classRef(String classNm)
+    {
+        Integer iIndex = poolMap.get("c" + classNm);
+        if(iIndex == null)
+        {
+            int iNm = utf8(classNm);
+            iIndex = newEntry("c" + classNm, CONSTANT_CLASS);
+            u2(pool, iNm);
+        }
+        return iIndex;
+    }
+    
+    int integer(int iValue)
+    {
+        Integer iIndex = poolMap.get("i" + iValue);
+        if(iIndex == null)
+        {
+            iIndex = newEntry("i" + iValue, CONSTANT_INTEGER);
+            u4(pool, iValue);
+        }
+        return iIndex;
+    }
+    
+    int methodRef(String ownerNm, String methodNm, String descriptor)
+    {
+        String key = "m" + ownerNm + "." + methodNm + descriptor;
+        Integer iIndex = poolMap.get(key);
+        if(iIndex == null)
+        {
+            int iOwner = classRef(ownerNm);
+            int iNm = utf8(methodNm);
+            int iDescriptor = utf8(descriptor);
+            int iNameAndType = newEntry("n" + methodNm + descriptor, CONSTANT_NAME_AND_TYPE);
+            u2(pool, iNm);
+            u2(pool, iDescriptor);
+            iIndex = newEntry(key, CONSTANT_METHODREF);
+            u2(pool, iOwner);
+            u2(pool, iNameAndType);
+        }
+        return iIndex;
+    }
+    
+    /**
+     * Adds a method with its code, which has no exception handlers
+     * @param iAccess     the access flags
+     * @param methodNm    the name
+     * @param descriptor  the descriptor of its parameters and return type
+     * @param iMaxStack   the most values its code has on the operand stack
+     * @param iMaxLocals  the number of its local variables, with 'this' and the parameters
+     * @param codeM       its code
+     */
+    void addMethod(int iAccess, String methodNm, String descriptor, int iMaxStack, int iMaxLocals, byte[] codeM)
+    {
+        int iNm = utf8(methodNm);
+        int iDescriptor = utf8(descriptor);
+        int iCodeNm = utf8("Code");
+        u2(methods, iAccess);
+        u2(methods, iNm);
+        u2(methods, iDescriptor);
+        u2(methods, 1);
+        
+        // The Code attribute
+        u2(methods, iCodeNm);
+        u4(methods, 12 + codeM.length);
+        u2(methods, iMaxStack);
+        u2(methods, iMaxLocals);
+        u4(methods, codeM.length);
+        methods.write(codeM, 0, codeM.length);
+        u2(methods, 0);
+        u2(methods, 0);
+        iMethodCnt++;
+    }
+    
+    /**
+     * Gets the bytes of the class file
+     * @return  the class file
+     */
+    byte[] toBytes()
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(pool.size() + methods.size() + 32);
+        u4(out, MAGIC);
+        u2(out, 0);
+        u2(out, MAJOR_VERSION);
+        u2(out, iPoolCnt);
+        out.write(pool.toByteArray(), 0, pool.size());
+        u2(out, ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+        u2(out, iThisClass);
+        u2(out, iSuperClass);
+        u2(out, 1);
+        u2(out, iInterface);
+        u2(out, 0);
+        u2(out, iMethodCnt);
+        out.write(methods.toByteArray(), 0, methods.size());
+        u2(out, 0);
+        return out.toByteArray();
+    }
+    
+    private int newEntry(String key, int iTag)
+    {
+        int iIndex = iPoolCnt++;
+        poolMap.put(key, iIndex);
+        pool.write(iTag);
+        return iIndex;
+    }
+    
+    /**
+     * Gets the bytes of a string in the JVM's modified UTF-8
+     * @param str  the string
+     * @return     its bytes, with a NUL as two bytes and other characters as in UTF-8
+     */
+    private static byte[] modifiedUtf8(String str)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(str.length());
+        for(int i = 0; i < str.length(); i++)
+        {
+            char ch = str.charAt(i);
+            if(ch != 0 && ch < 0x80)
+            {
+                out.write(ch);
+            }
+            else if(ch < 0x800)
+            {
+                out.write(0xC0 | (ch >> 6));
+                out.write(0x80 | (ch & 0x3F));
+            }
+            else
+            {
+                out.write(0xE0 | (ch >> 12));
+                out.write(0x80 | ((ch >> 6) & 0x3F));
+                out.write(0x80 | (ch & 0x3F));
+            }
+        }
+        return out.toByteArray();
+    }
+    
+    private static void u2(ByteArrayOutputStream out, int iValue)
+    {
+        out.write(iValue >>> 8);
+        out.write(iValue);
+    }
+    
+    private static void u4(ByteArrayOutputStream out, int iValue)
+    {
+        out.write(iValue >>> 24);
+        out.write(iValue >>> 16);
+        out.write(iValue >>> 8);
+        out.write(iValue);
+    }
+}
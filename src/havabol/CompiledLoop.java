@@ -0,0 +1,26 @@
+package havabol;
+
+/**
+ * @desc
+ * A loop that 'LoopCompiler' compiled into a JVM class
+ * <p>
+ * Each variable of the loop is an 'int' while the compiled loop runs, at its
+ * index in 'varM'; 'HotLoop' gets them from the storage manager before the loop
+ * runs, and puts back the ones that were assigned.
+ *
+ * @authors Taylor Brauer, Caleb Mussulman, Steven Cenci
+ */
+public interface CompiledLoop
+{
+    /**
+     * Runs the rest of the loop, starting at the top of its statements
+     * @param varM       the value of each variable, then the limit and increment of a
+     *                   counting 'for', then the parser's current line number, which
+     *                   are all changed to what they are when it stops
+     * @param assignedM  set for each variable an assignment gave a value
+     * @return           'HotLoop.DONE' if the loop ended, 'HotLoop.BACK_EDGE' if the
+     *                   interpreter must evaluate the condition of a 'while', or the
+     *                   index of the statement the interpreter must go on from
+     */
+    int run(int[] varM, boolean[] assignedM);
+}
@@ -0,0 +1,407 @@
+package havabol;
+
+import java.util.ArrayList;
+
+/**
+ * @desc
+ * Defines the user defined functions of a source file, before anything is executed
+ * <p>
+ * A function is defined by
+ * <pre>
+ *   def Int gcd(Int a, Int b):
+ *       ...
+ *       return a;
+ *   enddef;
+ * </pre>
+ * with a return type of 'Int', 'Float', 'String', 'Bool', 'Date', or 'Void' (for
+ * no value). A parameter is a primitive ('Int a'), passed by value, a primitive
+ * passed by reference ('Ref Int count'), whose value is copied back into the
+ * caller's variable when the function returns, or an array ('Int arr[]'), which
+ * is the caller's array.
+ * <p>
+ * Every 'def' of the file's tokens is read when the parser is made, so a function
+ * may be called before its definition. Each function gets an 'STFunction' with its
+ * parameters and a 'Scope' of its locals: the parameters, then the variables the
+ * function declares and the control variables of its 'for' loops. A function may
+ * be defined in another function, whose locals it can use; its scope is nested in
+ * the other function's scope, and it may only be called while that function is
+ * running. Every token of a function's name is made a FUNCTION USER token. A
+ * definition that is not valid is not defined here, nor is any function it has
+ * in it; 'check' gives its error when it is reached.
+ *
+ * @authors Taylor Brauer, Caleb Mussulman, Steven Cenci
+ */
+public class FunctionDefiner
+{
+    private Parser parser;
+    private Token[] tokenM;
+    private SymbolTable symbolTable;
+    private ArrayList<STFunction> definedList; // functions in the order they were defined
+    
+    FunctionDefiner(Parser parser)
+    {
+        this.parser = parser;
+        this.tokenM = parser.scan.tokenM;
+        this.symbolTable = parser.symbolTable;
+        this.definedList = new ArrayList<STFunction>();
+    }
+    
+    /**
+     * Defines every valid function definition and the functions defined in it,
+     * then makes the tokens of their names FUNCTION USER tokens
+     */
+    public void defineAll()
+    {
+        boolean bDefined = false;
+        for(int i = 0; i < tokenM.length; i++)
+        {
+            if(tokenM[i].iLexemeId != LexemeTable.DEF)
+            {
+                continue;
+            }
+            try
+            {
+                STFunction function = define(i, null);
+                i = function.endToken.iTokenIndex;
+                bDefined = true;
+            }
+            catch(ParserException e)
+            {
+                // The error is given when the definition is reached, and a definition in it is not defined either
+                i = endIndex(i);
+            }
+        }
+        if(! bDefined)
+        {
+            return;
+        }
+        
+        for(Token token : tokenM)
+        {
+            if(token.primClassif == Token.OPERAND && token.subClassif == Token.IDENTIFIER
+                && token.iLexemeId >= 0 && symbolTable.getSymbol(token.iLexemeId) instanceof STFunction)
+            {
+                token.primClassif = Token.FUNCTION;
+                token.subClassif = Token.USER;
+            }
+        }
+    }
+    
+    /**
+     * Gets the function a 'def' defined
+     * @param defToken  the 'def' token
+     * @return          the function, or null if the definition is not valid
+     */
+    public STFunction defined(Token defToken)
+    {
+        Token nameToken = token(defToken.iTokenIndex + 2);
+        if(nameToken.iLexemeId < 0 || nameToken.iLexemeId >= symbolTable.entryM.length)
+        {
+            return null;
+        }
+        STEntry entry = symbolTable.getSymbol(nameToken.iLexemeId);
+        if(entry instanceof STFunction && ((STFunction) entry).defToken == defToken)
+        {
+            return (STFunction) entry;
+        }
+        return null;
+    }
+    
+    /**
+     * Checks a definition, which gives the error that kept it from being defined
+     * @param defToken         the 'def' token, which is in the current scope
+     * @return                 the function
+     * @throws ParserException if the definition is not valid
+     */
+    public STFunction check(Token defToken) throws ParserException
+    {
+        STFunction function = defined(defToken);
+        if(function == null)
+        {
+            // Reading it again gives the error
+            function = define(defToken.iTokenIndex, symbolTable.storageManager.scope);
+        }
+        return function;
+    }
+    
+    /**
+     * Reads a definition and defines its function, and the functions defined in it
+     * <p>
+     * If any of them is not valid, none of them is defined.
+     * @param iDefIndex        the index of the 'def' token
+     * @param parent           the scope of the function the definition is in, or null
+     * @return                 the function
+     * @throws ParserException if the definition is not valid
+     */
+    private STFunction define(int iDefIndex, Scope parent) throws ParserException
+    {
+        int iDefinedCnt = definedList.size();
+        try
+        {
+            return read(iDefIndex, parent);
+        }
+        catch(ParserException e)
+        {
+            while(definedList.size() > iDefinedCnt)
+            {
+                STFunction function = definedList.remove(definedList.size() - 1);
+                symbolTable.entryM[symbolTable.intern(function.symbol)] = null;
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * Reads a definition for 'define'
+     * @param iDefIndex        the index of the 'def' token
+     * @param parent           the scope of the function the definition is in, or null
+     * @return                 the function
+     * @throws ParserException if the definition is not valid
+     */
+    private STFunction read(int iDefIndex, Scope parent) throws ParserException
+    {
+        Token defToken = tokenM[iDefIndex];
+        int i = iDefIndex + 1;
+        
+        // Get the return type
+        Token typeToken = token(i++);
+        int returnType = (typeToken.iLexemeId == LexemeTable.VOID) ? Token.VOID : declareType(typeToken);
+        if(returnType < 0)
+        {
+            error(typeToken, "Expected the return type of the function after 'def', found '%s'", typeToken.tokenStr);
+        }
+        
+        // Get the name, which must not be the name of another function
+        Token nameToken = token(i++);
+        if(! isName(nameToken))
+        {
+            error(nameToken, "Expected the name of the function after '%s', found '%s'", typeToken.tokenStr, nameToken.tokenStr);
+        }
+        String functionNm = nameToken.tokenStr;
+        if(symbolTable.getSymbol(nameToken.iLexemeId) != null)
+        {
+            error(nameToken, "Function '%s' is already defined", functionNm);
+        }
+        if(parent != null && parent.iDepth == Scope.MAX_DEPTH)
+        {
+            error(nameToken, "Function '%s' is nested in more than %d functions", functionNm, Scope.MAX_DEPTH);
+        }
+        if(! token(i++).tokenStr.equals("("))
+        {
+            error(nameToken, "Expected '(' after the name of function '%s'", functionNm);
+        }
+        
+        // Get the parameters
+        ArrayList<STIdentifier> parmList = new ArrayList<STIdentifier>();
+        ArrayList<Token> parmTokenList = new ArrayList<Token>();
+        boolean bHasRef = false;
+        if(isSeparator(token(i), ")"))
+        {
+            i++;
+        }
+        else
+        {
+            while(true)
+            {
+                int parm = STIdentifier.BY_VALUE;
+                if(token(i).iLexemeId == LexemeTable.REF)
+                {
+                    parm = STIdentifier.BY_REFERENCE;
+                    bHasRef = true;
+                    i++;
+                }
+                Token parmTypeToken = token(i++);
+                int dclType = declareType(parmTypeToken);
+                if(dclType < 0)
+                {
+                    error(parmTypeToken, "Expected the type of a parameter of function '%s', found '%s'", functionNm, parmTypeToken.tokenStr);
+                }
+                Token parmToken = token(i++);
+                if(! isName(parmToken))
+                {
+                    error(parmToken, "Expected the name of a parameter of function '%s', found '%s'", functionNm, parmToken.tokenStr);
+                }
+                for(Token otherToken : parmTokenList)
+                {
+                    if(otherToken.iLexemeId == parmToken.iLexemeId)
+                    {
+                        error(parmToken, "Function '%s' already has a parameter '%s'", functionNm, parmToken.tokenStr);
+                    }
+                }
+                
+                // An array parameter is the caller's array, of any size
+                int structure = STIdentifier.PRIMITVE;
+                if(isSeparator(token(i), "["))
+                {
+                    if(! isSeparator(token(i + 1), "]"))
+                    {
+                        error(parmToken, "Expected '[]' after array parameter '%s' of function '%s'", parmToken.tokenStr, functionNm);
+                    }
+                    structure = STIdentifier.UNBOUNDED_ARRAY;
+                    i += 2;
+                }
+                parmList.add(new STIdentifier(parmToken.tokenStr, Token.OPERAND, dclType, parm, structure, STIdentifier.LOCAL));
+                parmTokenList.add(parmToken);
+                
+                Token sepToken = token(i++);
+                if(isSeparator(sepToken, ")"))
+                {
+                    break;
+                }
+                if(! isSeparator(sepToken, ","))
+                {
+                    error(sepToken, "Expected ',' or ')' after parameter '%s' of function '%s', found '%s'"
+                          , parmToken.tokenStr, functionNm, sepToken.tokenStr);
+                }
+            }
+        }
+        Token bodyToken = token(i);
+        if(! isSeparator(bodyToken, ":"))
+        {
+            error(bodyToken, "Expected ':' after the parameters of function '%s', found '%s'", functionNm, bodyToken.tokenStr);
+        }
+        
+        // Find the 'enddef', past the definitions in the function
+        Token endToken = token(endIndex(iDefIndex));
+        if(endToken.iLexemeId != LexemeTable.ENDDEF)
+        {
+            error(defToken, "Expected 'enddef' for the definition of function '%s'", functionNm);
+        }
+        
+        // Define the function, with its parameters as its first locals
+        STFunction function = new STFunction(functionNm, Token.FUNCTION, returnType, Token.USER, parmList.size());
+        function.parmList = parmList;
+        function.parmM = parmList.toArray(new STIdentifier[parmList.size()]);
+        function.bHasRef = bHasRef;
+        function.defToken = defToken;
+        function.bodyToken = bodyToken;
+        function.endToken = endToken;
+        function.scope = new Scope(function, parent);
+        for(Token parmToken : parmTokenList)
+        {
+            function.scope.declare(parmToken.iLexemeId, parmToken.tokenStr);
+        }
+        
+        // The variables it declares and its 'for' loops' control variables are its other locals,
+        // but not those of the functions defined in it
+        int iNested = 0;
+        for(int iBody = bodyToken.iTokenIndex + 1; iBody < endToken.iTokenIndex; iBody++)
+        {
+            Token token = tokenM[iBody];
+            Token nextToken = tokenM[iBody + 1];
+            if(token.iLexemeId == LexemeTable.DEF)
+            {
+                iNested++;
+            }
+            else if(token.iLexemeId == LexemeTable.ENDDEF)
+            {
+                iNested--;
+            }
+            else if(iNested == 0 && (declareType(token) >= 0 || token.iLexemeId == LexemeTable.FOR) && isName(nextToken))
+            {
+                function.scope.declare(nextToken.iLexemeId, nextToken.tokenStr);
+            }
+        }
+        // A function's name is global, wherever it is defined
+        symbolTable.entryM[symbolTable.intern(functionNm)] = function;
+        definedList.add(function);
+        
+        // The functions defined in it have all of its locals
+        for(int iBody = bodyToken.iTokenIndex + 1; iBody < endToken.iTokenIndex; iBody++)
+        {
+            if(tokenM[iBody].iLexemeId == LexemeTable.DEF)
+            {
+                iBody = define(iBody, function.scope).endToken.iTokenIndex;
+            }
+        }
+        return function;
+    }
+    
+    /**
+     * Finds the 'enddef' of a definition, past the definitions in it
+     * @param iDefIndex  the index of the 'def' token
+     * @return           the index of the 'enddef', or of the EOF token if it has none
+     */
+    private int endIndex(int iDefIndex)
+    {
+        int iDepth = 0;
+        int i = iDefIndex + 1;
+        for(; i < tokenM.length && tokenM[i].primClassif != Token.EOF; i++)
+        {
+            if(tokenM[i].iLexemeId == LexemeTable.DEF)
+            {
+                iDepth++;
+            }
+            else if(tokenM[i].iLexemeId == LexemeTable.ENDDEF && iDepth-- == 0)
+            {
+                break;
+            }
+        }
+        return i;
+    }
+    
+    /**
+     * Gets the type a declaration type token declares
+     * @param token  the token
+     * @return       the type, or -1 if it is not 'Int', 'Float', 'String', 'Bool', or 'Date'
+     */
+    private static int declareType(Token token)
+    {
+        switch(token.iLexemeId)
+        {
+            case LexemeTable.INT:
+                return Token.INTEGER;
+            case LexemeTable.FLOAT:
+                return Token.FLOAT;
+            case LexemeTable.STRING:
+                return Token.STRING;
+            case LexemeTable.BOOL:
+                return Token.BOOLEAN;
+            case LexemeTable.DATE:
+                return Token.DATE;
+            default:
+                return -1;
+        }
+    }
+    
+    /**
+     * Checks if a token can be the name of a function, parameter, or local
+     * <p>
+     * The name of a function is already a FUNCTION USER token if its tokens
+     * were read from a cached program.
+     * @param token  the token
+     * @return       true if it is an identifier
+     */
+    private static boolean isName(Token token)
+    {
+        return (token.iLexemeId >= 0) && (((token.primClassif == Token.OPERAND) && (token.subClassif == Token.IDENTIFIER))
+                                        || ((token.primClassif == Token.FUNCTION) && (token.subClassif == Token.USER)));
+    }
+    
+    private static boolean isSeparator(Token token, String separatorStr)
+    {
+        return (token.primClassif == Token.SEPARATOR) && token.tokenStr.equals(separatorStr);
+    }
+    
+    /**
+     * Gets a token of the file, or an EOF token past the end of the tokens
+     * @param i  the index of the token
+     * @return   the token
+     */
+    private Token token(int i)
+    {
+        if(i < tokenM.length)
+        {
+            return tokenM[i];
+        }
+        Token eofToken = new Token();
+        eofToken.primClassif = Token.EOF;
+        eofToken.iSourceLineNr = (tokenM.length == 0) ? 0 : tokenM[tokenM.length - 1].iSourceLineNr;
+        return eofToken;
+    }
+    
+    private void error(Token token, String format, Object... varArgs) throws ParserException
+    {
+        parser.errorLineNr(token.iSourceLineNr, format, varArgs);
+    }
+}
@@ -1,8 +1,16 @@
 /*
   This is a simple driver for the first programming assignment.
   Command Arguments:
-      java HavaBol arg1
+      java HavaBol arg1 [-o outFile] [-profile [collapsedFile]] [-cache [cacheDir]]
              arg1 is the havabol source file name.
+             outFile is a file to write the output to, instead of standard output.
+             -profile profiles the whole program, as 'debug Profile on;' does from
+             where it is; the report is printed to standard error at the end, and the
+             collapsed stacks are written to collapsedFile (arg1 + ".collapsed" if not given).
+             -cache runs the program compiled the last time arg1 was run with -cache, if
+             arg1 has not changed since, instead of lexing and building it again (see
+             'ProgramCache'); programs are kept in cacheDir (".havabol-cache" next to arg1
+             if not given).
   Output:
       Prints each token in a table.
   Notes:
@@ -17,22 +25,112 @@
  */
 package havabol;
 
+import java.io.IOException;
+import java.io.PrintStream;
+
 public class Havabol
 {
-    public static void main(String[] args) 
+    public static void main(String[] args) throws InterruptedException
+    {
+        // The script is run on a thread whose stack has room for the most nested calls
+        Thread thread = new Thread(null, () -> run(args), "havabol", StorageManager.STACK_SIZE);
+        Throwable[] uncaughtM = new Throwable[1];
+        thread.setUncaughtExceptionHandler((t, e) -> uncaughtM[0] = e);
+        thread.start();
+        thread.join();
+        
+        // An error that ended the thread, such as running out of memory, ends 'main'
+        // too, so the JVM exits with an error status as it does without the thread
+        if(uncaughtM[0] instanceof Error)
+        {
+            throw (Error) uncaughtM[0];
+        }
+        if(uncaughtM[0] != null)
+        {
+            throw (RuntimeException) uncaughtM[0];
+        }
+    }
+    
+    private static void run(String[] args)
     {
         // Create the SymbolTable
         SymbolTable symbolTable = new SymbolTable();
+        Output output = Output.standard();
+        Parser parser = null;
+        boolean bProfile = false;
+        String collapsedFileNm = null;
+        ProgramCache cache = null;
 
         try
         {
-            Scanner scan = new Scanner(args[0], symbolTable);
-            Parser parser = new Parser(scan, symbolTable);
+            // Get the options after the source file name
+            for(int i = 1; i < args.length; i++)
+            {
+                if(args[i].equals("-o") && i + 1 < args.length)
+                {
+                    output = Output.open(args[++i]);
+                }
+                else if(args[i].equals("-profile"))
+                {
+                    bProfile = true;
+                    if(i + 1 < args.length && ! args[i + 1].startsWith("-"))
+                    {
+                        collapsedFileNm = args[++i];
+                    }
+                }
+                else if(args[i].equals("-cache"))
+                {
+                    boolean bDirGiven = i + 1 < args.length && ! args[i + 1].startsWith("-");
+                    cache = new ProgramCache(bDirGiven ? args[++i] : null);
+                }
+            }
+            
+            // The output is buffered, and the debuggers print into the same buffer
+            System.setOut(new PrintStream(output, false));
+            
+            if(cache != null)
+            {
+                parser = cache.load(args[0], symbolTable);
+            }
+            else
+            {
+                parser = new Parser(new Scanner(args[0], symbolTable), symbolTable);
+            }
+            parser.output = output;
+            if(bProfile)
+            {
+                parser.profiler.setOn(true);
+            }
+            if(collapsedFileNm != null)
+            {
+                parser.profiler.collapsedFileNm = collapsedFileNm;
+            }
             parser.parse();
         }
         catch (Exception e)
         {
+            // Write the output before the error
+            System.out.flush();
             e.printStackTrace();
         }
+        finally
+        {
+            System.out.close();
+            
+            // The profile is reported after the program's output, even if it ended with an error
+            if(parser != null && parser.profiler.bUsed)
+            {
+                parser.profiler.exitAll();
+                parser.profiler.report(System.err);
+                try
+                {
+                    parser.profiler.writeCollapsed();
+                }
+                catch(IOException e)
+                {
+                    e.printStackTrace();
+                }
+            }
+        }
     }
 }
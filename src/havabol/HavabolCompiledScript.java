@@ -0,0 +1,790 @@
+package havabol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.script.Bindings;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+
+/**
+ * @desc
+ * A script that 'HavabolScriptEngine' compiled, which can be evaluated any number
+ * of times, on any number of threads at the same time
+ * <p>
+ * Each evaluation runs the compiled program with its own symbol table, scanner
+ * and parser, so nothing one evaluation changes is seen by another one. The
+ * program is only read into a new parser when every parser read before is being
+ * run; after a run, the parser's variables are taken away and its debuggers are
+ * turned off, and the next evaluation runs it again. Before
+ * the script runs, each binding of the context (the global scope's, then the
+ * engine scope's) is declared as a variable and given its value:
+ * <pre>
+ *   Integer, Long, Short, Byte       Int
+ *   Double, Float                    Float
+ *   Boolean                          Bool
+ *   String, Character                String
+ *   LocalDate                        Date
+ *   a Java array or a List of those  an unbounded array, with null for an element without a value
+ * </pre>
+ * A binding whose name is not a Havabol identifier or is the name of a function
+ * the script defines, whose value is null, or that is an array or List without
+ * any values (which has no type), is left out. A binding of any other type, a
+ * whole number that does not fit in an 'Int', or a NaN or infinite number is not
+ * given to the script; the evaluation ends with a ScriptException naming the
+ * binding, before the script runs. The script should not declare a variable it
+ * is given, since declaring a variable again takes its value away.
+ * <p>
+ * When the script ends, even with an error, every variable it has is put in the
+ * engine scope's bindings (unless a binding could not be given to it), as an Integer, Double, Boolean, String or LocalDate,
+ * or a List of those for an array (null for a variable without a value). An array that was given as a Java array
+ * is put back as a Java array of the same type, if its values fit in it. An array the interpreter keeps sparse
+ * (e.g., after 'x[10000000] = 1') is put back as a List that only keeps the elements with a value.
+ * <p>
+ * Evaluations on many threads may share the same bindings. Each one copies them
+ * while holding the lock of the Bindings, and puts its variables back under the
+ * same lock, so a caller that changes the bindings while scripts run should
+ * hold it too.
+ *
+ * @authors Taylor Brauer, Caleb Mussulman, Steven Cenci
+ */
+public class HavabolCompiledScript extends CompiledScript
+{
+    private HavabolScriptEngine engine;
+    private String scriptNm;
+    private String script;       // text of the script, for the debuggers and the error messages
+    private byte[] programBytes; // the program (see 'ProgramCache.toBytes'), or null to lex the script for each parser
+    private ConcurrentLinkedQueue<Program> idleQueue; // programs read for the script that are not being run
+    
+    // Threads scripts are run on, whose stacks have room for the most nested calls. A
+    // thread is reused by the next evaluations, and does not keep the JVM from exiting.
+    private static final ExecutorService evalPool = Executors.newCachedThreadPool(task ->
+    {
+        Thread thread = new Thread(null, task, "havabol-eval", StorageManager.STACK_SIZE);
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    /**
+     * The parser of a program read for the script, and the entries its symbol
+     * table has before it is run (the language's symbols and the script's functions)
+     */
+    private static class Program
+    {
+        Parser parser;
+        STEntry[] definedEntryM;
+    }
+    
+    /**
+     * The elements of a sparse array given back to the caller, which only keeps the
+     * elements with a value; an element without one is null
+     */
+    static class ElementList extends AbstractList<Object>
+    {
+        private int[] indexM;      // index of each element with a value, in order
+        private Object[] valueM;   // value of each element in 'indexM'
+        private int iSize;         // number of elements, including those without a value
+        
+        ElementList(int[] indexM, Object[] valueM, int iSize)
+        {
+            this.indexM = indexM;
+            this.valueM = valueM;
+            this.iSize = iSize;
+        }
+        
+        @Override
+        public Object get(int i)
+        {
+            if(i < 0 || i >= iSize)
+            {
+                throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + iSize);
+            }
+            int iAt = Arrays.binarySearch(indexM, i);
+            return (iAt >= 0) ? valueM[iAt] : null;
+        }
+        
+        @Override
+        public int size()
+        {
+            return iSize;
+        }
+    }
+    
+    /**
+     * Makes a compiled script, which is done by the engine
+     * @param engine        the engine that compiled the script
+     * @param scriptNm      the name of the script
+     * @param script        the text of the script
+     * @param programBytes  the compiled program, or null if it could not be kept
+     */
+    HavabolCompiledScript(HavabolScriptEngine engine, String scriptNm, String script, byte[] programBytes)
+    {
+        this.engine = engine;
+        this.scriptNm = scriptNm;
+        this.script = script;
+        this.programBytes = programBytes;
+        this.idleQueue = new ConcurrentLinkedQueue<Program>();
+    }
+    
+    @Override
+    public ScriptEngine getEngine()
+    {
+        return engine;
+    }
+    
+    /**
+     * Runs the script with the bindings of a context
+     * <p>
+     * The script is run on a thread whose stack has room for the most nested
+     * calls ('StorageManager.MAX_CALL_DEPTH'), from a pool of them, and this
+     * thread waits for it.
+     * @param context          the context, whose writer gets what the script prints
+     * @return                 null, since a script has no value
+     * @throws ScriptException if the script ended with an error
+     */
+    @Override
+    public Object eval(ScriptContext context) throws ScriptException
+    {
+        Future<Object> future = evalPool.submit(() ->
+        {
+            evalScript(context);
+            return null;
+        });
+        
+        // The script is not stopped by an interrupt, so the interrupt is kept for after it
+        boolean bInterrupted = false;
+        try
+        {
+            while(true)
+            {
+                try
+                {
+                    return future.get();
+                }
+                catch(InterruptedException e)
+                {
+                    bInterrupted = true;
+                }
+            }
+        }
+        catch(ExecutionException e)
+        {
+            Throwable thrown = e.getCause();
+            if(thrown instanceof ScriptException)
+            {
+                throw (ScriptException) thrown;
+            }
+            if(thrown instanceof RuntimeException)
+            {
+                throw (RuntimeException) thrown;
+            }
+            if(thrown instanceof Error)
+            {
+                throw (Error) thrown;
+            }
+            throw new ScriptException((Exception) thrown);
+        }
+        finally
+        {
+            if(bInterrupted)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /**
+     * Runs the script with the bindings of a context, on a thread of the pool
+     * <p>
+     * A parser the script was read into before is run again if one is not being
+     * run. It is put back for the next evaluation unless the script ended with
+     * an error of the JVM or of the interpreter itself, which may have left it
+     * in the middle of something.
+     * @param context          the context, whose writer gets what the script prints
+     * @throws ScriptException if the script ended with an error
+     */
+    private void evalScript(ScriptContext context) throws ScriptException
+    {
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        Output output = new Output(Channels.newChannel(printed));
+        Program program = idleQueue.poll();
+        Parser parser = null;   // set once the script runs, so its variables are put back
+        Map<String, Object> givenM = null; // the bindings the script was given, by name
+        boolean bReusable = false;
+        try
+        {
+            if(program == null)
+            {
+                program = readProgram();
+            }
+            Parser scriptParser = program.parser;
+            scriptParser.output = output;
+            
+            // A binding that can not be given to the script leaves the bindings as they were.
+            // The engine scope's binding of a name is given instead of the global one.
+            bReusable = true;
+            givenM = copyBindings(context.getBindings(ScriptContext.GLOBAL_SCOPE));
+            givenM.putAll(copyBindings(context.getBindings(ScriptContext.ENGINE_SCOPE)));
+            declareBindings(scriptParser, givenM);
+            
+            parser = scriptParser;
+            parser.parse();
+        }
+        catch(Exception e)
+        {
+            bReusable &= ! (e instanceof RuntimeException);
+            throw scriptException(e);
+        }
+        catch(Error e)
+        {
+            bReusable = false;
+            throw e;
+        }
+        finally
+        {
+            // What was printed before an error is written as well
+            try
+            {
+                output.flush();
+                Writer writer = context.getWriter();
+                if(writer != null && printed.size() > 0)
+                {
+                    writer.write(printed.toString(Charset.defaultCharset()));
+                    writer.flush();
+                }
+            }
+            catch(IOException e)
+            {
+                // The output is lost, the same as when standard output is closed
+            }
+            if(parser != null)
+            {
+                putVariables(parser, givenM, context.getBindings(ScriptContext.ENGINE_SCOPE));
+            }
+            if(bReusable)
+            {
+                try
+                {
+                    reset(program);
+                    idleQueue.offer(program);
+                }
+                catch(Exception e)
+                {
+                    // The program is not run again, and the next evaluation reads a new one
+                }
+            }
+        }
+    }
+    
+    /**
+     * Reads the program into a new symbol table, scanner and parser
+     * @return            the program, ready to be run
+     * @throws Exception  if the program is damaged, or the script has a lexing error
+     */
+    private Program readProgram() throws Exception
+    {
+        SymbolTable symbolTable = new SymbolTable();
+        SourceFile sourceFile = new SourceFile(scriptNm, script);
+        Program program = new Program();
+        if(programBytes != null)
+        {
+            program.parser = ProgramCache.fromBytes(programBytes, sourceFile, symbolTable);
+        }
+        else
+        {
+            program.parser = new Parser(new Scanner(sourceFile, symbolTable), symbolTable);
+        }
+        program.definedEntryM = symbolTable.saveEntries();
+        return program;
+    }
+    
+    /**
+     * Puts a program that was run back as it was before it was run, except that
+     * it keeps its tree and what it has compiled
+     * @param program     the program
+     * @throws Exception  if the scanner could not be put back on the end of the tree
+     */
+    private static void reset(Program program) throws Exception
+    {
+        Parser parser = program.parser;
+        parser.symbolTable.restore(program.definedEntryM);
+        parser.output = Output.standard();
+        parser.bShowAssign = false;
+        parser.bShowExpr = false;
+        parser.bShowPostfix = false;
+        parser.scan.bShowToken = false;
+        if(parser.profiler.bUsed)
+        {
+            parser.profiler = new Profiler(parser.scan);
+        }
+        
+        // The scanner is where building the tree left it, on the EOF token
+        if(parser.program != null)
+        {
+            parser.scan.setPosition(parser.scan.tokenM[parser.scan.tokenM.length - 1]);
+        }
+    }
+    
+    /**
+     * Gets the script exception of an error, with the line of a parser error
+     * @param e  the error
+     * @return   the script exception
+     */
+    static ScriptException scriptException(Exception e)
+    {
+        if(e instanceof ParserException)
+        {
+            ParserException parserException = (ParserException) e;
+            return new ScriptException(parserException.diagnostic, parserException.sourceFileName, parserException.iLineNr);
+        }
+        if(e instanceof ScriptException)
+        {
+            return (ScriptException) e;
+        }
+        // A lexing error has its line in its message
+        ScriptException scriptException = new ScriptException(e.getMessage());
+        scriptException.initCause(e);
+        return scriptException;
+    }
+    
+    /**
+     * Copies the bindings of a scope while holding their lock, so that another
+     * evaluation does not change them while they are read
+     * @param bindings  the bindings, or null if the context has none of that scope
+     * @return          the names and values of the bindings, in their order
+     */
+    private static Map<String, Object> copyBindings(Bindings bindings)
+    {
+        if(bindings == null)
+        {
+            return new LinkedHashMap<String, Object>();
+        }
+        synchronized(bindings)
+        {
+            return new LinkedHashMap<String, Object>(bindings);
+        }
+    }
+    
+    /**
+     * Declares each binding as a variable with its value
+     * @param parser      the parser of the script
+     * @param givenM      the bindings, by name
+     * @throws ScriptException if a value has no Havabol type, or does not fit in it
+     * @throws Exception  if a value could not be stored
+     */
+    private static void declareBindings(Parser parser, Map<String, Object> givenM) throws Exception
+    {
+        for(Map.Entry<String, Object> entry : givenM.entrySet())
+        {
+            String name = entry.getKey();
+            Object value = entry.getValue();
+            if(value != null && isIdentifier(name) && ! (parser.symbolTable.getSymbol(name) instanceof STFunction))
+            {
+                declare(parser, name, value);
+            }
+        }
+    }
+    
+    /**
+     * Declares a variable with a Java value, the same way a declaration in the script does
+     * @param parser      the parser of the script
+     * @param name        the name of the variable
+     * @param value       the value, which is not null
+     * @throws ScriptException if the value has no Havabol type, or does not fit in it
+     * @throws Exception  if the value could not be stored
+     */
+    private static void declare(Parser parser, String name, Object value) throws Exception
+    {
+        SymbolTable symbolTable = parser.symbolTable;
+        
+        // A primitive is declared and assigned
+        ResultValue resVal = toResultValue("Binding '" + name + "'", value);
+        if(resVal != null)
+        {
+            symbolTable.putSymbol(name, new STIdentifier(name, Token.OPERAND, resVal.type, STIdentifier.NOT_A_PARAMETER
+                                                         , STIdentifier.PRIMITVE, STIdentifier.LOCAL));
+            symbolTable.storeVariableValue(parser, name, resVal);
+            return;
+        }
+        
+        // An array is an unbounded array of the type of its first element
+        List<Object> elemList = toList(value);
+        if(elemList == null)
+        {
+            throw new ScriptException(String.format("Binding '%s' is a '%s', which has no Havabol type"
+                                                    , name, value.getClass().getName()));
+        }
+        
+        // Only the elements with a value are converted, so a list given back for a
+        // sparse array is not gone through element by element
+        int[] indexM;
+        Object[] elemM;
+        if(elemList instanceof ElementList)
+        {
+            indexM = ((ElementList) elemList).indexM;
+            elemM = ((ElementList) elemList).valueM;
+        }
+        else
+        {
+            indexM = new int[elemList.size()];
+            elemM = new Object[elemList.size()];
+            for(int i = 0; i < indexM.length; i++)
+            {
+                indexM[i] = i;
+                elemM[i] = elemList.get(i);
+            }
+        }
+        int iType = -1;
+        ResultValue[] resElemM = new ResultValue[elemM.length];
+        for(int i = 0; i < resElemM.length; i++)
+        {
+            Object elem = elemM[i];
+            if(elem == null)
+            {
+                continue;
+            }
+            String elemDescription = String.format("Element %d of binding '%s'", indexM[i], name);
+            resElemM[i] = toResultValue(elemDescription, elem);
+            if(resElemM[i] == null)
+            {
+                throw new ScriptException(String.format("%s is a '%s', which has no Havabol type"
+                                                        , elemDescription, elem.getClass().getName()));
+            }
+            if(iType < 0)
+            {
+                iType = resElemM[i].type;
+            }
+            Utility.coerce(parser, iType, resElemM[i], "binding of '" + name + "'");
+        }
+        if(iType < 0)
+        {
+            // An array without values has no type
+            return;
+        }
+        
+        ResultArray resArray = new ResultArray();
+        resArray.type = iType;
+        resArray.setValue(name);
+        resArray.structure = STIdentifier.UNBOUNDED_ARRAY;
+        resArray.maxElem = 0;
+        symbolTable.putSymbol(name, new STIdentifier(name, Token.OPERAND, iType, STIdentifier.NOT_A_PARAMETER
+                                                     , STIdentifier.UNBOUNDED_ARRAY, STIdentifier.LOCAL));
+        symbolTable.storageManager.putResultArray(parser, name, resArray);
+        
+        // The elements without a value in between are added without one, so the array
+        // may be kept sparse
+        for(int i = 0; i < resElemM.length; i++)
+        {
+            if(resElemM[i] != null)
+            {
+                resArray.grow(indexM[i], null);
+                resArray.add(resElemM[i]);
+            }
+        }
+        resArray.grow(elemList.size(), null);
+    }
+    
+    /**
+     * Puts every variable of the script in the bindings
+     * <p>
+     * The values are converted first, then put in the bindings together while
+     * holding their lock.
+     * @param parser    the parser that ran the script
+     * @param givenM    the bindings the script was given, for the type of an array to give back
+     * @param bindings  the bindings, or null if the context has none
+     */
+    private static void putVariables(Parser parser, Map<String, Object> givenM, Bindings bindings)
+    {
+        if(bindings == null)
+        {
+            return;
+        }
+        SymbolTable symbolTable = parser.symbolTable;
+        HashMap<String, Object> variableM = new HashMap<String, Object>();
+        for(int iSlot = 0; iSlot < symbolTable.entryM.length; iSlot++)
+        {
+            if(! (symbolTable.entryM[iSlot] instanceof STIdentifier))
+            {
+                continue;
+            }
+            String name = symbolTable.lexemes.getLexeme(iSlot);
+            ResultValue resVal = symbolTable.storageManager.getValue(iSlot);
+            try
+            {
+                if(resVal instanceof ResultArray)
+                {
+                    variableM.put(name, toJavaElements(parser, (ResultArray) resVal, givenM.get(name)));
+                }
+                else
+                {
+                    variableM.put(name, resVal == null ? null : toJava(parser, resVal));
+                }
+            }
+            catch(Exception e)
+            {
+                // A value that is not of its type is given as its string
+                variableM.put(name, resVal.getValue());
+            }
+        }
+        synchronized(bindings)
+        {
+            bindings.putAll(variableM);
+        }
+    }
+    
+    /**
+     * Gets the Java value of an array
+     * <p>
+     * An array that was given as a Java array is given back as a Java array of the
+     * same type, if its values fit in that type. Any other array is given back as a
+     * List; a sparse one as a List that only keeps its elements with a value.
+     * @param parser      the parser of the script
+     * @param resArray    the array
+     * @param given       the value of the binding the array was given as, or null
+     * @return            a Java array or a List, with null (or 0 or false in a
+     *                    primitive Java array) for an element without a value
+     * @throws Exception  if a number or date is not valid
+     */
+    private static Object toJavaElements(Parser parser, ResultArray resArray, Object given) throws Exception
+    {
+        int iCount = resArray.countSet();
+        int[] indexM = new int[iCount];
+        Object[] valueM = new Object[iCount];
+        int iAt = 0;
+        for(int i = resArray.nextSet(0); i >= 0; i = resArray.nextSet(i + 1))
+        {
+            indexM[iAt] = i;
+            valueM[iAt] = toJava(parser, resArray.get(i));
+            iAt++;
+        }
+        
+        if(given != null && given.getClass().isArray())
+        {
+            Object javaArray = toJavaArray(given.getClass().getComponentType(), resArray.size(), indexM, valueM);
+            if(javaArray != null)
+            {
+                return javaArray;
+            }
+        }
+        if(resArray.isSparse())
+        {
+            return new ElementList(indexM, valueM, resArray.size());
+        }
+        ArrayList<Object> elemList = new ArrayList<Object>(resArray.size());
+        for(int i = 0; i < iCount; i++)
+        {
+            while(elemList.size() < indexM[i])
+            {
+                elemList.add(null);
+            }
+            elemList.add(valueM[i]);
+        }
+        while(elemList.size() < resArray.size())
+        {
+            elemList.add(null);
+        }
+        return elemList;
+    }
+    
+    /**
+     * Makes a Java array of a component type from the elements with a value
+     * @param componentType  the type of the Java array's elements
+     * @param iSize          the length of the Java array
+     * @param indexM         index of each element with a value
+     * @param valueM         value of each element, as 'toJava' gives it
+     * @return               the Java array, or null if a value does not fit in the type
+     */
+    private static Object toJavaArray(Class<?> componentType, int iSize, int[] indexM, Object[] valueM)
+    {
+        Object javaArray = Array.newInstance(componentType, iSize);
+        for(int i = 0; i < indexM.length; i++)
+        {
+            Object value = valueM[i];
+            if(value instanceof Number)
+            {
+                Number number = (Number) value;
+                if(componentType == int.class || componentType == Integer.class)
+                {
+                    value = number.intValue();
+                }
+                else if(componentType == long.class || componentType == Long.class)
+                {
+                    value = number.longValue();
+                }
+                else if(componentType == short.class || componentType == Short.class)
+                {
+                    value = number.shortValue();
+                }
+                else if(componentType == byte.class || componentType == Byte.class)
+                {
+                    value = number.byteValue();
+                }
+                else if(componentType == float.class || componentType == Float.class)
+                {
+                    value = number.floatValue();
+                }
+                
+                // A whole number must be the same in the narrower type; a 'float' is only rounded
+                if(! (value instanceof Float) && ((Number) value).doubleValue() != number.doubleValue())
+                {
+                    return null;
+                }
+            }
+            else if(value instanceof String && (componentType == char.class || componentType == Character.class)
+                    && ((String) value).length() == 1)
+            {
+                value = ((String) value).charAt(0);
+            }
+            try
+            {
+                Array.set(javaArray, indexM[i], value);
+            }
+            catch(IllegalArgumentException e)
+            {
+                return null;
+            }
+        }
+        return javaArray;
+    }
+    
+    /**
+     * Gets the Havabol value of a Java value
+     * @param description      what the value is, for the error (e.g., "Binding 'x'")
+     * @param value            the Java value
+     * @return                 the value, or null if Havabol has no type for it
+     * @throws ScriptException if a whole number does not fit in an 'Int', or a number is NaN or infinite
+     */
+    private static ResultValue toResultValue(String description, Object value) throws ScriptException
+    {
+        ResultValue resVal = new ResultValue();
+        if(value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte)
+        {
+            long lValue = ((Number) value).longValue();
+            if(lValue != (int) lValue)
+            {
+                throw new ScriptException(String.format("%s has the value %d, which does not fit in an 'Int'"
+                                                        , description, lValue));
+            }
+            resVal.setInteger((int) lValue);
+        }
+        else if(value instanceof Double || value instanceof Float)
+        {
+            double dValue = ((Number) value).doubleValue();
+            if(Double.isNaN(dValue) || Double.isInfinite(dValue))
+            {
+                throw new ScriptException(String.format("%s has the value %s, which is not a 'Float' number"
+                                                        , description, value));
+            }
+            resVal.setFloat(dValue);
+        }
+        else if(value instanceof Boolean)
+        {
+            resVal.setBoolean((Boolean) value);
+        }
+        else if(value instanceof String || value instanceof Character)
+        {
+            resVal.type = Token.STRING;
+            resVal.setValue(value.toString());
+        }
+        else if(value instanceof LocalDate)
+        {
+            resVal.setDate(Utility.dateToJulian(value.toString()));
+        }
+        else
+        {
+            return null;
+        }
+        resVal.structure = STIdentifier.PRIMITVE;
+        return resVal;
+    }
+    
+    /**
+     * Gets the elements of a Java array or List
+     * @param value  the Java value
+     * @return       the elements, or null if the value is not an array or a List
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Object> toList(Object value)
+    {
+        if(value instanceof List)
+        {
+            return (List<Object>) value;
+        }
+        if(! value.getClass().isArray())
+        {
+            return null;
+        }
+        int iLength = Array.getLength(value);
+        ArrayList<Object> elemList = new ArrayList<Object>(iLength);
+        for(int i = 0; i < iLength; i++)
+        {
+            elemList.add(Array.get(value, i));
+        }
+        return elemList;
+    }
+    
+    /**
+     * Gets the Java value of a Havabol value
+     * @param parser      the parser of the script
+     * @param resVal      the value
+     * @return            an Integer, Double, Boolean, String or LocalDate
+     * @throws Exception  if a number or date is not valid
+     */
+    private static Object toJava(Parser parser, ResultValue resVal) throws Exception
+    {
+        switch(resVal.type)
+        {
+            case Token.INTEGER:
+                return new Numeric(parser, resVal, "=", "variable").integerValue;
+            case Token.FLOAT:
+                return new Numeric(parser, resVal, "=", "variable").doubleValue;
+            case Token.BOOLEAN:
+                return resVal.isTrue();
+            case Token.DATE:
+                return LocalDate.parse(resVal.getValue());
+            default:
+                return resVal.getValue();
+        }
+    }
+    
+    /**
+     * Checks if a binding's name can be the name of a variable
+     * @param name  the name
+     * @return      true if it is an identifier that the language does not define
+     */
+    private static boolean isIdentifier(String name)
+    {
+        if(name.isEmpty() || ! Character.isLetter(name.charAt(0)) || LexemeTable.predefinedId(name) >= 0)
+        {
+            return false;
+        }
+        for(int i = 1; i < name.length(); i++)
+        {
+            char ch = name.charAt(i);
+            if(! Character.isLetterOrDigit(ch) && ch != '_')
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
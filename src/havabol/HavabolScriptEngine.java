@@ -0,0 +1,163 @@
+package havabol;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import javax.script.AbstractScriptEngine;
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptException;
+import javax.script.SimpleBindings;
+
+/**
+ * @desc
+ * Runs Havabol scripts for a Java program, through 'javax.script'
+ * <p>
+ * A script is compiled once into a 'HavabolCompiledScript', which can then be
+ * evaluated any number of times without lexing or building it again:
+ * <pre>
+ *   CompiledScript script = ((Compilable) engine).compile("Int total; total = price * count;");
+ *   Bindings bindings = engine.createBindings();
+ *   bindings.put("price", 12);
+ *   bindings.put("count", 3);
+ *   script.eval(bindings);
+ *   Object total = bindings.get("total");       // 36
+ * </pre>
+ * The bindings are declared as variables before the script runs, and every
+ * variable the script has when it ends is put back in the bindings (see
+ * 'HavabolCompiledScript' for the types). What the script prints goes to the
+ * writer of the script context. Evaluating a script returns null, since a
+ * Havabol script has no value of its own.
+ *
+ * @authors Taylor Brauer, Caleb Mussulman, Steven Cenci
+ */
+public class HavabolScriptEngine extends AbstractScriptEngine implements Compilable
+{
+    public static final String DEFAULT_NAME = "script"; // name of a script in its errors, if 'ScriptEngine.FILENAME' is not set
+    
+    private ScriptEngineFactory factory;
+    
+    /**
+     * Makes an engine, which is done by the factory
+     * @param factory  the factory that made the engine
+     */
+    HavabolScriptEngine(ScriptEngineFactory factory)
+    {
+        this.factory = factory;
+    }
+    
+    @Override
+    public Object eval(String script, ScriptContext context) throws ScriptException
+    {
+        return compile(script, scriptName(context)).eval(context);
+    }
+    
+    @Override
+    public Object eval(Reader reader, ScriptContext context) throws ScriptException
+    {
+        return eval(readAll(reader), context);
+    }
+    
+    @Override
+    public CompiledScript compile(String script) throws ScriptException
+    {
+        return compile(script, scriptName(context));
+    }
+    
+    @Override
+    public CompiledScript compile(Reader script) throws ScriptException
+    {
+        return compile(readAll(script));
+    }
+    
+    @Override
+    public Bindings createBindings()
+    {
+        return new SimpleBindings();
+    }
+    
+    @Override
+    public ScriptEngineFactory getFactory()
+    {
+        return factory;
+    }
+    
+    /**
+     * Compiles a script
+     * <p>
+     * The script is lexed and built into a tree the same way as a file that
+     * is run, and the program is kept the same way as it is cached (see
+     * 'ProgramCache'), so an evaluation at most reads it back, and usually
+     * runs a parser it was read into before (see 'HavabolCompiledScript').
+     * @param script           the text of the script
+     * @param scriptNm         the name of the script, for its errors
+     * @return                 the compiled script
+     * @throws ScriptException if the script has a lexing error
+     */
+    private CompiledScript compile(String script, String scriptNm) throws ScriptException
+    {
+        SymbolTable symbolTable = new SymbolTable();
+        byte[] programBytes;
+        try
+        {
+            Scanner scan = new Scanner(new SourceFile(scriptNm, script), symbolTable);
+            if(scan.lexException != null)
+            {
+                throw scan.lexException;
+            }
+            Parser parser = new Parser(scan, symbolTable);
+            parser.build();
+            programBytes = ProgramCache.toBytes(parser);
+        }
+        catch(IOException e)
+        {
+            // The program can not be kept, so the script is lexed each time it is evaluated
+            programBytes = null;
+        }
+        catch(Exception e)
+        {
+            throw HavabolCompiledScript.scriptException(e);
+        }
+        return new HavabolCompiledScript(this, scriptNm, script, programBytes);
+    }
+    
+    /**
+     * Gets the name of the script a context is for
+     * @param context  the script context
+     * @return         its 'ScriptEngine.FILENAME', or 'DEFAULT_NAME' if it has none
+     */
+    private static String scriptName(ScriptContext context)
+    {
+        Object fileNm = context.getAttribute(ScriptEngine.FILENAME);
+        return fileNm == null ? DEFAULT_NAME : fileNm.toString();
+    }
+    
+    /**
+     * Reads the whole text of a script
+     * @param reader           the reader of the script
+     * @return                 the text
+     * @throws ScriptException if the script could not be read
+     */
+    private static String readAll(Reader reader) throws ScriptException
+    {
+        StringBuilder sb = new StringBuilder();
+        char[] bufferM = new char[8192];
+        try
+        {
+            int iRead;
+            while((iRead = reader.read(bufferM)) > 0)
+            {
+                sb.append(bufferM, 0, iRead);
+            }
+        }
+        catch(IOException e)
+        {
+            throw new ScriptException(e);
+        }
+        return sb.toString();
+    }
+}
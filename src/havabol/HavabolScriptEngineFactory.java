@@ -0,0 +1,157 @@
+package havabol;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+
+/**
+ * @desc
+ * Describes the Havabol script engine to 'javax.script', which finds it through
+ * META-INF/services/javax.script.ScriptEngineFactory
+ * <p>
+ * The engine is found by the name "havabol" (or "Havabol"), or by the extension "hav":
+ * <pre>
+ *   ScriptEngine engine = new ScriptEngineManager().getEngineByName("havabol");
+ * </pre>
+ * Every run of a script has its own interpreter (see 'HavabolCompiledScript'), so
+ * one engine may run scripts on any number of threads at the same time.
+ *
+ * @authors Taylor Brauer, Caleb Mussulman, Steven Cenci
+ */
+public class HavabolScriptEngineFactory implements ScriptEngineFactory
+{
+    public static final String ENGINE_NAME    = "Havabol Interpreter";
+    public static final String ENGINE_VERSION = "1.0";
+    public static final String LANGUAGE_NAME  = "Havabol";
+    public static final String LANGUAGE_VERSION = "1.0";
+    
+    private static final List<String> nameList = Collections.unmodifiableList(Arrays.asList("havabol", "Havabol"));
+    private static final List<String> extensionList = Collections.unmodifiableList(Arrays.asList("hav"));
+    
+    @Override
+    public String getEngineName()
+    {
+        return ENGINE_NAME;
+    }
+    
+    @Override
+    public String getEngineVersion()
+    {
+        return ENGINE_VERSION;
+    }
+    
+    @Override
+    public List<String> getExtensions()
+    {
+        return extensionList;
+    }
+    
+    @Override
+    public List<String> getMimeTypes()
+    {
+        return Collections.emptyList();
+    }
+    
+    @Override
+    public List<String> getNames()
+    {
+        return nameList;
+    }
+    
+    @Override
+    public String getLanguageName()
+    {
+        return LANGUAGE_NAME;
+    }
+    
+    @Override
+    public String getLanguageVersion()
+    {
+        return LANGUAGE_VERSION;
+    }
+    
+    @Override
+    public Object getParameter(String key)
+    {
+        switch(key)
+        {
+            case ScriptEngine.ENGINE:
+                return ENGINE_NAME;
+            case ScriptEngine.ENGINE_VERSION:
+                return ENGINE_VERSION;
+            case ScriptEngine.NAME:
+                return nameList.get(0);
+            case ScriptEngine.LANGUAGE:
+                return LANGUAGE_NAME;
+            case ScriptEngine.LANGUAGE_VERSION:
+                return LANGUAGE_VERSION;
+            case "THREADING":
+                // Nothing is shared between two runs, except the bindings they are given,
+                // which are read and written while holding their lock
+                return "MULTITHREADED";
+            default:
+                return null;
+        }
+    }
+    
+    /**
+     * Gets a call of a built-in function, since Havabol has no objects with methods
+     */
+    @Override
+    public String getMethodCallSyntax(String obj, String m, String... args)
+    {
+        StringBuilder sb = new StringBuilder(m).append('(');
+        if(obj != null && ! obj.isEmpty())
+        {
+            sb.append(obj);
+            if(args.length > 0)
+            {
+                sb.append(", ");
+            }
+        }
+        return sb.append(String.join(", ", args)).append(')').toString();
+    }
+    
+    @Override
+    public String getOutputStatement(String toDisplay)
+    {
+        StringBuilder sb = new StringBuilder("print(\"");
+        for(char ch : toDisplay.toCharArray())
+        {
+            switch(ch)
+            {
+                case '"':  sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n");  break;
+                case '\t': sb.append("\\t");  break;
+                default:   sb.append(ch);     break;
+            }
+        }
+        return sb.append("\");").toString();
+    }
+    
+    @Override
+    public String getProgram(String... statements)
+    {
+        StringBuilder sb = new StringBuilder();
+        for(String statement : statements)
+        {
+            sb.append(statement);
+            if(! statement.trim().endsWith(";"))
+            {
+                sb.append(';');
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+    
+    @Override
+    public ScriptEngine getScriptEngine()
+    {
+        return new HavabolScriptEngine(this);
+    }
+}
@@ -0,0 +1,196 @@
+package havabol;
+
+import java.util.Arrays;
+
+/**
+ * @desc
+ * Counts how many times a 'while' or counting 'for' loop goes around, and runs
+ * the rest of the loop with the JVM class 'LoopCompiler' compiled it into once
+ * it is hot
+ * <p>
+ * The loop is only compiled once, the first time it has gone around 'HOT_BACK_EDGES'
+ * times in all; if it can not be compiled, it is always executed by 'ASTExecutor'.
+ * The compiled loop keeps each of its variables in an 'int', so the variables
+ * are checked each time the compiled loop is run: each one must be a primitive
+ * 'Int' with an INTEGER value, and no debugger or the profiler may be on. If they
+ * are not, the loop goes on being executed by 'ASTExecutor' (e.g., after one of
+ * its variables is declared again with another type).
+ * <p>
+ * Only the variables the compiled loop assigned are given new values when it
+ * stops, the same as assigning them would. The control variable of a 'for' is
+ * changed in place, as 'ASTExecutor' does, so it must not be the value of
+ * another variable of the loop.
+ *
+ * @authors Taylor Brauer, Caleb Mussulman, Steven Cenci
+ */
+public class HotLoop
+{
+    public static final int HOT_BACK_EDGES = 1000; // times a loop goes around before it is compiled
+    
+    // Constants for what 'run' returns, besides the index of a statement to go on from
+    public static final int DONE         = -1; // the loop ended
+    public static final int BACK_EDGE    = -2; // the condition of the 'while' must be evaluated
+    public static final int NOT_RUN      = -3; // the loop is not compiled (yet)
+    public static final int GUARD_FAILED = -4; // the variables do not fit the compiled loop
+    
+    public ASTNode[] stmtM;       // statement of each index 'run' returns, which is executed again
+    private int iBackEdgeCnt;     // times the loop went around before it was compiled
+    private boolean bNotCompilable; // the loop could not be compiled, so it is not tried again
+    private CompiledLoop compiled;// the compiled loop, null until it is hot
+    private int[] slotM;          // slot of each variable of the compiled loop
+    private int iControlVar;      // index of the control variable of a 'for', -1 for a 'while'
+    private int[] varM;           // values given to the compiled loop (see 'CompiledLoop.run')
+    private boolean[] assignedM;  // variables the compiled loop assigned
+    private ResultValue[] resVarM;// value of each variable when the compiled loop was started
+    
+    HotLoop()
+    {
+        this.iControlVar = -1;
+    }
+    
+    /**
+     * Gives the loop the code 'LoopCompiler' compiled it into
+     * @param compiled     the compiled loop
+     * @param slotM        the slot of each of its variables
+     * @param stmtM        the statement of each index it may return
+     * @param iControlVar  the index of the control variable of a 'for', -1 for a 'while'
+     */
+    void setCode(CompiledLoop compiled, int[] slotM, ASTNode[] stmtM, int iControlVar)
+    {
+        this.compiled = compiled;
+        this.slotM = slotM;
+        this.stmtM = stmtM;
+        this.iControlVar = iControlVar;
+        this.varM = new int[slotM.length + 3];
+        this.assignedM = new boolean[slotM.length];
+        this.resVarM = new ResultValue[slotM.length];
+    }
+    
+    /**
+     * Counts one more time around the loop, and runs the rest of the loop compiled
+     * if it is hot
+     * <p>
+     * It is called at the top of the loop's statements, after the condition of a
+     * 'while' is true or the control variable of a 'for' is less than the limit.
+     * @param parser     the parser whose symbol table has the loop's variables
+     * @param loopStmt   the WHILE_STMT or FOR_COUNT node
+     * @param iLimit     the limit of a 'for'
+     * @param iIncr      the increment of a 'for'
+     * @return           NOT_RUN or GUARD_FAILED if the statements must be executed,
+     *                   or what the compiled loop returned
+     */
+    int backEdge(Parser parser, ASTNode loopStmt, int iLimit, int iIncr)
+    {
+        if(compiled == null)
+        {
+            if(bNotCompilable || ++iBackEdgeCnt < HOT_BACK_EDGES)
+            {
+                return NOT_RUN;
+            }
+            if(! LoopCompiler.compile(parser, loopStmt, this))
+            {
+                bNotCompilable = true;
+                return NOT_RUN;
+            }
+        }
+        return run(parser, iLimit, iIncr);
+    }
+    
+    /**
+     * Runs the compiled loop with the values of its variables, and puts back the
+     * values it assigned
+     * @param parser     the parser whose symbol table has the loop's variables
+     * @param iLimit     the limit of a 'for'
+     * @param iIncr      the increment of a 'for'
+     * @return           GUARD_FAILED if a variable does not fit the compiled loop,
+     *                   otherwise what the compiled loop returned
+     */
+    private int run(Parser parser, int iLimit, int iIncr)
+    {
+        SymbolTable symbolTable = parser.symbolTable;
+        StorageManager storageManager = symbolTable.storageManager;
+        int iVarCnt = slotM.length;
+        
+        if(parser.profiler.bOn || parser.bShowAssign || parser.bShowExpr || parser.bShowPostfix)
+        {
+            return GUARD_FAILED;
+        }
+        
+        // Each variable must still be an 'Int' whose value is its number
+        for(int i = 0; i < iVarCnt; i++)
+        {
+            STEntry entry = symbolTable.getSymbol(slotM[i]);
+            if(! (entry instanceof STIdentifier) || ((STIdentifier) entry).dclType != Token.INTEGER
+                                                 || ((STIdentifier) entry).structure != STIdentifier.PRIMITVE)
+            {
+                return GUARD_FAILED;
+            }
+            ResultValue resVar = storageManager.getValue(slotM[i]);
+            if(resVar == null || resVar instanceof ResultArray || resVar.type != Token.INTEGER
+                              || resVar.structure != STIdentifier.PRIMITVE)
+            {
+                return GUARD_FAILED;
+            }
+            if(resVar.hasNumber())
+            {
+                varM[i] = resVar.integerValue;
+            }
+            else
+            {
+                // A value like '007' would be printed differently once it is a number
+                try
+                {
+                    varM[i] = Integer.parseInt(resVar.getValue());
+                }
+                catch(NumberFormatException e)
+                {
+                    return GUARD_FAILED;
+                }
+                if(! Integer.toString(varM[i]).equals(resVar.getValue()))
+                {
+                    return GUARD_FAILED;
+                }
+            }
+            resVarM[i] = resVar;
+        }
+        
+        // Changing the control variable in place must not change another variable
+        if(iControlVar >= 0)
+        {
+            for(int i = 0; i < iVarCnt; i++)
+            {
+                if(i != iControlVar && resVarM[i] == resVarM[iControlVar])
+                {
+                    Arrays.fill(resVarM, null);
+                    return GUARD_FAILED;
+                }
+            }
+        }
+        
+        varM[iVarCnt] = iLimit;
+        varM[iVarCnt + 1] = iIncr;
+        varM[iVarCnt + 2] = parser.iParseTokenLineNr;
+        Arrays.fill(assignedM, false);
+        
+        int iResult = compiled.run(varM, assignedM);
+        
+        // Put back the values, the same as the statements would have
+        for(int i = 0; i < iVarCnt; i++)
+        {
+            if(assignedM[i])
+            {
+                ResultValue resAssign = new ResultValue();
+                resAssign.setInteger(varM[i]);
+                resAssign.structure = STIdentifier.PRIMITVE;
+                storageManager.putVariableValue(parser, slotM[i], resAssign);
+            }
+            else if(i == iControlVar)
+            {
+                resVarM[i].setInteger(varM[i]);
+            }
+            resVarM[i] = null;
+        }
+        parser.iParseTokenLineNr = varM[iVarCnt + 2];
+        return iResult;
+    }
+}
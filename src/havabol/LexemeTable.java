@@ -0,0 +1,210 @@
+package havabol;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * @desc
+ * Interns the lexemes of a program, giving each distinct lexeme one canonical
+ * string and an integer id
+ * <p>
+ * Every token of the same identifier, keyword, operator or separator shares the
+ * canonical string of its lexeme, and carries the lexeme's id (see 'Token.iLexemeId'),
+ * so the parser can switch on the id instead of comparing strings. The id of an
+ * identifier is also its slot in the storage manager's frame and in the symbol
+ * table's entries, which are arrays indexed by id.
+ * <p>
+ * The lexemes the language defines are interned first, in the order of
+ * 'predefinedM', so they have the same id in every table and the ids can be
+ * used as case labels. Literals are not interned.
+ *
+ * @authors Taylor Brauer, Caleb Mussulman, Steven Cenci
+ */
+public class LexemeTable
+{
+    // Ids of the control lexemes
+    public static final int IF          = 0;
+    public static final int ELSE        = 1;
+    public static final int ENDIF       = 2;
+    public static final int WHILE       = 3;
+    public static final int ENDWHILE    = 4;
+    public static final int FOR         = 5;
+    public static final int ENDFOR      = 6;
+    public static final int TO          = 7;
+    public static final int BY          = 8;
+    public static final int IN          = 9;
+    public static final int FROM        = 10;
+    public static final int DEF         = 11;
+    public static final int ENDDEF      = 12;
+    public static final int INT         = 13;
+    public static final int FLOAT       = 14;
+    public static final int STRING      = 15;
+    public static final int BOOL        = 16;
+    public static final int DATE        = 17;
+    // Ids of the built-in functions
+    public static final int PRINT       = 18;
+    public static final int LENGTH      = 19;
+    public static final int SPACES      = 20;
+    public static final int ELEM        = 21;
+    public static final int MAXELEM     = 22;
+    public static final int DEBUG       = 23;
+    public static final int DATE_DIFF   = 24;
+    public static final int DATE_ADJ    = 25;
+    public static final int DATE_AGE    = 26;
+    public static final int IN_FUNC     = 27; // 'IN'
+    public static final int NOTIN_FUNC  = 28; // 'NOTIN'
+    // Ids of the operators
+    public static final int AND         = 29;
+    public static final int OR          = 30;
+    public static final int NOT         = 31;
+    public static final int NOTIN       = 32;
+    public static final int ASSIGN      = 33; // =
+    public static final int PLUS        = 34; // +
+    public static final int MINUS       = 35; // -
+    public static final int MULTIPLY    = 36; // *
+    public static final int DIVIDE      = 37; // /
+    public static final int EXPONENT    = 38; // ^
+    public static final int CONCAT      = 39; // #
+    public static final int LESS        = 40; // <
+    public static final int GREATER     = 41; // >
+    public static final int BANG        = 42; // !
+    public static final int PLUS_ASSIGN = 43; // +=
+    public static final int MINUS_ASSIGN= 44; // -=
+    public static final int MULT_ASSIGN = 45; // *=
+    public static final int DIV_ASSIGN  = 46; // /=
+    public static final int EXP_ASSIGN  = 47; // ^=
+    public static final int CAT_ASSIGN  = 48; // #=
+    public static final int LESS_EQUAL  = 49; // <=
+    public static final int GREATER_EQUAL = 50; // >=
+    public static final int EQUAL       = 51; // ==
+    public static final int NOT_EQUAL   = 52; // !=
+    // Ids of the separators
+    public static final int LEFT_PAREN  = 53; // (
+    public static final int RIGHT_PAREN = 54; // )
+    public static final int COMMA       = 55; // ,
+    public static final int COLON       = 56; // :
+    public static final int SEMICOLON   = 57; // ;
+    public static final int LEFT_BRACKET  = 58; // [
+    public static final int RIGHT_BRACKET = 59; // ]
+    public static final int LEFT_BRACE  = 60; // {
+    public static final int RIGHT_BRACE = 61; // }
+    // Ids of the other words the language gives a meaning
+    public static final int UNBOUND     = 62;
+    public static final int SELECT      = 63;
+    public static final int WHEN        = 64;
+    // Ids of the words of user defined functions
+    public static final int RETURN      = 65;
+    public static final int VOID        = 66;
+    public static final int REF         = 67;
+    
+    // Lexeme of each predefined id
+    private static final String[] predefinedM =
+        {"if", "else", "endif", "while", "endwhile", "for", "endfor", "to", "by", "in", "from", "def", "enddef"
+        , "Int", "Float", "String", "Bool", "Date"
+        , "print", "LENGTH", "SPACES", "ELEM", "MAXELEM", "debug", "dateDiff", "dateAdj", "dateAge", "IN", "NOTIN"
+        , "and", "or", "not", "notin"
+        , "=", "+", "-", "*", "/", "^", "#", "<", ">", "!"
+        , "+=", "-=", "*=", "/=", "^=", "#=", "<=", ">=", "==", "!="
+        , "(", ")", ",", ":", ";", "[", "]", "{", "}"
+        , "unbound", "select", "when"
+        , "return", "Void", "Ref"
+        };
+    public static final int PREDEFINED_CNT = predefinedM.length;
+    
+    private HashMap<String, Integer> idMap;
+    private String[] lexemeM;   // canonical string of each id
+    private int iLexemeCnt;     // number of ids given out
+    
+    /**
+     * Makes a table that has only the predefined lexemes
+     */
+    public LexemeTable()
+    {
+        idMap = new HashMap<String, Integer>();
+        lexemeM = new String[PREDEFINED_CNT * 2];
+        iLexemeCnt = 0;
+        for(String lexeme : predefinedM)
+        {
+            intern(lexeme);
+        }
+    }
+    
+    /**
+     * Gets the id of a lexeme, giving it the next id if it does not have one yet
+     * @param lexeme the lexeme
+     * @return       the id of the lexeme
+     */
+    public int intern(String lexeme)
+    {
+        Integer iId = idMap.get(lexeme);
+        if(iId != null)
+        {
+            return iId;
+        }
+        
+        if(iLexemeCnt == lexemeM.length)
+        {
+            lexemeM = Arrays.copyOf(lexemeM, iLexemeCnt * 2);
+        }
+        lexemeM[iLexemeCnt] = lexeme;
+        idMap.put(lexeme, iLexemeCnt);
+        return iLexemeCnt++;
+    }
+    
+    /**
+     * Gets the id of a lexeme without interning it
+     * @param lexeme the lexeme
+     * @return       the id of the lexeme, or -1 if it has not been interned
+     */
+    public int find(String lexeme)
+    {
+        Integer iId = idMap.get(lexeme);
+        return iId == null ? -1 : iId;
+    }
+    
+    /**
+     * Gets the canonical string of an id
+     * @param iId the id
+     * @return    the lexeme whose id it is
+     */
+    public String getLexeme(int iId)
+    {
+        return lexemeM[iId];
+    }
+    
+    /**
+     * Gets the number of ids given out, which is one more than the largest id
+     * @return the number of lexemes in the table
+     */
+    public int size()
+    {
+        return iLexemeCnt;
+    }
+    
+    /**
+     * Gets the id of a predefined lexeme, which is the same in every table
+     * @param lexeme the lexeme
+     * @return       the id of the lexeme, or -1 if the language does not define it
+     */
+    public static int predefinedId(String lexeme)
+    {
+        for(int i = 0; i < PREDEFINED_CNT; i++)
+        {
+            if(predefinedM[i].equals(lexeme))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Gets the lexeme of a predefined id, which is the same in every table
+     * @param iId the id, less than 'PREDEFINED_CNT'
+     * @return    the lexeme
+     */
+    public static String getPredefined(int iId)
+    {
+        return predefinedM[iId];
+    }
+}
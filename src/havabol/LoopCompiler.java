@@ -0,0 +1,678 @@
+package havabol;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * @desc
+ * Compiles a hot 'while' or counting 'for' loop into a JVM class that implements
+ * 'CompiledLoop', whose code the JVM can compile to machine code
+ * <p>
+ * Only a loop of 'Int' arithmetic is compiled: its statements may only be 'if'
+ * statements and assignments to a variable with '=', '+=', or '-=', and its
+ * expressions may only have 'Int' variables, 'Int' and 'Bool' literals, and the
+ * operators that compute them without making a string (unary and binary '-', '+',
+ * '*', '/', the comparisons of 'Int' values, 'and', 'or', and 'not'). Each value
+ * is an 'int' on the JVM's operand stack, with 'T' as 1 and 'F' as 0, and the
+ * arithmetic wraps around the same as 'Utility' does. Anything else (e.g., a call,
+ * a declaration, a nested loop, or 'x = y', which would give 'x' the same value
+ * object as 'y') leaves the loop to be executed by 'ASTExecutor'.
+ * <p>
+ * A division by zero does not raise the error in the compiled code; it returns
+ * the index of the statement it is in, which 'ASTExecutor' then executes again,
+ * raising the error on the same line. Statements only change the loop's
+ * variables, so executing one again does the same thing.
+ * <p>
+ * The class has no stack map frames, so it is written with class file version 49
+ * (see 'ClassFileWriter') and is defined as a hidden class, which is unloaded with
+ * the tree of the program.
+ *
+ * @authors Taylor Brauer, Caleb Mussulman, Steven Cenci
+ */
+public class LoopCompiler
+{
+    // Locals of the compiled 'run' method
+    private static final int VAR_ARRAY      = 1; // the parameter 'varM'
+    private static final int ASSIGNED_ARRAY = 2; // the parameter 'assignedM'
+    private static final int LIMIT          = 3; // the limit of a 'for'
+    private static final int INCR           = 4; // the increment of a 'for'
+    private static final int LINE           = 5; // line number of the last expression evaluated
+    private static final int RESULT         = 6; // what 'run' returns
+    private static final int FIRST_VAR      = 7; // value of each variable, then whether it was assigned
+    
+    private static final int MAX_VARS        = 120;   // so that each local has a one byte index
+    private static final int MAX_CODE_LENGTH = 32767; // so that every branch offset fits in two bytes
+    
+    // Constants for the types of values on the operand stack
+    private static final int NOT_COMPILABLE = 0;
+    private static final int INT            = 1;
+    private static final int BOOL           = 2;
+    
+    // JVM opcodes
+    private static final int ICONST_0      = 0x03;
+    private static final int BIPUSH        = 0x10;
+    private static final int SIPUSH        = 0x11;
+    private static final int LDC_W         = 0x13;
+    private static final int ILOAD         = 0x15;
+    private static final int ALOAD_0       = 0x2A;
+    private static final int IALOAD        = 0x2E;
+    private static final int ISTORE        = 0x36;
+    private static final int IASTORE       = 0x4F;
+    private static final int BASTORE       = 0x54;
+    private static final int POP           = 0x57;
+    private static final int DUP           = 0x59;
+    private static final int IADD          = 0x60;
+    private static final int ISUB          = 0x64;
+    private static final int IMUL          = 0x68;
+    private static final int IDIV          = 0x6C;
+    private static final int INEG          = 0x74;
+    private static final int IAND          = 0x7E;
+    private static final int IOR           = 0x80;
+    private static final int IXOR          = 0x82;
+    private static final int IFEQ          = 0x99;
+    private static final int IFNE          = 0x9A;
+    private static final int IF_ICMPEQ     = 0x9F;
+    private static final int IF_ICMPNE     = 0xA0;
+    private static final int IF_ICMPLT     = 0xA1;
+    private static final int IF_ICMPGE     = 0xA2;
+    private static final int IF_ICMPGT     = 0xA3;
+    private static final int IF_ICMPLE     = 0xA4;
+    private static final int GOTO          = 0xA7;
+    private static final int IRETURN       = 0xAC;
+    private static final int RETURN        = 0xB1;
+    private static final int INVOKESPECIAL = 0xB7;
+    
+    private Parser parser;
+    private ClassFileWriter classFile;
+    private byte[] codeM;         // code of the 'run' method
+    private int iLength;          // bytes of 'codeM' that are used
+    private int iDepth;           // values on the operand stack at this point of the code
+    private int iMaxDepth;        // most values that are ever on the operand stack
+    private ArrayList<Integer> slotList = new ArrayList<Integer>();   // slot of each variable
+    private ArrayList<ASTNode> stmtList = new ArrayList<ASTNode>();   // statement of each index the code may return
+    private ArrayList<Integer> exitList = new ArrayList<Integer>();   // each 'goto' to the end of the code
+    
+    private LoopCompiler(Parser parser, String classNm)
+    {
+        this.parser = parser;
+        this.classFile = new ClassFileWriter(classNm, "java/lang/Object", "havabol/CompiledLoop");
+        this.codeM = new byte[256];
+    }
+    
+    /**
+     * Compiles a loop and gives its code to its 'HotLoop'
+     * <p>
+     * It is called while the loop is being executed, so the slots of its variables
+     * are resolved in the scope they are used in.
+     * @param parser     the parser whose symbol table has the loop's variables
+     * @param loopStmt   the WHILE_STMT or FOR_COUNT node
+     * @param hotLoop    the loop's 'HotLoop'
+     * @return           false if the loop can not be compiled
+     */
+    static boolean compile(Parser parser, ASTNode loopStmt, HotLoop hotLoop)
+    {
+        LoopCompiler compiler = new LoopCompiler(parser, "havabol/Loop" + loopStmt.token.iSourceLineNr);
+        int iControlVar = (loopStmt.nodeType == ASTNode.FOR_COUNT) ? compiler.variable(loopStmt.iSlot) : -1;
+        byte[] classM = compiler.compileLoop(loopStmt, iControlVar);
+        if(classM == null)
+        {
+            return false;
+        }
+        
+        CompiledLoop compiled;
+        try
+        {
+            Class<?> loopClass = MethodHandles.lookup().defineHiddenClass(classM, true).lookupClass();
+            compiled = (CompiledLoop) loopClass.getDeclaredConstructor().newInstance();
+        }
+        catch(ReflectiveOperationException | LinkageError e)
+        {
+            return false;
+        }
+        
+        int[] slotM = new int[compiler.slotList.size()];
+        for(int i = 0; i < slotM.length; i++)
+        {
+            slotM[i] = compiler.slotList.get(i);
+        }
+        hotLoop.setCode(compiled, slotM, compiler.stmtList.toArray(new ASTNode[0]), iControlVar);
+        return true;
+    }
+    
+    /**
+     * Compiles the loop into the bytes of its class
+     * <p>
+     * The code is entered at the top of the loop's statements, and ends with the
+     * exit every return goes through, which puts the variables back in 'varM'.
+     * @param loopStmt     the WHILE_STMT or FOR_COUNT node
+     * @param iControlVar  the index of the control variable of a 'for'
+     * @return             the class file, null if the loop can not be compiled
+     */
+    private byte[] compileLoop(ASTNode loopStmt, int iControlVar)
+    {
+        int iTop = iLength;
+        if(! stmts(loopStmt.stmtsM[0]))
+        {
+            return null;
+        }
+        
+        if(loopStmt.nodeType == ASTNode.FOR_COUNT)
+        {
+            // Add the increment to the control variable, and go around while it is less than the limit
+            load(iControlVar);
+            local(ILOAD, INCR, 1);
+            op(IADD, -1);
+            local(ISTORE, value(iControlVar), -1);
+            load(iControlVar);
+            local(ILOAD, LIMIT, 1);
+            branchTo(IF_ICMPLT, -2, iTop);
+        }
+        else
+        {
+            // A division by zero in the condition is raised when 'ASTExecutor' evaluates it again
+            if(expr(loopStmt.exprM[0].code, HotLoop.BACK_EDGE) != BOOL)
+            {
+                return null;
+            }
+            branchTo(IFNE, -1, iTop);
+        }
+        exit(HotLoop.DONE);
+        
+        // The exit puts each variable, whether it was assigned, and the line number back
+        int iVarCnt = slotList.size();
+        for(int iExit : exitList)
+        {
+            patch(iExit);
+        }
+        for(int i = 0; i < iVarCnt; i++)
+        {
+            local(ALOAD_0 + VAR_ARRAY);
+            pushInt(i);
+            load(i);
+            op(IASTORE, -3);
+            local(ALOAD_0 + ASSIGNED_ARRAY);
+            pushInt(i);
+            local(ILOAD, assigned(i), 1);
+            op(BASTORE, -3);
+        }
+        local(ALOAD_0 + VAR_ARRAY);
+        pushInt(iVarCnt + 2);
+        local(ILOAD, LINE, 1);
+        op(IASTORE, -3);
+        local(ILOAD, RESULT, 1);
+        op(IRETURN, -1);
+        
+        // The variables are taken out of 'varM' before the code of the loop
+        byte[] loopM = Arrays.copyOf(codeM, iLength);
+        iLength = 0;
+        for(int i = 0; i < iVarCnt; i++)
+        {
+            local(ALOAD_0 + VAR_ARRAY);
+            pushInt(i);
+            op(IALOAD, -1);
+            local(ISTORE, value(i), -1);
+            pushInt(0);
+            local(ISTORE, assigned(i), -1);
+        }
+        int[] paramM = {LIMIT, INCR, LINE};
+        for(int i = 0; i < paramM.length; i++)
+        {
+            local(ALOAD_0 + VAR_ARRAY);
+            pushInt(iVarCnt + i);
+            op(IALOAD, -1);
+            local(ISTORE, paramM[i], -1);
+        }
+        pushInt(HotLoop.DONE);
+        local(ISTORE, RESULT, -1);
+        if(iLength + loopM.length > MAX_CODE_LENGTH)
+        {
+            return null;
+        }
+        for(byte b : loopM)
+        {
+            u1(b);
+        }
+        classFile.addMethod(ClassFileWriter.ACC_PUBLIC, "run", "([I[Z)I", iMaxDepth, FIRST_VAR + 2 * iVarCnt
+                            , Arrays.copyOf(codeM, iLength));
+        
+        // The constructor only calls the constructor of 'Object'
+        int iObjectInit = classFile.methodRef("java/lang/Object", "<init>", "()V");
+        byte[] initM = {(byte) ALOAD_0, (byte) INVOKESPECIAL, (byte) (iObjectInit >>> 8), (byte) iObjectInit, (byte) RETURN};
+        classFile.addMethod(ClassFileWriter.ACC_PUBLIC, "<init>", "()V", 1, 1, initM);
+        return classFile.toBytes();
+    }
+    
+    /**
+     * Compiles a statement list
+     * @param stmts  the STMT_LIST node
+     * @return       false if a statement can not be compiled
+     */
+    private boolean stmts(ASTNode stmts)
+    {
+        for(ASTNode stmt : stmts.childM)
+        {
+            int iStmt = stmtList.size();
+            stmtList.add(stmt);
+            switch(stmt.nodeType)
+            {
+                case ASTNode.ASSIGN_STMT:
+                    if(! assignStmt(stmt, iStmt))
+                    {
+                        return false;
+                    }
+                    break;
+                case ASTNode.IF_STMT:
+                    if(! ifStmt(stmt, iStmt))
+                    {
+                        return false;
+                    }
+                    break;
+                default:
+                    return false;
+            }
+        }
+        return true;
+    }
+    
+    private boolean assignStmt(ASTNode stmt, int iStmt)
+    {
+        String operatorStr = stmt.token.tokenStr;
+        Bytecode code = stmt.exprM[1].code;
+        if(stmt.exprM[0] != null || stmt.exprM[1].appendCodeM != null)
+        {
+            return false;
+        }
+        int iVar = variable(stmt.iSlot);
+        if(iVar < 0)
+        {
+            return false;
+        }
+        
+        if(operatorStr.equals("="))
+        {
+            // The variable would be given the other variable's value object
+            if(code.opM.length == 1 && code.opM[0] == Bytecode.LOAD_VAR)
+            {
+                return false;
+            }
+            if(expr(code, iStmt) != INT)
+            {
+                return false;
+            }
+        }
+        else if(operatorStr.equals("+=") || operatorStr.equals("-="))
+        {
+            load(iVar);
+            if(expr(code, iStmt) != INT)
+            {
+                return false;
+            }
+            op(operatorStr.equals("+=") ? IADD : ISUB, -1);
+        }
+        else
+        {
+            return false;
+        }
+        local(ISTORE, value(iVar), -1);
+        pushInt(1);
+        local(ISTORE, assigned(iVar), -1);
+        return true;
+    }
+    
+    private boolean ifStmt(ASTNode stmt, int iStmt)
+    {
+        if(expr(stmt.exprM[0].code, iStmt) != BOOL)
+        {
+            return false;
+        }
+        int iElse = branch(IFEQ, -1);
+        if(! stmts(stmt.stmtsM[0]))
+        {
+            return false;
+        }
+        if(stmt.stmtsM[1] != null)
+        {
+            int iEnd = branch(GOTO, 0);
+            patch(iElse);
+            if(! stmts(stmt.stmtsM[1]))
+            {
+                return false;
+            }
+            patch(iEnd);
+        }
+        else
+        {
+            patch(iElse);
+        }
+        return true;
+    }
+    
+    /**
+     * Compiles an expression, which leaves its value on the operand stack
+     * <p>
+     * The line number of its last instruction is then kept, as 'BytecodeVM' leaves it.
+     * @param code   the compiled expression
+     * @param iBail  what to return if it divides by zero
+     * @return       the type of its value, NOT_COMPILABLE if it can not be compiled
+     */
+    private int expr(Bytecode code, int iBail)
+    {
+        int[] opM = code.opM;
+        int[] typeM = new int[opM.length];
+        int iTop = -1;
+        
+        for(int ip = 0; ip < opM.length; ip++)
+        {
+            Token token = code.tokenM[ip];
+            switch(opM[ip])
+            {
+                case Bytecode.PUSH_LITERAL:
+                    typeM[++iTop] = literal(token.subClassif, token.tokenStr);
+                    break;
+                case Bytecode.PUSH_CONST:
+                    typeM[++iTop] = literal(code.constM[ip].type, code.constM[ip].getValue());
+                    break;
+                case Bytecode.LOAD_VAR:
+                    int iVar = variable(parser.symbolTable.getSlot(token));
+                    if(iVar < 0)
+                    {
+                        return NOT_COMPILABLE;
+                    }
+                    load(iVar);
+                    typeM[++iTop] = INT;
+                    break;
+                case Bytecode.NEG:
+                    if(typeM[iTop] != INT)
+                    {
+                        return NOT_COMPILABLE;
+                    }
+                    op(INEG, 0);
+                    break;
+                case Bytecode.NOT:
+                    if(typeM[iTop] != BOOL)
+                    {
+                        return NOT_COMPILABLE;
+                    }
+                    pushInt(1);
+                    op(IXOR, -1);
+                    break;
+                case Bytecode.MUL:
+                case Bytecode.DIV:
+                case Bytecode.ADD:
+                case Bytecode.SUB:
+                case Bytecode.LT:
+                case Bytecode.GT:
+                case Bytecode.LE:
+                case Bytecode.GE:
+                case Bytecode.EQ:
+                case Bytecode.NE:
+                    if(typeM[iTop] != INT || typeM[--iTop] != INT)
+                    {
+                        return NOT_COMPILABLE;
+                    }
+                    typeM[iTop] = intOperator(opM[ip], iBail);
+                    break;
+                case Bytecode.AND:
+                case Bytecode.OR:
+                    if(typeM[iTop] != BOOL || typeM[--iTop] != BOOL)
+                    {
+                        return NOT_COMPILABLE;
+                    }
+                    op(opM[ip] == Bytecode.AND ? IAND : IOR, -1);
+                    break;
+                default:
+                    return NOT_COMPILABLE;
+            }
+            if(typeM[iTop] == NOT_COMPILABLE)
+            {
+                return NOT_COMPILABLE;
+            }
+        }
+        if(iTop != 0)
+        {
+            return NOT_COMPILABLE;
+        }
+        
+        pushInt(code.tokenM[opM.length - 1].iSourceLineNr);
+        local(ISTORE, LINE, -1);
+        return typeM[0];
+    }
+    
+    /**
+     * Compiles a binary operator of two 'Int' values
+     * @param iOpcode  the opcode of the operator in 'Bytecode'
+     * @param iBail    what to return if it divides by zero
+     * @return         the type of its value
+     */
+    private int intOperator(int iOpcode, int iBail)
+    {
+        int iCompare;
+        switch(iOpcode)
+        {
+            case Bytecode.MUL:
+                op(IMUL, -1);
+                return INT;
+            case Bytecode.ADD:
+                op(IADD, -1);
+                return INT;
+            case Bytecode.SUB:
+                op(ISUB, -1);
+                return INT;
+            case Bytecode.DIV:
+                // Leave the division to 'ASTExecutor' if the divisor is zero, emptying the stack for the exit
+                op(DUP, 1);
+                int iDivide = branch(IFNE, -1);
+                int iSavedDepth = iDepth;
+                while(iDepth > 0)
+                {
+                    op(POP, -1);
+                }
+                exit(iBail);
+                iDepth = iSavedDepth;
+                patch(iDivide);
+                op(IDIV, -1);
+                return INT;
+            case Bytecode.LT:
+                iCompare = IF_ICMPLT;
+                break;
+            case Bytecode.GT:
+                iCompare = IF_ICMPGT;
+                break;
+            case Bytecode.LE:
+                iCompare = IF_ICMPLE;
+                break;
+            case Bytecode.GE:
+                iCompare = IF_ICMPGE;
+                break;
+            case Bytecode.EQ:
+                iCompare = IF_ICMPEQ;
+                break;
+            default:
+                iCompare = IF_ICMPNE;
+        }
+        
+        // Push 1 if the comparison is true, otherwise 0
+        int iTrue = branch(iCompare, -2);
+        pushInt(0);
+        int iEnd = branch(GOTO, 0);
+        iDepth--;
+        patch(iTrue);
+        pushInt(1);
+        patch(iEnd);
+        return BOOL;
+    }
+    
+    /**
+     * Compiles pushing a literal or folded value
+     * @param iType     the type of the value
+     * @param valueStr  the value
+     * @return          the type of the value, NOT_COMPILABLE if it is not an 'Int' or 'Bool',
+     *                  or is an 'Int' whose string is not the string of its number (e.g., '007')
+     */
+    private int literal(int iType, String valueStr)
+    {
+        if(iType == Token.INTEGER)
+        {
+            int iValue;
+            try
+            {
+                iValue = Integer.parseInt(valueStr);
+            }
+            catch(NumberFormatException e)
+            {
+                return NOT_COMPILABLE;
+            }
+            if(! Integer.toString(iValue).equals(valueStr))
+            {
+                return NOT_COMPILABLE;
+            }
+            pushInt(iValue);
+            return INT;
+        }
+        if(iType == Token.BOOLEAN && (valueStr.equals("T") || valueStr.equals("F")))
+        {
+            pushInt(valueStr.equals("T") ? 1 : 0);
+            return BOOL;
+        }
+        return NOT_COMPILABLE;
+    }
+    
+    /**
+     * Gets the index of a variable, which it is given the first time it is used
+     * @param iSlot  the slot of the variable
+     * @return       its index, -1 if the loop has too many variables
+     */
+    private int variable(int iSlot)
+    {
+        int iVar = slotList.indexOf(iSlot);
+        if(iVar < 0)
+        {
+            if(slotList.size() == MAX_VARS)
+            {
+                return -1;
+            }
+            iVar = slotList.size();
+            slotList.add(iSlot);
+        }
+        return iVar;
+    }
+    
+    private static int value(int iVar)
+    {
+        return FIRST_VAR + 2 * iVar;
+    }
+    
+    private static int assigned(int iVar)
+    {
+        return FIRST_VAR + 2 * iVar + 1;
+    }
+    
+    private void load(int iVar)
+    {
+        local(ILOAD, value(iVar), 1);
+    }
+    
+    /**
+     * Compiles returning a value, by going to the exit at the end of the code
+     * with an empty operand stack
+     * @param iResult  what to return
+     */
+    private void exit(int iResult)
+    {
+        pushInt(iResult);
+        local(ISTORE, RESULT, -1);
+        exitList.add(branch(GOTO, 0));
+    }
+    
+    private void pushInt(int iValue)
+    {
+        if(iValue >= -1 && iValue <= 5)
+        {
+            op(ICONST_0 + iValue, 1);
+        }
+        else if(iValue >= Byte.MIN_VALUE && iValue <= Byte.MAX_VALUE)
+        {
+            op(BIPUSH, 1);
+            u1(iValue);
+        }
+        else if(iValue >= Short.MIN_VALUE && iValue <= Short.MAX_VALUE)
+        {
+            op(SIPUSH, 1);
+            u2(iValue);
+        }
+        else
+        {
+            op(LDC_W, 1);
+            u2(classFile.integer(iValue));
+        }
+    }
+    
+    private void local(int iOpcode)
+    {
+        op(iOpcode, 1);
+    }
+    
+    private void local(int iOpcode, int iLocal, int iStack)
+    {
+        op(iOpcode, iStack);
+        u1(iLocal);
+    }
+    
+    /**
+     * Writes an instruction with no operands
+     * @param iOpcode  the opcode
+     * @param iStack   the change of the number of values on the operand stack
+     */
+    private void op(int iOpcode, int iStack)
+    {
+        u1(iOpcode);
+        iDepth += iStack;
+        iMaxDepth = Math.max(iMaxDepth, iDepth);
+    }
+    
+    /**
+     * Writes a branch forward, whose offset is set by 'patch'
+     * @return  the position of the branch
+     */
+    private int branch(int iOpcode, int iStack)
+    {
+        int iBranch = iLength;
+        op(iOpcode, iStack);
+        u2(0);
+        return iBranch;
+    }
+    
+    private void branchTo(int iOpcode, int iStack, int iTarget)
+    {
+        int iBranch = iLength;
+        op(iOpcode, iStack);
+        u2(iTarget - iBranch);
+    }
+    
+    /**
+     * Sets the offset of a branch forward to the end of the code so far
+     * @param iBranch  the position of the branch
+     */
+    private void patch(int iBranch)
+    {
+        int iOffset = iLength - iBranch;
+        codeM[iBranch + 1] = (byte) (iOffset >>> 8);
+        codeM[iBranch + 2] = (byte) iOffset;
+    }
+    
+    private void u1(int iValue)
+    {
+        if(iLength == codeM.length)
+        {
+            codeM = Arrays.copyOf(codeM, codeM.length * 2);
+        }
+        codeM[iLength++] = (byte) iValue;
+    }
+    
+    private void u2(int iValue)
+    {
+        u1(iValue >>> 8);
+        u1(iValue);
+    }
+}
@@ -12,7 +12,6 @@ public class Numeric {
 	//CLASS VARIABLES
     int integerValue;
 	double doubleValue;
-	String strValue; // display value
 	int type;        // INTEGER, FLOAT
     
 	/**
@@ -34,38 +33,45 @@ public class Numeric {
 		    switch(resultValue.type)
 		    {
 		        // Turn the INTEGER result value into a numeric
+		        // The number is only parsed if the result value does not already have it
 		        case Token.INTEGER:
-		            this.integerValue = Integer.parseInt(resultValue.value);
-		            this.strValue = resultValue.value;
+		            if(! resultValue.hasNumber())
+		            {
+		                resultValue.integerValue = Integer.parseInt(resultValue.getValue());
+		                resultValue.numericType = Token.INTEGER;
+		            }
+		            this.integerValue = resultValue.integerValue;
 		            this.type = resultValue.type;
 		            break;
 		        // Turn the FLOAT result value into a numeric
 		        case Token.FLOAT:
-		            this.doubleValue = Double.parseDouble(resultValue.value);
-                    this.strValue = resultValue.value;
+		            if(! resultValue.hasNumber())
+		            {
+		                resultValue.doubleValue = Double.parseDouble(resultValue.getValue());
+		                resultValue.numericType = Token.FLOAT;
+		            }
+		            this.doubleValue = resultValue.doubleValue;
                     this.type = resultValue.type;
 		            break;
 		        // If the result value is a STRING, attempt to create a valid numeric out of it.
 		        case Token.STRING:
 		            // If there is a decimal, try to create a FLOAT
-		            if(resultValue.value.contains("."))
+		            if(resultValue.getValue().contains("."))
 		            {
-		                this.doubleValue = Double.parseDouble(resultValue.value);
-		                this.strValue = resultValue.value;
+		                this.doubleValue = Double.parseDouble(resultValue.getValue());
 	                    this.type = Token.FLOAT;
 		            }
 		            // If there is no decimal, try to create an INTEGER
 		            else
 		            {
-		                this.integerValue = Integer.parseInt(resultValue.value);
-		                this.strValue = resultValue.value;
+		                this.integerValue = Integer.parseInt(resultValue.getValue());
 	                    this.type = Token.INTEGER;
 		            }
 		            break;
 		        default:
 		            // Can not create a numeric out of something that is not an INTEGER OR FLOAT
 		            parser.errorWithCurrent("The %s of '%s' has type '%s' and value '%s', must have type 'INTEGER' or 'FLOAT'"
-                                            , operandDescription, operator, Token.getType(parser, resultValue.type), resultValue.value);
+                                            , operandDescription, operator, Token.getType(parser, resultValue.type), resultValue.getValue());
 		    }
 		}
 		// If there was any error parsing to get the int/double
@@ -73,7 +79,7 @@ public class Numeric {
 		catch(NumberFormatException e)
 		{
 		    parser.errorWithCurrent("Could not parse %s of '%s' into 'INTEGER' or 'FLOAT', found '%s' of type '%s'"
-		                            , operandDescription, operator, resultValue.value, Token.getType(parser, resultValue.type));
+		                            , operandDescription, operator, resultValue.getValue(), Token.getType(parser, resultValue.type));
 		}
 	}
 }
@@ -0,0 +1,173 @@
+package havabol;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * @desc
+ * Buffers the output of a program, and writes it to a channel in large blocks
+ * <p>
+ * 'print' adds its parameters to the buffer without formatting them, and the
+ * buffer is only written when it is full, when 'flush' is called at the end of
+ * the program, or before an error is printed. The output is either standard
+ * output or a file, which is written straight to its file channel.
+ * <p>
+ * Since this is an OutputStream, 'System.out' can be made to print into the
+ * same buffer (see 'Havabol'), so the debuggers' output stays in order with
+ * the program's output.
+ *
+ * @authors Taylor Brauer, Caleb Mussulman, Steven Cenci
+ */
+public class Output extends OutputStream
+{
+    public static final int BUFFER_SIZE = 64 * 1024; // bytes kept before they are written
+    
+    private static Output standardOutput;   // output to standard output, made when first needed
+    
+    private WritableByteChannel channel;    // where the output is written
+    private ByteBuffer buffer;              // output that has not been written yet
+    private Charset charset;                // encoding of strings that are not ASCII
+    
+    /**
+     * Makes an output that writes to a channel
+     * @param channel  the channel to write to
+     */
+    Output(WritableByteChannel channel)
+    {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.charset = Charset.defaultCharset();
+    }
+    
+    /**
+     * Gets the output to standard output
+     * <p>
+     * Synchronized, since parsers made on different threads (see 'Runner') all get it.
+     * @return  the output, which is the same object every time
+     */
+    static synchronized Output standard()
+    {
+        if(standardOutput == null)
+        {
+            standardOutput = new Output(new FileOutputStream(FileDescriptor.out).getChannel());
+        }
+        return standardOutput;
+    }
+    
+    /**
+     * Makes an output that writes to a file, replacing the file if it already exists
+     * @param fileNm       the name of the file
+     * @return             the output
+     * @throws IOException if the file could not be opened
+     */
+    static Output open(String fileNm) throws IOException
+    {
+        FileChannel fileChannel = FileChannel.open(Paths.get(fileNm), StandardOpenOption.CREATE
+                                                  , StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        return new Output(fileChannel);
+    }
+    
+    /**
+     * Adds a string to the output
+     * <p>
+     * ASCII characters are copied to the buffer as they are; any other string
+     * is encoded with the default character set, the same as 'System.out' does.
+     * @param str          the string
+     * @throws IOException if the buffer was full and could not be written
+     */
+    public void print(String str) throws IOException
+    {
+        int iLength = str.length();
+        for(int i = 0; i < iLength; i++)
+        {
+            if(str.charAt(i) >= 0x80)
+            {
+                byte[] bytes = str.getBytes(charset);
+                write(bytes, 0, bytes.length);
+                return;
+            }
+        }
+        
+        for(int i = 0; i < iLength; i++)
+        {
+            if(! buffer.hasRemaining())
+            {
+                flush();
+            }
+            buffer.put((byte) str.charAt(i));
+        }
+    }
+    
+    @Override
+    public void write(int b) throws IOException
+    {
+        if(! buffer.hasRemaining())
+        {
+            flush();
+        }
+        buffer.put((byte) b);
+    }
+    
+    @Override
+    public void write(byte[] bytes, int iOffset, int iLength) throws IOException
+    {
+        // Bytes that do not fit in the buffer are written after the buffer, without copying them
+        if(iLength > buffer.remaining())
+        {
+            flush();
+            if(iLength >= buffer.capacity())
+            {
+                writeAll(ByteBuffer.wrap(bytes, iOffset, iLength));
+                return;
+            }
+        }
+        buffer.put(bytes, iOffset, iLength);
+    }
+    
+    /**
+     * Writes all of the output in the buffer
+     * @throws IOException if the output could not be written
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        buffer.flip();
+        writeAll(buffer);
+        buffer.clear();
+    }
+    
+    /**
+     * Writes the output and closes the channel, unless it is standard output
+     * @throws IOException if the output could not be written
+     */
+    @Override
+    public void close() throws IOException
+    {
+        flush();
+        if(this != standardOutput)
+        {
+            channel.close();
+        }
+    }
+    
+    /**
+     * Writes bytes to the channel, which may take more than one write
+     * @param bytes        the bytes to write
+     * @throws IOException if the bytes could not be written
+     */
+    private void writeAll(ByteBuffer bytes) throws IOException
+    {
+        while(bytes.hasRemaining())
+        {
+            channel.write(bytes);
+        }
+    }
+}
@@ -7,6 +7,7 @@ public class Parser
     public String sourceFileNm;
     public Scanner scan;
     public SymbolTable symbolTable;
+    public Output output; // Where 'print' writes, buffered until it is flushed
     public int iParseTokenLineNr;
     public boolean bShowAssign; // Determines whether or not to print the variable and value
                                 // of the current assignment
@@ -18,6 +19,20 @@ public class Parser
                                       // and not the array element reference
     public boolean bCalledExprFromStmts; // If 'expr' is called from 'statements', then we are on the current token
                                          // and do not want to call scanner to get the next token
+    public boolean bFoundAnOperator; // Set by 'infixToPostfix' if the expression had at least one operator
+    public boolean bBuildingAST; // Set while 'ASTBuilder' is converting expressions. The symbol table is not
+                                 // looked at; the identifiers that need to be checked are saved instead
+    public ArrayList<Token> exprCheckList; // Identifiers (and 'IN'/'NOTIN' tokens) that the symbol table was (or
+                                           // would have been) checked for while converting an expression
+    public ASTNode[] postfixCacheM; // Expressions already converted by 'expr', by the index of their first token
+                                    // (times two, plus one for 'bGettingArraySize'), so each is converted only once
+    public int[] skipEndM; // For a block of statements that was already ignored, by the index of its first token,
+                           // the index of the token that ended it ('else', 'endif', ...), or 0 if not known yet
+    public Profiler profiler; // Counts the executed lines and built-in functions while 'debug Profile' is on
+    public ASTNode program; // The tree of the source file, once it is built (null if it could not be built)
+    public boolean bBuilt; // Whether the tree has been built, or read from a cached program (see 'ProgramCache')
+    public FunctionDefiner functionDefiner; // Defines the user defined functions before anything is executed
+    private ReturnException returnException = new ReturnException(); // Thrown by every 'return' (see 'returnStmt')
     // The following two lists are used as delimiters for 'expr'
     public final static List<String> assignmentTokens = Collections.unmodifiableList(Arrays.asList("=", "+=", "-=", "*=", "/="));
     public final static List<String> exprDelimiters   = Collections.unmodifiableList(Arrays.asList(":", ";")); // The delimiters for an expression
@@ -27,16 +42,41 @@ public class Parser
         this.scan = scan;
         this.symbolTable = symbolTable;
         this.sourceFileNm = scan.sourceFileNm;
+        this.output = Output.standard();
         this.bShowAssign = false;
         this.bShowExpr = false;
         this.bShowPostfix = false;
         this.bGettingArraySize = false;
+        this.profiler = new Profiler(scan);
+        this.functionDefiner = new FunctionDefiner(this);
+        this.functionDefiner.defineAll();
     }
     
-    // This is a temporary method so we can still see the token output
+    /**
+     * Parses and executes the source file
+     * <p>
+     * The whole file is first built into a tree of statements and expressions,
+     * which is then executed without parsing anything again (loop bodies are
+     * just walked again). If the file can not be built into a tree (it has
+     * a syntax error, or it uses something the tree does not handle, such as
+     * 'debug Token'), the file is parsed and executed one statement at a time
+     * instead, so that the output and error messages are the same as always.
+     * @throws Exception if there is an error in the source file
+     */
     public void parse() throws Exception
     {
         ResultValue resStmtsReturn;
+
+        // Try to build the whole file into a tree first
+        build();
+        if(program != null)
+        {
+            new ASTExecutor(this).executeProgram(program);
+            return;
+        }
+
+        // Otherwise, parse and execute from the start of the file
+        scan.rewind();
         resStmtsReturn = statements(true);
         
         // Check that execution ended from EOF
@@ -46,6 +86,21 @@ public class Parser
         }
     }
     
+    /**
+     * Builds the whole source file into a tree, unless it was already built
+     * <p>
+     * 'program' is left null if the file can not be built into a tree, in
+     * which case the scanner must be rewound before the file is parsed.
+     */
+    public void build()
+    {
+        if(! bBuilt)
+        {
+            program = new ASTBuilder(this).buildProgram();
+            bBuilt = true;
+        }
+    }
+    
     /**
      * A method for handling errors and exiting execution while parsing
      * <p>
@@ -115,6 +170,27 @@ public class Parser
     {
         ResultValue resValue = new ResultValue();
         
+        // Ignoring a block finds the same end token every time, since no statement
+        // in it is executed, so once a block has been ignored it is jumped over.
+        // (Unless the tokens are being printed, which ignoring also does.)
+        int iBlockStart = scan.iTokenIndex - 1; // index of the block's first token
+        boolean bInTokenArray = (iBlockStart >= 0 && iBlockStart < scan.tokenM.length
+                                 && scan.nextToken == scan.tokenM[iBlockStart]);
+        if(! bExec && bInTokenArray)
+        {
+            if(skipEndM == null)
+            {
+                skipEndM = new int[scan.tokenM.length];
+            }
+            if(skipEndM[iBlockStart] > 0 && ! scan.bShowToken)
+            {
+                scan.setPosition(scan.tokenM[skipEndM[iBlockStart]]);
+                resValue.type = Token.CONTROL;
+                resValue.terminatingStr = scan.currentToken.tokenStr;
+                return resValue;
+            }
+        }
+        
         // Keep executing statements until EOF or FLOW END
         while(true){
             // Get the next token
@@ -132,80 +208,100 @@ public class Parser
             // Check if the current token is a end of flow token
             if((scan.currentToken.primClassif == Token.CONTROL) && (scan.currentToken.subClassif == Token.END))
             {
+                // Save where the ignored block ended
+                if(! bExec && bInTokenArray)
+                {
+                    skipEndM[iBlockStart] = scan.currentToken.iTokenIndex;
+                }
                 resValue.type = Token.CONTROL;
                 resValue.terminatingStr = scan.currentToken.tokenStr;
                 return resValue;
             }
         
-            // Current token is start of if statement
-            if(scan.currentToken.tokenStr.equals("if"))
-            {
-                ifStmt(bExec);
-            }
-            // Current token is start of while statement
-            else if(scan.currentToken.tokenStr.equals("while"))
-            {
-                whileStmt(bExec);
-            }
-            // Current token is start of for statement
-            else if(scan.currentToken.tokenStr.equals("for"))
-            {
-                forStmt(bExec);
-            }
-            // Current token is start of assignment statement
-            else if((scan.currentToken.primClassif == Token.OPERAND) && (scan.currentToken.subClassif == Token.IDENTIFIER))
-            {
-                assignStmt(bExec);
-            }
-            // Current token is start of declaration statement
-            else if((scan.currentToken.primClassif == Token.CONTROL) && (scan.currentToken.subClassif == Token.DECLARE))
-            {
-                declareStmt(bExec);
-            }
-            // Current token is the start of a function call
-            else if(scan.currentToken.primClassif == Token.FUNCTION)
+            // Each executed statement is a frame of the profiler
+            int iProfileDepth = (bExec && profiler.bOn) ? profiler.enterLine(scan.currentToken.iSourceLineNr) : -1;
+            
+            // Dispatch on the id of the current token's lexeme
+            switch(scan.currentToken.iLexemeId)
             {
-                // Save the name of the function for error message
-                String functionName = scan.currentToken.tokenStr;
-                
-                // Function is a built-in function
-                if(scan.currentToken.subClassif == Token.BUILTIN)
-                {
-                    // If we are not executing, then skip the function call
-                    if(! bExec)
+                // Current token is start of if statement
+                case LexemeTable.IF:
+                    ifStmt(bExec);
+                    break;
+                // Current token is start of while statement
+                case LexemeTable.WHILE:
+                    whileStmt(bExec);
+                    break;
+                // Current token is start of for statement
+                case LexemeTable.FOR:
+                    forStmt(bExec);
+                    break;
+                // Current token is start of a function definition
+                case LexemeTable.DEF:
+                    defStmt(bExec);
+                    break;
+                // Current token is start of return statement
+                case LexemeTable.RETURN:
+                    returnStmt(bExec);
+                    break;
+                default:
+                    // Current token is start of assignment statement
+                    if((scan.currentToken.primClassif == Token.OPERAND) && (scan.currentToken.subClassif == Token.IDENTIFIER))
                     {
-                        skipTo(scan.currentToken.iSourceLineNr, scan.currentToken.tokenStr, ";");
+                        assignStmt(bExec);
                     }
-                    // Otherwise, execute the appropriate function
-                    else
+                    // Current token is start of declaration statement
+                    else if((scan.currentToken.primClassif == Token.CONTROL) && (scan.currentToken.subClassif == Token.DECLARE))
                     {
-                        int iFunctionLineNr = scan.currentToken.iSourceLineNr; // line number that function call occurs on
-                        switch(functionName)
+                        declareStmt(bExec);
+                    }
+                    // Current token is the start of a function call
+                    else if(scan.currentToken.primClassif == Token.FUNCTION)
+                    {
+                        // Save the name of the function for error message
+                        String functionName = scan.currentToken.tokenStr;
+                        
+                        // Function is a built-in function, or a user defined function (which is called the same way)
+                        if((scan.currentToken.subClassif == Token.BUILTIN) || (scan.currentToken.subClassif == Token.USER))
                         {
-                            case "debug":
-                                debug();
-                                break;
-                            default:
-                                // Handle the parsing of these functions in 'expr', but indicate that we are on the first
-                                // token of the expression, so 'expr' should not call scanner for the next token
-                                bCalledExprFromStmts = true;
-                                expr();
-                                bCalledExprFromStmts = false;
-                                // Check that the function statement ended with ';'
-                                if(! scan.currentToken.tokenStr.equals(";"))
+                            // If we are not executing, then skip the function call
+                            if(! bExec)
+                            {
+                                skipTo(scan.currentToken.iSourceLineNr, scan.currentToken.tokenStr, ";");
+                            }
+                            // Otherwise, execute the appropriate function
+                            else
+                            {
+                                int iFunctionLineNr = scan.currentToken.iSourceLineNr; // line number that function call occurs on
+                                switch(scan.currentToken.iLexemeId)
                                 {
-                                    errorLineNr(iFunctionLineNr, "Expected ';' after call to function '%s'", functionName);
+                                    case LexemeTable.DEBUG:
+                                        debug();
+                                        break;
+                                    default:
+                                        // Handle the parsing of these functions in 'expr', but indicate that we are on the first
+                                        // token of the expression, so 'expr' should not call scanner for the next token
+                                        bCalledExprFromStmts = true;
+                                        expr();
+                                        bCalledExprFromStmts = false;
+                                        // Check that the function statement ended with ';'
+                                        if(! scan.currentToken.tokenStr.equals(";"))
+                                        {
+                                            errorLineNr(iFunctionLineNr, "Expected ';' after call to function '%s'", functionName);
+                                        }
+                                        break;
                                 }
-                                break;
+                            }
                         }
                     }
-                }
-            }
-            // Current token is start of undefined statement
-            else
-            {
-                error("Unknown statement type: '%s'", scan.currentToken.tokenStr);
+                    // Current token is start of undefined statement
+                    else
+                    {
+                        error("Unknown statement type: '%s'", scan.currentToken.tokenStr);
+                    }
+                    break;
             }
+            profiler.exit(iProfileDepth);
         }
     }
     
@@ -250,7 +346,7 @@ public class Parser
             }
             
             // Did the condition return true?
-            if(resCond.value.equals("T"))
+            if(resCond.isTrue())
             {
                 // Cond returned true, execute the statements after the 'if'
                 resTrueStmts = statements(true);
@@ -400,11 +496,11 @@ public class Parser
             if(resCond.type != Token.BOOLEAN)
             {
                 errorLineNr(whileToken.iSourceLineNr, "Expected a 'BOOLEAN' type for the evaluation of 'while' statement's condition"
-                           + ", found '%s' with type '%s'", resCond.value, Token.getType(this, resCond.type));
+                           + ", found '%s' with type '%s'", resCond.getValue(), Token.getType(this, resCond.type));
             }
             
             // Continue in the while loop as long as the expression evaluates to true
-            while(resCond.value.equals("T"))
+            while(resCond.isTrue())
             {
                 // Execute the statements after the 'while'
                 resStmts = statements(true);
@@ -497,7 +593,7 @@ public class Parser
                 // The source value should be a primitive and coercible to an int type
                 if(resSourceVal.structure != STIdentifier.PRIMITVE)
                 {
-                    error("Expected a primitive value to assign to '%s', found array '%s'", variableStr, resSourceVal.value);
+                    error("Expected a primitive value to assign to '%s', found array '%s'", variableStr, resSourceVal.getValue());
                 }
                 Utility.coerce(this, Token.INTEGER, resSourceVal, "for loop control variable initialization");
                 
@@ -513,7 +609,7 @@ public class Parser
                 // The limit value should be a primitive and coercible to an int type
                 if(resLimit.structure != STIdentifier.PRIMITVE)
                 {
-                    error("Expected a primitive value as the 'for' loop limit, found array '%s'", resLimit.value);
+                    error("Expected a primitive value as the 'for' loop limit, found array '%s'", resLimit.getValue());
                 }
                 Utility.coerce(this, Token.INTEGER, resLimit, "for loop limit value");
                 
@@ -534,7 +630,7 @@ public class Parser
                     // The increment amount should be primitive and coercible to an int type
                     if(resIncr.structure != STIdentifier.PRIMITVE)
                     {
-                        error("Expected a primitive value as the 'for' loop increment amount, found array '%s'", resIncr.value);
+                        error("Expected a primitive value as the 'for' loop increment amount, found array '%s'", resIncr.getValue());
                     }
                     Utility.coerce(this, Token.INTEGER, resIncr, "for loop increment value");
                 }
@@ -542,7 +638,7 @@ public class Parser
                 else
                 {
                     resIncr = new ResultValue();
-                    resIncr.value = "1";
+                    resIncr.setValue("1");
                     resIncr.type = Token.INTEGER;
                     resIncr.structure = STIdentifier.PRIMITVE;
                     
@@ -567,7 +663,7 @@ public class Parser
                 // If the user specified the increment amount, it should have been a positive integer value
                 if(numIncr.integerValue <= 0)
                 {
-                    error("The increment value for 'for' must be a positive integer, found '%s'", resIncr.value);
+                    error("The increment value for 'for' must be a positive integer, found '%s'", resIncr.getValue());
                 }
                 
                 // Continue in the 'for' loop as long as 'controlVar < limit'
@@ -591,7 +687,7 @@ public class Parser
                     
                     // If the control variable was re-declared, check that it was initialized as well
                     // TODO Change this ugly code...please
-                    ResultValue resControlVarVal = symbolTable.storageManager.sm.get(variableStr);
+                    ResultValue resControlVarVal = symbolTable.storageManager.getValue(symbolTable.getSlot(variableStr));
                     if(resControlVarVal == null)
                     {
                         error("Control variable '%s' was re-declared but not initialized", variableStr);
@@ -609,7 +705,7 @@ public class Parser
                     
                     // Add the increment value to it
                     numControlVar.integerValue += numIncr.integerValue;
-                    resControlVarVal.value = Integer.toString(numControlVar.integerValue);
+                    resControlVarVal.setInteger(numControlVar.integerValue);
                     
                     // Move back to the 'for' and skip past the initialization of its parameters
                     scan.setPosition(forToken);
@@ -636,14 +732,14 @@ public class Parser
                 if(resExpr.structure == STIdentifier.PRIMITVE)
                 {
                     // Save the string to iterate over
-                    String strIterate = resExpr.value;
+                    String strIterate = resExpr.getValue();
                     
                     // Execute the statements in the 'for' loop for each character of the string
                     for(int i = 0; i < strIterate.length(); i++)
                     {
                         // Get the current character of the string
                         ResultValue resChar = new ResultValue();
-                        resChar.value = Character.toString(strIterate.charAt(i));
+                        resChar.setValue(Character.toString(strIterate.charAt(i)));
                         resChar.type = Token.STRING;
                         resChar.structure = STIdentifier.PRIMITVE;
                         
@@ -690,21 +786,13 @@ public class Parser
                      */
                     
                     // Get the number of elements currently in the array
-                    iForIterateNum = 0;
-                    for(int i = 0; i < resArray.valueList.size(); i++)
-                    {
-                        ResultValue resCurrentElem = resArray.valueList.get(i);
-                        if(resCurrentElem != null)
-                        {
-                            iForIterateNum++;
-                        }
-                    }
+                    iForIterateNum = resArray.countSet();
                     
                     int iCurrentElementAmount = 0;
-                    for(int i = 0; i < resArray.valueList.size() && iCurrentElementAmount < iForIterateNum; i++)
+                    for(int i = resArray.nextSet(0); i >= 0 && iCurrentElementAmount < iForIterateNum; i = resArray.nextSet(i + 1))
                     {
                         // Get the current element of the array
-                        ResultValue resArrayElem = resArray.valueList.get(i);
+                        ResultValue resArrayElem = resArray.get(i);
                         
                         // Only iterate if there was actually an element at that index
                         if(resArrayElem != null)
@@ -750,7 +838,7 @@ public class Parser
                 ResultValue resIterStr = expr();
                 if(resIterStr.structure != STIdentifier.PRIMITVE)
                 {
-                    error("Expected a primitive string value to iterate over, found array '%s'", resIterStr.value);
+                    error("Expected a primitive string value to iterate over, found array '%s'", resIterStr.getValue());
                 }
                 
                 // The token after the string expression should be 'by'
@@ -763,7 +851,7 @@ public class Parser
                 ResultValue resDelimStr = expr();
                 if(resDelimStr.structure != STIdentifier.PRIMITVE)
                 {
-                    error("Expected a primitive string value as the delimiter, found array '%s'", resDelimStr.value);
+                    error("Expected a primitive string value as the delimiter, found array '%s'", resDelimStr.getValue());
                 }
                 
                 // The expression should be delimited by ':'
@@ -778,7 +866,7 @@ public class Parser
                 // In the case when the delimiting string is empty, we will iterate character by character
                 // If the iteration string is also empty, then there are no characters, so we don't want to
                 // enter the 'for' loop at all
-                if(resIterStr.value.isEmpty() && resDelimStr.value.isEmpty())
+                if(resIterStr.getValue().isEmpty() && resDelimStr.getValue().isEmpty())
                 {
                     iStartOfSubstring = 1; // This will prevent entering the below loop
                 }
@@ -786,7 +874,7 @@ public class Parser
                 // Execute the statements after the 'for' parameters as long as there is
                 // another copy of the delimiting string in the iteration string or we hit
                 // the end of the iteration string (special case when iteration string is empty)
-                while((iStartOfSubstring <= resIterStr.value.length()))
+                while((iStartOfSubstring <= resIterStr.getValue().length()))
                 {
                     // Declare the variable to store the string
                     STIdentifier STString = new STIdentifier(variableStr, Token.OPERAND, Token.STRING, STIdentifier.NOT_A_PARAMETER
@@ -800,14 +888,14 @@ public class Parser
                     symbolTable.storeVariableValue(this, variableStr, resStringCV);
                     
                     // If the delimiting string is empty, we will iterate character by character
-                    if(resDelimStr.value.isEmpty())
+                    if(resDelimStr.getValue().isEmpty())
                     {
                         iEndOfSubstring = iStartOfSubstring + 1;
-                        resStringCV.value = resIterStr.value.substring(iStartOfSubstring, iEndOfSubstring);
+                        resStringCV.setValue(resIterStr.getValue().substring(iStartOfSubstring, iEndOfSubstring));
                         
                         // If we are at the last character of the string, need to increment by 2 so
                         // we don't try to get the character after the end of the string
-                        if(iStartOfSubstring == (resIterStr.value.length() - 1))
+                        if(iStartOfSubstring == (resIterStr.getValue().length() - 1))
                         {
                             iStartOfSubstring += 2;
                         }
@@ -820,16 +908,16 @@ public class Parser
                     // Otherwise, get a substring, up to the index of the next delimiting string
                     else
                     {
-                        iEndOfSubstring = resIterStr.value.indexOf(resDelimStr.value, iStartOfSubstring);
+                        iEndOfSubstring = resIterStr.getValue().indexOf(resDelimStr.getValue(), iStartOfSubstring);
                         
                         // If there was no match or if we are on the last substring, the
                         // 'indexOf' will have been negative
                         if(iEndOfSubstring < 0)
                         {
-                            iEndOfSubstring = resIterStr.value.length();
+                            iEndOfSubstring = resIterStr.getValue().length();
                         }
-                        resStringCV.value = resIterStr.value.substring(iStartOfSubstring, iEndOfSubstring);
-                        iStartOfSubstring = iEndOfSubstring + resDelimStr.value.length();
+                        resStringCV.setValue(resIterStr.getValue().substring(iStartOfSubstring, iEndOfSubstring));
+                        iStartOfSubstring = iEndOfSubstring + resDelimStr.getValue().length();
                     }
                     
                     // Execute the statements after the 'for' parameters
@@ -885,6 +973,109 @@ public class Parser
         }
     }
     
+    /**
+     * Skips a function definition
+     * Assumption: current token is on a 'def'
+     * <p>
+     * Every function is defined before anything is executed (see 'FunctionDefiner'),
+     * so reaching a definition only checks that it is valid, and its statements are
+     * skipped. A definition in a function is reached each time the function runs.
+     * @param  bExec     indicates whether the code should be executed or ignored
+     * @throws Exception if the definition is not valid
+     *                   missing ';' after the 'enddef'
+     */
+    public void defStmt(boolean bExec) throws Exception
+    {
+        Token defToken = scan.currentToken;
+        int iDefLineNr = defToken.iSourceLineNr;
+        STFunction function = functionDefiner.defined(defToken);
+        
+        if(bExec)
+        {
+            function = functionDefiner.check(defToken);
+        }
+        
+        // Skip the function's statements
+        if(function != null)
+        {
+            scan.setPosition(function.endToken);
+        }
+        else
+        {
+            // A definition that is not valid is only skipped when its statements are being ignored
+            skipTo(iDefLineNr, "def", ":");
+            ResultValue resStmts = statements(false);
+            if(! resStmts.terminatingStr.equals("enddef"))
+            {
+                error("Expected 'enddef' for 'def' beginning on line %d", iDefLineNr);
+            }
+        }
+        
+        // 'enddef' must be followed by a ';'
+        if(! scan.getNext().equals(";"))
+        {
+            error("Expected ';' after 'enddef'");
+        }
+    }
+    
+    /**
+     * Returns from the user defined function that is executing
+     * Assumption: current token is on a 'return'
+     * <p>
+     * A 'Void' function returns with 'return;', and any other function returns
+     * a value that is coerced to its return type:
+     *     returnStmt := 'return' [expression] ';'
+     * The function's statements are left by throwing 'returnException', which
+     * 'callUser' catches.
+     * @param  bExec     indicates whether the code should be executed or ignored
+     * @throws Exception if not in a function
+     *                   if the value is missing or not valid for the function
+     *                   missing ';' after the value
+     */
+    public void returnStmt(boolean bExec) throws Exception
+    {
+        int iReturnLineNr = scan.currentToken.iSourceLineNr;
+        
+        if(! bExec)
+        {
+            skipTo(iReturnLineNr, "return", ";");
+            return;
+        }
+        
+        ActivationRecord record = symbolTable.storageManager.currentRecord();
+        if(record == null)
+        {
+            error("'return' is only valid in a function");
+        }
+        STFunction function = record.scope.function;
+        
+        ResultValue resReturn = null;
+        if(scan.nextToken.primClassif == Token.SEPARATOR && scan.nextToken.tokenStr.equals(";"))
+        {
+            if(function.returnType != Token.VOID)
+            {
+                error("Function '%s' must return a value of type '%s'", function.symbol, Token.getType(this, function.returnType));
+            }
+            scan.getNext();
+        }
+        else
+        {
+            if(function.returnType == Token.VOID)
+            {
+                error("Function '%s' is 'Void' and can not return a value", function.symbol);
+            }
+            resReturn = returnValue(expr());
+            
+            // The value should be delimited by ';'
+            if(! scan.currentToken.tokenStr.equals(";"))
+            {
+                errorLineNr(iReturnLineNr, "Expected ';' after the value of 'return'");
+            }
+        }
+        returnException.resReturn = resReturn;
+        throw returnException;
+    }
+    
     /**
      * Executes an assignment statement
      * Assumption: current token is on an OPERAND IDENTIFIER
@@ -927,6 +1118,7 @@ public class Parser
             error("Expected a variable for the target of an assignment, found '%s'", scan.currentToken.tokenStr);
         }
         String variableStr = scan.currentToken.tokenStr;
+        int iVariableSlot = symbolTable.getSlot(scan.currentToken);
         
         ResultValue resIndex = new ResultValue(); // If we are assigning to an array element,
                                                   // this will be the value of the index
@@ -972,13 +1164,55 @@ public class Parser
         }
         
         // Get the target variable and check that it has been declared
-        STIdentifier STVariable = (STIdentifier) symbolTable.getSymbol(variableStr);
+        STIdentifier STVariable = (STIdentifier) symbolTable.getSymbol(iVariableSlot);
         if(STVariable == null)
         {
             error("Variable '%s' has not been declared", variableStr);
         }
         
         String operatorStr = scan.currentToken.tokenStr;
+        
+        // Only '=', '-=', and '+=' are valid assignment operators
+        if(! (operatorStr.equals("=") || operatorStr.equals("-=") || operatorStr.equals("+=")))
+        {
+            error("Expected assignment operator, found '%s'", operatorStr);
+        }
+        
+        // Get the source of the assignment and assign it
+        ResultValue resSource = expr();
+        ResultValue resAssign = assignValue(STVariable, variableStr, iVariableSlot, operatorStr, bArrayElemAssign, resIndex, resSource);
+        
+        // The assignment statement must be followed by ';'
+        if(! scan.currentToken.tokenStr.equals(";"))
+        {
+            error("Expected ';' after assignment statement");
+        }
+        
+        // Print the debug information for the variable and value of the assignment
+        showAssign(variableStr, resAssign);
+    }
+    
+    /**
+     * Assigns an already evaluated source value to a variable
+     * <p>
+     * This is the part of an assignment statement that happens after the
+     * target, index, and source have been evaluated. It is shared by
+     * 'assignStmt' and by 'ASTExecutor', which evaluates the same parts
+     * from a tree. The scanner's current token should be the end of the
+     * assignment statement, for error messages.
+     * @param STVariable        the symbol table entry of the target variable
+     * @param variableStr       the name of the target variable
+     * @param iVariableSlot     the storage manager slot of the target variable
+     * @param operatorStr       the assignment operator ("=", "-=", or "+=")
+     * @param bArrayElemAssign  whether the target had brackets (array element or string index)
+     * @param resIndex          the value of the index if there were brackets
+     * @param resSource         the value of the expression after the assignment operator
+     * @return                  the value that was assigned
+     * @throws Exception        if the assignment is not valid for the target and source
+     */
+    public ResultValue assignValue(STIdentifier STVariable, String variableStr, int iVariableSlot, String operatorStr
+                                   , boolean bArrayElemAssign, ResultValue resIndex, ResultValue resSource) throws Exception
+    {
         ResultValue resOp2;    // Result value of second operand
         ResultValue resOp1;    // Result value of first operand
         ResultValue resAssign; // Result Value to be assigned to variable
@@ -992,8 +1226,8 @@ public class Parser
                 // 4)   string[index] = string
                 // 5)   scalar = scalar
                 
-                // Get the source of the assignment
-                resAssign = expr();
+                // The source of the assignment
+                resAssign = resSource;
                 
                 // For the first, second, and third assignment types, the target will involve an array
                 if(STVariable.structure != STIdentifier.PRIMITVE)
@@ -1005,11 +1239,11 @@ public class Parser
                         if(bArrayElemAssign)
                         {
                             error("Assignment from array '%s' to array element '%s[%s]' is undefined"
-                                  , resAssign.value, variableStr, resIndex.value);
+                                  , resAssign.getValue(), variableStr, resIndex.getValue());
                         }
                         
                         // Coercion takes place on each element within method 'ArrayToArrayAssign'
-                        symbolTable.storageManager.ArrayToArrayAssign(this, variableStr, resAssign.value);
+                        symbolTable.storageManager.ArrayToArrayAssign(this, variableStr, resAssign.getValue());
                     }
                     // The source is a primitive type
                     else
@@ -1020,7 +1254,7 @@ public class Parser
                         {
                             // Ensure that the source is the same type as the array
                             Utility.coerce(this, STVariable.dclType, resAssign, "=");
-                            symbolTable.storageManager.scalarAssign(this, variableStr, resAssign);
+                            symbolTable.storageManager.scalarAssign(this, iVariableSlot, resAssign);
                         }
                         // 3) There were brackets after the target variable,
                         //    so this is an assignment to an array index
@@ -1028,7 +1262,7 @@ public class Parser
                         {
                             // Ensure that the source is the same type as the array
                             Utility.coerce(this, STVariable.dclType, resAssign, "=");
-                            symbolTable.storageManager.arrayAssignElem(this, variableStr, resAssign, resIndex);
+                            symbolTable.storageManager.arrayAssignElem(this, iVariableSlot, resAssign, resIndex);
                         }
                     }
                 }
@@ -1049,13 +1283,13 @@ public class Parser
                         if(resAssign.structure != STIdentifier.PRIMITVE)
                         {
                             error("Assignment from array '%s' to string index '%s[%s]' is undefined"
-                                  , resAssign.value, variableStr, resIndex.value);
+                                  , resAssign.getValue(), variableStr, resIndex.getValue());
                         }
                         
                         // Ensure that the source is a string as well
                         Utility.coerce(this, STVariable.dclType, resAssign, "=");
                         // Get the string value of the variable
-                        ResultValue resString = symbolTable.retrieveVariableValue(this, variableStr);
+                        ResultValue resString = symbolTable.retrieveVariableValue(this, iVariableSlot);
                         
                         // Get the index as a numeric value
                         Numeric numIndex = new Numeric(this, resIndex, variableStr, "index");
@@ -1063,29 +1297,29 @@ public class Parser
                         // If the index is negative, convert to its corresponding positive subscript
                         if(numIndex.integerValue < 0)
                         {
-                            numIndex.integerValue = numIndex.integerValue + resString.value.length();
+                            numIndex.integerValue = numIndex.integerValue + resString.getValue().length();
                         }
                         
                         // Now determine if the index is within bounds for the string
-                        if(numIndex.integerValue < 0 || numIndex.integerValue >= resString.value.length())
+                        if(numIndex.integerValue < 0 || numIndex.integerValue >= resString.getValue().length())
                         {
                             error("Index '%s' out of bounds for 'STRING' variable '%s' with value '%s'"
-                                  , resIndex.value, variableStr, resString.value);
+                                  , resIndex.getValue(), variableStr, resString.getValue());
                         }
                         
                         // Get the part of the original string up until where the InvalidDateFirstParam strings starts (may be empty string)
-                        String beginning = resString.value.substring(0, numIndex.integerValue);
+                        String beginning = resString.getValue().substring(0, numIndex.integerValue);
                         
                         // Get the part of the original string after the end of the inserted string (may be empty string)
-                        int iStartOfEnd = beginning.length() + resAssign.value.length();
+                        int iStartOfEnd = beginning.length() + resAssign.getValue().length();
                         String end = "";
-                        if(iStartOfEnd < resString.value.length())
+                        if(iStartOfEnd < resString.getValue().length())
                         {
-                            end = resString.value.substring(iStartOfEnd, resString.value.length()); 
+                            end = resString.getValue().substring(iStartOfEnd, resString.getValue().length()); 
                         }
                         
                         // Create the InvalidDateFirstParam string
-                        resString.value = beginning + resAssign.value + end;
+                        resString.setValue(beginning + resAssign.getValue() + end);
                     }
                     // 5) Otherwise, this is a regular assignment to a primitive
                     else
@@ -1094,24 +1328,24 @@ public class Parser
                         if(resAssign.structure != STIdentifier.PRIMITVE)
                         {
                             error("Assignment from array '%s' to primitive variable '%s' is undefined"
-                                  , resAssign.value, variableStr);
+                                  , resAssign.getValue(), variableStr);
                         }
                         
                         // Ensure that the value is the same type as the variable
                         Utility.coerce(this, STVariable.dclType, resAssign, "=");
-                        symbolTable.storeVariableValue(this, variableStr, resAssign);
+                        symbolTable.storeVariableValue(this, iVariableSlot, resAssign);
                     }
                 }
                 break;
                 
             case "-=":
-                // Get the second operand
-                resOp2 = expr();
+                // The second operand
+                resOp2 = resSource;
                 
                 // Check that the second operand is primitive
                 if(resOp2.structure != STIdentifier.PRIMITVE)
                 {
-                    error("Operation '-=' expected a primitive source value, found array '%s'", resOp2.value);
+                    error("Operation '-=' expected a primitive source value, found array '%s'", resOp2.getValue());
                 }
                 
                 // Check if the target was an array element reference
@@ -1123,11 +1357,11 @@ public class Parser
                         error("Operation '-=' is not defined for an array reference as target of assignment, found '%s'", variableStr);
                     }
                     // Get the value of the array element
-                    resOp1 = symbolTable.storageManager.getArrayElem(this, variableStr, resIndex);
+                    resOp1 = symbolTable.storageManager.getArrayElem(this, iVariableSlot, resIndex);
                     // Subtract second operand from first operand
                     resAssign = Utility.subtract(this, resOp1, resOp2, "-=");
                     // Assign the result to the array at the given index
-                    symbolTable.storageManager.arrayAssignElem(this, variableStr, resAssign, resIndex);
+                    symbolTable.storageManager.arrayAssignElem(this, iVariableSlot, resAssign, resIndex);
                 }
                 // Otherwise, the target was a primitive variable
                 else
@@ -1135,24 +1369,24 @@ public class Parser
                     // '-=' is not defined for indexing a string
                     if(bArrayElemAssign)
                     {
-                        error("Operation '-=' is not defined for indexing a string, found '%s[%s]'", variableStr, resIndex.value);
+                        error("Operation '-=' is not defined for indexing a string, found '%s[%s]'", variableStr, resIndex.getValue());
                     }
-                    resOp1 = symbolTable.retrieveVariableValue(this, variableStr);
+                    resOp1 = symbolTable.retrieveVariableValue(this, iVariableSlot);
                     // Subtract second operand from first operand
                     resAssign = Utility.subtract(this, resOp1, resOp2, "-=");
                     // Assign the result to the variable
-                    symbolTable.storeVariableValue(this, variableStr, resAssign);
+                    symbolTable.storeVariableValue(this, iVariableSlot, resAssign);
                 }
                 break;
                 
             case "+=":
-                // Get the second operand
-                resOp2 = expr();
+                // The second operand
+                resOp2 = resSource;
                 
                 // Check that the second operand is primitive
                 if(resOp2.structure != STIdentifier.PRIMITVE)
                 {
-                    error("Operation '+=' expected a primitive source value, found array '%s'", resOp2.value);
+                    error("Operation '+=' expected a primitive source value, found array '%s'", resOp2.getValue());
                 }
                 
                 // Check if the target was an array element reference
@@ -1164,11 +1398,11 @@ public class Parser
                         error("Operation '+=' is not defined for an array reference as target of assignment, found '%s'", variableStr);
                     }
                     // Get the value of the array element
-                    resOp1 = symbolTable.storageManager.getArrayElem(this, variableStr, resIndex);
+                    resOp1 = symbolTable.storageManager.getArrayElem(this, iVariableSlot, resIndex);
                     // Subtract second operand from first operand
                     resAssign = Utility.add(this, resOp1, resOp2, "+=");
                     // Assign the result to the array at the given index
-                    symbolTable.storageManager.arrayAssignElem(this, variableStr, resAssign, resIndex);
+                    symbolTable.storageManager.arrayAssignElem(this, iVariableSlot, resAssign, resIndex);
                 }
                 // Otherwise, the target was a primitive variable
                 else
@@ -1176,13 +1410,13 @@ public class Parser
                     // '+=' is not defined for indexing a string
                     if(bArrayElemAssign)
                     {
-                        error("Operation '+=' is not defined for indexing a string, found '%s[%s]'", variableStr, resIndex.value);
+                        error("Operation '+=' is not defined for indexing a string, found '%s[%s]'", variableStr, resIndex.getValue());
                     }
-                    resOp1 = symbolTable.retrieveVariableValue(this, variableStr);
+                    resOp1 = symbolTable.retrieveVariableValue(this, iVariableSlot);
                     // Subtract second operand from first operand
                     resAssign = Utility.add(this, resOp1, resOp2, "+=");
                     // Assign the result to the variable
-                    symbolTable.storeVariableValue(this, variableStr, resAssign);
+                    symbolTable.storeVariableValue(this, iVariableSlot, resAssign);
                 }
                 break;
                 
@@ -1191,19 +1425,22 @@ public class Parser
                 resAssign = new ResultValue(); // This will never be reached
         }
         
-        // The assignment statement must be followed by ';'
-        if(! scan.currentToken.tokenStr.equals(";"))
-        {
-            error("Expected ';' after assignment statement");
-        }
-        
-        // Print the debug information for the variable and value of the assignment
+        return resAssign;
+    }
+    
+    /**
+     * Prints the debug information for an assignment, if 'debug Assign' is on
+     * @param variableStr  the name of the variable that was assigned
+     * @param resAssign    the value that was assigned
+     */
+    public void showAssign(String variableStr, ResultValue resAssign)
+    {
         if(bShowAssign)
         {
             System.out.println("\t\t...\n");
             System.out.printf("\t\tVariable: %s\n", variableStr);
             System.out.printf("\t\tType:     %s\n", Token.strSubClassifM[resAssign.type]);
-            System.out.printf("\t\tValue:    %s\n", resAssign.value);
+            System.out.printf("\t\tValue:    %s\n", resAssign.getValue());
         }
     }
     
@@ -1311,7 +1548,7 @@ public class Parser
             // Create an array to be declared and set its type
             ResultArray resArray = new ResultArray();
             resArray.type = declareType;
-            resArray.value = variableStr;
+            resArray.setValue(variableStr);
             
             // Move to the '[' and determine the type of array declaration
             scan.getNext();
@@ -1379,7 +1616,7 @@ public class Parser
                 ResultValue resSize = expr();
                 this.iParseTokenLineNr = declareToken.iSourceLineNr;
                 Utility.coerce(this, Token.INTEGER, resSize, "declared size of array");
-                resArray.maxElem = Integer.parseInt(resSize.value);
+                resArray.maxElem = Integer.parseInt(resSize.getValue());
                 bGettingArraySize = false;
             }
             
@@ -1397,22 +1634,29 @@ public class Parser
                     scan.getNext();
                     
                     // If we found a unary minus, get the next token and make it a negative numeric value
+                    String negativeStr = null;
                     if(scan.currentToken.tokenStr.equals("-") && scan.currentToken.subClassif == Token.UNARY)
                     {
                         scan.getNext();
                         ResultValue resValNegative = Utility.uminus(this, scan.currentToken.toResultValue(this));
-                        scan.currentToken.tokenStr = resValNegative.value;
+                        negativeStr = resValNegative.getValue();
                     }
                     
                     // The value list must consist of operands that are not identifiers
                     if((scan.currentToken.primClassif != Token.OPERAND) || (scan.currentToken.subClassif == Token.IDENTIFIER))
                     {
                         error("Expected a value coercible to type '%s', found '%s'"
-                              , Token.getType(this, resArray.type), scan.currentToken.tokenStr);
+                              , Token.getType(this, resArray.type), (negativeStr != null) ? negativeStr : scan.currentToken.tokenStr);
                     }
                     
                     // Get the token as a result value and attempt to coerce to the type of the array
+                    // (the scanner's tokens are shared by every pass over this statement, so the
+                    // negative value is put in the result value instead of the token)
                     ResultValue resVal = scan.currentToken.toResultValue(this);
+                    if(negativeStr != null)
+                    {
+                        resVal.setValue(negativeStr);
+                    }
                     Utility.coerce(this, resArray.type, resVal, "array initialization");
                     
                     // If we are parsing the first type of array declaration statement, the
@@ -1426,7 +1670,7 @@ public class Parser
                     
                     // Index needs to be a result value
                     ResultValue resIndex = new ResultValue();
-                    resIndex.value = Integer.toString(iIndex);
+                    resIndex.setValue(Integer.toString(iIndex));
                     resIndex.type = Token.INTEGER;
                     
                     // Assign the array element at the current index
@@ -1455,22 +1699,28 @@ public class Parser
                 scan.getNext();
                 
                 // If we found a unary minus, get the next token and make it a negative numeric value
+                String negativeStr = null;
                 if(scan.currentToken.tokenStr.equals("-") && scan.currentToken.subClassif == Token.UNARY)
                 {
                     scan.getNext();
                     ResultValue resValNegative = Utility.uminus(this, scan.currentToken.toResultValue(this));
-                    scan.currentToken.tokenStr = resValNegative.value;
+                    negativeStr = resValNegative.getValue();
                 }
                 
                 // The value must be an operand that is not an identifier
                 if((scan.currentToken.primClassif != Token.OPERAND) || (scan.currentToken.subClassif == Token.IDENTIFIER))
                 {
                     error("Expected a value coercible to type '%s', found '%s'"
-                          , Token.getType(this, declareType), scan.currentToken.tokenStr);
+                          , Token.getType(this, declareType), (negativeStr != null) ? negativeStr : scan.currentToken.tokenStr);
                 }
                 
                 // Get the token as a result value and attempt to coerce to the type of the array
+                // (the negative value is kept out of the token, which is shared by every pass)
                 ResultValue resVal = scan.currentToken.toResultValue(this);
+                if(negativeStr != null)
+                {
+                    resVal.setValue(negativeStr);
+                }
                 Utility.coerce(this, declareType, resVal, "variable initialization");
                 
                 // Store the value for the variable
@@ -1488,20 +1738,102 @@ public class Parser
         }
     }
     
-    // Add documentation... TODO
+    /**
+     * Parses and evaluates an expression
+     * <p>
+     * The infix expression is converted to a post-fix list by 'infixToPostfix',
+     * and then the post-fix list is evaluated by 'evalPostfix'. The scanner is
+     * left on the token that ended the expression.
+     * <p>
+     * The post-fix list only depends on the tokens of the expression, as long as
+     * the checks with the symbol table that the conversion made still pass. So
+     * the conversion is saved by where the expression starts, and the next time
+     * (e.g., the next iteration of a loop) only the checks are made again.
+     * @return           the result of the expression
+     * @throws Exception if the expression is not valid or could not be evaluated
+     */
     public ResultValue expr() throws Exception
+    {
+        ArrayList<Token> outList;
+        ASTNode exprEntry = null;
+        int iCacheIndex = -1;
+        
+        // While 'debug Token' is on, the scanner has to print every token of the expression
+        if(! scan.bShowToken)
+        {
+            if(postfixCacheM == null)
+            {
+                postfixCacheM = new ASTNode[scan.tokenM.length * 2];
+            }
+            // The expression starts on the current token in these cases, otherwise on the next token
+            Token startToken = (bGettingArraySize || bCalledExprFromStmts) ? scan.currentToken : scan.nextToken;
+            if(startToken.iTokenIndex < scan.tokenM.length)
+            {
+                iCacheIndex = (startToken.iTokenIndex * 2) + (bGettingArraySize ? 1 : 0);
+                exprEntry = postfixCacheM[iCacheIndex];
+            }
+        }
+        
+        // The expression has been converted before, so only the checks with the symbol table are made again
+        if(exprEntry != null)
+        {
+            checkIdentifiers(exprEntry.checkM);
+            scan.setPosition(exprEntry.endToken);
+            bFoundAnOperator = exprEntry.bFoundAnOperator;
+            outList = exprEntry.postfixList;
+        }
+        else
+        {
+            exprCheckList = new ArrayList<Token>();
+            outList = infixToPostfix();
+            
+            // Save the conversion, unless it ran into the end of file
+            if(iCacheIndex >= 0 && scan.currentToken.primClassif != Token.EOF)
+            {
+                exprEntry = new ASTNode(ASTNode.EXPR, null);
+                exprEntry.endToken = scan.currentToken;
+                exprEntry.postfixList = outList;
+                exprEntry.checkM = exprCheckList.toArray(new Token[exprCheckList.size()]);
+                exprEntry.bFoundAnOperator = bFoundAnOperator;
+                postfixCacheM[iCacheIndex] = exprEntry;
+            }
+        }
+        
+        // This will be set from the 'debug' function
+        showPostfix(outList);
+        
+        ResultValue resReturnVal = evalPostfix(outList);
+        
+        // Print the debug information for the result of the current expression
+        showExpr(resReturnVal, bFoundAnOperator);
+        
+        return resReturnVal;
+    }
+    
+    /**
+     * Converts the infix expression at the scanner's position to a post-fix list
+     * <p>
+     * Tokens are taken from the scanner until a delimiter for the expression is
+     * found (':', ';', a control token, an assignment operator, or end of file).
+     * The identifier of an array element reference or string index is put in the
+     * post-fix list after the tokens of its index, and a built-in function is put
+     * after a FUNC_ARGS token and its parameters. If 'bGettingArraySize' is set,
+     * the identifier is taken off the end of the list, so only the index is left.
+     * Sets 'bFoundAnOperator' if the expression had at least one operator.
+     * @return           the post-fix list of the expression
+     * @throws Exception if the infix expression is not valid
+     */
+    public ArrayList<Token> infixToPostfix() throws Exception
     {
         ArrayList<Token> outList = new ArrayList<Token>(); // List to hold prefix expr
         Stack<Token> postfixStack = new Stack<Token>(); // Stack to hold the tokens as they are added to post-fix expr
-        Stack<ResultValue> resultStack = new Stack<ResultValue>(); // Stack to hold values as they are
-                                                                   // evaluated from the post-fix stack
         boolean bExpectingOperand = true; // Used to determine that the order of operators and operands
                                          // from the infix expression is valid
-        boolean bFoundAnOperator = false; // If the debugger for an expression is turned on, we only want to
-                                          // print expression results if they had at least on operator
         boolean bFoundRtParen = false; // Indicates that a ')' before a ':' or ';' was found
         
-        
+        // If the debugger for an expression is turned on, we only want to
+        // print expression results if they had at least on operator
+        bFoundAnOperator = false;
         
         // Get the next token
         // If declaring an array or if an array element is the target of an assignment,
@@ -1548,6 +1880,29 @@ public class Parser
                         break;
                     }
                     
+                    // The checks with the symbol table are made again each time a converted expression is used
+                    exprCheckList.add(token);
+                    
+                    // When building a tree, the symbol table is not looked at. An identifier followed
+                    // by '[' is an array element or string index
+                    if(bBuildingAST)
+                    {
+                        if(scan.nextToken.tokenStr.equals("["))
+                        {
+                            token.identifierType = Token.ARRAY_ELEM;
+                            scan.getNext();
+                            bExpectingOperand = true;
+                            postfixStack.push(token);
+                        }
+                        else
+                        {
+                            token.identifierType = Token.NOT_AN_ARRAY;
+                            outList.add(token);
+                            bExpectingOperand = false;
+                        }
+                        break;
+                    }
+                    
                     // Check that the identifier has been declared
                     STEntry STEntryResult = symbolTable.getSymbol(token.tokenStr);
                     if(STEntryResult == null)
@@ -1658,6 +2013,15 @@ public class Parser
                             postfixStack.push(token);
                             break;
                         case ")":
+                            // A user defined function may be called without parameters, 'f()'
+                            if(bExpectingOperand && ! postfixStack.isEmpty() && postfixStack.peek().subClassif == Token.USER
+                               && postfixStack.peek().iTokenIndex == token.iTokenIndex - 2)
+                            {
+                                outList.add(postfixStack.pop());
+                                bExpectingOperand = false;
+                                break;
+                            }
+                            
                             // Error if we were expecting an operand and found a ")"
                             // (e.g., 3 * (4 + ) is invalid, while 3 * (4 + 6) is valid)
                             if(bExpectingOperand)
@@ -1884,8 +2248,8 @@ public class Parser
                     break;  //Break out of case Token.SEPARATOR
                     
                 case Token.FUNCTION:
-                    // Function is a built-in function
-                    if(token.subClassif == Token.BUILTIN)
+                    // Function is a built-in function, or a user defined function (which is called the same way)
+                    if((token.subClassif == Token.BUILTIN) || (token.subClassif == Token.USER))
                     {
                         // A token signifying the end of the function's parameters
                         Token endFuncArgs = new Token();
@@ -1916,13 +2280,18 @@ public class Parser
                                     // It is not '{'. If it is an array it must be represented by a variable
                                     if(scan.nextToken.primClassif == Token.OPERAND && scan.nextToken.subClassif == Token.IDENTIFIER)
                                     {
-                                        STIdentifier STVar = (STIdentifier) symbolTable.getSymbol(scan.nextToken.tokenStr);
-                                        
-                                        // Check if the identifier is not an array
-                                        if(STVar.structure == STIdentifier.PRIMITVE)
+                                        // When building a tree, the array is checked each time the expression is executed
+                                        exprCheckList.add(token);
+                                        if(! bBuildingAST)
                                         {
-                                            error("Expected an array or value list after '%s'"
-                                                  , scan.currentToken.tokenStr); 
+                                            STIdentifier STVar = (STIdentifier) symbolTable.getSymbol(scan.nextToken.tokenStr);
+                                            
+                                            // Check if the identifier is not an array
+                                            if(STVar.structure == STIdentifier.PRIMITVE)
+                                            {
+                                                error("Expected an array or value list after '%s'"
+                                                      , scan.currentToken.tokenStr); 
+                                            }
                                         }
                                     }
                                     // It is not '{' or an array
@@ -1963,11 +2332,6 @@ public class Parser
                                 break;
                         }
                     }
-                    // Function is a user-defined function
-                    else
-                    {
-                        error("User-defined functions have not been implemented yet");
-                    }
                     break;
                     
                 default:
@@ -2023,9 +2387,20 @@ public class Parser
             outList.remove(lastToken);
         }
         
-        // This will be set from the 'debug' function
+        return outList;
+    }
+    
+    /**
+     * Prints the post-fix list of an expression, if 'debug Postfix' is on
+     * @param outList  the post-fix list
+     * @throws Exception if the output printed so far could not be written
+     */
+    public void showPostfix(List<Token> outList) throws Exception
+    {
         if(bShowPostfix)
         {
+            // The output printed so far goes before the list
+            output.flush();
             System.err.println("---start list---");
             for(Token t : outList)
             {
@@ -2033,6 +2408,38 @@ public class Parser
             }
             System.err.println("----end list----");
         }
+    }
+    
+    /**
+     * Prints the result of an expression, if 'debug Expr' is on and
+     * the expression had at least one operator
+     * @param resReturnVal      the result of the expression
+     * @param bFoundAnOperator  whether the expression had an operator
+     */
+    public void showExpr(ResultValue resReturnVal, boolean bFoundAnOperator)
+    {
+        if(bShowExpr && bFoundAnOperator)
+        {
+            System.out.println("\t\t...");
+            System.out.printf("\t\tType:  %s\n", Token.strSubClassifM[resReturnVal.type]);
+            System.out.printf("\t\tValue: %s\n", resReturnVal.getValue());
+        }
+    }
+    
+    /**
+     * Evaluates a post-fix list made by 'infixToPostfix'
+     * <p>
+     * Operands are pushed on a result stack, and each operator and function
+     * takes its operands off of the stack and pushes its result. The scanner
+     * should be on the token that ended the expression, for error messages.
+     * @param outList    the post-fix list of the expression
+     * @return           the result of the expression
+     * @throws Exception if the expression could not be evaluated
+     */
+    public ResultValue evalPostfix(ArrayList<Token> outList) throws Exception
+    {
+        Stack<ResultValue> resultStack = new Stack<ResultValue>(); // Stack to hold values as they are
+                                                                   // evaluated from the post-fix stack
         
         // Evaluate the post-fix expression
         for(Token outToken : outList)
@@ -2050,71 +2457,16 @@ public class Parser
                     if(outToken.subClassif == Token.IDENTIFIER)
                     {
                         // If the identifier is an array/string element reference, we need to
-                        // get the element at the given index. The index would be whatever 
+                        // get the element at the given index. The index would be whatever
                         // expression had been evaluated inside the brackets
                         if(outToken.identifierType == Token.ARRAY_ELEM)
                         {
-                            STEntry STVarEntry = symbolTable.getSymbol(outToken.tokenStr);
-                            if(STVarEntry == null)
-                            {
-                                // This should only happen if I incorrectly evaluated the infix expression
-                                error("Variable '%s' has not been declared", outToken.tokenStr);
-                            }
-                            STIdentifier STVariable = (STIdentifier) STVarEntry;
-                            
-                            // If the variable is primitive, it is a string index
-                            if(STVariable.structure == STIdentifier.PRIMITVE)
-                            {
-                                // Get the string
-                                ResultValue resString = symbolTable.retrieveVariableValue(this, outToken.tokenStr);
-                                
-                                // Get the index, coerce to and int type, and convert to a numeric
-                                ResultValue resIndex = resultStack.pop();
-                                Utility.coerce(this, Token.INTEGER, resIndex, "string indexing");
-                                Numeric numIndex = new Numeric(this, resIndex, outToken.tokenStr, "index");
-                                
-                                // If the index is negative, convert it to its corresponding positive index
-                                if(numIndex.integerValue < 0)
-                                {
-                                    numIndex.integerValue = numIndex.integerValue + resString.value.length();
-                                }
-                                
-                                // Ensure that the index is within the bounds of the string
-                                if(numIndex.integerValue < 0 || numIndex.integerValue >= resString.value.length())
-                                {
-                                    error("Index '%s' out of bounds for 'STRING' variable '%s' with value '%s'"
-                                            , resIndex.value, outToken.tokenStr, resString.value);
-                                }
-                                
-                                // Create the result value that will hold the indexed character
-                                ResultValue resChar = new ResultValue();
-                                resChar.value = Character.toString(resString.value.charAt(numIndex.integerValue));
-                                resChar.type = Token.STRING;
-                                resChar.structure = STIdentifier.PRIMITVE;
-                                
-                                // Put the character that was indexed from the string onto the evaluation stack
-                                resultStack.push(resChar);
-                            }
-                            // Otherwise, the variable is an array and we the element at the given index
-                            else
-                            {
-                                ResultValue resIndex = resultStack.pop();
-                                
-                                // Get the reference to the array's element at index 'resIndex'
-                                ResultValue resArrayElemRef;
-                                resArrayElemRef = symbolTable.storageManager.getArrayElem(this, outToken.tokenStr, resIndex);
-                                
-                                // We need a copy of the array's element, not a reference
-                                ResultValue resArrayElemCopy = Utility.getResultValueCopy(resArrayElemRef);
-                                
-                                // Put that copy of the array's element on the evaluation stack
-                                resultStack.push(resArrayElemCopy);
-                            }
+                            resultStack.push(getElement(outToken, resultStack.pop()));
                         }
                         // The identifier is not an array reference/string element reference
                         else
                         {
-                            resultStack.push(symbolTable.retrieveVariableValue(this, outToken.tokenStr));
+                            resultStack.push(symbolTable.retrieveVariableValue(this, outToken));
                         }
                     }
                     // Operand is not an identifier, so just put the operand on the result stack
@@ -2123,7 +2475,7 @@ public class Parser
                         resultStack.push(outToken.toResultValue(this));
                     }
                     break;
-                    
+                
                 // Operators need to take the appropriate number of
                 // operands off of the stack and evaluate them
                 case Token.OPERATOR:
@@ -2138,20 +2490,7 @@ public class Parser
                         // An operand exists so retrieve it
                         ResultValue resOp = resultStack.pop();
                         
-                        // Determine which unary operation to perform
-                        switch(outToken.tokenStr)
-                        {
-                            case "-":
-                                resultStack.push(Utility.uminus(this, resOp));
-                                break;
-                            case "not":
-                                resultStack.push(Utility.not(this, resOp));
-                                break;
-                            default:
-                                // This error message would only occur if we added a InvalidDateFirstParam operator to the language
-                                // and forgot to add its appropriate case in this switch statement
-                                errorWithCurrent("Unrecognized operator, found '%s'", outToken.tokenStr);
-                        }
+                        resultStack.push(unaryOperation(outToken, resOp));
                     }
                     // Binary operator
                     else
@@ -2172,75 +2511,10 @@ public class Parser
                         // Get the first operand
                         ResultValue resOp1 = resultStack.pop();
                         
-                        // Determine which binary operation to perform
-                        switch(outToken.tokenStr)
-                        {
-                            case "^":
-                                resultStack.push(Utility.exponent(this, resOp1, resOp2));
-                                break;
-                                
-                            case "*":
-                                resultStack.push(Utility.multiply(this, resOp1, resOp2));
-                                break;
-                                    
-                            case "/":
-                                resultStack.push(Utility.divide(this, resOp1, resOp2));
-                                break;
-                                    
-                            case "+":
-                                // The last parameter is to indicate 'add' is called from '+' as opposed to '+='
-                                resultStack.push(Utility.add(this, resOp1, resOp2, "+"));
-                                break;
-                                    
-                            case "-":
-                                // The last parameter is to indicate 'subtract' is called from '-' as opposed to '-='
-                                resultStack.push(Utility.subtract(this, resOp1, resOp2, "-"));
-                                break;
-                                    
-                            case "#":
-                                resultStack.push(Utility.concat(this, resOp1, resOp2));
-                                break;
-                                    
-                            case "<":
-                                resultStack.push(Utility.compare(this, Utility.LESS_THAN, resOp1, resOp2));
-                                break;
-                                    
-                            case ">":
-                                resultStack.push(Utility.compare(this, Utility.GREATER_THAN, resOp1, resOp2));
-                                break;
-                                    
-                            case "<=":
-                                resultStack.push(Utility.compare(this, Utility.LESS_THAN_EQUAL, resOp1, resOp2));
-                                break;
-                                    
-                            case ">=":
-                                resultStack.push(Utility.compare(this, Utility.GREATER_THAN_EQUAL, resOp1, resOp2));
-                                break;
-                                    
-                            case "==":
-                                resultStack.push(Utility.compare(this, Utility.EQUAL, resOp1, resOp2));
-                                break;
-                                    
-                            case "!=":
-                                resultStack.push(Utility.compare(this, Utility.NOT_EQUAL, resOp1, resOp2));
-                                break;
-                                    
-                            case "and":
-                                resultStack.push(Utility.compare(this, Utility.AND, resOp1, resOp2));
-                                break;
-                                    
-                            case "or":
-                                resultStack.push(Utility.compare(this, Utility.OR, resOp1, resOp2));
-                                break;
-                                
-                            default:
-                                // This error message would only occur if we added a InvalidDateFirstParam operator to the language
-                                // and forgot to add its appropriate case in this switch statement
-                                errorWithCurrent("Unrecognized operator, found '%s'", outToken.tokenStr);
-                        }
+                        resultStack.push(binaryOperation(outToken, resOp1, resOp2));
                     }
                     break;
-                    
+                
                 case Token.FUNCTION:
                     // Function is a built-in function
                     if(outToken.subClassif == Token.BUILTIN)
@@ -2249,93 +2523,39 @@ public class Parser
                         ResultValue resOp1;
                         ResultValue resOp2;
                         ResultValue resEndArgs; // Used to hold the end-of-function-arguments token
-                        ResultArray resArrayOp; // Used for functions that require an array parameter
                         
                         // Execute the appropriate function
                         switch(outToken.tokenStr)
                         {
                             case "LENGTH":
-                                resOp = resultStack.pop();
-                                // Check that this was the only operand
-                                if(resultStack.pop().type != Token.FUNC_ARGS)
-                                {
-                                    error("Invalid number of parameters for function 'LENGTH', expected 1 parameter");
-                                }
-                                resultStack.push(Utility.LENGTH(this, resOp));
-                                break;
-                                
                             case "SPACES":
-                                resOp = resultStack.pop();
-                                // Check that this was the only operand
-                                if(resultStack.pop().type != Token.FUNC_ARGS)
-                                {
-                                    error("Invalid number of parameters for function 'SPACES', expected 1 parameter");
-                                }
-                                resultStack.push(Utility.SPACES(this, resOp));
-                                break;
-                                
                             case "ELEM":
-                                resOp = resultStack.pop();
-                                // Check that this was the only operand
-                                if(resultStack.pop().type != Token.FUNC_ARGS)
-                                {
-                                    error("Invalid number of parameters for function 'ELEM', expected 1 parameter");
-                                }
-                                // Check that the operand is an array
-                                if(! (resOp instanceof ResultArray))
-                                {
-                                    error("Expected an array reference for the parameter to 'ELEM', found '%s'", resOp.value);
-                                }
-                                // Get the operand as a result array
-                                resArrayOp = (ResultArray) resOp;
-                                resultStack.push(Utility.ELEM(this, resArrayOp));
-                                break;
-                                
                             case "MAXELEM":
                                 resOp = resultStack.pop();
                                 // Check that this was the only operand
                                 if(resultStack.pop().type != Token.FUNC_ARGS)
                                 {
-                                    error("Invalid number of parameters for function 'MAXELEM', expected 1 parameter");
-                                }
-                                // Check that the operand is an array
-                                if(! (resOp instanceof ResultArray))
-                                {
-                                    error("Expected an array reference for the parameter to 'MAXELEM', found '%s'", resOp.value);
+                                    error("Invalid number of parameters for function '%s', expected 1 parameter", outToken.tokenStr);
                                 }
-                                // Get the operand as a result array
-                                resArrayOp = (ResultArray) resOp;
-                                resultStack.push(Utility.MAXELEM(this, resArrayOp));
+                                resultStack.push(callBuiltin(outToken, resOp, null));
                                 break;
-                                
+                            
                             case "print":
                                 resOp = resultStack.pop();
                                 
                                 // The parameters for 'print' are in reverse order, so need to re-reverse them
-                                Stack<ResultValue> printParamStack = new Stack<ResultValue>();
+                                ArrayList<ResultValue> printParamList = new ArrayList<ResultValue>();
                                 
                                 // Get values to print as long as we have not hit the end of the print statements parameters
                                 while(resOp.type != Token.FUNC_ARGS)
                                 {
-                                    printParamStack.push(resOp);
+                                    printParamList.add(0, resOp);
                                     resOp = resultStack.pop();
                                 }
                                 
-                                // Print each parameter for the 'print' statement
-                                while(! printParamStack.isEmpty())
-                                {
-                                    ResultValue resPrintParam = Utility.getResultValueCopy(printParamStack.pop());
-                                    Utility.coerce(this, Token.STRING, resPrintParam, "print");
-                                    System.out.printf("%s ", resPrintParam.value);
-                                }
-                                System.out.printf("\n");
-                                
-                                // 'print' returns a VOID type
-                                ResultValue resPrintReturn = new ResultValue();
-                                resPrintReturn.type = Token.VOID;
-                                resultStack.push(resPrintReturn);
+                                resultStack.push(print(printParamList));
                                 break;
-                                
+                            
                             case "dateDiff":
                             case "dateAdj":
                             case "dateAge":
@@ -2355,20 +2575,9 @@ public class Parser
                                     error("Invalid number of parameters for function '%s', expected 2 parameters", outToken.tokenStr);
                                 }
                                 // Evaluate the appropriate date function and put the result back on stack
-                                switch(outToken.tokenStr)
-                                {
-                                    case "dateDiff":
-                                        resultStack.push(Utility.dateDiff(this, resOp1, resOp2));
-                                        break;
-                                    case "dateAdj":
-                                        resultStack.push(Utility.dateAdj(this, resOp1, resOp2));
-                                        break;
-                                    case "dateAge":
-                                        resultStack.push(Utility.dateAge(this, resOp1, resOp2));
-                                        break;
-                                }
+                                resultStack.push(callBuiltin(outToken, resOp1, resOp2));
                                 break;
-                                
+                            
                             case "IN":
                             case "NOTIN":
                                 ResultValue resTopElem = resultStack.pop();
@@ -2391,14 +2600,7 @@ public class Parser
                                             break;
                                         }
                                         
-                                        // The value list should only consist of primitives
-                                        if(popped.structure != STIdentifier.PRIMITVE)
-                                        {
-                                            errorWithCurrent("The value list for '%s' can only consist of primitives, found array '%s'"
-                                                             , outToken.tokenStr, popped.value);
-                                        }
-                                        
-                                        resArrValueList.valueList.add(popped);
+                                        addToValueList(outToken, resArrValueList, popped);
                                     }
                                 }
                                 // The second parameter to the function is an array
@@ -2409,38 +2611,15 @@ public class Parser
                                     if(resNextArg.type != Token.FUNC_ARGS)
                                     {
                                         errorWithCurrent("Expected only one array or value list after '%s', found '%s'"
-                                                         , outToken.tokenStr, resTopElem.value); // Parameters are reversed on stack
-                                    }
-                                    
-                                    // Check that the parameter is actually an array
-                                    if(resTopElem.structure == STIdentifier.PRIMITVE)
-                                    {
-                                        errorWithCurrent("Expected an array or value list after '%s', found '%s'"
-                                                         , outToken.tokenStr, resTopElem.value);
+                                                         , outToken.tokenStr, resTopElem.getValue()); // Parameters are reversed on stack
                                     }
                                     
-                                    resArrValueList = (ResultArray) resTopElem;
-                                }
-                                
-                                // Get the first parameter and check that it is a primitive
-                                ResultValue resElem = resultStack.pop();
-                                if(resElem.structure != STIdentifier.PRIMITVE)
-                                {
-                                    errorWithCurrent("Expected a primitive value as the first parameter for '%s', found array '%s'"
-                                                     , outToken.tokenStr, resElem.value);
+                                    resArrValueList = toInArray(outToken, resTopElem);
                                 }
                                 
-                                ResultValue resBoolean = Utility.IN(this, resElem, resArrValueList);
-                                
-                                // If the function is 'NOTIN' just reverse the boolean result
-                                if(outToken.tokenStr.equals("NOTIN"))
-                                {
-                                    resBoolean = Utility.not(this, resBoolean);
-                                }
-                                
-                                resultStack.push(resBoolean);
+                                resultStack.push(inArray(outToken, resultStack.pop(), resArrValueList));
                                 break;
-                                
+                            
                             default:
                                 // Only reached if we add a built-in function but haven't called it here
                                 error("Unknown built-in function: '%s'", outToken.tokenStr);
@@ -2449,30 +2628,38 @@ public class Parser
                     // Function is a user-defined function
                     else
                     {
-                        error("User-defined functions have not been implemented yet");
+                        // Its parameters are all of the values after the end-of-function-arguments token
+                        ArrayList<ResultValue> argList = new ArrayList<ResultValue>();
+                        ResultValue resArg = resultStack.pop();
+                        while(resArg.type != Token.FUNC_ARGS)
+                        {
+                            argList.add(0, resArg);
+                            resArg = resultStack.pop();
+                        }
+                        resultStack.push(callUser(outToken, argList));
                     }
                     break;
-                    
+                
                 case Token.FUNC_ARGS:
                     // Put this as a result value on the stack to indicate to the
                     // corresponding function that it is at the end of its parameter list
                     ResultValue resEndFuncArgs = new ResultValue();
                     resEndFuncArgs.type = Token.FUNC_ARGS;
-                    resEndFuncArgs.value = "END_FUNC_ARGS";
+                    resEndFuncArgs.setValue("END_FUNC_ARGS");
                     resultStack.push(resEndFuncArgs);
                     break;
-                    
+                
                 case Token.VALUE_LIST:
                     // Put this as a result value on the stack to indicate to the
                     // function 'IN' or 'NOTIN' that the second parameter is a value list
                     // (i.e., all elements on the stack until FUNC_ARGS are part of the value list)
                     ResultValue resValueList = new ResultValue();
                     resValueList.type = Token.VALUE_LIST;
-                    resValueList.value = "VALUE_LIST";
+                    resValueList.setValue("VALUE_LIST");
                     resultStack.push(resValueList);
             }
         }
-
+        
         // There may not have even been an expression
         if(resultStack.isEmpty())
         {
@@ -2485,21 +2672,649 @@ public class Parser
             {
                 error("Expected an expression before '%s'", scan.currentToken.tokenStr);
             }
+        
+        }
+        return resultStack.pop();
+    }
+    
+    /**
+     * Makes the checks with the symbol table that 'infixToPostfix' makes while converting
+     * <p>
+     * This is for an expression that was converted without looking at the symbol
+     * table, or converted earlier. The checks are made in the same order, and give
+     * the same errors, as the conversion.
+     * @param checkM     identifiers, and 'IN'/'NOTIN' tokens followed by an identifier
+     * @throws Exception if a check failed
+     */
+    public void checkIdentifiers(Token[] checkM) throws Exception
+    {
+        for(Token checkToken : checkM)
+        {
+            Token followToken = scan.tokenM[checkToken.iTokenIndex + 1];
+            
+            // 'IN' or 'NOTIN' must be followed by an array
+            if(checkToken.primClassif == Token.FUNCTION)
+            {
+                STIdentifier STVar = (STIdentifier) symbolTable.getSymbol(followToken);
+                if(STVar.structure == STIdentifier.PRIMITVE)
+                {
+                    errorLineNr(checkToken.iSourceLineNr, "Expected an array or value list after '%s'", checkToken.tokenStr);
+                }
+                continue;
+            }
+            
+            // Check that the identifier has been declared
+            STEntry STEntryResult = symbolTable.getSymbol(checkToken);
+            if(STEntryResult == null)
+            {
+                errorLineNr(checkToken.iSourceLineNr, "Variable '%s' has not been declared", checkToken.tokenStr);
+            }
+            STIdentifier STVariable = (STIdentifier) STEntryResult;
             
+            // Only an array or a string can be followed by '['
+            if(followToken.tokenStr.equals("[") && STVariable.structure == STIdentifier.PRIMITVE
+                && STVariable.dclType != Token.STRING)
+            {
+                errorLineNr(followToken.iSourceLineNr, "Expected an array variable or a variable of type 'STRING' before '['");
+            }
+        }
+    }
+    
+    /**
+     * Gets the value of an array element reference or string index
+     * <p>
+     * If the variable is a primitive, it is a string and the value is the
+     * character at the index. Otherwise, the value is a copy of the array's
+     * element at the index.
+     * @param identToken  the token of the array or string variable
+     * @param resIndex    the value of the expression inside the brackets
+     * @return            the character or the copy of the array's element
+     * @throws Exception  if the index is not valid for the string or array
+     */
+    public ResultValue getElement(Token identToken, ResultValue resIndex) throws Exception
+    {
+        STEntry STVarEntry = symbolTable.getSymbol(identToken);
+        if(STVarEntry == null)
+        {
+            // This should only happen if I incorrectly evaluated the infix expression
+            error("Variable '%s' has not been declared", identToken.tokenStr);
         }
-        ResultValue resReturnVal = resultStack.pop();
+        STIdentifier STVariable = (STIdentifier) STVarEntry;
         
-        // Print the debug information for the result of the current expression
-        if(bShowExpr && bFoundAnOperator)
+        // If the variable is primitive, it is a string index
+        if(STVariable.structure == STIdentifier.PRIMITVE)
         {
-            System.out.println("\t\t...");
-            System.out.printf("\t\tType:  %s\n", Token.strSubClassifM[resReturnVal.type]);
-            System.out.printf("\t\tValue: %s\n", resReturnVal.value);
+            // Get the string
+            ResultValue resString = symbolTable.retrieveVariableValue(this, identToken);
+            
+            // Get the index, coerce to and int type, and convert to a numeric
+            Utility.coerce(this, Token.INTEGER, resIndex, "string indexing");
+            Numeric numIndex = new Numeric(this, resIndex, identToken.tokenStr, "index");
+            
+            // If the index is negative, convert it to its corresponding positive index
+            if(numIndex.integerValue < 0)
+            {
+                numIndex.integerValue = numIndex.integerValue + resString.getValue().length();
+            }
+            
+            // Ensure that the index is within the bounds of the string
+            if(numIndex.integerValue < 0 || numIndex.integerValue >= resString.getValue().length())
+            {
+                error("Index '%s' out of bounds for 'STRING' variable '%s' with value '%s'"
+                        , resIndex.getValue(), identToken.tokenStr, resString.getValue());
+            }
+            
+            // Create the result value that will hold the indexed character
+            ResultValue resChar = new ResultValue();
+            resChar.setValue(Character.toString(resString.getValue().charAt(numIndex.integerValue)));
+            resChar.type = Token.STRING;
+            resChar.structure = STIdentifier.PRIMITVE;
+            
+            return resChar;
+        }
+        // Otherwise, the variable is an array and we the element at the given index
+        else
+        {
+            // Get the reference to the array's element at index 'resIndex'
+            ResultValue resArrayElemRef;
+            resArrayElemRef = symbolTable.storageManager.getArrayElem(this, symbolTable.getSlot(identToken), resIndex);
+            
+            // We need a copy of the array's element, not a reference
+            return Utility.getResultValueCopy(resArrayElemRef);
+        }
+    }
+    
+    /**
+     * Evaluates a unary operator
+     * @param opToken    the token of the operator
+     * @param resOp      the operand
+     * @return           the result of the operation
+     * @throws Exception if the operation is not valid for the operand
+     */
+    public ResultValue unaryOperation(Token opToken, ResultValue resOp) throws Exception
+    {
+        // Determine which unary operation to perform
+        switch(opToken.iLexemeId)
+        {
+            case LexemeTable.MINUS:
+                return Utility.uminus(this, resOp);
+            case LexemeTable.NOT:
+                return Utility.not(this, resOp);
+            default:
+                // This error message would only occur if we added a InvalidDateFirstParam operator to the language
+                // and forgot to add its appropriate case in this switch statement
+                errorWithCurrent("Unrecognized operator, found '%s'", opToken.tokenStr);
+                return null; // Never reached
+        }
+    }
+    
+    /**
+     * Evaluates a binary operator
+     * @param opToken    the token of the operator
+     * @param resOp1     the first operand
+     * @param resOp2     the second operand
+     * @return           the result of the operation
+     * @throws Exception if the operation is not valid for the operands
+     */
+    public ResultValue binaryOperation(Token opToken, ResultValue resOp1, ResultValue resOp2) throws Exception
+    {
+        // Determine which binary operation to perform
+        switch(opToken.iLexemeId)
+        {
+            case LexemeTable.EXPONENT:
+                return Utility.exponent(this, resOp1, resOp2);
+            
+            case LexemeTable.MULTIPLY:
+                return Utility.multiply(this, resOp1, resOp2);
+            
+            case LexemeTable.DIVIDE:
+                return Utility.divide(this, resOp1, resOp2);
+            
+            case LexemeTable.PLUS:
+                // The last parameter is to indicate 'add' is called from '+' as opposed to '+='
+                return Utility.add(this, resOp1, resOp2, "+");
+            
+            case LexemeTable.MINUS:
+                // The last parameter is to indicate 'subtract' is called from '-' as opposed to '-='
+                return Utility.subtract(this, resOp1, resOp2, "-");
+            
+            case LexemeTable.CONCAT:
+                return Utility.concat(this, resOp1, resOp2);
+            
+            case LexemeTable.LESS:
+                return Utility.compare(this, Utility.LESS_THAN, resOp1, resOp2);
+            
+            case LexemeTable.GREATER:
+                return Utility.compare(this, Utility.GREATER_THAN, resOp1, resOp2);
+            
+            case LexemeTable.LESS_EQUAL:
+                return Utility.compare(this, Utility.LESS_THAN_EQUAL, resOp1, resOp2);
+            
+            case LexemeTable.GREATER_EQUAL:
+                return Utility.compare(this, Utility.GREATER_THAN_EQUAL, resOp1, resOp2);
+            
+            case LexemeTable.EQUAL:
+                return Utility.compare(this, Utility.EQUAL, resOp1, resOp2);
+            
+            case LexemeTable.NOT_EQUAL:
+                return Utility.compare(this, Utility.NOT_EQUAL, resOp1, resOp2);
+            
+            case LexemeTable.AND:
+                return Utility.compare(this, Utility.AND, resOp1, resOp2);
+            
+            case LexemeTable.OR:
+                return Utility.compare(this, Utility.OR, resOp1, resOp2);
+            
+            default:
+                // This error message would only occur if we added a InvalidDateFirstParam operator to the language
+                // and forgot to add its appropriate case in this switch statement
+                errorWithCurrent("Unrecognized operator, found '%s'", opToken.tokenStr);
+                return null; // Never reached
         }
+    }
+    
+    /**
+     * Calls a user defined function from a post-fix expression, executing its
+     * statements one at a time
+     * <p>
+     * The scanner is moved to the function's statements, and is put back at the
+     * end of the caller's expression when the function returns, along with the
+     * flags of the caller's 'expr'.
+     * @param funcToken  the function's token in the call
+     * @param argList    the values of the parameters
+     * @return           the value the function returned
+     * @throws Exception if the parameters are not valid for the function
+     *                   if there is an error while executing the function
+     */
+    public ResultValue callUser(Token funcToken, ArrayList<ResultValue> argList) throws Exception
+    {
+        STFunction function = (STFunction) symbolTable.getSymbol(funcToken.iLexemeId);
+        ResultValue[] argM = argList.toArray(new ResultValue[argList.size()]);
+        Token[] argTokenM = function.bHasRef ? argumentTokens(funcToken, argM.length) : null;
         
-        return resReturnVal;
+        // Save where the caller is
+        Token callerToken = scan.currentToken;
+        Token callerNextToken = scan.nextToken;
+        int iCallerTokenIndex = scan.iTokenIndex;
+        boolean bCallerCalledExprFromStmts = bCalledExprFromStmts;
+        boolean bCallerGettingArraySize = bGettingArraySize;
+        boolean bCallerFoundAnOperator = bFoundAnOperator;
+        int iProfileDepth = profiler.depth();
+        int iCallDepth = symbolTable.storageManager.callDepth();
+        
+        enterFunction(funcToken, function, argM, 0, argM.length, argTokenM);
+        bCalledExprFromStmts = false;
+        bGettingArraySize = false;
+        ResultValue resReturn = null;
+        try
+        {
+            scan.setPosition(function.bodyToken);
+            ResultValue resStmts = statements(true);
+            if(! resStmts.terminatingStr.equals("enddef"))
+            {
+                error("Expected 'enddef' for function '%s', found '%s'", function.symbol, resStmts.terminatingStr);
+            }
+        }
+        catch(ReturnException e)
+        {
+            // The statements the 'return' was in did not end their profiler frames
+            resReturn = e.resReturn;
+            e.resReturn = null;
+            profiler.exit(iProfileDepth);
+        }
+        catch(StackOverflowError e)
+        {
+            tooManyCalls(funcToken, iCallDepth, e);
+        }
+        ResultValue resValue = leaveFunction(function, resReturn, argTokenM);
+        
+        // Put the caller back
+        scan.currentToken = callerToken;
+        scan.nextToken = callerNextToken;
+        scan.iTokenIndex = iCallerTokenIndex;
+        bCalledExprFromStmts = bCallerCalledExprFromStmts;
+        bGettingArraySize = bCallerGettingArraySize;
+        bFoundAnOperator = bCallerFoundAnOperator;
+        return resValue;
+    }
+    
+    /**
+     * Raises the error for a recursion that ran out of Java stack before 'StorageManager.MAX_CALL_DEPTH'
+     * <p>
+     * Only the outermost call raises the error, on its own line, where there is stack
+     * to spare. The message is not formatted, since the stack may have run out while
+     * the formatter's class was being loaded.
+     * @param funcToken        the function's token in the outermost call
+     * @param iCallDepth       the number of calls that were running before that call
+     * @param e                the stack overflow
+     * @throws ParserException if this is the outermost call
+     */
+    public void tooManyCalls(Token funcToken, int iCallDepth, StackOverflowError e) throws ParserException
+    {
+        if(iCallDepth > 0)
+        {
+            throw e;
+        }
+        throw new ParserException(funcToken.iSourceLineNr + 1, "Too many nested calls of function '" + funcToken.tokenStr + "'", sourceFileNm);
     }
     
+    /**
+     * Starts a call of a user defined function, giving its parameters their values
+     * <p>
+     * A parameter passed by value gets a copy of its value, coerced to the parameter's
+     * type. An array parameter is the caller's array, which must have the parameter's
+     * type. A 'Ref' parameter must be given a variable of its type, which gets the
+     * parameter's value back when the function returns (see 'leaveFunction').
+     * Called by 'callUser' and by 'ASTExecutor'.
+     * @param funcToken  the function's token in the call
+     * @param function   the function
+     * @param argM       the values of the parameters, starting at 'iFirstArg'
+     * @param iFirstArg  index of the first parameter's value
+     * @param iArgCnt    number of parameters that were given
+     * @param argTokenM  token of each parameter that is a variable (null for any other
+     *                   expression), or null if the function has no 'Ref' parameter
+     * @throws Exception if the parameters are not valid for the function
+     *                   if too many calls are running
+     */
+    public void enterFunction(Token funcToken, STFunction function, ResultValue[] argM, int iFirstArg, int iArgCnt, Token[] argTokenM) throws Exception
+    {
+        STIdentifier[] parmM = function.parmM;
+        if(iArgCnt != parmM.length)
+        {
+            errorWithCurrent("Invalid number of parameters for function '%s', expected %d, found %d"
+                             , funcToken.tokenStr, parmM.length, iArgCnt);
+        }
+        
+        // The variables of the 'Ref' parameters are checked while they are still in the current scope
+        if(function.bHasRef)
+        {
+            for(int i = 0; i < parmM.length; i++)
+            {
+                STIdentifier parm = parmM[i];
+                if(parm.parm != STIdentifier.BY_REFERENCE || parm.structure != STIdentifier.PRIMITVE)
+                {
+                    continue;
+                }
+                Token argToken = (argTokenM == null) ? null : argTokenM[i];
+                if(argToken == null)
+                {
+                    errorWithCurrent("Expected a variable for 'Ref' parameter '%s' of function '%s'", parm.symbol, funcToken.tokenStr);
+                }
+                STEntry entry = symbolTable.getSymbol(symbolTable.getSlot(argToken));
+                if(! (entry instanceof STIdentifier) || ((STIdentifier) entry).dclType != parm.dclType
+                                                     || ((STIdentifier) entry).structure != STIdentifier.PRIMITVE)
+                {
+                    errorWithCurrent("Expected a variable of type '%s' for 'Ref' parameter '%s' of function '%s', found '%s'"
+                                     , Token.getType(this, parm.dclType), parm.symbol, funcToken.tokenStr, argToken.tokenStr);
+                }
+            }
+        }
+        
+        ActivationRecord record = symbolTable.storageManager.pushRecord(this, function.scope);
+        for(int i = 0; i < parmM.length; i++)
+        {
+            STIdentifier parm = parmM[i];
+            ResultValue resArg = argM[iFirstArg + i];
+            if(parm.structure == STIdentifier.PRIMITVE)
+            {
+                if(resArg.structure != STIdentifier.PRIMITVE)
+                {
+                    errorWithCurrent("Expected a primitive value for parameter '%s' of function '%s', found array '%s'"
+                                     , parm.symbol, funcToken.tokenStr, resArg.getValue());
+                }
+                resArg = Utility.getResultValueCopy(resArg);
+                Utility.coerce(this, parm.dclType, resArg, "function parameter");
+            }
+            else if(resArg.structure == STIdentifier.PRIMITVE || resArg.type != parm.dclType)
+            {
+                errorWithCurrent("Expected an array of type '%s' for parameter '%s' of function '%s', found '%s'"
+                                 , Token.getType(this, parm.dclType), parm.symbol, funcToken.tokenStr, resArg.getValue());
+            }
+            record.entryM[i] = parm;
+            record.valueM[i] = resArg;
+        }
+    }
+    
+    /**
+     * Ends the call of a user defined function that 'enterFunction' started
+     * <p>
+     * The value of each 'Ref' parameter is stored in the caller's variable, which
+     * is found again now that the caller's scope is the current one.
+     * @param function   the function
+     * @param resReturn  the value of its 'return', or null if it did not return a value
+     * @param argTokenM  the parameters' tokens that were given to 'enterFunction'
+     * @return           the value of the call, which has type 'VOID' for a 'Void' function
+     * @throws Exception if a function that is not 'Void' did not return a value
+     *                   if a 'Ref' parameter's value could not be stored
+     */
+    public ResultValue leaveFunction(STFunction function, ResultValue resReturn, Token[] argTokenM) throws Exception
+    {
+        if(resReturn == null && function.returnType != Token.VOID)
+        {
+            errorLineNr(function.endToken.iSourceLineNr, "Function '%s' ended without returning a value", function.symbol);
+        }
+        ActivationRecord record = symbolTable.storageManager.popRecord();
+        
+        if(function.bHasRef)
+        {
+            STIdentifier[] parmM = function.parmM;
+            for(int i = 0; i < parmM.length; i++)
+            {
+                if(parmM[i].parm == STIdentifier.BY_REFERENCE && parmM[i].structure == STIdentifier.PRIMITVE
+                                                             && record.valueM[i] != null)
+                {
+                    symbolTable.storeVariableValue(this, symbolTable.getSlot(argTokenM[i]), record.valueM[i]);
+                }
+            }
+        }
+        
+        if(resReturn == null)
+        {
+            resReturn = new ResultValue();
+            resReturn.type = Token.VOID;
+            resReturn.setValue("");
+            resReturn.structure = STIdentifier.PRIMITVE;
+        }
+        return resReturn;
+    }
+    
+    /**
+     * Gets the value a 'return' gives back, for the function that is executing
+     * @param resVal     the value of the 'return' expression
+     * @return           a copy of the value, coerced to the function's return type
+     * @throws Exception if the value is an array or can not be coerced
+     */
+    public ResultValue returnValue(ResultValue resVal) throws Exception
+    {
+        STFunction function = symbolTable.storageManager.currentRecord().scope.function;
+        if(resVal.structure != STIdentifier.PRIMITVE)
+        {
+            error("Function '%s' must return a primitive value, found array '%s'", function.symbol, resVal.getValue());
+        }
+        ResultValue resReturn = Utility.getResultValueCopy(resVal);
+        Utility.coerce(this, function.returnType, resReturn, "function return value");
+        return resReturn;
+    }
+    
+    /**
+     * Finds the variable given for each parameter of a call, from the call's tokens
+     * @param funcToken  the function's token in the call, which is followed by '('
+     * @param iArgCnt    number of parameters
+     * @return           the token of each parameter that is only a variable, null for any other expression
+     */
+    private Token[] argumentTokens(Token funcToken, int iArgCnt)
+    {
+        Token[] argTokenM = new Token[iArgCnt];
+        int iArg = 0;
+        int iDepth = 0;
+        int iArgStart = funcToken.iTokenIndex + 2;
+        for(int i = iArgStart; i < scan.tokenM.length && iArg < iArgCnt; i++)
+        {
+            Token token = scan.tokenM[i];
+            if(token.primClassif != Token.SEPARATOR)
+            {
+                continue;
+            }
+            
+            // A parameter ends at a ',' or at the call's ')', but not at those in its own parentheses or brackets
+            boolean bEndsArg = false;
+            switch(token.tokenStr)
+            {
+                case "(":
+                case "[":
+                case "{":
+                    iDepth++;
+                    break;
+                case ")":
+                case "]":
+                case "}":
+                    bEndsArg = (iDepth == 0);
+                    iDepth--;
+                    break;
+                case ",":
+                    bEndsArg = (iDepth == 0);
+                    break;
+            }
+            if(bEndsArg)
+            {
+                Token argToken = scan.tokenM[iArgStart];
+                if(i == iArgStart + 1 && argToken.primClassif == Token.OPERAND && argToken.subClassif == Token.IDENTIFIER)
+                {
+                    argTokenM[iArg] = argToken;
+                }
+                iArg++;
+                iArgStart = i + 1;
+            }
+        }
+        return argTokenM;
+    }
+    
+    /**
+     * Calls a built-in function that takes one or two parameters
+     * <p>
+     * The number of parameters has already been checked by the caller.
+     * The functions 'print', 'IN', and 'NOTIN' are not called here.
+     * @param funcToken  the token of the function
+     * @param resOp1     the first parameter
+     * @param resOp2     the second parameter (null for one parameter functions)
+     * @return           the result of the function
+     * @throws Exception if the parameters are not valid for the function
+     */
+    public ResultValue callBuiltin(Token funcToken, ResultValue resOp1, ResultValue resOp2) throws Exception
+    {
+        if(profiler.bOn)
+        {
+            int iProfileDepth = profiler.enterBuiltin(funcToken.iLexemeId);
+            ResultValue resReturn = builtin(funcToken, resOp1, resOp2);
+            profiler.exit(iProfileDepth);
+            return resReturn;
+        }
+        return builtin(funcToken, resOp1, resOp2);
+    }
+    
+    /**
+     * Calls a built-in function, for 'callBuiltin'
+     * @param funcToken  the token of the function
+     * @param resOp1     the first parameter
+     * @param resOp2     the second parameter (null for one parameter functions)
+     * @return           the result of the function
+     * @throws Exception if the parameters are not valid for the function
+     */
+    private ResultValue builtin(Token funcToken, ResultValue resOp1, ResultValue resOp2) throws Exception
+    {
+        switch(funcToken.iLexemeId)
+        {
+            case LexemeTable.LENGTH:
+                return Utility.LENGTH(this, resOp1);
+            
+            case LexemeTable.SPACES:
+                return Utility.SPACES(this, resOp1);
+            
+            case LexemeTable.ELEM:
+            case LexemeTable.MAXELEM:
+                // Check that the operand is an array
+                if(! (resOp1 instanceof ResultArray))
+                {
+                    error("Expected an array reference for the parameter to '%s', found '%s'", funcToken.tokenStr, resOp1.getValue());
+                }
+                // Get the operand as a result array
+                if(funcToken.iLexemeId == LexemeTable.ELEM)
+                {
+                    return Utility.ELEM(this, (ResultArray) resOp1);
+                }
+                return Utility.MAXELEM(this, (ResultArray) resOp1);
+            
+            case LexemeTable.DATE_DIFF:
+                return Utility.dateDiff(this, resOp1, resOp2);
+            
+            case LexemeTable.DATE_ADJ:
+                return Utility.dateAdj(this, resOp1, resOp2);
+            
+            case LexemeTable.DATE_AGE:
+                return Utility.dateAge(this, resOp1, resOp2);
+            
+            default:
+                // Only reached if we add a built-in function but haven't called it here
+                error("Unknown built-in function: '%s'", funcToken.tokenStr);
+                return null; // Never reached
+        }
+    }
+    
+    /**
+     * Prints the parameters of a call to 'print', separated by spaces
+     * @param printParamList  the parameters in the order they were given
+     * @return                the VOID result of 'print'
+     * @throws Exception      if a parameter could not be coerced to a string
+     */
+    public ResultValue print(List<ResultValue> printParamList) throws Exception
+    {
+        int iProfileDepth = profiler.bOn ? profiler.enterBuiltin(LexemeTable.PRINT) : -1;
+        
+        // Print each parameter for the 'print' statement
+        for(ResultValue resParam : printParamList)
+        {
+            ResultValue resPrintParam = Utility.getResultValueCopy(resParam);
+            Utility.coerce(this, Token.STRING, resPrintParam, "print");
+            output.print(resPrintParam.getValue());
+            output.write(' ');
+        }
+        output.write('\n');
+        profiler.exit(iProfileDepth);
+        
+        // 'print' returns a VOID type
+        ResultValue resPrintReturn = new ResultValue();
+        resPrintReturn.type = Token.VOID;
+        return resPrintReturn;
+    }
+    
+    /**
+     * Adds a value from the value list of 'IN' or 'NOTIN' to the array being made from it
+     * @param funcToken        the 'IN' or 'NOTIN' token
+     * @param resArrValueList  the array being made from the value list
+     * @param resValue         the value to add
+     * @throws Exception       if the value is an array
+     */
+    public void addToValueList(Token funcToken, ResultArray resArrValueList, ResultValue resValue) throws Exception
+    {
+        // The value list should only consist of primitives
+        if(resValue.structure != STIdentifier.PRIMITVE)
+        {
+            errorWithCurrent("The value list for '%s' can only consist of primitives, found array '%s'"
+                             , funcToken.tokenStr, resValue.getValue());
+        }
+        
+        resArrValueList.add(resValue);
+    }
+    
+    /**
+     * Checks that the second parameter of 'IN' or 'NOTIN' is an array
+     * @param funcToken   the 'IN' or 'NOTIN' token
+     * @param resTopElem  the second parameter
+     * @return            the second parameter as an array
+     * @throws Exception  if the second parameter is a primitive
+     */
+    public ResultArray toInArray(Token funcToken, ResultValue resTopElem) throws Exception
+    {
+        // Check that the parameter is actually an array
+        if(resTopElem.structure == STIdentifier.PRIMITVE)
+        {
+            errorWithCurrent("Expected an array or value list after '%s', found '%s'"
+                             , funcToken.tokenStr, resTopElem.getValue());
+        }
+        
+        return (ResultArray) resTopElem;
+    }
+    
+    /**
+     * Evaluates 'IN' or 'NOTIN' for a value and an array (or value list made into an array)
+     * @param funcToken        the 'IN' or 'NOTIN' token
+     * @param resElem          the first parameter
+     * @param resArrValueList  the array to look for the value in
+     * @return                 the BOOLEAN result
+     * @throws Exception       if the first parameter is an array
+     */
+    public ResultValue inArray(Token funcToken, ResultValue resElem, ResultArray resArrValueList) throws Exception
+    {
+        // Check that the first parameter is a primitive
+        if(resElem.structure != STIdentifier.PRIMITVE)
+        {
+            errorWithCurrent("Expected a primitive value as the first parameter for '%s', found array '%s'"
+                             , funcToken.tokenStr, resElem.getValue());
+        }
+        
+        int iProfileDepth = profiler.bOn ? profiler.enterBuiltin(funcToken.iLexemeId) : -1;
+        ResultValue resBoolean = Utility.IN(this, resElem, resArrValueList);
+        profiler.exit(iProfileDepth);
+        
+        // If the function is 'NOTIN' just reverse the boolean result
+        if(funcToken.tokenStr.equals("NOTIN"))
+        {
+            resBoolean = Utility.not(this, resBoolean);
+        }
+        
+        return resBoolean;
+    }
+
     /**
      * Skips to a specified separator for the given statement
      * <p>
@@ -2544,12 +3359,15 @@ public class Parser
      *      - the currently scanned token's information
      *      - the variable and value of a an assignment statement
      *      - the evaluation of an expression
+     *      - the time spent on each line and built-in function (see 'Profiler')
      * <p>
      * The syntax is as follows:
      *      debug <debugType> <onOff>;
      * debugType:= Assign
      *           | Expr
      *           | Token
+     *           | Postfix
+     *           | Profile
      * onOff:= on
      *       | off
      * @throws Exception - if one of the given options to debug is invalid
@@ -2564,7 +3382,7 @@ public class Parser
         // Get the debug type
         debugType = scan.getNext();
         // Make sure the debug type is valid
-        if(! Arrays.asList("Assign", "Expr", "Token", "Postfix").contains(debugType))
+        if(! Arrays.asList("Assign", "Expr", "Token", "Postfix", "Profile").contains(debugType))
         {
             error("Invalid type for debug function, found '%s',", debugType);
         }
@@ -2618,6 +3436,10 @@ public class Parser
                 this.bShowPostfix = bDebug;
                 break;
                 
+            case "Profile":
+                profiler.setOn(bDebug);
+                break;
+                
             default:
                 // Only reached if we add another debugger type and don't check for it
                 error("The case for debug type '%s' was never added to the debug method...", debugType);
@@ -0,0 +1,430 @@
+package havabol;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * @desc
+ * Counts how many times each source line and each built-in function is executed,
+ * and how much wall clock and CPU time is spent in them
+ * <p>
+ * It is turned on with 'debug Profile on;' or with the '-profile' argument (see
+ * 'Havabol'). Each statement that is executed while it is on is a frame on a stack,
+ * and each call to a built-in function is a frame above the statement that called it.
+ * The time of a frame is its own time: the time of the statements of a loop or 'if'
+ * body and of the built-in functions called are taken out of it, since they are
+ * counted by their own frames. A line's total time also has everything under it.
+ * <p>
+ * The frames also make a tree of the paths they were called on (the lines of the
+ * loops and 'if' statements around them), which is written in the collapsed stack
+ * format of flame graph tools, one path per line: "file;line 3;line 5;print 1234",
+ * where the number is the nanoseconds of wall clock time spent in the last frame.
+ * <p>
+ * A built-in function is only counted while a statement is executing. A call that
+ * was folded into a constant while the expressions were compiled (see 'Bytecode')
+ * is counted at the line of its statement each time the statement executes it, but
+ * with no time, since its value was only computed once; the report says how many
+ * of a function's calls were folded.
+ *
+ * @authors Taylor Brauer, Caleb Mussulman, Steven Cenci
+ */
+public class Profiler
+{
+    public boolean bOn;             // Whether the executed statements are being counted
+    public boolean bUsed;           // Whether it was ever turned on, so there is something to report
+    public String collapsedFileNm;  // Where the collapsed stacks are written
+    
+    private Scanner scan;           // For the text of the source lines
+    private ThreadMXBean threadBean;// For the CPU time, or null if the JVM does not measure it
+    
+    // Counts and times of each line, by its line number (starting at 0)
+    private long[] lineCntM;
+    private long[] lineSelfWallM;
+    private long[] lineSelfCpuM;
+    private long[] lineTotalWallM;
+    private int[] lineActiveM;      // frames of the line on the stack, so a line's total is only added once
+    
+    // Counts and times of each built-in function, by the id of its lexeme
+    private long[] builtinCntM;
+    private long[] builtinWallM;
+    private long[] builtinCpuM;
+    private long[] builtinFoldedCntM;   // calls of the count that were folded into constants, without time
+    
+    // Stack of frames being executed
+    private Frame[] frameM;
+    private long[] startWallM;
+    private long[] startCpuM;
+    private long[] childWallM;      // time of the frames above each frame, to take out of its own time
+    private long[] childCpuM;
+    private int iDepth;
+    private Frame root;
+    
+    /**
+     * A node of the tree of paths the frames were called on
+     */
+    private static class Frame
+    {
+        int iKey;                   // line number, or -1 minus the lexeme id of a built-in function
+        HashMap<Integer, Frame> childMap;
+        long lSelfWall;
+        
+        Frame(int iKey)
+        {
+            this.iKey = iKey;
+        }
+        
+        Frame child(int iKey)
+        {
+            if(childMap == null)
+            {
+                childMap = new HashMap<Integer, Frame>();
+            }
+            Frame child = childMap.get(iKey);
+            if(child == null)
+            {
+                child = new Frame(iKey);
+                childMap.put(iKey, child);
+            }
+            return child;
+        }
+    }
+    
+    Profiler(Scanner scan)
+    {
+        this.scan = scan;
+        this.collapsedFileNm = scan.sourceFileNm + ".collapsed";
+        
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if(bean.isCurrentThreadCpuTimeSupported())
+        {
+            this.threadBean = bean;
+        }
+        
+        this.lineCntM = new long[64];
+        this.lineSelfWallM = new long[64];
+        this.lineSelfCpuM = new long[64];
+        this.lineTotalWallM = new long[64];
+        this.lineActiveM = new int[64];
+        this.builtinCntM = new long[LexemeTable.PREDEFINED_CNT];
+        this.builtinWallM = new long[LexemeTable.PREDEFINED_CNT];
+        this.builtinCpuM = new long[LexemeTable.PREDEFINED_CNT];
+        this.builtinFoldedCntM = new long[LexemeTable.PREDEFINED_CNT];
+        
+        this.frameM = new Frame[16];
+        this.startWallM = new long[16];
+        this.startCpuM = new long[16];
+        this.childWallM = new long[16];
+        this.childCpuM = new long[16];
+        this.iDepth = 0;
+        this.root = new Frame(0);
+    }
+    
+    /**
+     * Turns the profiler on or off
+     * @param bOn  whether executed statements are counted from now on
+     */
+    public void setOn(boolean bOn)
+    {
+        this.bOn = bOn;
+        this.bUsed |= bOn;
+    }
+    
+    /**
+     * Starts the frame of a statement
+     * @param iLineNr  the line number of the statement's first token
+     * @return         the depth to give 'exit' when the statement is done
+     */
+    public int enterLine(int iLineNr)
+    {
+        if(iLineNr >= lineCntM.length)
+        {
+            int iSize = Math.max(iLineNr + 1, lineCntM.length * 2);
+            lineCntM = Arrays.copyOf(lineCntM, iSize);
+            lineSelfWallM = Arrays.copyOf(lineSelfWallM, iSize);
+            lineSelfCpuM = Arrays.copyOf(lineSelfCpuM, iSize);
+            lineTotalWallM = Arrays.copyOf(lineTotalWallM, iSize);
+            lineActiveM = Arrays.copyOf(lineActiveM, iSize);
+        }
+        lineActiveM[iLineNr]++;
+        return enter(iLineNr);
+    }
+    
+    /**
+     * Starts the frame of a call to a built-in function, if a statement is executing
+     * @param iLexemeId  the id of the function's lexeme
+     * @return           the depth to give 'exit' when the call is done, or -1 if it is not counted
+     */
+    public int enterBuiltin(int iLexemeId)
+    {
+        if(iDepth == 0)
+        {
+            return -1;
+        }
+        return enter(-1 - iLexemeId);
+    }
+    
+    /**
+     * Counts the calls to built-in functions that were folded into a constant, if a statement is executing
+     * <p>
+     * They are counted for the function, without any time.
+     * @param builtinTokens  the token of each call
+     */
+    public void countFolded(Token[] builtinTokens)
+    {
+        if(iDepth == 0)
+        {
+            return;
+        }
+        for(Token token : builtinTokens)
+        {
+            builtinCntM[token.iLexemeId]++;
+            builtinFoldedCntM[token.iLexemeId]++;
+        }
+    }
+    
+    /**
+     * Ends the frames above a depth, adding their times to their lines and functions
+     * <p>
+     * Frames that a statement started but never ended (because an error was
+     * raised while it was executing) are ended along with the statement.
+     * @param iToDepth  the depth that 'enterLine' or 'enterBuiltin' returned
+     */
+    public void exit(int iToDepth)
+    {
+        if(iToDepth < 0)
+        {
+            return;
+        }
+        long lNowWall = System.nanoTime();
+        long lNowCpu = cpuTime();
+        
+        while(iDepth > iToDepth)
+        {
+            iDepth--;
+            Frame frame = frameM[iDepth];
+            long lWall = lNowWall - startWallM[iDepth];
+            long lCpu = lNowCpu - startCpuM[iDepth];
+            long lSelfWall = lWall - childWallM[iDepth];
+            long lSelfCpu = lCpu - childCpuM[iDepth];
+            frame.lSelfWall += lSelfWall;
+            
+            if(frame.iKey >= 0)
+            {
+                int iLineNr = frame.iKey;
+                lineCntM[iLineNr]++;
+                lineSelfWallM[iLineNr] += lSelfWall;
+                lineSelfCpuM[iLineNr] += lSelfCpu;
+                if(--lineActiveM[iLineNr] == 0)
+                {
+                    lineTotalWallM[iLineNr] += lWall;
+                }
+            }
+            else
+            {
+                int iLexemeId = -1 - frame.iKey;
+                builtinCntM[iLexemeId]++;
+                builtinWallM[iLexemeId] += lWall;
+                builtinCpuM[iLexemeId] += lCpu;
+            }
+            
+            // The frame's whole time is taken out of the frame below it
+            if(iDepth > 0)
+            {
+                childWallM[iDepth - 1] += lWall;
+                childCpuM[iDepth - 1] += lCpu;
+            }
+        }
+    }
+    
+    /**
+     * Gets the depth of the stack of frames, so the frames started after now can be ended
+     * together (such as when a 'return' leaves the statements of a function)
+     * @return  the depth to give 'exit', or -1 while the profiler is off
+     */
+    public int depth()
+    {
+        return bOn ? iDepth : -1;
+    }
+    
+    /**
+     * Ends every frame that is still on the stack, such as when the program raised an error
+     */
+    public void exitAll()
+    {
+        exit(0);
+    }
+    
+    /**
+     * Prints the lines from the most to the least of their own time,
+     * and then the built-in functions from the most to the least time
+     * @param out  where to print the report
+     */
+    public void report(PrintStream out)
+    {
+        long lTotalWall = 0;
+        ArrayList<Integer> lineList = new ArrayList<Integer>();
+        for(int i = 0; i < lineCntM.length; i++)
+        {
+            if(lineCntM[i] > 0)
+            {
+                lineList.add(i);
+                lTotalWall += lineSelfWallM[i];
+            }
+        }
+        ArrayList<Integer> builtinList = new ArrayList<Integer>();
+        for(int i = 0; i < builtinCntM.length; i++)
+        {
+            if(builtinCntM[i] > 0)
+            {
+                builtinList.add(i);
+                lTotalWall += builtinWallM[i];
+            }
+        }
+        lineList.sort((iLine1, iLine2) -> Long.compare(lineSelfWallM[iLine2], lineSelfWallM[iLine1]));
+        builtinList.sort((iId1, iId2) -> Long.compare(builtinWallM[iId2], builtinWallM[iId1]));
+        double dTotal = Math.max(lTotalWall, 1);
+        
+        out.printf("Profile of %s (%.3f ms)\n", scan.sourceFileNm, lTotalWall / 1e6);
+        out.printf("%6s %12s %12s %7s %12s %12s  %s\n", "Line", "Count", "Self ms", "Self%", "Self CPU ms", "Total ms", "Source");
+        for(int iLineNr : lineList)
+        {
+            out.printf("%6d %12d %12.3f %6.2f%% %12.3f %12.3f  %s\n", iLineNr + 1, lineCntM[iLineNr]
+                       , lineSelfWallM[iLineNr] / 1e6, lineSelfWallM[iLineNr] * 100 / dTotal
+                       , lineSelfCpuM[iLineNr] / 1e6, lineTotalWallM[iLineNr] / 1e6, sourceLine(iLineNr));
+        }
+        if(! builtinList.isEmpty())
+        {
+            out.printf("%-12s %12s %12s %7s %12s %12s\n", "Builtin", "Count", "Wall ms", "Wall%", "CPU ms", "Folded");
+            long lFoldedCnt = 0;
+            for(int iLexemeId : builtinList)
+            {
+                lFoldedCnt += builtinFoldedCntM[iLexemeId];
+                out.printf("%-12s %12d %12.3f %6.2f%% %12.3f %12d\n", LexemeTable.getPredefined(iLexemeId)
+                           , builtinCntM[iLexemeId], builtinWallM[iLexemeId] / 1e6
+                           , builtinWallM[iLexemeId] * 100 / dTotal, builtinCpuM[iLexemeId] / 1e6
+                           , builtinFoldedCntM[iLexemeId]);
+            }
+            if(lFoldedCnt > 0)
+            {
+                out.printf("Folded calls were computed once while compiling, so they are counted without any time\n");
+            }
+        }
+        out.flush();
+    }
+    
+    /**
+     * Writes the paths of the frames in the collapsed stack format, to 'collapsedFileNm'
+     * @throws IOException if the file could not be written
+     */
+    public void writeCollapsed() throws IOException
+    {
+        try(PrintWriter writer = new PrintWriter(new FileWriter(collapsedFileNm)))
+        {
+            String rootNm = scan.sourceFileNm.replace('\\', '/');
+            rootNm = rootNm.substring(rootNm.lastIndexOf('/') + 1).replace(';', ',');
+            writeCollapsed(writer, root, rootNm);
+        }
+    }
+    
+    /**
+     * Writes the path of a frame and of every frame called from it
+     * @param writer  where to write the paths
+     * @param frame   the frame
+     * @param path    the names of the frames from the root to this frame, separated by ';'
+     */
+    private void writeCollapsed(PrintWriter writer, Frame frame, String path)
+    {
+        if(frame.lSelfWall > 0)
+        {
+            writer.print(path);
+            writer.print(' ');
+            writer.println(frame.lSelfWall);
+        }
+        if(frame.childMap == null)
+        {
+            return;
+        }
+        for(Frame child : frame.childMap.values())
+        {
+            writeCollapsed(writer, child, path + ";" + frameName(child));
+        }
+    }
+    
+    /**
+     * Gets the name of a frame in a collapsed stack, which can not have a ';'
+     * @param frame  the frame
+     * @return       "line N: source" for a line, or the name of a built-in function
+     */
+    private String frameName(Frame frame)
+    {
+        if(frame.iKey < 0)
+        {
+            return LexemeTable.getPredefined(-1 - frame.iKey);
+        }
+        String line = sourceLine(frame.iKey);
+        if(line.endsWith(";"))
+        {
+            line = line.substring(0, line.length() - 1);
+        }
+        return ("line " + (frame.iKey + 1) + ": " + line).replace(';', ',');
+    }
+    
+    /**
+     * Gets the text of a source line for the report
+     * @param iLineNr  the line number, starting at 0
+     * @return         the line without its surrounding blanks, or "" if it could not be read
+     */
+    private String sourceLine(int iLineNr)
+    {
+        try
+        {
+            String line = scan.sourceFile.getLine(iLineNr);
+            return line == null ? "" : line.trim();
+        }
+        catch(IOException e)
+        {
+            return "";
+        }
+    }
+    
+    /**
+     * Gets the CPU time of the current thread
+     * @return  the CPU time in nanoseconds, or 0 if the JVM does not measure it
+     */
+    private long cpuTime()
+    {
+        return threadBean == null ? 0 : threadBean.getCurrentThreadCpuTime();
+    }
+    
+    /**
+     * Pushes a frame onto the stack
+     * @param iKey  the line number, or -1 minus the lexeme id of a built-in function
+     * @return      the depth below the frame
+     */
+    private int enter(int iKey)
+    {
+        if(iDepth == frameM.length)
+        {
+            int iSize = iDepth * 2;
+            frameM = Arrays.copyOf(frameM, iSize);
+            startWallM = Arrays.copyOf(startWallM, iSize);
+            startCpuM = Arrays.copyOf(startCpuM, iSize);
+            childWallM = Arrays.copyOf(childWallM, iSize);
+            childCpuM = Arrays.copyOf(childCpuM, iSize);
+        }
+        Frame parent = iDepth == 0 ? root : frameM[iDepth - 1];
+        frameM[iDepth] = parent.child(iKey);
+        childWallM[iDepth] = 0;
+        childCpuM[iDepth] = 0;
+        startCpuM[iDepth] = cpuTime();
+        startWallM[iDepth] = System.nanoTime();
+        return iDepth++;
+    }
+}
@@ -0,0 +1,840 @@
+package havabol;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * @desc
+ * Keeps the compiled program of each source file in a cache directory, so a file
+ * that has not changed is not lexed or built again the next time it is run
+ * <p>
+ * A cached program has the lexemes of the lexeme table, the tokens of the file,
+ * and the tree that 'ASTBuilder' built from them, with each expression's compiled
+ * instructions. It is kept in a file named by the SHA-256 hash of the source file's
+ * bytes and of 'VERSION', so a file is only read back if its source is exactly the
+ * same, and a new version of the interpreter never reads the programs an older one
+ * wrote. 'VERSION' must be changed whenever the tokens, the tree, or the instructions
+ * change.
+ * <p>
+ * The program is cached as it is before it is executed. The tokens are read back
+ * into a scanner (see 'Scanner'), with their lexemes interned in the same order so
+ * they have the same ids, and the tree is put in the parser (see 'Parser.build'),
+ * so the parser executes it without building it. A file the tree could not be
+ * built for is cached as just its tokens, and is parsed as it always is.
+ * <p>
+ * The cached file is binary: every number is written in as few bytes as it needs,
+ * and a token of the tree that is one of the file's tokens is written as its index.
+ * The whole file is then compressed, since a program repeats the same tokens and
+ * nodes so often that it is several times smaller compressed.
+ * A file that can not be read or written is treated as a missing program, and the
+ * source file is lexed and built the usual way.
+ *
+ * @authors Taylor Brauer, Caleb Mussulman, Steven Cenci
+ */
+public class ProgramCache
+{
+    public static final int VERSION = 4;                // version of what is cached, part of each program's key
+    public static final String DEFAULT_DIR = ".havabol-cache"; // cache directory next to a source file, if none is given
+    
+    private static final int MAGIC = 0x48564243;        // "HVBC", at the start of every cached program
+    
+    // Kinds of token references, in the lowest two bits of a reference (see 'writeToken')
+    private static final int FILE_TOKEN  = 0;           // one of the file's tokens, by the change in index from the last one
+    private static final int NULL_TOKEN  = 1;
+    private static final int NEW_TOKEN   = 2;           // a token that is not one of the file's, written in full
+    private static final int SEEN_TOKEN  = 3;           // a token written in full before, by its number
+    
+    private String cacheDirNm;                          // the cache directory, or null for each source file's own
+    
+    /**
+     * Makes a cache in a directory
+     * @param cacheDirNm  the cache directory, which is made when the first program is written,
+     *                    or null to keep each program in 'DEFAULT_DIR' next to its source file
+     */
+    public ProgramCache(String cacheDirNm)
+    {
+        this.cacheDirNm = cacheDirNm;
+    }
+    
+    /**
+     * Makes the parser that runs a source file, with its program read from the cache
+     * <p>
+     * If the file has no cached program, it is lexed and built into a tree, and
+     * its program is written to the cache for the next time. Either way, the parser
+     * that is returned is ready for 'parse()', and gives the same output and errors.
+     * @param sourceFileNm  the name of the source file
+     * @param symbolTable   the symbol table for the source file, which has not been used yet
+     * @return              the parser of the source file
+     * @throws Exception    if the file is not found
+     *                      if there is an I/O error reading from the file
+     */
+    public Parser load(String sourceFileNm, SymbolTable symbolTable) throws Exception
+    {
+        byte[] keyBytes;
+        try
+        {
+            keyBytes = key(Files.readAllBytes(new File(sourceFileNm).toPath()));
+        }
+        catch(IOException e)
+        {
+            // The scanner raises the usual error
+            return new Parser(new Scanner(sourceFileNm, symbolTable), symbolTable);
+        }
+        File cacheFile = new File(cacheDir(sourceFileNm), hex(keyBytes) + ".hbc");
+        
+        // Read the cached program, unless it is missing or damaged
+        if(cacheFile.isFile())
+        {
+            try
+            {
+                byte[] programBytes;
+                try(InputStream in = new InflaterInputStream(new ByteArrayInputStream(Files.readAllBytes(cacheFile.toPath()))))
+                {
+                    programBytes = in.readAllBytes();
+                }
+                SourceFile sourceFile = new SourceFile(sourceFileNm);
+                Parser parser;
+                try
+                {
+                    parser = new Reader(programBytes, sourceFile, symbolTable).read(keyBytes);
+                }
+                finally
+                {
+                    sourceFile.close();
+                }
+                if(parser != null)
+                {
+                    return parser;
+                }
+            }
+            catch(IOException e)
+            {
+                // Made again below
+            }
+            // The symbol table may have been changed by reading, so it starts over
+            symbolTable = new SymbolTable();
+        }
+        
+        // Lex and build the file, and cache it for the next time
+        Scanner scan = new Scanner(sourceFileNm, symbolTable);
+        Parser parser = new Parser(scan, symbolTable);
+        parser.build();
+        if(scan.lexException == null)
+        {
+            write(cacheFile, keyBytes, parser);
+        }
+        return parser;
+    }
+    
+    /**
+     * Gets the program of a parser whose source has been built, the same as it is cached,
+     * so it can be read back into any number of parsers (see 'HavabolScriptEngine')
+     * @param parser       the parser, whose source has been built
+     * @return             the bytes of the program, not compressed
+     * @throws IOException if the program has a value that can not be cached
+     */
+    static byte[] toBytes(Parser parser) throws IOException
+    {
+        return new Writer(parser).write(new byte[0]);
+    }
+    
+    /**
+     * Reads a program from 'toBytes' into a new scanner and parser
+     * @param programBytes the bytes of the program
+     * @param sourceFile   the source the program was built from, for the debuggers and the error messages
+     * @param symbolTable  the symbol table for the parser, which has not been used yet
+     * @return             the parser, ready for 'parse()'
+     * @throws Exception   if the program is damaged
+     */
+    static Parser fromBytes(byte[] programBytes, SourceFile sourceFile, SymbolTable symbolTable) throws Exception
+    {
+        Parser parser = new Reader(programBytes, sourceFile, symbolTable).read(new byte[0]);
+        if(parser == null)
+        {
+            throw new IOException("Damaged cached program");
+        }
+        return parser;
+    }
+    
+    /**
+     * Writes the program of a parser to a cache file, replacing the file all at once
+     * so a program that another run is reading is never seen half written
+     * @param cacheFile  the cache file
+     * @param keyBytes   the key of the program
+     * @param parser     the parser, whose file has been built
+     */
+    private void write(File cacheFile, byte[] keyBytes, Parser parser)
+    {
+        File tempFile = null;
+        try
+        {
+            File dir = cacheFile.getParentFile();
+            dir.mkdirs();
+            byte[] programBytes = new Writer(parser).write(keyBytes);
+            tempFile = File.createTempFile("havabol", ".tmp", dir);
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try(OutputStream out = new DeflaterOutputStream(Files.newOutputStream(tempFile.toPath()), deflater, 64 * 1024))
+            {
+                out.write(programBytes);
+            }
+            finally
+            {
+                deflater.end();
+            }
+            Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING
+                       , StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch(IOException e)
+        {
+            // The program is just not cached
+            if(tempFile != null)
+            {
+                tempFile.delete();
+            }
+        }
+    }
+    
+    /**
+     * Gets the directory of the cached programs of a source file
+     * @param sourceFileNm  the name of the source file
+     * @return              the directory
+     */
+    private File cacheDir(String sourceFileNm)
+    {
+        if(cacheDirNm != null)
+        {
+            return new File(cacheDirNm);
+        }
+        return new File(new File(sourceFileNm).getAbsoluteFile().getParentFile(), DEFAULT_DIR);
+    }
+    
+    /**
+     * Gets the key of a source file's program
+     * @param sourceBytes  the bytes of the source file
+     * @return             the SHA-256 hash of the version and the bytes
+     */
+    private static byte[] key(byte[] sourceBytes)
+    {
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((byte) (VERSION >>> 24));
+            digest.update((byte) (VERSION >>> 16));
+            digest.update((byte) (VERSION >>> 8));
+            digest.update((byte) VERSION);
+            return digest.digest(sourceBytes);
+        }
+        catch(NoSuchAlgorithmException e)
+        {
+            // Every JVM has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * Gets bytes as hexadecimal digits
+     * @param bytes  the bytes
+     * @return       two lowercase digits for each byte
+     */
+    private static String hex(byte[] bytes)
+    {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for(byte b : bytes)
+        {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Writes the program of a parser whose file has been built
+     */
+    private static class Writer
+    {
+        private byte[] outM;                                    // the program written so far
+        private int iLength;
+        private Parser parser;
+        private Token[] tokenM;                                 // the file's tokens
+        private IdentityHashMap<Token, Integer> newTokenMap;    // number of each token written in full
+        private int iLastIndex;                                 // index of the last of the file's tokens referenced
+        
+        Writer(Parser parser)
+        {
+            this.outM = new byte[64 * 1024];
+            this.iLength = 0;
+            this.parser = parser;
+            this.tokenM = parser.scan.tokenM;
+            this.newTokenMap = new IdentityHashMap<Token, Integer>();
+        }
+        
+        /**
+         * Writes the program
+         * @param keyBytes     the key of the program
+         * @return             the bytes of the program
+         * @throws IOException if the program has a value that can not be cached
+         */
+        byte[] write(byte[] keyBytes) throws IOException
+        {
+            writeInt(MAGIC);
+            writeInt(VERSION);
+            writeInt(keyBytes.length);
+            writeBytes(keyBytes);
+            
+            // Every lexeme in the order of its id
+            LexemeTable lexemes = parser.symbolTable.lexemes;
+            writeInt(lexemes.size());
+            for(int i = 0; i < lexemes.size(); i++)
+            {
+                writeString(lexemes.getLexeme(i));
+            }
+            
+            // The file's tokens, with the line numbers as the difference from the token before
+            writeInt(tokenM.length);
+            int iPrevLineNr = 0;
+            for(Token token : tokenM)
+            {
+                writeTokenFields(token, iPrevLineNr);
+                iPrevLineNr = token.iSourceLineNr;
+            }
+            
+            // The tree, if there is one
+            writeInt(parser.iParseTokenLineNr);
+            writeNode(parser.program);
+            return Arrays.copyOf(outM, iLength);
+        }
+        
+        private void writeTokenFields(Token token, int iPrevLineNr) throws IOException
+        {
+            writeInt(token.iLexemeId);
+            // A token's string is usually its lexeme
+            if(token.tokenStr == null)
+            {
+                writeInt(0);
+            }
+            else if(token.iLexemeId >= 0 && token.tokenStr.equals(parser.symbolTable.lexemes.getLexeme(token.iLexemeId)))
+            {
+                writeInt(1);
+            }
+            else
+            {
+                writeInt(2);
+                writeString(token.tokenStr);
+            }
+            writeInt(token.primClassif);
+            writeInt(token.subClassif);
+            writeInt(token.iSourceLineNr - iPrevLineNr);
+            writeInt(token.iColPos);
+            writeInt(token.identifierType);
+        }
+        
+        /**
+         * Writes a token of the tree, as its index if it is one of the file's tokens
+         * <p>
+         * The tokens of the tree are mostly in the order of the file, so the index is
+         * written as the change from the index before it, which is usually small.
+         * @param token        the token, or null
+         * @throws IOException if the token could not be written
+         */
+        private void writeToken(Token token) throws IOException
+        {
+            if(token == null)
+            {
+                writeInt(NULL_TOKEN);
+                return;
+            }
+            int i = token.iTokenIndex;
+            if(i >= 0 && i < tokenM.length && tokenM[i] == token)
+            {
+                writeInt(((i - iLastIndex) << 2) | FILE_TOKEN);
+                iLastIndex = i;
+                return;
+            }
+            
+            // The same token object is read back as the same object
+            Integer iNr = newTokenMap.get(token);
+            if(iNr != null)
+            {
+                writeInt((iNr << 2) | SEEN_TOKEN);
+                return;
+            }
+            newTokenMap.put(token, newTokenMap.size());
+            writeInt(NEW_TOKEN);
+            writeInt(token.iTokenIndex);
+            writeTokenFields(token, 0);
+        }
+        
+        private void writeTokens(Token[] tokens) throws IOException
+        {
+            if(tokens == null)
+            {
+                writeInt(-1);
+                return;
+            }
+            writeInt(tokens.length);
+            for(Token token : tokens)
+            {
+                writeToken(token);
+            }
+        }
+        
+        private void writeNode(ASTNode node) throws IOException
+        {
+            if(node == null)
+            {
+                writeInt(0);
+                return;
+            }
+            writeInt(node.nodeType);
+            writeToken(node.token);
+            writeToken(node.endToken);
+            writeNodes(node.childM);
+            writeNodes(node.exprM);
+            writeNodes(node.stmtsM);
+            writeNullableString(node.variableStr);
+            writeInt(node.iSlot);
+            writeInt(node.dclType);
+            writeInt(node.structure);
+            writeInt(node.bNegative ? 1 : 0);
+            if(node.nodeType != ASTNode.EXPR)
+            {
+                return;
+            }
+            
+            writeTokens(node.postfixList == null ? null : node.postfixList.toArray(new Token[node.postfixList.size()]));
+            writeTokens(node.checkM);
+            writeInt(node.bFoundAnOperator ? 1 : 0);
+            writeCode(node.code);
+            if(node.appendCodeM == null)
+            {
+                writeInt(-1);
+                return;
+            }
+            writeInt(node.appendCodeM.length);
+            for(Bytecode code : node.appendCodeM)
+            {
+                writeCode(code);
+            }
+        }
+        
+        private void writeNodes(ASTNode[] nodes) throws IOException
+        {
+            if(nodes == null)
+            {
+                writeInt(-1);
+                return;
+            }
+            writeInt(nodes.length);
+            for(ASTNode node : nodes)
+            {
+                writeNode(node);
+            }
+        }
+        
+        private void writeCode(Bytecode code) throws IOException
+        {
+            if(code == null)
+            {
+                writeInt(-1);
+                return;
+            }
+            writeInt(code.opM.length);
+            writeInt(code.iMaxStack);
+            for(int i = 0; i < code.opM.length; i++)
+            {
+                writeInt(code.opM[i]);
+                writeToken(code.tokenM[i]);
+                writeInt(code.argcM[i]);
+                writeTokens(code.listTokenM[i]);
+                
+                // A folded value is always a primitive
+                ResultValue resConst = code.constM[i];
+                if(resConst == null)
+                {
+                    writeInt(-1);
+                }
+                else if(resConst instanceof ResultArray || resConst.structure != STIdentifier.PRIMITVE)
+                {
+                    throw new IOException("Can not cache an array constant");
+                }
+                else
+                {
+                    writeInt(resConst.type);
+                    writeString(resConst.getValue());
+                }
+            }
+        }
+        
+        private void writeNullableString(String str) throws IOException
+        {
+            if(str == null)
+            {
+                writeInt(-1);
+                return;
+            }
+            writeString(str);
+        }
+        
+        private void writeString(String str) throws IOException
+        {
+            byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+            writeInt(bytes.length);
+            writeBytes(bytes);
+        }
+        
+        private void writeBytes(byte[] bytes)
+        {
+            ensureRoom(bytes.length);
+            System.arraycopy(bytes, 0, outM, iLength, bytes.length);
+            iLength += bytes.length;
+        }
+        
+        private void ensureRoom(int iNeeded)
+        {
+            if(iLength + iNeeded > outM.length)
+            {
+                outM = Arrays.copyOf(outM, Math.max(iLength + iNeeded, outM.length * 2));
+            }
+        }
+        
+        /**
+         * Writes a number in as few bytes as it needs, 7 bits at a time,
+         * with the sign moved to the lowest bit so small negative numbers are small too
+         * @param i  the number
+         */
+        private void writeInt(int i)
+        {
+            ensureRoom(5);
+            int iZigZag = (i << 1) ^ (i >> 31);
+            while((iZigZag & ~0x7F) != 0)
+            {
+                outM[iLength++] = (byte) ((iZigZag & 0x7F) | 0x80);
+                iZigZag >>>= 7;
+            }
+            outM[iLength++] = (byte) iZigZag;
+        }
+    }
+    
+    /**
+     * Reads a program back into a scanner and a parser
+     */
+    private static class Reader
+    {
+        private byte[] inM;                             // the program
+        private int iPos;                               // position of the next byte to read
+        private SourceFile sourceFile;                  // the file, for the scanner
+        private SymbolTable symbolTable;
+        private Token[] tokenM;                         // the file's tokens
+        private ArrayList<Token> newTokenList;          // each token that was written in full
+        private int iLastIndex;                         // index of the last of the file's tokens referenced
+        
+        Reader(byte[] inM, SourceFile sourceFile, SymbolTable symbolTable)
+        {
+            this.inM = inM;
+            this.iPos = 0;
+            this.sourceFile = sourceFile;
+            this.symbolTable = symbolTable;
+            this.newTokenList = new ArrayList<Token>();
+        }
+        
+        /**
+         * Reads the program
+         * @param keyBytes     the key the program must have
+         * @return             the parser of the program, or null if it is not the program of the key
+         * @throws IOException if the program could not be read, or is damaged
+         * @throws Exception   if the source file could not be closed
+         */
+        Parser read(byte[] keyBytes) throws Exception
+        {
+            if(readInt() != MAGIC || readInt() != VERSION)
+            {
+                return null;
+            }
+            byte[] readKeyBytes = new byte[readInt()];
+            readFully(readKeyBytes);
+            if(! Arrays.equals(readKeyBytes, keyBytes))
+            {
+                return null;
+            }
+            
+            // The lexemes must be given the same ids they had
+            LexemeTable lexemes = symbolTable.lexemes;
+            int iLexemeCnt = readInt();
+            for(int i = 0; i < iLexemeCnt; i++)
+            {
+                if(symbolTable.getSlot(readString()) != i)
+                {
+                    return null;
+                }
+            }
+            
+            tokenM = new Token[readInt()];
+            int iPrevLineNr = 0;
+            for(int i = 0; i < tokenM.length; i++)
+            {
+                Token token = readTokenFields(lexemes, iPrevLineNr);
+                token.iTokenIndex = i;
+                tokenM[i] = token;
+                iPrevLineNr = token.iSourceLineNr;
+            }
+            
+            Scanner scan = new Scanner(sourceFile, symbolTable, tokenM);
+            Parser parser = new Parser(scan, symbolTable);
+            parser.iParseTokenLineNr = readInt();
+            parser.program = readNode();
+            parser.bBuilt = true;
+            
+            // The scanner is left where building the tree leaves it, on the EOF token
+            if(parser.program != null)
+            {
+                scan.setPosition(tokenM[tokenM.length - 1]);
+            }
+            return parser;
+        }
+        
+        private Token readTokenFields(LexemeTable lexemes, int iPrevLineNr) throws IOException
+        {
+            Token token = new Token();
+            token.iLexemeId = readInt();
+            switch(readInt())
+            {
+                case 0:
+                    token.tokenStr = null;
+                    break;
+                case 1:
+                    if(token.iLexemeId < 0 || token.iLexemeId >= lexemes.size())
+                    {
+                        throw new IOException("Damaged cached program");
+                    }
+                    token.tokenStr = lexemes.getLexeme(token.iLexemeId);
+                    break;
+                default:
+                    token.tokenStr = readString();
+                    break;
+            }
+            token.primClassif = readInt();
+            token.subClassif = readInt();
+            token.iSourceLineNr = iPrevLineNr + readInt();
+            token.iColPos = readInt();
+            token.identifierType = readInt();
+            return token;
+        }
+        
+        private Token readToken() throws IOException
+        {
+            int iRef = readInt();
+            switch(iRef & 3)
+            {
+                case FILE_TOKEN:
+                    iLastIndex += iRef >> 2;
+                    if(iLastIndex < 0 || iLastIndex >= tokenM.length)
+                    {
+                        throw new IOException("Damaged cached program");
+                    }
+                    return tokenM[iLastIndex];
+                case NULL_TOKEN:
+                    return null;
+                case SEEN_TOKEN:
+                    int iNr = iRef >>> 2;
+                    if(iNr >= newTokenList.size())
+                    {
+                        throw new IOException("Damaged cached program");
+                    }
+                    return newTokenList.get(iNr);
+                default:
+                    break;
+            }
+            
+            // A new token
+            int iTokenIndex = readInt();
+            Token token = readTokenFields(symbolTable.lexemes, 0);
+            token.iTokenIndex = iTokenIndex;
+            newTokenList.add(token);
+            return token;
+        }
+        
+        private Token[] readTokens() throws IOException
+        {
+            int iLength = readInt();
+            if(iLength < 0)
+            {
+                return null;
+            }
+            Token[] tokens = new Token[iLength];
+            for(int i = 0; i < iLength; i++)
+            {
+                tokens[i] = readToken();
+            }
+            return tokens;
+        }
+        
+        private ASTNode readNode() throws IOException
+        {
+            int nodeType = readInt();
+            if(nodeType == 0)
+            {
+                return null;
+            }
+            ASTNode node = new ASTNode(nodeType, readToken());
+            node.endToken = readToken();
+            node.childM = readNodes();
+            node.exprM = readNodes();
+            node.stmtsM = readNodes();
+            node.variableStr = readNullableString();
+            node.iSlot = readInt();
+            node.dclType = readInt();
+            node.structure = readInt();
+            node.bNegative = readInt() != 0;
+            if(nodeType != ASTNode.EXPR)
+            {
+                return node;
+            }
+            
+            Token[] postfixTokens = readTokens();
+            node.postfixList = postfixTokens == null ? null : new ArrayList<Token>(Arrays.asList(postfixTokens));
+            node.checkM = readTokens();
+            node.bFoundAnOperator = readInt() != 0;
+            node.code = readCode();
+            int iAppendCnt = readInt();
+            if(iAppendCnt >= 0)
+            {
+                node.appendCodeM = new Bytecode[iAppendCnt];
+                for(int i = 0; i < iAppendCnt; i++)
+                {
+                    node.appendCodeM[i] = readCode();
+                }
+            }
+            return node;
+        }
+        
+        private ASTNode[] readNodes() throws IOException
+        {
+            int iLength = readInt();
+            if(iLength < 0)
+            {
+                return null;
+            }
+            ASTNode[] nodes = new ASTNode[iLength];
+            for(int i = 0; i < iLength; i++)
+            {
+                nodes[i] = readNode();
+            }
+            return nodes;
+        }
+        
+        private Bytecode readCode() throws IOException
+        {
+            int iSize = readInt();
+            if(iSize < 0)
+            {
+                return null;
+            }
+            Bytecode code = new Bytecode();
+            code.iMaxStack = readInt();
+            code.opM = new int[iSize];
+            code.tokenM = new Token[iSize];
+            code.argcM = new int[iSize];
+            code.listTokenM = new Token[iSize][];
+            code.constListM = new ResultArray[iSize];
+            code.constM = new ResultValue[iSize];
+            for(int i = 0; i < iSize; i++)
+            {
+                code.opM[i] = readInt();
+                code.tokenM[i] = readToken();
+                code.argcM[i] = readInt();
+                code.listTokenM[i] = readTokens();
+                int type = readInt();
+                if(type >= 0)
+                {
+                    ResultValue resConst = new ResultValue();
+                    resConst.type = type;
+                    resConst.setValue(readString());
+                    resConst.structure = STIdentifier.PRIMITVE;
+                    code.constM[i] = resConst;
+                }
+            }
+            return code;
+        }
+        
+        private String readNullableString() throws IOException
+        {
+            int iLength = readInt();
+            return iLength < 0 ? null : readString(iLength);
+        }
+        
+        private String readString() throws IOException
+        {
+            return readString(readInt());
+        }
+        
+        private String readString(int iLength) throws IOException
+        {
+            if(iLength < 0)
+            {
+                throw new IOException("Damaged cached program");
+            }
+            String str = new String(inM, iPos, checkRead(iLength), StandardCharsets.UTF_8);
+            iPos += iLength;
+            return str;
+        }
+        
+        private void readFully(byte[] bytes) throws IOException
+        {
+            System.arraycopy(inM, iPos, bytes, 0, checkRead(bytes.length));
+            iPos += bytes.length;
+        }
+        
+        /**
+         * Checks that the program has as many bytes left as are about to be read
+         * @param iLength      the number of bytes
+         * @return             the number of bytes
+         * @throws IOException if the program ends before them
+         */
+        private int checkRead(int iLength) throws IOException
+        {
+            if(iLength > inM.length - iPos)
+            {
+                throw new EOFException();
+            }
+            return iLength;
+        }
+        
+        /**
+         * Reads a number written by 'Writer.writeInt'
+         * @return             the number
+         * @throws IOException if the number could not be read
+         */
+        private int readInt() throws IOException
+        {
+            int iZigZag = 0;
+            for(int iShift = 0; iShift < 35; iShift += 7)
+            {
+                if(iPos >= inM.length)
+                {
+                    throw new EOFException();
+                }
+                int b = inM[iPos++];
+                iZigZag |= (b & 0x7F) << iShift;
+                if((b & 0x80) == 0)
+                {
+                    return (iZigZag >>> 1) ^ -(iZigZag & 1);
+                }
+            }
+            throw new IOException("Damaged cached program");
+        }
+    }
+}
@@ -1,16 +1,42 @@
 package havabol;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
 
 
 /**
- * ResultArray is used to store all Havabol arrays as ArraList<ResultValue>
+ * ResultArray is used to store all Havabol arrays
  *
  * ResultArray is a subclass of ResultValue - This decision was made in order to allow
  * storage of ResultArray objects as ResultValues within StorageManager
  *
+ * The elements are stored by the declared type of the array, so that an array does not
+ * hold an object (with a String inside) for every element:
+ *  INTEGER - int[]
+ *  FLOAT   - double[]
+ *  BOOLEAN - boolean[]
+ *  STRING and DATE - String[]
+ *  anything else (e.g., a value list for IN, which has no type) - ResultValue[]
+ * Which elements have a value is kept in a bitmap. The elements are given out as new
+ * ResultValues of the array's type, so changing one never changes the array.
+ *
+ * An unbounded array that is given an element far past its others (e.g., x[10000000] = 1)
+ * would need storage for every element in between, though they have no value. When
+ * fewer than 1 in SPARSE_DENSITY of its elements would have a value, it is changed to
+ * sparse: only the elements with a value are kept, in a map by index. It is changed back
+ * when at least half of its elements have a value again. The size, and so ELEM and
+ * negative subscripts, is the same either way.
+ *
+ * 'IN' looks for a value by converting every element to the value's type. The
+ * converted elements are kept in a hash index for that type, made the first time
+ * it is needed, so looking for a value again does not convert every element again.
+ * Elements added after the index was made are put in it on the next lookup; changing
+ * an element that is already in it throws the index away.
+ *
  * Attributes:
- *  valueList - An ArrayList of ResultValue's
  *  maxElem   - The Maximum Declared sized of an Array in Havabol
  *  scaled    - Possibly used to keep track if this ResultArray object has been set to a scalar in previous Havabol code.
  *
@@ -24,9 +50,622 @@ public class ResultArray extends ResultValue
 {
 
     //TODO: Does a constructor need to be made for this class?
-    ArrayList<ResultValue> valueList = new ArrayList<>();
     int maxElem;
     ResultValue scaledValue;
     boolean bScaled = false;
 
+    private int iSize = 0;           // the highest populated subscript + 1
+    private int iCapacity = 0;       // length of the storage array
+    private int[] intM;              // storage of an INTEGER array
+    private double[] doubleM;        // storage of a FLOAT array
+    private boolean[] boolM;         // storage of a BOOLEAN array
+    private String[] strM;           // storage of a STRING or DATE array; for a numeric or BOOLEAN array,
+                                     // the text of an element whose value was not written the usual way
+                                     // for its number (e.g., "007"), only made when one is stored
+    private ResultValue[] objM;      // storage of an array of any other type
+    private BitSet initM = new BitSet(); // elements that have a value
+    private int iSetCnt = 0;         // number of bits set in initM
+    private TreeMap<Integer, ResultValue> sparseM = null; // elements that have a value of a
+                                                          // sparse array, null if it is not sparse
+
+    private InIndex[] inIndexM = null; // index for 'IN' by the type of the value looked for, null if none
+
+    private static final int SPARSE_MIN_SIZE = 1024; // smallest size of a sparse array
+    private static final int SPARSE_DENSITY  = 8;    // a sparse array has fewer than 1 in this many elements with a value
+
+    /**
+     * Gets the number of elements, which is the highest populated subscript + 1
+     * <p>
+     * @return - the number of elements, including those without a value
+     */
+    int size()
+    {
+        return iSize;
+    }
+
+    /**
+     * Gets the number of elements that have a value
+     * <p>
+     * @return - the number of elements that have been given a value
+     */
+    int countSet()
+    {
+        if(sparseM != null)
+        {
+            return sparseM.size();
+        }
+        return iSetCnt;
+    }
+
+    /**
+     * Checks if the array only keeps its elements with a value (see 'toSparse')
+     * <p>
+     * @return   - true if most of its elements have no value and are not stored
+     */
+    boolean isSparse()
+    {
+        return sparseM != null;
+    }
+
+    /**
+     * Checks if an element has a value
+     * <p>
+     * @param i  - index of the element, less than 'size()'
+     * @return   - true if the element has been given a value
+     */
+    boolean isSet(int i)
+    {
+        if(sparseM != null)
+        {
+            return sparseM.containsKey(i);
+        }
+        return initM.get(i);
+    }
+
+    /**
+     * Gets the first element that has a value, at or after an index
+     * <p>
+     * This is how the elements with a value are iterated over, so a sparse array
+     * does not look at every element in between.
+     * @param i  - index to start looking at
+     * @return   - index of the element, or -1 if there is none before 'size()'
+     */
+    int nextSet(int i)
+    {
+        int iNext;
+        if(sparseM != null)
+        {
+            Integer iKey = sparseM.ceilingKey(i);
+            iNext = (iKey == null) ? -1 : iKey;
+        }
+        else
+        {
+            iNext = initM.nextSetBit(i);
+        }
+        return (iNext < iSize) ? iNext : -1;
+    }
+
+    /**
+     * Gets a new ResultValue of an element
+     * <p>
+     * @param i  - index of the element, less than 'size()'
+     * @return   - the element, or null if it has not been given a value
+     */
+    ResultValue get(int i)
+    {
+        if(sparseM != null)
+        {
+            ResultValue resElem = sparseM.get(i);
+            return (resElem == null) ? null : Utility.getResultValueCopy(resElem);
+        }
+        if(! initM.get(i))
+        {
+            return null;
+        }
+
+        ResultValue resElem;
+        switch(storageType())
+        {
+            case Token.INTEGER:
+                resElem = new ResultValue();
+                resElem.setInteger(intM[i]);
+                break;
+            case Token.FLOAT:
+                resElem = new ResultValue();
+                resElem.setFloat(doubleM[i]);
+                break;
+            case Token.BOOLEAN:
+                resElem = new ResultValue();
+                resElem.setBoolean(boolM[i]);
+                break;
+            case Token.STRING:
+                resElem = new ResultValue();
+                resElem.type = this.type;
+                resElem.setValue(strM[i]);
+                resElem.structure = STIdentifier.PRIMITVE;
+                return resElem;
+            default:
+                return objM[i];
+        }
+        resElem.structure = STIdentifier.PRIMITVE;
+
+        // The element keeps the text it was stored with
+        if(strM != null && strM[i] != null)
+        {
+            resElem.setNumberStr(strM[i]);
+        }
+        return resElem;
+    }
+
+    /**
+     * Stores a value in an element
+     * <p>
+     * The value must already be of the array's type. Only the value is stored, not
+     * the ResultValue, so changing the ResultValue later does not change the element.
+     * @param i       - index of the element, less than 'size()'
+     * @param resVal  - the value, or null to take away the element's value
+     */
+    void set(int i, ResultValue resVal)
+    {
+        changed(i);
+        if(sparseM != null)
+        {
+            if(resVal == null)
+            {
+                sparseM.remove(i);
+                return;
+            }
+            ResultValue resElem = Utility.getResultValueCopy(resVal);
+            resElem.structure = STIdentifier.PRIMITVE;
+            sparseM.put(i, resElem);
+            
+            // Enough elements have a value to be stored densely again
+            if(sparseM.size() * 2 >= iSize)
+            {
+                toDense();
+            }
+            return;
+        }
+        if(resVal == null)
+        {
+            if(initM.get(i))
+            {
+                initM.clear(i);
+                iSetCnt--;
+            }
+            if(objM != null)
+            {
+                objM[i] = null;
+            }
+            return;
+        }
+        if(! initM.get(i))
+        {
+            initM.set(i);
+            iSetCnt++;
+        }
+
+        String usualStr; // how the stored number or boolean is usually written
+        switch(storageType())
+        {
+            case Token.INTEGER:
+                intM[i] = resVal.hasNumber() ? resVal.integerValue : Integer.parseInt(resVal.getValue());
+                usualStr = Integer.toString(intM[i]);
+                break;
+            case Token.FLOAT:
+                doubleM[i] = resVal.hasNumber() ? resVal.doubleValue : Double.parseDouble(resVal.getValue());
+                usualStr = Double.toString(doubleM[i]);
+                break;
+            case Token.BOOLEAN:
+                boolM[i] = resVal.isTrue();
+                usualStr = boolM[i] ? "T" : "F";
+                break;
+            case Token.STRING:
+                strM[i] = resVal.getValue();
+                return;
+            default:
+                objM[i] = resVal;
+                return;
+        }
+
+        // Keep the text if it is not the usual one
+        if(! usualStr.equals(resVal.getValue()))
+        {
+            if(strM == null)
+            {
+                strM = new String[iCapacity];
+            }
+            strM[i] = resVal.getValue();
+        }
+        else if(strM != null)
+        {
+            strM[i] = null;
+        }
+    }
+
+    /**
+     * Adds an element after the last one
+     * <p>
+     * @param resVal  - the value, or null for an element without a value
+     */
+    void add(ResultValue resVal)
+    {
+        grow(iSize + 1, null);
+        set(iSize - 1, resVal);
+    }
+
+    /**
+     * Adds elements after the last one until there are 'iNewSize' elements
+     * <p>
+     * @param iNewSize  - the number of elements the array will have
+     * @param resFill   - the value of the added elements, or null for no value
+     */
+    void grow(int iNewSize, ResultValue resFill)
+    {
+        int iOldSize = iSize;
+        if(iNewSize <= iOldSize)
+        {
+            return;
+        }
+        
+        // The added elements have no value, so an unbounded array may become sparse
+        if(sparseM == null && resFill == null && this.structure == STIdentifier.UNBOUNDED_ARRAY && iNewSize >= SPARSE_MIN_SIZE
+           && (long) (countSet() + 1) * SPARSE_DENSITY < iNewSize)
+        {
+            toSparse();
+        }
+        if(sparseM != null)
+        {
+            // The elements in between are not stored, unless they get the value
+            if(resFill == null)
+            {
+                iSize = iNewSize;
+                return;
+            }
+            toDense();
+        }
+        ensureCapacity(iNewSize);
+        iSize = iNewSize;
+        if(resFill != null)
+        {
+            fill(iOldSize, iNewSize, resFill);
+        }
+    }
+
+    /**
+     * Stores the same value in every element, adding elements until there are 'iNewSize'
+     * <p>
+     * This is what assigning a scalar to an array does. Numbers and booleans are filled
+     * into the storage array without making a ResultValue for each element.
+     * @param iNewSize  - the number of elements the array will have, if more than now
+     * @param resFill   - the value, which must be of the array's type
+     */
+    void fillAll(int iNewSize, ResultValue resFill)
+    {
+        changed(0);
+        // Every element will have a value
+        if(sparseM != null)
+        {
+            toDense();
+        }
+        if(iNewSize > iSize)
+        {
+            ensureCapacity(iNewSize);
+            iSize = iNewSize;
+        }
+        fill(0, iSize, resFill);
+    }
+
+    /**
+     * Stores the first 'iCount' elements of another array of the same type, as a bulk copy
+     * <p>
+     * Elements are added until there are at least 'iCount'.
+     * @param resSource  - the array to copy from, which has the same type and at least 'iCount' elements
+     * @param iCount     - the number of elements to copy
+     */
+    void copyFrom(ResultArray resSource, int iCount)
+    {
+        changed(0);
+        // A sparse array is copied one element at a time
+        if(sparseM != null || resSource.sparseM != null)
+        {
+            grow(iCount, null);
+            for(int i = 0; i < iCount; i++)
+            {
+                set(i, resSource.get(i));
+            }
+            return;
+        }
+        if(iCount > iSize)
+        {
+            ensureCapacity(iCount);
+            iSize = iCount;
+        }
+
+        switch(storageType())
+        {
+            case Token.INTEGER:
+                System.arraycopy(resSource.intM, 0, intM, 0, iCount);
+                break;
+            case Token.FLOAT:
+                System.arraycopy(resSource.doubleM, 0, doubleM, 0, iCount);
+                break;
+            case Token.BOOLEAN:
+                System.arraycopy(resSource.boolM, 0, boolM, 0, iCount);
+                break;
+            case Token.STRING:
+                System.arraycopy(resSource.strM, 0, strM, 0, iCount);
+                break;
+            default:
+                System.arraycopy(resSource.objM, 0, objM, 0, iCount);
+                break;
+        }
+
+        // Copy the texts that are not the usual ones, if either array has any
+        if(storageType() != Token.STRING && (strM != null || resSource.strM != null))
+        {
+            if(strM == null)
+            {
+                strM = new String[iCapacity];
+            }
+            if(resSource.strM != null)
+            {
+                System.arraycopy(resSource.strM, 0, strM, 0, iCount);
+            }
+            else
+            {
+                Arrays.fill(strM, 0, iCount, null);
+            }
+        }
+
+        // Copy which elements have a value
+        initM.clear(0, iCount);
+        initM.or(resSource.initM.get(0, iCount));
+        iSetCnt = initM.cardinality();
+    }
+
+    /**
+     * Gets the first element that is equal to a value when it is converted to the value's type
+     * <p>
+     * This is what 'IN' does. An element that can not be converted is an error, unless
+     * an element before it is equal to the value, the same as converting each element in
+     * order. The index for the value's type is made (or added to) first.
+     * @param parser     - Used for converting elements and for their errors
+     * @param resVal     - The value to look for, which is a primitive
+     * @return           - index of the element, or -1 if no element is equal to it
+     * @throws Exception - If an element before any equal one could not be converted
+     */
+    int indexOf(Parser parser, ResultValue resVal) throws Exception
+    {
+        // A value of no known type is looked for one element at a time
+        if(resVal.type < Token.INTEGER || resVal.type > Token.VOID)
+        {
+            for(int i = nextSet(0); i >= 0; i = nextSet(i + 1))
+            {
+                ResultValue resElem = Utility.getResultValueCopy(get(i));
+                Utility.coerce(parser, resVal.type, resElem, "IN");
+                if(resElem.getValue().equals(resVal.getValue()))
+                {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        if(inIndexM == null)
+        {
+            inIndexM = new InIndex[Token.VOID + 1];
+        }
+        InIndex index = inIndexM[resVal.type];
+        if(index == null)
+        {
+            index = new InIndex();
+            inIndexM[resVal.type] = index;
+        }
+
+        // Add the elements that are not in the index yet, up to one that can not be converted.
+        // An element of an array of no type may be a variable's value, so it is converted as a copy
+        for(int i = nextSet(index.iScanned); i >= 0 && index.iErrorIndex < 0; i = nextSet(i + 1))
+        {
+            ResultValue resElem = Utility.getResultValueCopy(get(i));
+            index.iScanned = i + 1;
+            try
+            {
+                Utility.coerce(parser, resVal.type, resElem, "IN");
+            }
+            catch(ParserException e)
+            {
+                index.iErrorIndex = i;
+                break;
+            }
+            index.firstIndexMap.putIfAbsent(resElem.getValue(), i);
+        }
+        index.iScanned = Math.max(index.iScanned, iSize);
+
+        Integer iFound = index.firstIndexMap.get(resVal.getValue());
+        if(iFound != null)
+        {
+            return iFound;
+        }
+        if(index.iErrorIndex >= 0)
+        {
+            // Convert it again, for the error of this lookup
+            Utility.coerce(parser, resVal.type, Utility.getResultValueCopy(get(index.iErrorIndex)), "IN");
+        }
+        return -1;
+    }
+
+    /**
+     * Throws away the indexes for 'IN' that have an element that is changed
+     * @param i  - index of the changed element
+     */
+    private void changed(int i)
+    {
+        if(inIndexM == null)
+        {
+            return;
+        }
+        for(int iType = 0; iType < inIndexM.length; iType++)
+        {
+            if(inIndexM[iType] != null && i < inIndexM[iType].iScanned)
+            {
+                inIndexM[iType] = null;
+            }
+        }
+    }
+
+    /**
+     * Stores the same value in the elements from 'iFrom' up to, not including, 'iTo'
+     * @param iFrom    - first element
+     * @param iTo      - element after the last
+     * @param resFill  - the value, which must be of the array's type
+     */
+    private void fill(int iFrom, int iTo, ResultValue resFill)
+    {
+        if(iFrom >= iTo)
+        {
+            return;
+        }
+
+        // Store the first one the usual way, then copy it to the rest
+        set(iFrom, resFill);
+        switch(storageType())
+        {
+            case Token.INTEGER:
+                Arrays.fill(intM, iFrom + 1, iTo, intM[iFrom]);
+                break;
+            case Token.FLOAT:
+                Arrays.fill(doubleM, iFrom + 1, iTo, doubleM[iFrom]);
+                break;
+            case Token.BOOLEAN:
+                Arrays.fill(boolM, iFrom + 1, iTo, boolM[iFrom]);
+                break;
+            case Token.STRING:
+                Arrays.fill(strM, iFrom + 1, iTo, strM[iFrom]);
+                break;
+            default:
+                // Each element gets its own copy, as they are kept as ResultValues
+                for(int i = iFrom + 1; i < iTo; i++)
+                {
+                    objM[i] = Utility.getResultValueCopy(resFill);
+                }
+                break;
+        }
+        if(storageType() != Token.STRING && strM != null)
+        {
+            Arrays.fill(strM, iFrom + 1, iTo, strM[iFrom]);
+        }
+        iSetCnt += (iTo - iFrom) - initM.get(iFrom, iTo).cardinality();
+        initM.set(iFrom, iTo);
+    }
+
+    /**
+     * Changes the array to keep only its elements with a value, in 'sparseM'
+     */
+    private void toSparse()
+    {
+        TreeMap<Integer, ResultValue> newSparseM = new TreeMap<Integer, ResultValue>();
+        for(int i = initM.nextSetBit(0); i >= 0 && i < iSize; i = initM.nextSetBit(i + 1))
+        {
+            newSparseM.put(i, get(i));
+        }
+        
+        // Let go of the dense storage
+        intM = null;
+        doubleM = null;
+        boolM = null;
+        strM = null;
+        objM = null;
+        initM = new BitSet();
+        iSetCnt = 0;
+        iCapacity = 0;
+        sparseM = newSparseM;
+    }
+
+    /**
+     * Changes a sparse array back to storage for every element
+     */
+    private void toDense()
+    {
+        TreeMap<Integer, ResultValue> oldSparseM = sparseM;
+        sparseM = null;
+        ensureCapacity(iSize);
+        for(Map.Entry<Integer, ResultValue> entry : oldSparseM.entrySet())
+        {
+            set(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Gets which storage array is used for the type of the array
+     * @return  INTEGER, FLOAT, BOOLEAN, STRING (also for DATE), or -1 for ResultValues
+     */
+    private int storageType()
+    {
+        switch(this.type)
+        {
+            case Token.INTEGER:
+            case Token.FLOAT:
+            case Token.BOOLEAN:
+            case Token.STRING:
+                return this.type;
+            case Token.DATE:
+                return Token.STRING;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Makes the storage array long enough for 'iNeeded' elements
+     * <p>
+     * A fixed array's storage is never made longer than its declared size needs.
+     * @param iNeeded  - the number of elements
+     */
+    private void ensureCapacity(int iNeeded)
+    {
+        if(iNeeded <= iCapacity)
+        {
+            return;
+        }
+        int iNewCapacity = Math.max(iNeeded, iCapacity * 2);
+        if(this.structure == STIdentifier.FIXED_ARRAY && this.maxElem >= iNeeded)
+        {
+            iNewCapacity = Math.min(iNewCapacity, this.maxElem);
+        }
+
+        switch(storageType())
+        {
+            case Token.INTEGER:
+                intM = (intM == null) ? new int[iNewCapacity] : Arrays.copyOf(intM, iNewCapacity);
+                break;
+            case Token.FLOAT:
+                doubleM = (doubleM == null) ? new double[iNewCapacity] : Arrays.copyOf(doubleM, iNewCapacity);
+                break;
+            case Token.BOOLEAN:
+                boolM = (boolM == null) ? new boolean[iNewCapacity] : Arrays.copyOf(boolM, iNewCapacity);
+                break;
+            case Token.STRING:
+                break;
+            default:
+                objM = (objM == null) ? new ResultValue[iNewCapacity] : Arrays.copyOf(objM, iNewCapacity);
+                break;
+        }
+        if(strM != null || storageType() == Token.STRING)
+        {
+            strM = (strM == null) ? new String[iNewCapacity] : Arrays.copyOf(strM, iNewCapacity);
+        }
+        iCapacity = iNewCapacity;
+    }
+
+    /**
+     * Index of the elements for 'IN', with each element converted to one type
+     */
+    private static class InIndex
+    {
+        HashMap<String, Integer> firstIndexMap = new HashMap<String, Integer>(); // converted value -> first element with it
+        int iScanned = 0;     // elements before this one are in the index (or are not reached)
+        int iErrorIndex = -1; // element that could not be converted, -1 if none
+    }
+
 }
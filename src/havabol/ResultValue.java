@@ -19,11 +19,34 @@ public class ResultValue
      * CLASS VARIABLES
      */
     int type;              // data type of the result
-    String value;          // value of the result
+    private String value;  // value of the result, null until it is made (see 'getValue')
     int structure;         // primitive, fixed array, unbounded array
     String terminatingStr; // used for end of lists of things (e.g., a list
                            // of statements might be terminated by "endwhile")
     
+    // Number of the value, so that it is not parsed from the string again.
+    // A value set by 'setInteger', 'setFloat', 'setDate' or 'setBoolean' only
+    // has its number, and its string is made from the number the first time it
+    // is read. The number is only the value's while 'numericType' is the same
+    // as 'type'; 'setValue' and changing the type make it be parsed again when
+    // it is needed.
+    int integerValue;      // number of an INTEGER value, or day number of a DATE value (see 'Utility.dateToJulian')
+    double doubleValue;    // number of a FLOAT value
+    boolean boolValue;     // truth of a BOOLEAN value, written "T" or "F"
+    int numericType;       // 'type' the number was made for, NO_NUMBER if there is none
+    
+    // Builder of a STRING value made by appending with '#', so that appending
+    // to it again does not copy the string. The value is the first 'iRopeLen'
+    // characters of 'ropeSb'; 'value' is null until the string is needed (see
+    // 'flatten'), and the builder is only used while 'value' is still null or
+    // the same object as 'ropeStr'. Values may share a builder, each one
+    // being a different length of it.
+    StringBuilder ropeSb;  // builder with the characters of the value
+    int iRopeLen;          // length of the value in 'ropeSb'
+    String ropeStr;        // 'value' made from 'ropeSb'
+    
+    public static final int NO_NUMBER = 0; // 'numericType' of a value without a number
+    
     // Constants for data type of result are located in Token's OPERAND subclassifications
     /*
      * public static final int INTEGER = 2; // integer constant
@@ -51,4 +74,226 @@ public class ResultValue
         structure = -1;
         terminatingStr = "";
     }
+    
+    /**
+     * Gets the string of the value
+     * <p>
+     * A value that only has its number, or that was made by 'append', has its
+     * string made the first time it is read.
+     * @return - The value as it is written
+     */
+    String getValue()
+    {
+        if(value == null)
+        {
+            if(ropeSb != null)
+            {
+                flatten();
+            }
+            else
+            {
+                value = numberStr();
+            }
+        }
+        return value;
+    }
+    
+    /**
+     * Sets the string of the value, which no longer has a number
+     * <p>
+     * @param value  - The value as it is written
+     */
+    void setValue(String value)
+    {
+        this.value = value;
+        this.numericType = NO_NUMBER;
+        this.ropeSb = null;
+    }
+    
+    /**
+     * Sets how a value that keeps its number is written (e.g., "007" for the INTEGER 7)
+     * <p>
+     * @param value  - The value as it is written, which must be the number of 'numericType'
+     */
+    void setNumberStr(String value)
+    {
+        this.value = value;
+        this.ropeSb = null;
+    }
+    
+    /**
+     * Sets the result to an INTEGER value, keeping its number
+     * <p>
+     * @param iValue  - The number of the value
+     */
+    void setInteger(int iValue)
+    {
+        this.type = Token.INTEGER;
+        this.value = null;
+        this.integerValue = iValue;
+        this.numericType = Token.INTEGER;
+        this.ropeSb = null;
+    }
+    
+    /**
+     * Sets the result to a FLOAT value, keeping its number
+     * <p>
+     * @param dValue  - The number of the value
+     */
+    void setFloat(double dValue)
+    {
+        this.type = Token.FLOAT;
+        this.value = null;
+        this.doubleValue = dValue;
+        this.numericType = Token.FLOAT;
+        this.ropeSb = null;
+    }
+    
+    /**
+     * Sets the result to a DATE value, keeping its day number
+     * <p>
+     * @param iDay  - The day number of the date (see 'Utility.dateToJulian')
+     */
+    void setDate(int iDay)
+    {
+        this.type = Token.DATE;
+        this.value = null;
+        this.integerValue = iDay;
+        this.numericType = Token.DATE;
+        this.ropeSb = null;
+    }
+    
+    /**
+     * Sets the result to a BOOLEAN value, keeping its truth
+     * <p>
+     * @param bValue  - The truth of the value
+     */
+    void setBoolean(boolean bValue)
+    {
+        this.type = Token.BOOLEAN;
+        this.value = null;
+        this.boolValue = bValue;
+        this.numericType = Token.BOOLEAN;
+        this.ropeSb = null;
+    }
+    
+    /**
+     * Checks if the kept number is still the number of the value
+     * <p>
+     * @return - true if 'integerValue', 'doubleValue' or 'boolValue' may be used instead of parsing 'value'
+     *           (or instead of checking and parsing a DATE value)
+     */
+    boolean hasNumber()
+    {
+        return numericType != NO_NUMBER && numericType == type;
+    }
+    
+    /**
+     * Checks if a BOOLEAN value is true, without comparing its string when it has its truth
+     * <p>
+     * @return - true if the value is "T"
+     */
+    boolean isTrue()
+    {
+        return hasNumber() ? boolValue : getValue().equals("T");
+    }
+    
+    /**
+     * Gets a copy of the result, whose string is still made when it is first read
+     * <p>
+     * @return - A new ResultValue with the same value, number and structure
+     */
+    ResultValue copy()
+    {
+        ResultValue resCopy = new ResultValue();
+        resCopy.type = this.type;
+        resCopy.value = this.value;
+        resCopy.structure = this.structure;
+        resCopy.integerValue = this.integerValue;
+        resCopy.doubleValue = this.doubleValue;
+        resCopy.boolValue = this.boolValue;
+        resCopy.numericType = this.numericType;
+        resCopy.ropeSb = this.ropeSb;
+        resCopy.iRopeLen = this.iRopeLen;
+        resCopy.ropeStr = this.ropeStr;
+        return resCopy;
+    }
+    
+    /**
+     * Makes the string of a value that only has its number
+     * <p>
+     * @return - The number written the usual way for 'numericType'
+     */
+    private String numberStr()
+    {
+        switch(numericType)
+        {
+            case Token.INTEGER:
+                return Integer.toString(integerValue);
+            case Token.FLOAT:
+                return Double.toString(doubleValue);
+            case Token.DATE:
+                return Utility.julianToDate(integerValue);
+            case Token.BOOLEAN:
+                return boolValue ? "T" : "F";
+            default:
+                return null;
+        }
+    }
+    
+    /**
+     * Makes 'value' from the builder of a value made by 'append'
+     * <p>
+     * Anything that gets a variable's value from the storage manager has it
+     * flattened first, so a value built by appending is only ever without its
+     * string inside the frame.
+     */
+    void flatten()
+    {
+        if(value == null && ropeSb != null)
+        {
+            value = ropeSb.substring(0, iRopeLen);
+            ropeStr = value;
+        }
+    }
+    
+    /**
+     * Gets a new STRING value of this STRING value followed by a string
+     * <p>
+     * If nothing has been appended to the builder of this value, the new value
+     * appends to the same builder instead of copying this value, so appending
+     * to a variable in a loop takes time for the appended characters only.
+     * This value is not changed.
+     * @param appendStr  - The string to append
+     * @return           - The new value, with a null 'value' until it is flattened
+     */
+    ResultValue append(String appendStr)
+    {
+        StringBuilder sb;
+        if(ropeSb != null && (value == null || value == ropeStr) && iRopeLen == ropeSb.length())
+        {
+            sb = ropeSb;
+        }
+        else if(ropeSb != null && (value == null || value == ropeStr))
+        {
+            // Something else was appended after this value, so its part is copied
+            sb = new StringBuilder(iRopeLen * 2 + appendStr.length());
+            sb.append(ropeSb, 0, iRopeLen);
+        }
+        else
+        {
+            String valueStr = getValue();
+            sb = new StringBuilder(valueStr.length() * 2 + appendStr.length());
+            sb.append(valueStr);
+        }
+        sb.append(appendStr);
+        
+        ResultValue resReturn = new ResultValue();
+        resReturn.type = Token.STRING;
+        resReturn.structure = STIdentifier.PRIMITVE;
+        resReturn.value = null;
+        resReturn.ropeSb = sb;
+        resReturn.iRopeLen = sb.length();
+        return resReturn;
+    }
 }
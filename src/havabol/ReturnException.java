@@ -0,0 +1,23 @@
+package havabol;
+
+/**
+ * @desc
+ * Ends the statements of a user defined function at a 'return', while the
+ * parser is executing one statement at a time
+ * <p>
+ * 'Parser.callUser' catches it and takes the returned value. A 'return' happens
+ * on every call of most functions, so the parser throws the same exception each
+ * time and it has no stack trace to fill in.
+ *
+ * @authors Taylor Brauer, Caleb Mussulman, Steven Cenci
+ */
+public class ReturnException extends Exception
+{
+    private static final long serialVersionUID = 1L;
+    public ResultValue resReturn; // the returned value, null for a 'Void' function
+    
+    ReturnException()
+    {
+        super(null, null, false, false);
+    }
+}
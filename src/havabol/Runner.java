@@ -0,0 +1,310 @@
+/*
+  Runs many havabol source files in one JVM, each with its own interpreter.
+  Command Arguments:
+      java havabol.Runner [-threads N] [-o outDir] [-cache cacheDir] path...
+             path is a havabol source file, or a directory whose files (and the
+             files of its subdirectories) are all run, in order of their names.
+             N is the number of files run at the same time (the number of processors
+             if not given).
+             outDir is a directory to write the output of each file to, instead of
+             standard output, at the file's path under outDir with ".out" added
+             (Testing/Positive/p1.txt is outDir/Testing/Positive/p1.txt.out). The
+             path's root and any leading ".." are left out, so every output is in outDir.
+             cacheDir is a directory of compiled programs, as with 'Havabol -cache'.
+  Output:
+      The output of each file, in the order the files were given, after a
+      "==> file <==" line. An error ends the output of its file, the same as
+      it ends a run of 'Havabol', but only the error's message is printed.
+      The number of files that ran and that ended with an error is printed to
+      standard error at the end, and the exit status is 1 if any file ended
+      with an error.
+ */
+package havabol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class Runner
+{
+    // The output of the file each thread is running, for what the debuggers print to 'System.out' and 'System.err'
+    private static final ThreadLocal<OutputStream> threadOutput = new ThreadLocal<OutputStream>();
+    
+    public static void main(String[] args)
+    {
+        int iThreads = Runtime.getRuntime().availableProcessors();
+        String outDirNm = null;
+        ProgramCache cache = null;
+        ArrayList<File> fileList = new ArrayList<File>();
+        
+        // Get the options and the files to run
+        for(int i = 0; i < args.length; i++)
+        {
+            if(args[i].equals("-threads") && i + 1 < args.length)
+            {
+                iThreads = Math.max(1, Integer.parseInt(args[++i]));
+            }
+            else if(args[i].equals("-o") && i + 1 < args.length)
+            {
+                outDirNm = args[++i];
+            }
+            else if(args[i].equals("-cache") && i + 1 < args.length)
+            {
+                cache = new ProgramCache(args[++i]);
+            }
+            else
+            {
+                listFiles(new File(args[i]), fileList);
+            }
+        }
+        
+        // Each thread's debuggers print into the output of the file it is running
+        PrintStream standardOut = System.out;
+        PrintStream standardErr = System.err;
+        System.setOut(new PrintStream(new ThreadOutputStream(standardOut), false));
+        System.setErr(new PrintStream(new ThreadOutputStream(standardErr), false));
+        
+        // Each script is run on a thread whose stack has room for the most nested calls
+        ExecutorService pool = Executors.newFixedThreadPool(iThreads
+                                   , task -> new Thread(null, task, "havabol-runner", StorageManager.STACK_SIZE));
+        int iErrorCnt = 0;
+        try
+        {
+            ArrayList<Future<Result>> resultList = new ArrayList<Future<Result>>();
+            HashSet<File> outFileSet = new HashSet<File>();
+            ProgramCache programCache = cache;
+            for(File file : fileList)
+            {
+                resultList.add(pool.submit(() -> run(file.getPath(), programCache)));
+            }
+            
+            // Write the output of each file in order, as soon as it is done
+            for(int i = 0; i < fileList.size(); i++)
+            {
+                Result result;
+                try
+                {
+                    result = resultList.get(i).get();
+                }
+                catch(ExecutionException e)
+                {
+                    // 'run' keeps every error of its file, but the other files are still written if it did not
+                    result = new Result();
+                    result.output = new ByteArrayOutputStream();
+                    result.error = e.getCause();
+                    result.output.write(e.getCause().toString().getBytes());
+                    result.output.write('\n');
+                }
+                if(result.error != null)
+                {
+                    iErrorCnt++;
+                }
+                if(outDirNm != null)
+                {
+                    File outFile = outFile(outDirNm, fileList.get(i));
+                    
+                    // Paths such as "a.txt" and "./a.txt", or "../a.txt" and "a.txt", have the same output file
+                    if(! outFileSet.add(outFile))
+                    {
+                        System.err.printf("%s: output not written, %s already has the output of another path\n"
+                                          , fileList.get(i).getPath(), outFile.getPath());
+                        iErrorCnt++;
+                        continue;
+                    }
+                    outFile.getParentFile().mkdirs();
+                    try(FileOutputStream fileOut = new FileOutputStream(outFile))
+                    {
+                        result.output.writeTo(fileOut);
+                    }
+                }
+                else
+                {
+                    standardOut.printf("==> %s <==\n", fileList.get(i).getPath());
+                    result.output.writeTo(standardOut);
+                }
+            }
+        }
+        catch(Exception e)
+        {
+            e.printStackTrace();
+            iErrorCnt++;
+        }
+        finally
+        {
+            pool.shutdown();
+            standardOut.flush();
+            System.setOut(standardOut);
+            System.setErr(standardErr);
+        }
+        System.err.printf("%d files run, %d ended with an error\n", fileList.size(), iErrorCnt);
+        if(iErrorCnt > 0)
+        {
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * The output of one file, and the error that ended it
+     */
+    static class Result
+    {
+        ByteArrayOutputStream output;
+        Throwable error;    // null if the file ran to its end
+    }
+    
+    /**
+     * Runs a file with its own symbol table, scanner and parser, keeping its output
+     * <p>
+     * Nothing an interpreter changes is shared with another one, so any number
+     * of files can be run at the same time, each on its own thread. An error that
+     * ends the file, and the profile if 'debug Profile' was used, are added to
+     * the end of its output. That includes a JVM error such as running out of
+     * memory, which only ends its own file.
+     * @param sourceFileNm  the name of the file
+     * @param cache         the cache of compiled programs, or null to lex and build the file
+     * @return              the output of the file, and its error if it had one
+     */
+    static Result run(String sourceFileNm, ProgramCache cache)
+    {
+        Result result = new Result();
+        result.output = new ByteArrayOutputStream();
+        Output output = new Output(Channels.newChannel(result.output));
+        PrintStream outStream = new PrintStream(output, false);
+        Parser parser = null;
+        
+        threadOutput.set(output);
+        try
+        {
+            SymbolTable symbolTable = new SymbolTable();
+            if(cache != null)
+            {
+                parser = cache.load(sourceFileNm, symbolTable);
+            }
+            else
+            {
+                parser = new Parser(new Scanner(sourceFileNm, symbolTable), symbolTable);
+            }
+            parser.output = output;
+            parser.parse();
+        }
+        catch(Throwable e)
+        {
+            result.error = e;
+            outStream.println(e);
+        }
+        finally
+        {
+            threadOutput.remove();
+            if(parser != null && parser.profiler.bUsed)
+            {
+                parser.profiler.exitAll();
+                parser.profiler.report(outStream);
+                try
+                {
+                    parser.profiler.writeCollapsed();
+                }
+                catch(IOException e)
+                {
+                    outStream.println(e);
+                }
+            }
+            outStream.flush();
+        }
+        return result;
+    }
+    
+    /**
+     * Gets the file to write the output of a file to, at the file's path under the output directory
+     * <p>
+     * The path's root and any ".." it starts with after it is normalized are left out,
+     * so the output is always inside the directory.
+     * @param outDirNm  the output directory
+     * @param file      the file that was run
+     * @return          the output file, whose name is the file's name with ".out" added
+     */
+    static File outFile(String outDirNm, File file)
+    {
+        Path path = file.toPath().normalize();
+        if(path.getRoot() != null)
+        {
+            path = path.getRoot().relativize(path);
+        }
+        int iFirst = 0;
+        while(iFirst < path.getNameCount() - 1 && path.getName(iFirst).toString().equals(".."))
+        {
+            iFirst++;
+        }
+        path = path.subpath(iFirst, path.getNameCount());
+        return new File(outDirNm, path.toString() + ".out");
+    }
+    
+    /**
+     * Adds a file to the list, or the files of a directory and its subdirectories, sorted by name
+     * @param file      the file or directory
+     * @param fileList  the list to add the files to
+     */
+    private static void listFiles(File file, ArrayList<File> fileList)
+    {
+        File[] fileM = file.listFiles();
+        if(fileM == null)
+        {
+            fileList.add(file);
+            return;
+        }
+        Arrays.sort(fileM);
+        for(File child : fileM)
+        {
+            listFiles(child, fileList);
+        }
+    }
+    
+    /**
+     * Writes to the output of the file the current thread is running,
+     * or to a standard stream if the thread is not running a file
+     */
+    private static class ThreadOutputStream extends OutputStream
+    {
+        private OutputStream standardStream;
+        
+        ThreadOutputStream(OutputStream standardStream)
+        {
+            this.standardStream = standardStream;
+        }
+        
+        private OutputStream current()
+        {
+            OutputStream out = threadOutput.get();
+            return out == null ? standardStream : out;
+        }
+        
+        @Override
+        public void write(int b) throws IOException
+        {
+            current().write(b);
+        }
+        
+        @Override
+        public void write(byte[] bytes, int iOffset, int iLength) throws IOException
+        {
+            current().write(bytes, iOffset, iLength);
+        }
+        
+        @Override
+        public void flush() throws IOException
+        {
+            current().flush();
+        }
+    }
+}
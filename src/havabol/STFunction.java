@@ -8,9 +8,18 @@ public class STFunction extends STEntry
     public int returnType;          // function's return type
     public int subClassif;          // function subclassification (builtin vs. user defined)
     public int numArgs;             // number of arguments the function takes
-    public ArrayList parmList;      // parameter list that will hold the function's parameters
+    public ArrayList<STIdentifier> parmList; // parameter list that will hold the function's parameters
     public SymbolTable symbolTable; // each user defined function will need it's own symbol table
     
+    // The following are only for a user defined function (see 'FunctionDefiner')
+    public STIdentifier[] parmM;    // the parameters, whose slots are the first ones of the function's scope
+    public boolean bHasRef;         // whether a parameter is passed by reference
+    public Scope scope;             // the locals of the function, which are resolved when it is defined
+    public Token defToken;          // the 'def' that starts the definition
+    public Token bodyToken;         // the ':' before the function's statements
+    public Token endToken;          // the 'enddef' after the function's statements
+    public ASTNode body;            // the statements of the function, once they are built into a tree
+    
     // Constants for return type of function are located in Token's OPERAND subclassifications
     /*
      * public static final int INTEGER = 2; // integer constant
@@ -13,18 +13,64 @@ public class Scanner
     public final static Map<Character, Character> escapeChars = Collections.unmodifiableMap(new HashMap<Character, Character>(){{
                                                                 put('"', '"'); put('\'', '\''); put('\\', '\\');
                                                                 put('n', '\n'); put('t', '\t'); put('a', (char)0x07);          }});
-    public final static List<String> tokensPrecedingUnaryMinus = Collections.unmodifiableList(Arrays.asList("=", "-=", "+=", "+"
-                                                                 , "-", "*", "/", "^", ">", "<", ">=", "<=", "!=", "#", "and"
-                                                                 , "or", "not", "if", "select", "while", "when", "(", "[", ","
-                                                                 , "by", "to", "from", "in"));
+    public final static Set<String> tokensPrecedingUnaryMinus = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+                                                                "=", "-=", "+=", "+"
+                                                                , "-", "*", "/", "^", ">", "<", ">=", "<=", "!=", "#", "and"
+                                                                , "or", "not", "if", "select", "while", "when", "(", "[", ","
+                                                                , "by", "to", "from", "in", "return")));
+    
+    // Character classes of 'charClassM', made from the strings above
+    private final static int WHITESPACE = 1;
+    private final static int DELIMITER  = 2;
+    private final static int OPERATOR   = 4;
+    private final static int SEPARATOR  = 8;
+    private final static int DIGIT      = 16;
+    // Classes of each ASCII character, so a character is classified without searching the strings.
+    // A character past ASCII is in no class (see 'charClass')
+    private final static int[] charClassM = new int[128];
+    static
+    {
+        for(char ch = '0'; ch <= '9'; ch++)
+        {
+            charClassM[ch] |= DIGIT;
+        }
+        for(char ch : whitespace.toCharArray())
+        {
+            charClassM[ch] |= WHITESPACE;
+        }
+        for(char ch : delimiters.toCharArray())
+        {
+            charClassM[ch] |= DELIMITER;
+        }
+        for(char ch : charOperators.toCharArray())
+        {
+            charClassM[ch] |= OPERATOR;
+        }
+        for(char ch : separators.toCharArray())
+        {
+            charClassM[ch] |= SEPARATOR;
+        }
+    }
+    // Whether a minus sign after each predefined lexeme is a unary minus, indexed by the lexeme's id
+    private final static boolean[] precedesUnaryMinusM = new boolean[LexemeTable.PREDEFINED_CNT];
+    static
+    {
+        for(String lexeme : tokensPrecedingUnaryMinus)
+        {
+            precedesUnaryMinusM[LexemeTable.predefinedId(lexeme)] = true;
+        }
+    }
     public String sourceFileNm;
-    public ArrayList<String> sourceLineM;
+    public SourceFile sourceFile;
     public SymbolTable symbolTable;
-    public char[] textCharM;
+    public String textLine; // line being lexed, whose characters are read in place
     public int iSourceLineNr;
     public int iColPos;
     public Token currentToken;
     public Token nextToken;
+    public Token[] tokenM; // every token of the source file, lexed once when the scanner is created
+    public int iTokenIndex; // index into tokenM of the token that becomes the next token on 'getNext()'
+    public Exception lexException; // error found while lexing, raised once the scanner reaches it
     public boolean bShowToken; // Determines whether or not to print the current token's information
     public boolean bInDebugStmt; // Used to make sure we don't print token information if
                                       // currently parsing a debug statement
@@ -33,9 +79,11 @@ public class Scanner
      * Creates a Scanner object for scanning through the given file and
      * populating the given SymbolTable.
      * <p>
-     * The given file is opened (if it exists) and all lines are read in to an
-     * array list. The first line of input is read in (if it exists) and the first
-     * token for the file is fetched by calling the getNext() method.
+     * The given file is opened (if it exists) and its lines are read from a
+     * memory-mapped window of the file as they are lexed (see 'SourceFile'),
+     * so the lines themselves are never all kept at once. Every token of
+     * the file is then lexed into the token array,
+     * and the first token for the file is fetched by calling the getNext() method.
      * 
      * @param sourceFileNm The name of the source file to be read from
      * @param symbolTable The symbol table to be populated with tokens read from the file
@@ -44,22 +92,73 @@ public class Scanner
      */
     public Scanner(String sourceFileNm, SymbolTable symbolTable) throws Exception
     {
-        this.sourceFileNm = sourceFileNm;
+        this(open(sourceFileNm), symbolTable);
+    }
+    
+    /**
+     * Creates a Scanner object for scanning through the given source, which may
+     * be text that is not read from a file (see 'HavabolScriptEngine').
+     * <p>
+     * Every token of the source is lexed into the token array the same way
+     * as for a file, and the first token is fetched by calling the getNext() method.
+     * 
+     * @param sourceFile The source to be read from, which has not been read yet
+     * @param symbolTable The symbol table to be populated with tokens read from the source
+     * @throws Exception if there is an I/O error reading from the source
+     */
+    public Scanner(SourceFile sourceFile, SymbolTable symbolTable) throws Exception
+    {
+        this.sourceFileNm = sourceFile.getName();
         this.symbolTable = symbolTable;
         this.iSourceLineNr = 0;
         this.iColPos = 0;
-        this.sourceLineM = new ArrayList<String>();
         this.bShowToken = false;
         this.bInDebugStmt = true;
         
-        // Read all lines from input file
-        try(BufferedReader buffReader = new BufferedReader(new FileReader(sourceFileNm)))
+        // The lines are read from a memory-mapped window of the file as they are lexed
+        try
         {
-            String inputLine;
-            while((inputLine = buffReader.readLine()) != null)
-            {
-                sourceLineM.add(inputLine);
-            }
+            this.sourceFile = sourceFile;
+            this.textLine = sourceFile.nextLine();
+        }
+        catch(IOException e)
+        {
+            throw new Exception("IO error while opening/reading from file " + sourceFileNm + "\n" + e);
+        }
+        
+        // If the file is empty, just initialize to length 0 for a clean exit
+        if(this.textLine == null)
+        {
+            this.textLine = "";
+        }
+        
+        this.currentToken = new Token();
+        this.nextToken = new Token();
+        
+        // Pre-loaded value to print the first line of input on first call to getNext()
+        this.currentToken.iSourceLineNr = -1;
+        
+        // Lex the entire file once. Loops rewind the scanner with 'setPosition()', which
+        // now only has to move an index instead of lexing the same characters again
+        lexTokens();
+        sourceFile.close();
+        
+        this.getNext();
+    }
+    
+    /**
+     * Opens a source file for the Scanner
+     * <p>
+     * @param sourceFileNm The name of the source file
+     * @return The source file, not read yet
+     * @throws Exception if the file is not found
+     *                   if there is an I/O error opening the file
+     */
+    private static SourceFile open(String sourceFileNm) throws Exception
+    {
+        try
+        {
+            return new SourceFile(sourceFileNm);
         }
         catch(FileNotFoundException e)
         {
@@ -69,34 +168,113 @@ public class Scanner
         {
             throw new Exception("IO error while opening/reading from file " + sourceFileNm + "\n" + e);
         }
+    }
+    
+    /**
+     * Creates a Scanner object for tokens that were already lexed from the given file
+     * <p>
+     * This is how a cached program is read (see 'ProgramCache'): the tokens' lexemes
+     * must already be interned in the given SymbolTable, with the same ids. The file
+     * is only opened so its lines can be printed by the debuggers. The first token
+     * is fetched by calling the getNext() method, the same as the other constructor.
+     * 
+     * @param sourceFileNm The name of the source file the tokens were lexed from
+     * @param symbolTable The symbol table the tokens' lexemes are interned in
+     * @param tokenM The tokens, ending with the EOF token
+     * @throws Exception if the file is not found
+     *                   if there is an I/O error opening the file
+     */
+    public Scanner(String sourceFileNm, SymbolTable symbolTable, Token[] tokenM) throws Exception
+    {
+        this(new SourceFile(sourceFileNm), symbolTable, tokenM);
+    }
+    
+    /**
+     * Creates a Scanner object for tokens that were already lexed from the given source,
+     * which may be text that is not read from a file (see 'HavabolScriptEngine')
+     * 
+     * @param sourceFile The source the tokens were lexed from
+     * @param symbolTable The symbol table the tokens' lexemes are interned in
+     * @param tokenM The tokens, ending with the EOF token
+     * @throws Exception if there is an I/O error closing the source
+     */
+    public Scanner(SourceFile sourceFile, SymbolTable symbolTable, Token[] tokenM) throws Exception
+    {
+        this.sourceFileNm = sourceFile.getName();
+        this.symbolTable = symbolTable;
+        this.bShowToken = false;
+        this.bInDebugStmt = true;
+        this.sourceFile = sourceFile;
+        sourceFile.close();
+        
+        this.currentToken = new Token();
+        this.nextToken = new Token();
+        this.currentToken.iSourceLineNr = -1;
+        this.tokenM = tokenM;
+        this.iTokenIndex = 0;
         
-        // Initialize first line of input if the file is not empty
-        if(! sourceLineM.isEmpty())
+        this.getNext();
+    }
+    
+    /**
+     * Lexes the whole source file into the token array
+     * <p>
+     * Each token is lexed with the token before it, which is needed to
+     * classify a unary minus. The token's position in the array is saved
+     * in the token so that 'setPosition()' can jump straight back to it.
+     * The last token in the array is the EOF token. If the file contains
+     * a lexing error, the array stops at the error and the exception is
+     * kept until 'getNext()' actually reaches that point in the file, so
+     * the statements before the error still execute.
+     */
+    private void lexTokens()
+    {
+        ArrayList<Token> tokenList = new ArrayList<Token>();
+        Token prevToken = this.currentToken;
+        Token token;
+        
+        try
         {
-            this.textCharM = sourceLineM.get(iSourceLineNr).toCharArray();
+            do
+            {
+                token = lexToken(prevToken);
+                token.iTokenIndex = tokenList.size();
+                tokenList.add(token);
+                prevToken = token;
+            } while(token.primClassif != Token.EOF);
         }
-        // Otherwise, just initialize to length 0 for a clean exit
-        else
+        catch(Exception e)
         {
-            this.textCharM = new char [0];
+            this.lexException = e;
         }
         
+        this.tokenM = tokenList.toArray(new Token[tokenList.size()]);
+        this.iTokenIndex = 0;
+    }
+    
+    /**
+     * Moves the scanner back to the start of the file
+     * <p>
+     * The scanner is put back in the same state it was in right after
+     * it was created, as if no tokens had been read yet
+     * @throws Exception if the lexer found an error at the start of the file
+     */
+    public void rewind() throws Exception
+    {
         this.currentToken = new Token();
         this.nextToken = new Token();
-        
-        // Pre-loaded value to print the first line of input on first call to getNext()
         this.currentToken.iSourceLineNr = -1;
-        
+        this.bInDebugStmt = true;
+        this.iTokenIndex = 0;
         this.getNext();
     }
     
     /**
      * Sets the scanner's current scanning position
      * <p>
-     * Takes a token and uses its line number and column position
-     * to set the character array to where the scanner should start
-     * scanning on that line on the next call to 'getnext()'. These
-     * values would have been set in the token when it was scanned.
+     * Takes a token and uses its index in the token array to set
+     * where the scanner should continue on the next call to 'getNext()'.
+     * This index would have been set in the token when it was lexed.
      * Then calls getNext() twice in order to put that token into
      * the scanner's current token as well as get the correct
      * look-ahead token in the scanner's next token
@@ -104,9 +282,7 @@ public class Scanner
      */
     public void setPosition(Token positionToken) throws Exception
     {
-        this.iSourceLineNr = positionToken.iSourceLineNr;
-        this.iColPos = positionToken.iColPos;
-        textCharM = sourceLineM.get(iSourceLineNr).toCharArray();
+        this.iTokenIndex = positionToken.iTokenIndex;
         this.getNext();
         this.getNext();
     }
@@ -117,85 +293,144 @@ public class Scanner
      * <p>
      * The return value for the current token has already been determined. The
      * main task for this method is to prepare the following token for the next
-     * call to this function. All whitespace will be scanned over until a next
-     * token is reached, and that token will be classified and stored.
+     * call to this function. Since the file was lexed when the scanner was created,
+     * the following token is simply the next one in the token array. Once the array
+     * runs out, every call returns another EOF token (one line further each time).
      * 
      * @return The string value for the current token.
+     * @throws Exception if the lexer found an error at this point in the file
+     */
+    public String getNext() throws Exception
+    {
+        currentToken = nextToken;
+        
+        // Past the end of the lexed tokens
+        if(iTokenIndex >= tokenM.length)
+        {
+            // The file could not be lexed past this point
+            if(lexException != null)
+            {
+                throw lexException;
+            }
+            
+            // Keep handing out EOF tokens
+            nextToken = new Token();
+            nextToken.tokenStr = "";
+            nextToken.primClassif = Token.EOF;
+            nextToken.iSourceLineNr = currentToken.iSourceLineNr + 1;
+            return currentToken.tokenStr;
+        }
+        
+        nextToken = tokenM[iTokenIndex++];
+        
+        // At the end of the file, or the next token is a string literal
+        if((nextToken.primClassif == Token.EOF) || ((nextToken.primClassif == Token.OPERAND)
+           && ((nextToken.subClassif == Token.STRING) || (nextToken.subClassif == Token.DATE))))
+        {
+            return currentToken.tokenStr;
+        }
+        
+        // Don't print debug information if in a debug statement
+        if((nextToken.primClassif == Token.FUNCTION) && nextToken.tokenStr.equals("debug"))
+        {
+            bInDebugStmt = true;
+        }
+        
+        // Print the current token if the debugger is on and the parser
+        // is not currently on a debug statement
+        if(bShowToken && (! bInDebugStmt))
+        {
+            System.out.println("\t\t...");
+            System.out.print("\t\t");
+            currentToken.printToken();
+        }
+        
+        return currentToken.tokenStr;
+    }
+    
+    /**
+     * Lexes the token that follows the given token.
+     * <p>
+     * All whitespace and comments will be scanned over until a next
+     * token is reached, and that token will be classified and returned.
+     * 
+     * @param prevToken the token lexed right before this one (used to classify a unary minus)
+     * @return The lexed token, or an EOF token at the end of the file.
      * @throws Exception if a string literal is not terminated on the same line
      *                   if a numeric constant contains multiple decimals
      *                   if a numeric constant contains invalid characters
      */
-    public String getNext() throws Exception
+    private Token lexToken(Token prevToken) throws Exception
     {
         boolean bFoundDecimal;
         char chCurrentChar;
         char chTokenBegin;
-        char[] retCharM;
+        StringBuilder retStr; // a string literal's characters, only made if it has an escape
         int index;
         int iPrintLineNr;
-        int iRet;
+        int iLineLength = textLine.length();
         int iTokenBeginIndex;
         int iTokenLength;
         String error;
         
         /*
         // If the line numbers between tokens are different, print InvalidDateFirstParam line of input.
-        if(currentToken.iSourceLineNr != nextToken.iSourceLineNr)
+        if(currentToken.iSourceLineNr != token.iSourceLineNr)
         {
             iPrintLineNr = currentToken.iSourceLineNr;
             
             // Print all lines of input between the two tokens (possible blank lines).
-            while(iPrintLineNr <= nextToken.iSourceLineNr && nextToken.primClassif != Token.EOF)
+            while(iPrintLineNr <= token.iSourceLineNr && token.primClassif != Token.EOF)
             {
-                System.out.printf("%3d %s\n", iPrintLineNr + 2, sourceLineM.get(iPrintLineNr + 1));
+                System.out.printf("%3d %s\n", iPrintLineNr + 2, sourceFile.getLine(iPrintLineNr + 1));
                 iPrintLineNr++;
             }
             
         }
         */
-        currentToken = nextToken;
-        nextToken = new Token();
+        Token token = new Token();
         
         // Go through whitespace and comments until at a token or at the end of the file.
         while(true)
         {
             // Empty line or at the end of a line.
-            if(iColPos >= textCharM.length)
+            if(iColPos >= iLineLength)
             {
                 iSourceLineNr++;
                 
-                // At the end of the file.
-                if(iSourceLineNr >= sourceLineM.size())
+                // Get the next line, unless at the end of the file.
+                textLine = sourceFile.nextLine();
+                if(textLine == null)
                 {
-                    nextToken.tokenStr = "";
-                    nextToken.primClassif = Token.EOF;
-                    nextToken.iSourceLineNr = this.iSourceLineNr;
-                    return currentToken.tokenStr;
+                    token.tokenStr = "";
+                    token.primClassif = Token.EOF;
+                    token.iSourceLineNr = this.iSourceLineNr;
+                    return token;
                 }
                 
-                // Get the next line and reset the column position.
-                textCharM = sourceLineM.get(iSourceLineNr).toCharArray();
+                // Reset the column position.
+                iLineLength = textLine.length();
                 iColPos = 0;
             }
             // On line that contains characters.
             else
             {
                 // Check if on whitespace.
-                if(whitespace.indexOf(textCharM[iColPos]) > -1)
+                if((charClass(textLine.charAt(iColPos)) & WHITESPACE) != 0)
                 {
                     // On whitespace so move forward.
-                    while( (iColPos < textCharM.length) && (whitespace.indexOf(textCharM[iColPos]) > -1) )
+                    while( (iColPos < iLineLength) && ((charClass(textLine.charAt(iColPos)) & WHITESPACE) != 0) )
                     {
                         iColPos++;
                     }
                 }
                 // Check if at the beginning of comment which can be '//' or '$'
-                else if( (((iColPos + 1) < textCharM.length) && (textCharM[iColPos] == '/') && (textCharM[iColPos + 1] == '/'))
-                          || ((iColPos < textCharM.length) && (textCharM[iColPos] == '$')) )
+                else if( (((iColPos + 1) < iLineLength) && (textLine.charAt(iColPos) == '/') && (textLine.charAt(iColPos + 1) == '/'))
+                          || ((iColPos < iLineLength) && (textLine.charAt(iColPos) == '$')) )
                 {
                     // Skip the rest of the comment by setting the column position past the end of the line.
                     // Next iteration of the loop will get the next line, if it exists
-                    iColPos = textCharM.length;
+                    iColPos = iLineLength;
                 }
                 // On a token
                 else
@@ -208,53 +443,63 @@ public class Scanner
         // At the beginning of the next token.
         iTokenBeginIndex = iColPos;
         iTokenLength = -1;
-        chTokenBegin = textCharM[iTokenBeginIndex];
+        chTokenBegin = textLine.charAt(iTokenBeginIndex);
         
         // If token is a string literal, it will be scanned differently.
         if(chTokenBegin == '\"' || chTokenBegin == '\'')
         {
             iColPos++;
-            iRet = 0;
-            retCharM = new char[textCharM.length];
+            retStr = null;
             
             // String literal token will have quotes removed so start at next index.
             iTokenBeginIndex = iColPos;
             
             // Try to find the end of the string literal up until the end of the line.
-            while(iColPos < textCharM.length)
+            while(iColPos < iLineLength)
             {
                 // Check if the current character is a backslash
-                if(textCharM[iColPos] == '\\')
+                if(textLine.charAt(iColPos) == '\\')
                 {
+                    // The characters before the first escape are copied, and the rest are added as they are read
+                    if(retStr == null)
+                    {
+                        retStr = new StringBuilder(iLineLength - iTokenBeginIndex);
+                        retStr.append(textLine, iTokenBeginIndex, iColPos);
+                    }
+                    
                     // Go to the character after the backslash
                     iColPos++;
                     
                     // If the character after the backslash is a valid escape character, then replace it
                     // with its single byte hex value
-                    if( (iColPos < textCharM.length) && (escapeChars.containsKey(textCharM[iColPos])) )
+                    if( (iColPos < iLineLength) && (escapeChars.containsKey(textLine.charAt(iColPos))) )
                     {
-                        retCharM[iRet++] = escapeChars.get(textCharM[iColPos++]);
+                        retStr.append(escapeChars.get(textLine.charAt(iColPos++)));
                     }
                     // If the character after the backslash is not a valid escape character, then error
                     else
                     {
                         error = "Line "+ (iSourceLineNr + 1) + " Unknown escape sequence: '\\"
-                                + textCharM[iColPos] + "', File: " + sourceFileNm;
+                                + textLine.charAt(iColPos) + "', File: " + sourceFileNm;
                         throw new Exception(error);
                     }
                 }
                 // If there is a matching quote, then this is the end of the string.
-                else if(textCharM[iColPos] == chTokenBegin)
+                else if(textLine.charAt(iColPos) == chTokenBegin)
                 {
                     // Ending of string literal will not include the quote character.
-                    iTokenLength = iRet;
+                    iTokenLength = (retStr == null) ? iColPos - iTokenBeginIndex : retStr.length();
                     iColPos++;
                     break;
                 }
                 // Otherwise, just go to the next character
                 else
                 {
-                    retCharM[iRet++] = textCharM[iColPos++];
+                    if(retStr != null)
+                    {
+                        retStr.append(textLine.charAt(iColPos));
+                    }
+                    iColPos++;
                 }
             }
             
@@ -266,23 +511,23 @@ public class Scanner
             }
             
             // Initialize token as a String token.
-            nextToken.tokenStr = new String(retCharM, 0, iTokenLength);
-            nextToken.iSourceLineNr = this.iSourceLineNr;
-            nextToken.iColPos = iTokenBeginIndex - 1; // Put the beginning position on the quote
-            nextToken.primClassif = Token.OPERAND;
-            nextToken.subClassif = Token.STRING;
+            token.tokenStr = (retStr == null) ? textLine.substring(iTokenBeginIndex, iColPos - 1) : retStr.toString();
+            token.iSourceLineNr = this.iSourceLineNr;
+            token.iColPos = iTokenBeginIndex - 1; // Put the beginning position on the quote
+            token.primClassif = Token.OPERAND;
+            token.subClassif = Token.STRING;
             
             // The string may be a valid Date token
-            if(Utility.isValidDate(nextToken.tokenStr))
+            if(Utility.isValidDate(token.tokenStr))
             {
-            	nextToken.subClassif = Token.DATE;
+            	token.subClassif = Token.DATE;
             }
             
-            return currentToken.tokenStr;
+            return token;
         }
         
         // Token is not a string literal, so advance until end of line or a delimiter.
-        while( (iColPos < textCharM.length) && (delimiters.indexOf(textCharM[iColPos]) == -1) )
+        while( (iColPos < iLineLength) && ((charClass(textLine.charAt(iColPos)) & DELIMITER) == 0) )
         {
             iColPos++;
         }
@@ -295,89 +540,86 @@ public class Scanner
         
         // Initialize the token.
         iTokenLength = iColPos - iTokenBeginIndex;
-        nextToken.tokenStr = new String(textCharM, iTokenBeginIndex, iTokenLength);
-        nextToken.iColPos = iTokenBeginIndex;
-        nextToken.iSourceLineNr = this.iSourceLineNr;
+        token.tokenStr = textLine.substring(iTokenBeginIndex, iColPos);
+        token.iColPos = iTokenBeginIndex;
+        token.iSourceLineNr = this.iSourceLineNr;
         
         //Begin SymbolTable classifcations
-        // Check if the token is in our global symbol table
-        STEntry STEntryResult = symbolTable.getSymbol(nextToken.tokenStr);
+        // Check if the token is in our global symbol table, which is indexed by the id of the lexeme
+        int iLexemeId = symbolTable.lexemes.find(token.tokenStr);
+        STEntry STEntryResult = (iLexemeId >= 0) ? symbolTable.getSymbol(iLexemeId) : null;
         
         // Token has been pre-defined in the global symbol table
         if(STEntryResult != null)
         {
-            nextToken.primClassif = STEntryResult.primClassif;
+            token.primClassif = STEntryResult.primClassif;
+            intern(token, iLexemeId);
             
             // If token is control, add its type as the subclassification
             if (STEntryResult instanceof STControl)
             {
-                nextToken.subClassif = ((STControl) STEntryResult).subClassif;
+                token.subClassif = ((STControl) STEntryResult).subClassif;
             }
             // If token is a function, add its return type as the subclassification
             else if(STEntryResult instanceof STFunction)
             {
-                nextToken.subClassif = ((STFunction) STEntryResult).subClassif;
-                
-                // Don't print debug information if in a debug statement
-                if(((STFunction) STEntryResult).symbol.equals("debug"))
-                {
-                    bInDebugStmt = true;
-                }
+                token.subClassif = ((STFunction) STEntryResult).subClassif;
             }
             // If token is an operator, add its number of operands as subclassification
             else if(STEntryResult instanceof STOperator)
             {
-                nextToken.subClassif = ((STOperator) STEntryResult).subClassif;
+                token.subClassif = ((STOperator) STEntryResult).subClassif;
             }
             // If token is an identifier, then it is an OPERAND IDENTIFIER that has
             // already been declared (i.e., it is currently in the symbol table)
             else if(STEntryResult instanceof STIdentifier)
             {
-                nextToken.subClassif = Token.IDENTIFIER;
+                token.subClassif = Token.IDENTIFIER;
             }
         }   	
         // Token is an operator
-        else if( (charOperators.indexOf(nextToken.tokenStr) > -1) )
+        else if( (iTokenLength == 1) && ((charClass(chTokenBegin) & OPERATOR) != 0) )
         {
-            nextToken.primClassif = Token.OPERATOR;
-            nextToken.subClassif  = Token.BINARY;
+            token.primClassif = Token.OPERATOR;
+            token.subClassif  = Token.BINARY;
             
             // Check if the operator is a two character operator
-            if( (iColPos < textCharM.length) && (textCharM[iColPos] == '=') )
+            if( (iColPos < iLineLength) && (textLine.charAt(iColPos) == '=') )
             {
-                nextToken.tokenStr += "=";
+                token.tokenStr += "=";
                 iColPos++;
+                iLexemeId = symbolTable.getSlot(token.tokenStr);
             }
-            // Check if the operator is minus sign
-            else if(nextToken.tokenStr.equals("-"))
+            intern(token, iLexemeId);
+            
+            // Determine if a minus sign is a unary minus by checking what token precedes it
+            if(token.iLexemeId == LexemeTable.MINUS && (prevToken.iLexemeId >= 0)
+               && (prevToken.iLexemeId < LexemeTable.PREDEFINED_CNT) && precedesUnaryMinusM[prevToken.iLexemeId])
             {
-                // Determine if the minus sign is a unary minus by checking what token precedes it
-                if(tokensPrecedingUnaryMinus.contains(currentToken.tokenStr))
-                {
-                    nextToken.subClassif = Token.UNARY;
-                }
+                token.subClassif = Token.UNARY;
             }
         }
-        // Token is a separator
-        else if(separators.indexOf(nextToken.tokenStr) > -1)
+        // Token is a separator, whose lexeme is predefined
+        else if( (iTokenLength == 1) && ((charClass(chTokenBegin) & SEPARATOR) != 0) )
         {
-            nextToken.primClassif = Token.SEPARATOR;
+            token.primClassif = Token.SEPARATOR;
+            intern(token, iLexemeId);
         }
         // its an operand by default.
         else
         {
-            nextToken.primClassif = Token.OPERAND;
+            token.primClassif = Token.OPERAND;
 
             // NOT IN HASHTABLE
             // Determine if operand is a numeric constant. Must begin with a digit.
-            if( (chTokenBegin >= '0') && (chTokenBegin <= '9') )
+            if((charClass(chTokenBegin) & DIGIT) != 0)
             {
                 bFoundDecimal = false;
                 
                 // Check every other character to see it is a digit (possibility of 1 decimal).
                 for(index = 1; index < iTokenLength; index++)
                 {
-                    chCurrentChar = nextToken.tokenStr.charAt(index);
+                    chCurrentChar = token.tokenStr.charAt(index);
                     
                     // Check if there is a decimal.
                     if(chCurrentChar == '.')
@@ -391,15 +633,15 @@ public class Scanner
                         else
                         {
                             error = "Line "+ (iSourceLineNr + 1) + " Numeric constant contains multiple decimals: '"
-                                    + nextToken.tokenStr + "', File: " + sourceFileNm;
+                                    + token.tokenStr + "', File: " + sourceFileNm;
                             throw new Exception(error);
                         }
                     }
                     // Raise an error if there is a non-digit char.
-                    else if( (chCurrentChar < '0') || (chCurrentChar > '9') )
+                    else if((charClass(chCurrentChar) & DIGIT) == 0)
                     {
                         error = "Line "+ (iSourceLineNr + 1) + " Numeric constant contains invalid characters: '"
-                                + nextToken.tokenStr + "', File: " + sourceFileNm;
+                                + token.tokenStr + "', File: " + sourceFileNm;
                         throw new Exception(error);
                     }
                 }
@@ -407,35 +649,48 @@ public class Scanner
                 // Token is valid numeric constant. Now determine if it is float or integer.
                 if(bFoundDecimal)
                 {
-                    nextToken.subClassif = Token.FLOAT;
+                    token.subClassif = Token.FLOAT;
                 }
                 else
                 {
-                    nextToken.subClassif = Token.INTEGER;
+                    token.subClassif = Token.INTEGER;
                 }
             }
             // Determine if operand is a boolean constant
-            else if(nextToken.tokenStr.equals("T") || nextToken.tokenStr.equals("F"))
+            else if(token.tokenStr.equals("T") || token.tokenStr.equals("F"))
             {
-                nextToken.subClassif = Token.BOOLEAN;
+                token.subClassif = Token.BOOLEAN;
             }
             // Otherwise token is an identifier
             else
             {
-                nextToken.subClassif = Token.IDENTIFIER;
+                token.subClassif = Token.IDENTIFIER;
+                intern(token, (iLexemeId >= 0) ? iLexemeId : symbolTable.getSlot(token.tokenStr));
             }
         }
         
-        // Print the current token if the debugger is on and the parser
-        // is not currently on a debug statement
-        if(bShowToken && (! bInDebugStmt))
-        {
-            System.out.println("\t\t...");
-            System.out.print("\t\t");
-            currentToken.printToken();
-        }
-        
-        return currentToken.tokenStr;
+        return token;
+    }
+    
+    /**
+     * Gives a token the id of its lexeme, and the lexeme's canonical string
+     * in place of the token's own copy of it
+     * @param token      the token
+     * @param iLexemeId  the id of the token's lexeme
+     */
+    private void intern(Token token, int iLexemeId)
+    {
+        token.iLexemeId = iLexemeId;
+        token.tokenStr = symbolTable.lexemes.getLexeme(iLexemeId);
+    }
+    
+    /**
+     * Gets the character classes of a character from the table
+     * @param ch  the character
+     * @return    the classes (WHITESPACE, DELIMITER, ...) or'ed together, 0 for a character past ASCII
+     */
+    private static int charClass(char ch)
+    {
+        return (ch < 128) ? charClassM[ch] : 0;
     }
 }
-
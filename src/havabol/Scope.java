@@ -0,0 +1,183 @@
+package havabol;
+
+import java.util.ArrayList;
+
+/**
+ * @desc
+ * The local variables of a user defined function, each with its own slot
+ * <p>
+ * The parameters of a function, the variables it declares, and the control
+ * variables of its 'for' loops are its locals. They are found when the function
+ * is defined (see 'FunctionDefiner'), before anything is executed, so every
+ * identifier in the function is resolved to its slot by the id of its lexeme:
+ * the slot of a local, the slot of a local of a function it is defined in, or
+ * the id itself (the global slot) for anything else.
+ * <p>
+ * Scopes nest the way definitions do: the scope of a function defined in another
+ * function has the other function's scope as its parent, and is one deeper. A
+ * scope only keeps its own locals, in a small hash table by lexeme id, and an
+ * identifier that is not one of them is looked for in the surrounding scopes,
+ * so a local of its own hides a local of the same name in a surrounding scope.
+ * Resolving an identifier is then a probe of one small table for each scope it
+ * is nested in, and a program with many functions takes room for their locals
+ * only. The statements of an 'if', 'while', 'for' or 'select' are in the scope of the function they are in, since a variable
+ * declared in them is still declared after them.
+ * <p>
+ * A local's slot has the depth of its scope above 'DEPTH_SHIFT' and its index in
+ * the activation record below it, so a local slot is never a global slot. The
+ * storage manager gets the activation record of a depth from its display, and the
+ * local from the record (see 'ActivationRecord'), so using a variable of any
+ * scope is two array indexes.
+ *
+ * @authors Taylor Brauer, Caleb Mussulman, Steven Cenci
+ */
+public class Scope
+{
+    public static final int DEPTH_SHIFT = 24;
+    public static final int FIRST_LOCAL = 1 << DEPTH_SHIFT;  // smallest local slot; every global slot is less
+    public static final int INDEX_MASK  = FIRST_LOCAL - 1;   // index of a local slot in its activation record
+    public static final int MAX_DEPTH   = Integer.MAX_VALUE >>> DEPTH_SHIFT; // deepest scope a slot can have
+    
+    public int iDepth;                 // depth of the scope, 1 for a function that is not in another function
+    public STFunction function;        // the function whose locals the scope has
+    public Scope parent;               // scope of the function this one is defined in, null if there is none
+    private int[] idM;                 // lexeme id of each local of this scope, by its hash (see 'find')
+    private int[] slotM;               // slot of the local with the id in 'idM', 0 for an empty entry
+    private ArrayList<String> nameList;// name of each local, by its index
+    
+    /**
+     * Makes a scope with no locals of its own yet
+     * <p>
+     * Only its own locals are kept; those of the surrounding scopes are found
+     * through its parent, so a scope takes room for its own locals only.
+     * @param function   the function the scope is for
+     * @param parent     the scope of the function it is defined in, or null
+     */
+    Scope(STFunction function, Scope parent)
+    {
+        this.function = function;
+        this.parent = parent;
+        this.iDepth = (parent == null) ? 1 : parent.iDepth + 1;
+        this.idM = new int[8];
+        this.slotM = new int[8];
+        this.nameList = new ArrayList<String>();
+    }
+    
+    /**
+     * Makes a lexeme a local, unless it already is one of this scope
+     * @param iLexemeId  the id of the local's name
+     * @param name       the name
+     * @return           the slot of the local
+     */
+    int declare(int iLexemeId, String name)
+    {
+        int i = find(iLexemeId);
+        if(slotM[i] == 0)
+        {
+            // Keep the table at most half full, so an entry is found in a few tries
+            if((nameList.size() + 1) * 2 > slotM.length)
+            {
+                grow();
+                i = find(iLexemeId);
+            }
+            idM[i] = iLexemeId;
+            slotM[i] = (iDepth << DEPTH_SHIFT) | nameList.size();
+            nameList.add(name);
+        }
+        return slotM[i];
+    }
+    
+    /**
+     * Gets the slot an identifier has in this scope
+     * @param iLexemeId  the id of the identifier's lexeme
+     * @return           the slot of its local in this scope or the nearest surrounding
+     *                   one that has it, or the id (its global slot) if it is not a local
+     */
+    int resolve(int iLexemeId)
+    {
+        for(Scope s = this; s != null; s = s.parent)
+        {
+            int iSlot = s.slotM[s.find(iLexemeId)];
+            if(iSlot != 0)
+            {
+                return iSlot;
+            }
+        }
+        return iLexemeId;
+    }
+    
+    /**
+     * Gets the entry of a lexeme id in the table of this scope's own locals
+     * <p>
+     * The table is open addressed: an id starts at its hash, and is in the
+     * first entry from there that has it or is empty.
+     * @param iLexemeId  the id
+     * @return           the index of its entry, or of the empty entry it would go in
+     */
+    private int find(int iLexemeId)
+    {
+        int iMask = slotM.length - 1;
+        int i = (iLexemeId * 0x9E3779B9) >>> 16 & iMask;
+        while(slotM[i] != 0 && idM[i] != iLexemeId)
+        {
+            i = (i + 1) & iMask;
+        }
+        return i;
+    }
+    
+    /**
+     * Doubles the size of the table of this scope's own locals
+     */
+    private void grow()
+    {
+        int[] oldIdM = idM;
+        int[] oldSlotM = slotM;
+        idM = new int[oldSlotM.length * 2];
+        slotM = new int[oldSlotM.length * 2];
+        for(int i = 0; i < oldSlotM.length; i++)
+        {
+            if(oldSlotM[i] != 0)
+            {
+                int iNew = find(oldIdM[i]);
+                idM[iNew] = oldIdM[i];
+                slotM[iNew] = oldSlotM[i];
+            }
+        }
+    }
+    
+    /**
+     * Gets the number of locals, which is the size of an activation record of the scope
+     * @return  the number of locals
+     */
+    int size()
+    {
+        return nameList.size();
+    }
+    
+    /**
+     * Checks if a scope is this one or surrounds it
+     * @param scope  the scope
+     * @return       true if this scope is in that scope
+     */
+    boolean isIn(Scope scope)
+    {
+        for(Scope s = this; s != null; s = s.parent)
+        {
+            if(s == scope)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Gets the name of a local of this scope, for error messages
+     * @param iSlot  the slot of the local
+     * @return       its name
+     */
+    String nameOf(int iSlot)
+    {
+        return nameList.get(iSlot & INDEX_MASK);
+    }
+}
@@ -0,0 +1,291 @@
+package havabol;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * @desc
+ * Reads the lines of a source file from a memory-mapped window of the file
+ * <p>
+ * Only a window of the file is mapped at a time, and the window is moved
+ * forward when a line goes past its end, so a file of any size is read
+ * without holding it on the heap. Each line is decoded into a string when
+ * it is read, and is not kept after the lexer is done with it. Lines end
+ * the same way as with 'BufferedReader.readLine()', at a '\n', a '\r' or
+ * a "\r\n", which are found in the bytes themselves since the default
+ * character set is expected to encode them as single bytes.
+ * <p>
+ * The offsets of the lines are only indexed when a line is asked for by
+ * its number (see 'getLine'), which only the debuggers need to do.
+ * <p>
+ * A source that is not a file (see 'HavabolScriptEngine') is read the same
+ * way, from a window that holds all of its bytes and is never moved.
+ *
+ * @authors Taylor Brauer, Caleb Mussulman, Steven Cenci
+ */
+public class SourceFile
+{
+    public static final int WINDOW_SIZE = 64 * 1024 * 1024; // bytes of the file mapped at a time
+    
+    private String sourceFileNm;
+    private FileChannel channel;    // the file, or null once it is closed
+    private long lFileSize;
+    private ByteBuffer window;      // the part of the file being read
+    private boolean bInMemory;      // true if the window is the whole source, which is not a file
+    private long lWindowStart;      // offset in the file of the window's first byte
+    private int iPos;               // position in the window of the next line
+    private byte[] lineBytes;       // bytes of the line being decoded, reused for each line
+    private Charset charset;
+    private long[] lineStartM;      // offsets of the lines that have been indexed, made when first needed
+    private int iLinesIndexed;
+    
+    /**
+     * Opens a source file to read its lines from the start
+     * @param sourceFileNm the name of the file
+     * @throws IOException if the file is not found
+     *                     if there is an I/O error opening or mapping the file
+     */
+    public SourceFile(String sourceFileNm) throws IOException
+    {
+        this.sourceFileNm = sourceFileNm;
+        this.lineBytes = new byte[256];
+        this.charset = Charset.defaultCharset();
+        open();
+        seek(0);
+    }
+    
+    /**
+     * Makes a source file of text that is not read from a file
+     * @param sourceFileNm the name of the source, for the error messages
+     * @param text         the source's text
+     */
+    public SourceFile(String sourceFileNm, String text)
+    {
+        this.sourceFileNm = sourceFileNm;
+        this.lineBytes = new byte[256];
+        this.charset = Charset.defaultCharset();
+        this.window = ByteBuffer.wrap(text.getBytes(charset));
+        this.lFileSize = window.limit();
+        this.lWindowStart = 0;
+        this.iPos = 0;
+        this.bInMemory = true;
+    }
+    
+    /**
+     * Gets the name of the source file
+     * @return the name the file was opened with
+     */
+    public String getName()
+    {
+        return sourceFileNm;
+    }
+    
+    /**
+     * Reads the next line of the file
+     * @return             the line without its line terminator, or null at the end of the file
+     * @throws IOException if there is an I/O error reading from the file
+     */
+    public String nextLine() throws IOException
+    {
+        int iEnd = findLineEnd();
+        if(iEnd < 0)
+        {
+            return null;
+        }
+        
+        int iLength = iEnd - iPos;
+        if(iLength > lineBytes.length)
+        {
+            lineBytes = new byte[Math.max(iLength, lineBytes.length * 2)];
+        }
+        window.get(iPos, lineBytes, 0, iLength);
+        skipTerminator(iEnd);
+        
+        return new String(lineBytes, 0, iLength, charset);
+    }
+    
+    /**
+     * Gets a line of the file by its number, without moving the position of 'nextLine()'
+     * <p>
+     * The offsets of the lines are indexed as far as the line asked for, so
+     * the file is only scanned once no matter how many lines are asked for.
+     * The file is opened again if it has already been closed.
+     * @param iLineNr      the number of the line, starting at 0
+     * @return             the line, or null if the file does not have that many lines
+     * @throws IOException if there is an I/O error reading from the file
+     */
+    public String getLine(int iLineNr) throws IOException
+    {
+        if(channel == null && ! bInMemory)
+        {
+            open();
+        }
+        long lSavedPos = lWindowStart + iPos;
+        
+        if(lineStartM == null)
+        {
+            lineStartM = new long[64];
+            iLinesIndexed = 1; // the first line always starts at 0
+        }
+        
+        // Index the lines from the last one indexed up to the one wanted
+        seek(lineStartM[iLinesIndexed - 1]);
+        while(iLinesIndexed <= iLineNr)
+        {
+            int iEnd = findLineEnd();
+            if(iEnd < 0)
+            {
+                break;
+            }
+            skipTerminator(iEnd);
+            if(lWindowStart + iPos >= lFileSize)
+            {
+                break;
+            }
+            if(iLinesIndexed == lineStartM.length)
+            {
+                lineStartM = Arrays.copyOf(lineStartM, iLinesIndexed * 2);
+            }
+            lineStartM[iLinesIndexed++] = lWindowStart + iPos;
+        }
+        
+        String line = null;
+        if(iLineNr >= 0 && iLineNr < iLinesIndexed)
+        {
+            seek(lineStartM[iLineNr]);
+            line = nextLine();
+        }
+        seek(lSavedPos);
+        return line;
+    }
+    
+    /**
+     * Closes the file. The window that is mapped stays readable until it is freed
+     * @throws IOException if there is an I/O error closing the file
+     */
+    public void close() throws IOException
+    {
+        if(channel != null)
+        {
+            channel.close();
+            channel = null;
+        }
+    }
+    
+    /**
+     * Opens the file's channel
+     * @throws IOException if the file is not found, or could not be opened
+     */
+    private void open() throws IOException
+    {
+        // Opened through a stream so a missing file is a 'FileNotFoundException', as with a reader
+        this.channel = new FileInputStream(sourceFileNm).getChannel();
+        this.lFileSize = channel.size();
+    }
+    
+    /**
+     * Maps the window of the file that starts at an offset
+     * @param lOffset      the offset in the file to read from next
+     * @param lMinSize     the smallest number of bytes the window must hold
+     * @throws IOException if the file could not be mapped
+     */
+    private void map(long lOffset, long lMinSize) throws IOException
+    {
+        long lSize = Math.min(Math.max(WINDOW_SIZE, lMinSize), lFileSize - lOffset);
+        this.window = channel.map(FileChannel.MapMode.READ_ONLY, lOffset, lSize);
+        this.lWindowStart = lOffset;
+        this.iPos = 0;
+    }
+    
+    /**
+     * Moves the position of the next line to an offset in the file,
+     * mapping a new window if the offset is outside the current one
+     * @param lOffset      the offset in the file
+     * @throws IOException if the file could not be mapped
+     */
+    private void seek(long lOffset) throws IOException
+    {
+        if(window != null && lOffset >= lWindowStart && lOffset - lWindowStart <= window.limit())
+        {
+            this.iPos = (int) (lOffset - lWindowStart);
+        }
+        else
+        {
+            map(lOffset, 0);
+        }
+    }
+    
+    /**
+     * Finds the end of the line at the current position
+     * <p>
+     * If the line goes past the end of the window, the window is moved to
+     * start at the line, and made larger if the line is longer than a window.
+     * @return             the position in the window of the line's terminator
+     *                     (or of the end of the file), or -1 at the end of the file
+     * @throws IOException if the file could not be mapped
+     */
+    private int findLineEnd() throws IOException
+    {
+        if(lWindowStart + iPos >= lFileSize)
+        {
+            return -1;
+        }
+        
+        int i = iPos;
+        while(true)
+        {
+            int iLimit = window.limit();
+            while(i < iLimit)
+            {
+                byte b = window.get(i);
+                if(b == '\n' || b == '\r')
+                {
+                    return i;
+                }
+                i++;
+            }
+            
+            // The last line of the file does not need a terminator
+            if(lWindowStart + iLimit >= lFileSize)
+            {
+                return i;
+            }
+            
+            int iScanned = i - iPos;
+            map(lWindowStart + iPos, iScanned * 2L);
+            i = iScanned;
+        }
+    }
+    
+    /**
+     * Moves the position past a line and its terminator, treating "\r\n" as one terminator
+     * @param iEnd         the position in the window of the terminator
+     * @throws IOException if the file could not be mapped
+     */
+    private void skipTerminator(int iEnd) throws IOException
+    {
+        if(iEnd >= window.limit())
+        {
+            iPos = iEnd;
+            return;
+        }
+        
+        byte b = window.get(iEnd);
+        seek(lWindowStart + iEnd + 1);
+        if(b == '\r' && lWindowStart + iPos < lFileSize)
+        {
+            if(iPos >= window.limit())
+            {
+                map(lWindowStart + iPos, 0);
+            }
+            if(window.get(iPos) == '\n')
+            {
+                iPos++;
+            }
+        }
+    }
+}
@@ -1,29 +1,262 @@
 package havabol;
 import javax.xml.transform.Result;
-import java.util.HashMap;
+import java.util.Arrays;
 
 public class StorageManager
 {
     /* This class should NOT need fields for
     *  symbol and ResultValue because those variables
-    *  are stored in the hashtable, not in an instance of StorageManager
+    *  are stored in the frame, not in an instance of StorageManager
     */
-    public HashMap<String,ResultValue> sm;
+    //Each variable name is given a slot (an index into the frame) the first time it is seen.
+    //The slot is the id of the name in the lexeme table, so a variable whose Token already
+    //has the id is read and written without hashing its name.
+    //The locals of a user defined function have slots of their own (see 'Scope'), which
+    //index the activation record of the function's call instead of the frame.
+    public LexemeTable lexemes;  // gives out the slots, and has the name of the variable of each slot
+    public ResultValue[] frameM; // value of the variable of each slot, null if it has no value
+    public Scope scope;          // scope identifiers are resolved in, null outside of a function
+    public ActivationRecord[] displayM; // record of the call whose locals are used, by the depth of its scope
+    private ActivationRecord[] recordM; // records of the calls that have not returned, reused by the next calls
+    private int iCallCnt;        // number of calls that have not returned
+    
+    // Most calls that may be running at once, so a recursion with no end is an error
+    // (a thread with a small stack may run out of Java stack first, which is the same error)
+    public static final int MAX_CALL_DEPTH = 2000;
+    
+    // Java stack of the threads scripts are run on, with room for MAX_CALL_DEPTH calls of
+    // functions whose statements are nested several levels deep (about 8 MB are used by
+    // 2000 calls of a 'return' in an 'if' in a 'for' in a 'while'); it is only reserved
+    // until the calls use it
+    public static final long STACK_SIZE = 64L << 20;
 
     /**
-     * Simply creates HashMap that will effectively be our
+     * Simply creates the empty frame that will effectively be our
      * StorageManager.
      * <p>
+     * @param lexemes - The lexeme table whose ids are the slots of the frame
+     */
+    StorageManager(LexemeTable lexemes)
+    {
+        //Create a InvalidDateFirstParam frame -- Empty
+        this.lexemes = lexemes;
+        frameM = new ResultValue[Math.max(16, lexemes.size())];
+        displayM = new ActivationRecord[2];
+        recordM = new ActivationRecord[16];
+    }
+    
+    /**
+     * Gets the slot of a variable, giving it the next slot if it does not have one yet
+     * <p>
+     * A name keeps its slot when it is re-declared; only the value in the slot is replaced.
+     * In a function, the slot of a local is that of the current call.
+     * @param symbol - Variable name in Havabol
+     * @return       - The index of the variable's value in the frame, or its local slot
+     */
+    int getSlot(String symbol)
+    {
+        return resolve(intern(symbol));
+    }
+    
+    /**
+     * Gets the id of a name, giving it the next id if it does not have one yet
+     * <p>
+     * @param symbol - Variable name in Havabol
+     * @return       - The id, which is the name's global slot
+     */
+    int intern(String symbol)
+    {
+        int iId = lexemes.intern(symbol);
+        
+        //Grow the frame if the slot is past its end
+        if(iId >= frameM.length)
+        {
+            frameM = Arrays.copyOf(frameM, Math.max(iId + 1, frameM.length * 2));
+        }
+        return iId;
+    }
+    
+    /**
+     * Gets the slot of an identifier in the current scope
+     * <p>
+     * @param iLexemeId - The id of the identifier's lexeme
+     * @return          - The slot of the local it names, or the id itself for a global
+     */
+    int resolve(int iLexemeId)
+    {
+        return (scope == null) ? iLexemeId : scope.resolve(iLexemeId);
+    }
+    
+    /**
+     * Gets the name of the variable of a slot, for error messages
+     * <p>
+     * @param iSlot - Slot of the variable
+     * @return      - The name
+     */
+    String nameOf(int iSlot)
+    {
+        return (iSlot < Scope.FIRST_LOCAL) ? lexemes.getLexeme(iSlot) : displayM[iSlot >>> Scope.DEPTH_SHIFT].scope.nameOf(iSlot);
+    }
+    
+    /**
+     * Gets the value in a slot, from the frame or from the record of the local's call
+     * <p>
+     * @param iSlot - Slot of the variable
+     * @return      - The value, null if the variable has no value
      */
-    StorageManager()
+    private ResultValue slotValue(int iSlot)
     {
-        //Create a InvalidDateFirstParam HashMap -- Empty
-        sm = new HashMap<String,ResultValue>();
+        if(iSlot < Scope.FIRST_LOCAL)
+        {
+            return frameM[iSlot];
+        }
+        return displayM[iSlot >>> Scope.DEPTH_SHIFT].valueM[iSlot & Scope.INDEX_MASK];
+    }
+    
+    /**
+     * Puts a value in a slot, in the frame or in the record of the local's call
+     * <p>
+     * @param iSlot - Slot of the variable
+     * @param value - The value, or null to remove the variable's value
+     */
+    private void setSlotValue(int iSlot, ResultValue value)
+    {
+        if(iSlot < Scope.FIRST_LOCAL)
+        {
+            frameM[iSlot] = value;
+        }
+        else
+        {
+            displayM[iSlot >>> Scope.DEPTH_SHIFT].valueM[iSlot & Scope.INDEX_MASK] = value;
+        }
+    }
+    
+    /**
+     * Starts a call of a user defined function, whose locals are then resolved and stored
+     * in the next record of the stack
+     * <p>
+     * A function defined in another function can only be called from the statements
+     * of that function, so the display has the records of the calls of the functions
+     * it is in, which are the latest ones.
+     * @param errParse - Used for error handling
+     * @param scope    - The scope of the function
+     * @return         - The record of the call, which has no locals yet
+     * @throws Exception if too many calls are already running
+     *                   if the function is called outside of the function it is defined in
+     */
+    ActivationRecord pushRecord(Parser errParse, Scope scope) throws Exception
+    {
+        if(iCallCnt == MAX_CALL_DEPTH)
+        {
+            errParse.error("Too many nested calls of function '%s', more than %d", scope.function.symbol, MAX_CALL_DEPTH);
+        }
+        if(scope.parent != null && (this.scope == null || ! this.scope.isIn(scope.parent)))
+        {
+            errParse.error("Function '%s' can only be called in function '%s'", scope.function.symbol, scope.parent.function.symbol);
+        }
+        if(iCallCnt == recordM.length)
+        {
+            recordM = Arrays.copyOf(recordM, recordM.length * 2);
+        }
+        ActivationRecord record = recordM[iCallCnt];
+        if(record == null)
+        {
+            record = new ActivationRecord();
+            recordM[iCallCnt] = record;
+        }
+        iCallCnt++;
+        record.reset(scope);
+        
+        if(scope.iDepth >= displayM.length)
+        {
+            displayM = Arrays.copyOf(displayM, scope.iDepth + 1);
+        }
+        record.savedRecord = displayM[scope.iDepth];
+        record.savedScope = this.scope;
+        displayM[scope.iDepth] = record;
+        this.scope = scope;
+        return record;
+    }
+    
+    /**
+     * Ends the latest call, putting back the scope and the record that it replaced
+     * <p>
+     * The record keeps the values of its locals until the next call uses it.
+     * @return - The record of the call
+     */
+    ActivationRecord popRecord()
+    {
+        ActivationRecord record = recordM[--iCallCnt];
+        displayM[record.scope.iDepth] = record.savedRecord;
+        this.scope = record.savedScope;
+        return record;
+    }
+    
+    /**
+     * Takes away the value of every variable and ends every call, so the frame
+     * is as it was made
+     * <p>
+     * The records are kept, to be reused by the next calls.
+     */
+    void clear()
+    {
+        Arrays.fill(frameM, null);
+        Arrays.fill(displayM, null);
+        scope = null;
+        iCallCnt = 0;
+    }
+    
+    /**
+     * Gets the number of calls that are running
+     * <p>
+     * @return - The number of calls that have not returned
+     */
+    int callDepth()
+    {
+        return iCallCnt;
+    }
+    
+    /**
+     * Gets the record of the call that is running
+     * <p>
+     * @return - The record, or null if no function is running
+     */
+    ActivationRecord currentRecord()
+    {
+        return (iCallCnt == 0) ? null : recordM[iCallCnt - 1];
+    }
+    
+    /**
+     * Gets the value in a slot without checking it, null if the variable has no value
+     * <p>
+     * @param iSlot - Slot of the variable
+     * @return      - ResultValue Object Reference from the frame
+     */
+    ResultValue getValue(int iSlot)
+    {
+        ResultValue value = slotValue(iSlot);
+        if(value != null)
+        {
+            value.flatten();
+        }
+        return value;
+    }
+    
+    /**
+     * Gets the value in a slot without making the string of a value built by
+     * appending, null if the variable has no value
+     * <p>
+     * @param iSlot - Slot of the variable
+     * @return      - ResultValue Object Reference from the frame, whose 'value' may be null
+     */
+    ResultValue getAppendValue(int iSlot)
+    {
+        return slotValue(iSlot);
     }
     
     /**
      * The function that will be used to store a variable value
-     * into the HashMap using it's associated symbol (variable)
+     * into the frame using it's associated symbol (variable)
      * <p>
      * 
      * @param symbol
@@ -31,9 +264,20 @@ public class StorageManager
      */
     void putVariableValue(Parser errParse, String symbol, ResultValue value)
     {
-        //TODO: Check if <key,value> is already in the HT.?
+        putVariableValue(errParse, getSlot(symbol), value);
+    }
+    
+    /**
+     * Stores a variable value into the slot of the variable
+     * <p>
+     * @param errParse - Used for error handling
+     * @param iSlot    - Slot of the variable
+     * @param value    - The value, or null to remove the variable's value
+     */
+    void putVariableValue(Parser errParse, int iSlot, ResultValue value)
+    {
         //Stores the object reference to a ResultValue.
-        sm.put(symbol, value);
+        setSlotValue(iSlot, value);
     }
     
     /**
@@ -45,25 +289,39 @@ public class StorageManager
      * the value as a string...
      * Conversion will be done by numeric class
      * @param symbol - Key for the ResultValue (Variable name in Havabol)
-     * @return       - ResultValue Object Reference from HashTable sm.
+     * @return       - ResultValue Object Reference from the frame.
      */
     ResultValue getVariableValue(Parser errParse, String symbol) throws Exception
+    {
+        return getVariableValue(errParse, getSlot(symbol));
+    }
+    
+    /**
+     * Gets the value in the slot of a variable
+     * <p>
+     * @param errParse - Used for error handling
+     * @param iSlot    - Slot of the variable
+     * @return         - ResultValue Object Reference from the frame
+     * @throws Exception if the variable does not have a value
+     */
+    ResultValue getVariableValue(Parser errParse, int iSlot) throws Exception
     {
         ResultValue resValue;
-        resValue = sm.get(symbol);
+        resValue = slotValue(iSlot);
         //We need to check if our symbol is in the StorageManager
         if (resValue == null)
         {
             //There is no value associated with that (valid) key
             //Call parser.error to call the ParserException
-            errParse.error("Uninitialized value for variable '%s'", symbol);
+            errParse.error("Uninitialized value for variable '%s'", nameOf(iSlot));
         }
         //The value exists
+        resValue.flatten();
         return resValue;
     }
 
     /**
-     * Stores an array into the StorageManager HashMap sm.
+     * Stores an array into the StorageManager frame.
      * <p>
      * @param errParse    - Used for error handling
      * @param symbol      - Key for the ResultArray (Array name in Havabol)
@@ -72,24 +330,36 @@ public class StorageManager
      */
     void putResultArray(Parser errParse, String symbol, ResultArray resultArray) throws Exception
     {
-        sm.put(symbol, resultArray);
+        setSlotValue(getSlot(symbol), resultArray);
     }
 
     /**
-     * Gets a reference to the ResultArray Object within the HashTable sm.
+     * Gets a reference to the ResultArray Object within the frame.
      * <p>
      * @param errParse - Used for error handling
      * @param symbol - Key for the ResultArray (Array Variable name in Havabol)
-     * @return       - ResultArray Object Reference from HashTable sm.
+     * @return       - ResultArray Object Reference from the frame.
      */
     ResultArray getResultArray(Parser errParse, String symbol) throws Exception
+    {
+        return getResultArray(errParse, getSlot(symbol));
+    }
+    
+    /**
+     * Gets a reference to the ResultArray Object in the slot of an array variable.
+     * <p>
+     * @param errParse - Used for error handling
+     * @param iSlot    - Slot of the array variable
+     * @return         - ResultArray Object Reference from the frame.
+     */
+    ResultArray getResultArray(Parser errParse, int iSlot) throws Exception
     {
         ResultArray resultArray;
-        resultArray = (ResultArray) sm.get(symbol);
+        resultArray = (ResultArray) slotValue(iSlot);
         if(resultArray == null)
         {
             //Could not find reference to array in storageManager
-            errParse.error("Could not find reference to array '%s'", symbol);
+            errParse.error("Could not find reference to array '%s'", nameOf(iSlot));
         }
         return resultArray;
     }
@@ -112,16 +382,30 @@ public class StorageManager
      * @throws Exception  - ...
      */
     void arrayAssignElem(Parser errParse, String symbol, ResultValue resultValue, ResultValue index) throws Exception {
+        arrayAssignElem(errParse, getSlot(symbol), resultValue, index);
+    }
+    
+    /**
+     * Subscript assignment for FIXED and UNBOUNDED Arrays, to the array in a slot
+     * <p>
+     * @param errParse    - Used for error handling
+     * @param iSlot       - Slot of the array variable
+     * @param resultValue - Source value to be set within the Array.
+     * @param index       - Index reference to the position in the Array.
+     * @throws Exception  - ...
+     */
+    void arrayAssignElem(Parser errParse, int iSlot, ResultValue resultValue, ResultValue index) throws Exception {
 
         ResultArray resultArray;
+        String symbol = nameOf(iSlot);
         //getResultArray check if the resultArray exists already, no need to check in this function.
-        resultArray = getResultArray(errParse, symbol);
+        resultArray = getResultArray(errParse, iSlot);
 
         //Coerce the index to an integer ALWAYS.
         Utility.coerce(errParse, Token.INTEGER, index, "ArrayElementReference");
 
         //Must get the iIndex (subscript) value from the ResultValue index
-        int iIndex = Integer.parseInt(index.value);
+        int iIndex = index.hasNumber() ? index.integerValue : Integer.parseInt(index.getValue());
 
         //Stores the corresponding non-negative index of a negative subscript, if the index is non-negative, it remains 0.
         int iTmp_Index = 0;
@@ -130,14 +414,14 @@ public class StorageManager
         if(iIndex < 0)
         {
             //The corresponding non-negative index that the "negative" index references.
-            iTmp_Index = resultArray.valueList.size() + iIndex;
+            iTmp_Index = resultArray.size() + iIndex;
         }
 
         // Attempting to assign to an index out of bounds.
         if((resultArray.structure == STIdentifier.FIXED_ARRAY) && ((iIndex > resultArray.maxElem-1) || (iTmp_Index < 0)))
         {
             errParse.error("Assignment of '%s' to array '%s'['%s'] is out of bounds"
-                          , resultValue.value, symbol, index.value);
+                          , resultValue.getValue(), symbol, index.getValue());
         }
 
         /*
@@ -145,33 +429,29 @@ public class StorageManager
         if(resultArray.structure == STIdentifier.UNBOUNDED_ARRAY && iIndex < 0)
         {
             errParse.error("'%s' is negative, invalid subscript for Unbounded Array '%s'"
-                    , index.value, symbol);
+                    , index.getValue(), symbol);
         }*/
 
         //Setting a value to an index that is beyond the current contiguous size of the array.
-        if(iIndex >= resultArray.valueList.size())
+        if(iIndex >= resultArray.size())
         {
-            //Pad the arrayList with null values to initialize an index that's beyond continuous space.
-            for(int i = resultArray.valueList.size(); i <= iIndex; i++)
+            //Pad the array with elements without values to initialize an index that's beyond continuous space.
+            //If the resultArray has been scaled, all padding will be of scaledValue
+            if(resultArray.bScaled == true)
             {
-
-                //If the resultArray has been scaled, all padding will be of scaledValue
-                if(resultArray.bScaled == true)
+                //If the type of the resultArray and scaledValue aren't the same, we must to coerce.
+                if (resultArray.type != resultArray.scaledValue.type)
                 {
-                    //If the type of the resultArray and scaledValue aren't the same, we must to coerce.
-                    if (resultArray.type != resultArray.scaledValue.type)
-                    {
-                        Utility.coerce(errParse, resultArray.type, resultArray.scaledValue, "ArrayAssignmentInvalidType");
-                    }
-
-                    resultArray.valueList.add(i, Utility.getResultValueCopy(resultArray.scaledValue));
-                }
-                //This array has not previously been Scaled (bScaled = false)
-                //Fill with nulls instead of scaledValue
-                else
-                {
-                    resultArray.valueList.add(i, null);
+                    Utility.coerce(errParse, resultArray.type, resultArray.scaledValue, "ArrayAssignmentInvalidType");
                 }
+
+                resultArray.grow(iIndex + 1, resultArray.scaledValue);
+            }
+            //This array has not previously been Scaled (bScaled = false)
+            //Fill with elements without values instead of scaledValue
+            else
+            {
+                resultArray.grow(iIndex + 1, null);
             }
 
             //If the type of the resultArray and resultValue aren't the same, we must to coerce.
@@ -184,12 +464,12 @@ public class StorageManager
             if(iIndex < 0)
             {
                 //iIndex was negative.
-                resultArray.valueList.set(iTmp_Index, resultValue);
+                resultArray.set(iTmp_Index, resultValue);
             }
             else
             {
                 //iIndex was 0 or positive (normal)
-                resultArray.valueList.set(iIndex, resultValue);
+                resultArray.set(iIndex, resultValue);
             }
         }
         //Any other index range. (Should  be within a valid range by this point)
@@ -205,12 +485,12 @@ public class StorageManager
             if(iIndex < 0)
             {
                 //iIndex was negative.
-                resultArray.valueList.set(iTmp_Index, resultValue);
+                resultArray.set(iTmp_Index, resultValue);
             }
             else
             {
                 //iIndex was non-negative (normal)
-                resultArray.valueList.set(iIndex, resultValue);
+                resultArray.set(iIndex, resultValue);
             }
         }
     }
@@ -219,20 +499,35 @@ public class StorageManager
     /**
      * TODO: Error cases have to be thought out.
      *
-     * Gets the reference to the ResultValue object at the specific index within ResultArray.valueList
+     * Gets the ResultValue object at the specific index within the ResultArray
      * <p>
      * @param errParse     - Used for error handling.
      * @param arraySymbol  - Key for ResultArray (Array Variable name in Havabol)
-     * @param resIndex     - The position in the ResultArray.valueList being retrieved.
-     * @return resultValue - The reference to the ResultValue object in the ResultArray.valueList
+     * @param resIndex     - The position in the ResultArray being retrieved.
+     * @return resultValue - The ResultValue object of the element in the ResultArray
      * @throws Exception   - ...
      */
     ResultValue getArrayElem(Parser errParse, String arraySymbol, ResultValue resIndex) throws Exception
+    {
+        return getArrayElem(errParse, getSlot(arraySymbol), resIndex);
+    }
+    
+    /**
+     * Gets the reference to the ResultValue object at the specific index of the array in a slot
+     * <p>
+     * @param errParse     - Used for error handling.
+     * @param iSlot        - Slot of the array variable
+     * @param resIndex     - The position in the ResultArray being retrieved.
+     * @return resultValue - The ResultValue object of the element in the ResultArray
+     * @throws Exception   - ...
+     */
+    ResultValue getArrayElem(Parser errParse, int iSlot, ResultValue resIndex) throws Exception
     {
         ResultValue resultValue;
         ResultArray resultArray;
-        //Get the array from the HashTable -- will check if its already in the SM
-        resultArray = getResultArray(errParse, arraySymbol);
+        String arraySymbol = nameOf(iSlot);
+        //Get the array from the frame -- will check if its already in the SM
+        resultArray = getResultArray(errParse, iSlot);
 
         //Index should ALWAYS be an Token.INTEGER.
         if(resIndex.type != Token.INTEGER)
@@ -240,25 +535,25 @@ public class StorageManager
             Utility.coerce(errParse, Token.INTEGER, resIndex, "ArrayElementReference");
         }
 
-        int iIndex = Integer.parseInt(resIndex.value);
+        int iIndex = resIndex.hasNumber() ? resIndex.integerValue : Integer.parseInt(resIndex.getValue());
         int  iTmp_Index = iIndex;
 
         //If we have a negative subscript...
         //We convert the negative subscript to its corresponding non-negative index.
         if(iIndex < 0)
         {
-            iTmp_Index = resultArray.valueList.size() + iIndex;
+            iTmp_Index = resultArray.size() + iIndex;
         }
 
         //Checking for out of bounds error
         if(((resultArray.structure == STIdentifier.FIXED_ARRAY) && (iIndex > resultArray.maxElem-1)) || (iTmp_Index < 0))
         {
             errParse.error("Reference to index '%s' for array '%s' is out of bounds"
-                          ,resIndex.value ,arraySymbol);
+                          ,resIndex.getValue() ,arraySymbol);
         }
 
         //If the index we are trying to reference is larger or equal to the current size of the array list
-        if(iIndex >= resultArray.valueList.size())
+        if(iIndex >= resultArray.size())
         {
             //and the arrayList has previously been scaled...
             if(resultArray.bScaled == true)
@@ -272,18 +567,18 @@ public class StorageManager
             {
                 //Attempting to reference index to an uninitialized position in the array.
                 errParse.error("Reference to uninitialized index '%s' for array '%s'"
-                              , resIndex.value, arraySymbol);
+                              , resIndex.getValue(), arraySymbol);
             }
         }
 
         //The index is within bounds, but the value could still be null.
-        resultValue = resultArray.valueList.get(iTmp_Index);
+        resultValue = resultArray.get(iTmp_Index);
 
         //Check if the value is null, if so, we error, the user does not ever see 'null'.
         if(resultValue == null)
         {
             errParse.error("Reference to uninitialized index '%s' for array '%s'"
-                    , resIndex.value, arraySymbol);
+                    , resIndex.getValue(), arraySymbol);
         }
 
         return resultValue;
@@ -300,11 +595,23 @@ public class StorageManager
      *               - The ResultValue that will be stored in all null indices of an UNBOUNDED ARRAY. ???
      */
     void scalarAssign(Parser errParse, String symbol, ResultValue scalar) throws Exception
+    {
+        scalarAssign(errParse, getSlot(symbol), scalar);
+    }
+    
+    /**
+     * Assigns a copy of the scalar to the elements of the array in a slot.
+     * <p>
+     * @param iSlot  - Slot of the array variable
+     * @param scalar - The ResultValue that will be stored in the elements of the array.
+     */
+    void scalarAssign(Parser errParse, int iSlot, ResultValue scalar) throws Exception
     {
         ResultArray resultArray;
+        String symbol = nameOf(iSlot);
 
         //Get a reference to the corresponding ResultArray Object
-        resultArray = getResultArray(errParse, symbol);
+        resultArray = getResultArray(errParse, iSlot);
 
         //Immediately indicate that this ResultArray has been scaled and is default scale value.
         resultArray.bScaled = true;
@@ -312,36 +619,16 @@ public class StorageManager
 
         if(resultArray.structure == STIdentifier.UNBOUNDED_ARRAY)
         {
-
-            //For each ResultValue in resultArray.ValueList, change it's value and type (just in case)
-            for (int i = 0; i < resultArray.valueList.size(); i++)
-            {
-                //The ResultValue at ith position get's a copy of the Scalar ResultValue instead.
-                resultArray.valueList.set(i, Utility.getResultValueCopy(scalar));
-            }
+            //Every element already in the array gets the value of the Scalar ResultValue instead.
+            resultArray.fillAll(0, scalar);
         }
-        // For a fixed array, we need to assign the scalar to every index. The array list may
-        // not have all the corresponding indexes added (i.e., 0 <= currentArrayListSize <= maxElem).
-        // Perform the scalar assignment in two steps
-        //    1) Replace every index in the array list with a copy of the scalar
-        //    2) Add the necessary indexes to the array list (upto the max size) with a copy of the scalar
+        // For a fixed array, we need to assign the scalar to every index. The array may
+        // not have all the corresponding indexes added (i.e., 0 <= currentArraySize <= maxElem).
+        // The scalar is stored in every index already in the array, and the necessary
+        // indexes are added (upto the max size) with the scalar
         else if(resultArray.structure == STIdentifier.FIXED_ARRAY)
         {
-            int i;
-            int j;
-            
-            // Assign the scalar to every index already in the array list 
-            for (i = 0; i < resultArray.valueList.size(); i++)
-            {
-                resultArray.valueList.set(i, Utility.getResultValueCopy(scalar));
-            }
-            
-            // Create InvalidDateFirstParam indexes in the array list to store a copy of the scalar,
-            // up to the size of the fixed size array
-            for(j = i; j < resultArray.maxElem; j++)
-            {
-                resultArray.valueList.add(j, Utility.getResultValueCopy(scalar));
-            }
+            resultArray.fillAll(resultArray.maxElem, scalar);
         }
         //Undefined resultArray.structure
         else
@@ -361,14 +648,14 @@ public class StorageManager
      *  A2 = A1
      *  Result: A2 = [1, 2, 3, 14]
      * @param errParse     - Parser used for error handling
-     * @param targetSymbol - Key for the Target (Left-Side) ResultArray for HashMap sm.
-     * @param sourceSymbol - Key for the Source (Right-Side) ResultArray for HashMap sm.
+     * @param targetSymbol - Key for the Target (Left-Side) ResultArray in the frame.
+     * @param sourceSymbol - Key for the Source (Right-Side) ResultArray in the frame.
      */
     void ArrayToArrayAssign(Parser errParse, String targetSymbol, String sourceSymbol) throws Exception
     {
 
         int i;
-        int j;
+        int iCount;
         ResultValue resSourceElem;
         ResultArray resArrTarget;
         ResultArray resArrSource;
@@ -376,41 +663,29 @@ public class StorageManager
         resArrTarget = getResultArray(errParse, targetSymbol);
         resArrSource = getResultArray(errParse, sourceSymbol);
         
-        // For each index in the source array, assign its value to the target array as long as
-        // the index is within the bounds for the target array, and the target array's ArrayList
-        // has that index added
-        for(i = 0; i < resArrSource.valueList.size(); i++)
+        // Every index in the source array is assigned to the target array, except the
+        // indexes past the declared bounds of a fixed size target array
+        iCount = resArrSource.size();
+        if((resArrTarget.structure == STIdentifier.FIXED_ARRAY) && (iCount > resArrTarget.maxElem))
         {
-            // The source array has an element to add but the target array
-            // has not had that ArrayList index added yet
-            if(i >= resArrTarget.valueList.size())
-            {
-                break;
-            }
-            
-            // Get a copy of the value at the source array's index, coerce, and store at target's index
-            resSourceElem = Utility.getResultValueCopy(resArrSource.valueList.get(i));
-            String formatStr = String.format("array to array assignment, %s[%d]", resArrSource.value, i);
-            Utility.coerce(errParse, resArrTarget.type, resSourceElem, formatStr);
-            resArrTarget.valueList.set(i, resSourceElem);
+            iCount = resArrTarget.maxElem;
         }
         
-        // For each element of the source array, create that index in the target array
-        // (if the index is within its bounds) and assign the value at that index
-        for(j = i; j < resArrSource.valueList.size(); j++)
+        // Arrays of the same type need no coercion, so the elements are copied all at once
+        if(resArrTarget.type == resArrSource.type)
+        {
+            resArrTarget.copyFrom(resArrSource, iCount);
+            return;
+        }
+        
+        resArrTarget.grow(iCount, null);
+        for(i = 0; i < iCount; i++)
         {
-            // The current index of the source array is past the declared bounds for the
-            // target array, so don't create that index in the target array's ArrayList
-            if((resArrTarget.structure == STIdentifier.FIXED_ARRAY) && (j == resArrTarget.maxElem))
-            {
-                break;
-            }
-            
             // Get a copy of the value at the source array's index, coerce, and store at target's index
-            resSourceElem = Utility.getResultValueCopy(resArrSource.valueList.get(j));
-            String formatStr = String.format("array to array assignment, %s[%d]", resArrSource.value, j);
+            resSourceElem = Utility.getResultValueCopy(resArrSource.get(i));
+            String formatStr = String.format("array to array assignment, %s[%d]", resArrSource.getValue(), i);
             Utility.coerce(errParse, resArrTarget.type, resSourceElem, formatStr);
-            resArrTarget.valueList.add(j, resSourceElem);
+            resArrTarget.set(i, resSourceElem);
         }
     }
 }
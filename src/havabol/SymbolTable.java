@@ -1,31 +1,32 @@
 package havabol;
 
-import java.util.HashMap;
+import java.util.Arrays;
 
 public class SymbolTable     
 {
-    public HashMap<String, STEntry> ht;
+    public LexemeTable lexemes; // the ids of the symbols, which index entryM
     public StorageManager storageManager;
+    public STEntry[] entryM;  // entry of the symbol of each id, null if it has not been declared
     
     /**
-     * SymbolTable constructor that will initialize a hash map to
-     * act as the symbol table to store the symbols
+     * SymbolTable constructor that will initialize the lexeme table
+     * whose ids index the entries of the symbols
      * <p>
-     * The hash map will first be initialized with language defined
+     * The table will first be initialized with language defined
      * symbols first
      */
     public SymbolTable()
     {
-        //Creating our HashMap
-        ht = new HashMap<String, STEntry>();
-        storageManager = new StorageManager();
-        //Initializing Definition Values in the HashMap
+        lexemes = new LexemeTable();
+        storageManager = new StorageManager(lexemes);
+        entryM = new STEntry[Math.max(16, lexemes.size())];
+        //Initializing Definition Values in the table
         initGlobal();
     }
     
     /**
-     * Takes in the working Token tokenStr as a symbol and uses it
-     * as a key to do a hash lookup in HashMap ht. If the symbol is found:
+     * Takes in the working Token tokenStr as a symbol and looks up
+     * its id in the lexeme table. If the symbol is found:
      * Return A STEntry object ref or STEntry subClasses object ref.
      * Otherwise Return null
      * <p>
@@ -36,17 +37,131 @@ public class SymbolTable
      *                    (STControl, STFunction, or STIdentifier))
      */
     STEntry getSymbol(String symbol)
-    {    	
-    	// The tokenStr (symbol) is in the HashMap ht
-    	if (ht.containsKey(symbol))
+    {
+        int iId = lexemes.find(symbol);
+        // The tokenStr (symbol) has an id, so it may have an entry
+        if(iId >= 0 && iId < entryM.length)
         {
-            //Return STEntry or STEntry Subclass value thats in ht
-            return ht.get(symbol);
+            return getSymbol(storageManager.resolve(iId));
         }
-        //Return an actual null upon miss in ht
+        //Return an actual null upon miss
         return null;
     }
     
+    /**
+     * Gets the slot of an identifier token, which is the id of its lexeme,
+     * or the slot of a local when the identifier is a local of the current function
+     * <p>
+     * The scanner interns every identifier, so only a token that was not
+     * made by the scanner has to have its name hashed here.
+     * @param token  - An identifier token
+     * @return       - The storage manager slot of the identifier
+     */
+    int getSlot(Token token)
+    {
+        if(token.iLexemeId < 0)
+        {
+            token.iLexemeId = intern(token.tokenStr);
+        }
+        return storageManager.resolve(token.iLexemeId);
+    }
+    
+    /**
+     * Interns a symbol, and gets its storage manager slot, which is its id
+     * unless it is a local of the current function
+     * <p>
+     * @param symbol  - Effectively our working tokenStr
+     * @return        - The slot of the symbol
+     */
+    int getSlot(String symbol)
+    {
+        return storageManager.resolve(intern(symbol));
+    }
+    
+    /**
+     * Interns a symbol, and gets its id, which is also its global slot
+     * <p>
+     * @param symbol  - Effectively our working tokenStr
+     * @return        - The id of the symbol
+     */
+    int intern(String symbol)
+    {
+        int iId = storageManager.intern(symbol);
+        // A new id may be past the end of entryM
+        if(iId >= entryM.length)
+        {
+            entryM = Arrays.copyOf(entryM, Math.max(iId + 1, entryM.length * 2));
+        }
+        return iId;
+    }
+    
+    /**
+     * Gets the entry of an identifier token without hashing its name once it has a slot
+     * <p>
+     * @param token     - An identifier token
+     * @return STEntry  - Object reference, or null if it has not been declared
+     */
+    STEntry getSymbol(Token token)
+    {
+        return getSymbol(getSlot(token));
+    }
+    
+    /**
+     * Gets the entry of the name of a slot
+     * <p>
+     * @param iSlot     - A storage manager slot
+     * @return STEntry  - Object reference, or null if it has not been declared
+     */
+    STEntry getSymbol(int iSlot)
+    {
+        if(iSlot < Scope.FIRST_LOCAL)
+        {
+            return entryM[iSlot];
+        }
+        return storageManager.displayM[iSlot >>> Scope.DEPTH_SHIFT].entryM[iSlot & Scope.INDEX_MASK];
+    }
+    
+    /**
+     * Puts the entry of the name of a slot
+     * <p>
+     * @param iSlot  - A storage manager slot
+     * @param entry  - The entry
+     */
+    private void putEntry(int iSlot, STEntry entry)
+    {
+        if(iSlot < Scope.FIRST_LOCAL)
+        {
+            entryM[iSlot] = entry;
+        }
+        else
+        {
+            storageManager.displayM[iSlot >>> Scope.DEPTH_SHIFT].entryM[iSlot & Scope.INDEX_MASK] = entry;
+        }
+    }
+    
+    /**
+     * Gets a copy of the entries, so the table can be put back to them with 'restore'
+     * <p>
+     * @return - The entries of every global slot
+     */
+    STEntry[] saveEntries()
+    {
+        return entryM.clone();
+    }
+    
+    /**
+     * Puts the entries back to those of 'saveEntries', and takes away the value of every variable
+     * <p>
+     * A name that was interned since keeps its id, but has no entry.
+     * @param savedEntryM - The entries from 'saveEntries'
+     */
+    void restore(STEntry[] savedEntryM)
+    {
+        System.arraycopy(savedEntryM, 0, entryM, 0, savedEntryM.length);
+        Arrays.fill(entryM, savedEntryM.length, entryM.length, null);
+        storageManager.clear();
+    }
+    
     /**
      * Used to insert a (key, value) pair into a InvalidDateFirstParam SymbolTable.
      * <p>
@@ -61,20 +176,26 @@ public class SymbolTable
         //IMORTANT NOTE: This function will ONLY be called upon the declaration of a InvalidDateFirstParam variable...
         //               If that InvalidDateFirstParam variable has the same 'key' then we must remove the reference
         //We already have that 'key' in the SymbolTable.
-        if(ht.containsKey(symbol))
+        int iSlot = getSlot(symbol);
+        if(getSymbol(iSlot) != null)
         {
-            //Check if there is a value for the corresponding StorageManager hashmap.
-            if(storageManager.sm.get(symbol) != null){
+            //Check if there is a value for the corresponding StorageManager slot.
+            if(storageManager.getValue(iSlot) != null){
                 //There is a resultValue in the storageManager from a previous declaration. Remove that reference.
 
-                //Note: HashMap.put over-writes the <key, value> pair.
                 //Manually put the symbol back in with null as it's value.
-                storageManager.sm.put(symbol, null);
+                storageManager.putVariableValue(null, iSlot, null);
             }
             //Effectively changing the reference to the object
         }
-        //If the symbol wasn't in the SymbolTable.ht already, declare it.
-    	ht.put(symbol, entry);
+        //If the symbol wasn't in the SymbolTable already, declare it.
+        if(entry instanceof STIdentifier)
+        {
+            // A local is always declared in the scope it is in, but the slot tells which that is
+            ((STIdentifier) entry).nonLocal = (iSlot < Scope.FIRST_LOCAL) ? STIdentifier.GLOBAL
+                                            : storageManager.scope.iDepth - (iSlot >>> Scope.DEPTH_SHIFT);
+        }
+        putEntry(iSlot, entry);
     }
     
     /**
@@ -88,14 +209,41 @@ public class SymbolTable
      * @throws Exception
      */
     ResultValue retrieveVariableValue(Parser errParse, String symbol) throws Exception
+    {
+        return retrieveVariableValue(errParse, getSlot(symbol));
+    }
+    
+    /**
+     * Gets the value of an identifier token from its slot, without hashing its name
+     * once the token has a slot.
+     * <p>
+     * @param errParse   - The Parser so we can use it's error() method
+     * @param token      - The variable's token
+     * @return resVal    - ResultValue variable to where ever that value is needed.
+     * @throws Exception
+     */
+    ResultValue retrieveVariableValue(Parser errParse, Token token) throws Exception
+    {
+        return retrieveVariableValue(errParse, getSlot(token));
+    }
+    
+    /**
+     * Gets the value in the slot of a variable, which must have been declared.
+     * <p>
+     * @param errParse   - The Parser so we can use it's error() method
+     * @param iSlot      - The variable's slot
+     * @return resVal    - ResultValue variable to where ever that value is needed.
+     * @throws Exception
+     */
+    ResultValue retrieveVariableValue(Parser errParse, int iSlot) throws Exception
     {
         // First check that the variable has been declared
-        if(! ht.containsKey(symbol))
+        if(getSymbol(iSlot) == null)
         {
-            errParse.error("Variable '%s' has not been declared", symbol);
+            errParse.error("Variable '%s' has not been declared", storageManager.nameOf(iSlot));
         }
         // Variable has been declared, so get it from the storage manager
-        ResultValue resVal = storageManager.getVariableValue(errParse, symbol);
+        ResultValue resVal = storageManager.getVariableValue(errParse, iSlot);
         return resVal;
     }
     
@@ -109,24 +257,38 @@ public class SymbolTable
      */
     void storeVariableValue(Parser errParse, String symbol, ResultValue value) throws Exception
     {
+        storeVariableValue(errParse, getSlot(symbol), value);
+    }
+    
+    /**
+     * Stores value into the slot of a variable, which must have been declared with the value's type.
+     * <p>
+     * @param errParse - The Parser so we can use it's error() method
+     * @param iSlot    - The variable's slot
+     * @param value    - The value from 
+     */
+    void storeVariableValue(Parser errParse, int iSlot, ResultValue value) throws Exception
+    {
+        String symbol = storageManager.nameOf(iSlot);
+        STEntry entry = getSymbol(iSlot);
         //Check if the symbol is already declared.
-        if(ht.containsKey(symbol))
+        if(entry != null)
         {
             // Get the type of the variable
-            int symbolType = ((STIdentifier) ht.get(symbol)).dclType;
+            int symbolType = ((STIdentifier) entry).dclType;
             
             // Check that the type of the value equals the type of the variable
             // (A string variable may be assigned a numeric value)
             if((value.type == symbolType) || (symbolType == Token.STRING && ((value.type == Token.INTEGER) || (value.type == Token.FLOAT))))
             {
                 //TODO: We need a reference to putResultArray from StorageManager
-                storageManager.putVariableValue(errParse, symbol, value);
+                storageManager.putVariableValue(errParse, iSlot, value);
             }
             // The types do not match
             else
             {
                 errParse.error("Variable '%s' of type '%s' can not be assigned value '%s' of type '%s'"
-                              ,symbol, Token.getType(errParse, symbolType) ,value.value, Token.getType(errParse, value.type)); 
+                              ,symbol, Token.getType(errParse, symbolType) ,value.getValue(), Token.getType(errParse, value.type)); 
             }
         }
         // The variable has not been declared
@@ -137,7 +299,18 @@ public class SymbolTable
     }
 
     /**
-     * Initializes all the keys in the HashMap ht to their corresponding values
+     * Puts the entry of a language defined symbol at the symbol's id
+     * <p>
+     * @param symbol  - The symbol, which the lexeme table already has
+     * @param entry   - Its STEntry
+     */
+    private void putGlobal(String symbol, STEntry entry)
+    {
+        entryM[getSlot(symbol)] = entry;
+    }
+    
+    /**
+     * Initializes the entries of all the language defined symbols
      * <p>
      * This method is only called once in the construction of a InvalidDateFirstParam symbolTable.
      * initGlobal() is a private function, only allowing it 
@@ -146,57 +319,60 @@ public class SymbolTable
     private void initGlobal()
     {
         //==========================CONTROL==========================
-        ht.put("def", new STControl("def",Token.CONTROL, Token.FLOW));
-        ht.put("if", new STControl("if",Token.CONTROL,Token.FLOW));
-        ht.put("for", new STControl("for",Token.CONTROL,Token.FLOW));
-        ht.put("while", new STControl("while",Token.CONTROL,Token.FLOW));
+        putGlobal("def", new STControl("def",Token.CONTROL, Token.FLOW));
+        putGlobal("return", new STControl("return",Token.CONTROL, Token.FLOW));
+        putGlobal("if", new STControl("if",Token.CONTROL,Token.FLOW));
+        putGlobal("for", new STControl("for",Token.CONTROL,Token.FLOW));
+        putGlobal("while", new STControl("while",Token.CONTROL,Token.FLOW));
         
-        ht.put("to", new STControl("to", Token.CONTROL, Token.END));
-        ht.put("by", new STControl("by", Token.CONTROL, Token.END));
-        ht.put("in", new STControl("in", Token.CONTROL, Token.END));
-        ht.put("from", new STControl("from", Token.CONTROL, Token.END));
+        putGlobal("to", new STControl("to", Token.CONTROL, Token.END));
+        putGlobal("by", new STControl("by", Token.CONTROL, Token.END));
+        putGlobal("in", new STControl("in", Token.CONTROL, Token.END));
+        putGlobal("from", new STControl("from", Token.CONTROL, Token.END));
         
-        ht.put("enddef",new STControl("enddef",Token.CONTROL, Token.END));
-        ht.put("endif", new STControl("endif",Token.CONTROL,Token.END));
-        ht.put("else", new STControl("else",Token.CONTROL,Token.END));
-        ht.put("endfor", new STControl("endfor", Token.CONTROL, Token.END));
-        ht.put("endwhile", new STControl("endwhile",Token.CONTROL,Token.END));
+        putGlobal("enddef",new STControl("enddef",Token.CONTROL, Token.END));
+        putGlobal("endif", new STControl("endif",Token.CONTROL,Token.END));
+        putGlobal("else", new STControl("else",Token.CONTROL,Token.END));
+        putGlobal("endfor", new STControl("endfor", Token.CONTROL, Token.END));
+        putGlobal("endwhile", new STControl("endwhile",Token.CONTROL,Token.END));
         
-        ht.put("Int", new STControl("Int",Token.CONTROL,Token.DECLARE));
-        ht.put("Float", new STControl("Float",Token.CONTROL,Token.DECLARE));
-        ht.put("String", new STControl("String",Token.CONTROL,Token.DECLARE));
-        ht.put("Bool", new STControl("Bool",Token.CONTROL,Token.DECLARE));
-        ht.put("Date", new STControl("Date",Token.CONTROL,Token.DECLARE));
+        putGlobal("Int", new STControl("Int",Token.CONTROL,Token.DECLARE));
+        putGlobal("Float", new STControl("Float",Token.CONTROL,Token.DECLARE));
+        putGlobal("String", new STControl("String",Token.CONTROL,Token.DECLARE));
+        putGlobal("Bool", new STControl("Bool",Token.CONTROL,Token.DECLARE));
+        putGlobal("Date", new STControl("Date",Token.CONTROL,Token.DECLARE));
+        putGlobal("Void", new STControl("Void",Token.CONTROL,Token.DECLARE));
+        putGlobal("Ref", new STControl("Ref",Token.CONTROL,Token.DECLARE));
         
         //===========================FUNCTIONS=======================
-        ht.put("print", new STFunction("print",Token.FUNCTION,Token.VOID
+        putGlobal("print", new STFunction("print",Token.FUNCTION,Token.VOID
                       , Token.BUILTIN, STFunction.VAR_ARGS));
-        ht.put("LENGTH", new STFunction("LENGTH",Token.FUNCTION,Token.INTEGER
+        putGlobal("LENGTH", new STFunction("LENGTH",Token.FUNCTION,Token.INTEGER
                        , Token.BUILTIN, 1));        
-        ht.put("SPACES", new STFunction("SPACES",Token.FUNCTION,Token.BOOLEAN
+        putGlobal("SPACES", new STFunction("SPACES",Token.FUNCTION,Token.BOOLEAN
                        , Token.BUILTIN, 1));
-        ht.put("ELEM", new STFunction("ELEM",Token.FUNCTION,Token.INTEGER
+        putGlobal("ELEM", new STFunction("ELEM",Token.FUNCTION,Token.INTEGER
                      , Token.BUILTIN, 1));
-        ht.put("MAXELEM", new STFunction("MAXELEM",Token.FUNCTION,Token.INTEGER
+        putGlobal("MAXELEM", new STFunction("MAXELEM",Token.FUNCTION,Token.INTEGER
                         , Token.BUILTIN, 1));
-        ht.put("debug", new STFunction("debug", Token.FUNCTION, Token.VOID
+        putGlobal("debug", new STFunction("debug", Token.FUNCTION, Token.VOID
                       , Token.BUILTIN, 2));
-        ht.put("dateDiff", new STFunction("dateDiff", Token.FUNCTION, Token.INTEGER
+        putGlobal("dateDiff", new STFunction("dateDiff", Token.FUNCTION, Token.INTEGER
                          , Token.BUILTIN, 2));
-        ht.put("dateAdj", new STFunction("dateAdj", Token.FUNCTION, Token.DATE
+        putGlobal("dateAdj", new STFunction("dateAdj", Token.FUNCTION, Token.DATE
                         , Token.BUILTIN, 2));
-        ht.put("dateAge", new STFunction("dateAge", Token.FUNCTION, Token.INTEGER
+        putGlobal("dateAge", new STFunction("dateAge", Token.FUNCTION, Token.INTEGER
                         , Token.BUILTIN, 2));
-        ht.put("IN", new STFunction("IN", Token.FUNCTION, Token.BOOLEAN
+        putGlobal("IN", new STFunction("IN", Token.FUNCTION, Token.BOOLEAN
                    , Token.BUILTIN, 2));
-        ht.put("NOTIN", new STFunction("NOTIN", Token.FUNCTION, Token.BOOLEAN
+        putGlobal("NOTIN", new STFunction("NOTIN", Token.FUNCTION, Token.BOOLEAN
                 , Token.BUILTIN, 2));
         
         //==========================OPERATORS========================
-        ht.put("and", new STOperator("and",Token.OPERATOR, Token.BINARY));
-        ht.put("or", new STOperator("or",Token.OPERATOR, Token.BINARY));
-        ht.put("not", new STOperator("not",Token.OPERATOR, Token.UNARY));
-        ht.put("in", new STOperator("in",Token.OPERATOR, Token.BINARY));
-        ht.put("notin", new STOperator("notin",Token.OPERATOR, Token.BINARY));
+        putGlobal("and", new STOperator("and",Token.OPERATOR, Token.BINARY));
+        putGlobal("or", new STOperator("or",Token.OPERATOR, Token.BINARY));
+        putGlobal("not", new STOperator("not",Token.OPERATOR, Token.UNARY));
+        putGlobal("in", new STOperator("in",Token.OPERATOR, Token.BINARY));
+        putGlobal("notin", new STOperator("notin",Token.OPERATOR, Token.BINARY));
     }
 }
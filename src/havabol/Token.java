@@ -8,6 +8,10 @@ public class Token
     public int iSourceLineNr = 0;
     public int iColPos = 0;
     public int identifierType = -1;
+    public int iTokenIndex = -1; // position in the scanner's token array
+    public int iLexemeId = -1;   // id of the lexeme in the lexeme table (the storage manager slot of an identifier), -1 for a literal
+    // Number of an INTEGER or FLOAT constant (day number of a DATE constant), parsed the first time it is used
+    private ResultValue resNumber = null;
     // Constants for primClassif
     public static final int OPERAND    = 1; // constants, identifier
     public static final int OPERATOR   = 2; // + - * / < > = ! 
@@ -421,9 +425,48 @@ public class Token
         // Assign the data type
         resVal.type = this.subClassif;
         // Assign the value
-        resVal.value = this.tokenStr;
+        resVal.setValue(this.tokenStr);
         // Assign the structure (primitive for program 3, don't yet know how we will determine the structure)
         resVal.structure = STIdentifier.PRIMITVE;
+        // Give a numeric constant its number, so that it is only parsed once
+        if(this.subClassif == Token.INTEGER || this.subClassif == Token.FLOAT)
+        {
+            if(resNumber == null || resNumber.type != this.subClassif || resNumber.getValue() != this.tokenStr)
+            {
+                resNumber = Utility.getResultValueCopy(resVal);
+                try
+                {
+                    new Numeric(parse, resNumber, this.tokenStr, "constant");
+                }
+                catch(Exception e)
+                {
+                    // Not a valid number, so it is left to be reported where it is used
+                    resNumber = null;
+                    return resVal;
+                }
+            }
+            resVal.integerValue = resNumber.integerValue;
+            resVal.doubleValue = resNumber.doubleValue;
+            resVal.numericType = resNumber.numericType;
+        }
+        // Give a date constant its day number; the scanner already checked that it is a valid date
+        else if(this.subClassif == Token.DATE)
+        {
+            if(resNumber == null || resNumber.type != Token.DATE || resNumber.getValue() != this.tokenStr)
+            {
+                resNumber = Utility.getResultValueCopy(resVal);
+                resNumber.integerValue = Utility.dateToJulian(this.tokenStr);
+                resNumber.numericType = Token.DATE;
+            }
+            resVal.integerValue = resNumber.integerValue;
+            resVal.numericType = resNumber.numericType;
+        }
+        // Give a boolean constant its truth
+        else if(this.subClassif == Token.BOOLEAN && (this.tokenStr.equals("T") || this.tokenStr.equals("F")))
+        {
+            resVal.boolValue = this.tokenStr.equals("T");
+            resVal.numericType = Token.BOOLEAN;
+        }
         return resVal;
     }
     
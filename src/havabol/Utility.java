@@ -2,6 +2,7 @@ package havabol;
 
 import java.text.ParseException;
 import java.util.*;
+import java.util.regex.Pattern;
 import java.text.SimpleDateFormat;
 
 /**
@@ -31,6 +32,14 @@ public class Utility
     public static final int AND                = 37;
     public static final int OR                 = 38;
     
+    // Day numbers (see 'dateToJulian') of the first day of the Gregorian calendar in
+    // java.util.GregorianCalendar, and of the last date that is valid in Havabol
+    private static final int GREGORIAN_START_DAY = dateToJulian("1582-10-15");
+    private static final int MAX_DATE_DAY        = dateToJulian("9999-12-31");
+    
+    // Form of a date, compiled once since the scanner checks every string literal with it
+    private static final Pattern DATE_PATTERN = Pattern.compile("\\d{4}-\\d{2}-\\d{2}");
+    
     @SuppressWarnings("serial")
     public final static Map<Integer, String> logicalOperator = Collections.unmodifiableMap(new HashMap<Integer, String>(){{
                                                                put(31, "=="); put(32, "!="); put(33, "<"); put(34, ">");
@@ -52,7 +61,7 @@ public class Utility
         if(resParam1 instanceof ResultArray || resParam2 instanceof ResultArray)
         {
             parser.error("Operation '-' expected Primitive parameters, Found '%s' and '%s' may be Array(s)"
-                         , resParam1.value, resParam2.value);
+                         , resParam1.getValue(), resParam2.getValue());
         }
         // Must get a copy of the passed in result values so that the
         // original result value objects are not manipulated
@@ -75,21 +84,19 @@ public class Utility
         // Is a floating point value.
         if (nOp1.type == Token.FLOAT)
         {
-            Double tempValue = nOp1.doubleValue - nOp2.doubleValue;
+            double tempValue = nOp1.doubleValue - nOp2.doubleValue;
             
             // Store the InvalidDateFirstParam value of operation
-            res.value = tempValue.toString();
-            res.type  = nOp1.type;
+            res.setFloat(tempValue);
             res.structure = STIdentifier.PRIMITVE;
         }
         // It is an integer value.
         else if (nOp1.type == Token.INTEGER)
         {
-            Integer tempValue = nOp1.integerValue - nOp2.integerValue;
+            int tempValue = nOp1.integerValue - nOp2.integerValue;
             
             // Store the InvalidDateFirstParam value of operation
-            res.value = tempValue.toString();
-            res.type  = nOp1.type;
+            res.setInteger(tempValue);
             res.structure = STIdentifier.PRIMITVE;
         }
         // Operation not defined for given type
@@ -118,7 +125,7 @@ public class Utility
         if(resParam1 instanceof ResultArray || resParam2 instanceof ResultArray)
         {
             parser.error("Operation '+' expected Primitive parameters, Found '%s' and '%s' may be Array(s)"
-                    , resParam1.value, resParam2.value);
+                    , resParam1.getValue(), resParam2.getValue());
         }
 
         // Must get a copy of the passed in result values so that the
@@ -142,21 +149,19 @@ public class Utility
         // Is a floating point value.
         if (nOp1.type == Token.FLOAT)
         {
-            Double tempValue = nOp1.doubleValue + nOp2.doubleValue;
+            double tempValue = nOp1.doubleValue + nOp2.doubleValue;
             
             // Store the InvalidDateFirstParam value of the operation
-            res.value = tempValue.toString();
-            res.type  = nOp1.type;
+            res.setFloat(tempValue);
             res.structure = STIdentifier.PRIMITVE;
         }
         // It is an integer value.
         else if (nOp1.type == Token.INTEGER)
         {
-            Integer tempValue = nOp1.integerValue + nOp2.integerValue;
+            int tempValue = nOp1.integerValue + nOp2.integerValue;
             
             // Store the InvalidDateFirstParam value of the operation
-            res.value = tempValue.toString();
-            res.type  = nOp1.type;
+            res.setInteger(tempValue);
             res.structure = STIdentifier.PRIMITVE;
         }
         // Operation not defined for given type
@@ -185,7 +190,7 @@ public class Utility
         if(resParam1 instanceof ResultArray || resParam2 instanceof ResultArray)
         {
             parser.error("Operation '*' expected Primitive parameters, Found '%s' and '%s' may be Array(s)"
-                    , resParam1.value, resParam2.value);
+                    , resParam1.getValue(), resParam2.getValue());
         }
 
         // Must get a copy of the passed in result values so that the
@@ -209,21 +214,19 @@ public class Utility
         // Is a floating point value.
         if (nOp1.type == Token.FLOAT)
         {
-            Double tempValue = nOp1.doubleValue * nOp2.doubleValue;
+            double tempValue = nOp1.doubleValue * nOp2.doubleValue;
             
             // Store the InvalidDateFirstParam value of the operation
-            res.value = tempValue.toString();
-            res.type  = nOp1.type;
+            res.setFloat(tempValue);
             res.structure = STIdentifier.PRIMITVE;
         }
         // It is an integer value.
         else if (nOp1.type == Token.INTEGER)
         {
-            Integer tempValue = nOp1.integerValue * nOp2.integerValue;
+            int tempValue = nOp1.integerValue * nOp2.integerValue;
             
             // Store the InvalidDateFirstParam value of the operation
-            res.value = tempValue.toString();
-            res.type  = nOp1.type;
+            res.setInteger(tempValue);
             res.structure = STIdentifier.PRIMITVE;
         }
         // Operation not defined for given type
@@ -251,7 +254,7 @@ public class Utility
         if(resParam1 instanceof ResultArray || resParam2 instanceof ResultArray)
         {
             parser.error("Operation '/' expected Primitive parameters, Found '%s' and '%s' may be Array(s)"
-                    , resParam1.value, resParam2.value);
+                    , resParam1.getValue(), resParam2.getValue());
         }
         // Must get a copy of the passed in result values so that the
         // original result value objects are not manipulated
@@ -280,11 +283,10 @@ public class Utility
                 parser.errorWithCurrent("Attempted to divide by zero");
             }
 
-            Double tempValue = nOp1.doubleValue / nOp2.doubleValue;
+            double tempValue = nOp1.doubleValue / nOp2.doubleValue;
             
             // Store the InvalidDateFirstParam value of the operation
-            res.value = tempValue.toString();
-            res.type  = nOp1.type;
+            res.setFloat(tempValue);
             res.structure = STIdentifier.PRIMITVE;
         }
         // It is an integer value.
@@ -296,11 +298,10 @@ public class Utility
                 parser.errorWithCurrent("Attempted to divide by zero");
             }
             
-            Integer tempValue = nOp1.integerValue / nOp2.integerValue;
+            int tempValue = nOp1.integerValue / nOp2.integerValue;
             
             // Store the InvalidDateFirstParam value of the operation
-            res.value = tempValue.toString();
-            res.type  = nOp1.type;
+            res.setInteger(tempValue);
             res.structure = STIdentifier.PRIMITVE;
         }
         // Operation not defined for given type
@@ -328,7 +329,7 @@ public class Utility
         if(resParam1 instanceof ResultArray || resParam2 instanceof ResultArray)
         {
             parser.error("Comparision Operation: '%s' expected Primitive parameters, Found '%s' and '%s' may be Array(s)"
-                    ,logicalOperator.get(operation), resParam1.value, resParam2.value);
+                    ,logicalOperator.get(operation), resParam1.getValue(), resParam2.getValue());
         }
         // Must get a copy of the passed in result values so that the
         // original result value objects are not manipulated
@@ -336,13 +337,9 @@ public class Utility
         ResultValue resval2 = Utility.getResultValueCopy(resParam2);
         
         // If the result values are numbers, they must be converted to numerics
-        // Must initialize with dummy values in order to suppress Java error messages
-        // that these variables may not have been initialized
-        ResultValue tempRes = new ResultValue();
-        tempRes.type = Token.INTEGER;
-        tempRes.value = "0";
-        Numeric nOp1 = new Numeric(parser, tempRes, logicalOperator.get(operation), "temp initialization");
-        Numeric nOp2 = new Numeric(parser, tempRes, logicalOperator.get(operation), "temp initialization");
+        // They are only used when the types are numeric, so they start as null
+        Numeric nOp1 = null;
+        Numeric nOp2 = null;
         
         // Coerce the second type to the first if they are not equal
         if (resval1.type != resval2.type)
@@ -357,22 +354,27 @@ public class Utility
             nOp2 = new Numeric(parser, resval2, logicalOperator.get(operation), "2nd operand");
         }
         
-        String result = "";
+        // Result of the operation, null until it is evaluated
+        Boolean bResult = null;
         
         // Determine the passed in comparison operation
         switch(operation) {
             case EQUAL:
-                if ((resval2.type == Token.STRING) || (resval2.type == Token.BOOLEAN) || (resval2.type == Token.DATE))
+                if (resval2.type == Token.BOOLEAN)
                 {
-                    result = resval1.value.equals(resval2.value) ? "T" : "F";
+                    bResult = (resval1.isTrue() == resval2.isTrue());
+                }
+                else if ((resval2.type == Token.STRING) || (resval2.type == Token.DATE))
+                {
+                    bResult = resval1.getValue().equals(resval2.getValue());
                 }
                 else if (resval2.type == Token.INTEGER)
                 {
-                    result = (nOp1.integerValue == nOp2.integerValue) ? "T" : "F";
+                    bResult = (nOp1.integerValue == nOp2.integerValue);
                 }
                 else if (resval2.type == Token.FLOAT)
                 {
-                    result = (nOp1.doubleValue == nOp2.doubleValue) ? "T" : "F";
+                    bResult = (nOp1.doubleValue == nOp2.doubleValue);
                 }
                 // The operation is not defined for the given type
                 else
@@ -382,17 +384,21 @@ public class Utility
                 }
                 break;
             case NOT_EQUAL:
-                if ((resval2.type == Token.STRING) || (resval2.type == Token.BOOLEAN) || (resval2.type == Token.DATE))
+                if (resval2.type == Token.BOOLEAN)
                 {
-                    result = resval1.value.equals(resval2.value) ? "F" : "T";
+                    bResult = (resval1.isTrue() != resval2.isTrue());
+                }
+                else if ((resval2.type == Token.STRING) || (resval2.type == Token.DATE))
+                {
+                    bResult = ! resval1.getValue().equals(resval2.getValue());
                 }
                 else if (resval2.type == Token.INTEGER)
                 {
-                    result = (nOp1.integerValue == nOp2.integerValue) ? "F" : "T";
+                    bResult = (nOp1.integerValue != nOp2.integerValue);
                 }
                 else if (resval2.type == Token.FLOAT)
                 {
-                    result = (nOp1.doubleValue == nOp2.doubleValue) ? "F" : "T";
+                    bResult = (nOp1.doubleValue != nOp2.doubleValue);
                 }
                 // The operation is not defined for the given type
                 else
@@ -404,16 +410,16 @@ public class Utility
             case LESS_THAN:
                 if (resval2.type == Token.STRING)
                 {
-                    int resCompare = resval1.value.compareTo(resval2.value);
-                    result = (resCompare < 0) ? "T" : "F";
+                    int resCompare = resval1.getValue().compareTo(resval2.getValue());
+                    bResult = (resCompare < 0);
                 }
                 else if (resval2.type == Token.INTEGER)
                 {
-                    result = (nOp1.integerValue < nOp2.integerValue) ? "T" : "F";
+                    bResult = (nOp1.integerValue < nOp2.integerValue);
                 }
                 else if (resval2.type == Token.FLOAT)
                 {
-                    result = (nOp1.doubleValue < nOp2.doubleValue) ? "T" : "F";
+                    bResult = (nOp1.doubleValue < nOp2.doubleValue);
                 }
                 // The operation is not defined for the given type
                 else
@@ -425,16 +431,16 @@ public class Utility
             case GREATER_THAN:
                 if (resval2.type == Token.STRING)
                 {
-                    int resCompare = resval1.value.compareTo(resval2.value);
-                    result = (resCompare > 0) ? "T" : "F";
+                    int resCompare = resval1.getValue().compareTo(resval2.getValue());
+                    bResult = (resCompare > 0);
                 }
                 else if (resval2.type == Token.INTEGER)
                 {
-                    result = (nOp1.integerValue > nOp2.integerValue) ? "T" : "F";
+                    bResult = (nOp1.integerValue > nOp2.integerValue);
                 }
                 else if (resval2.type == Token.FLOAT)
                 {
-                    result = (nOp1.doubleValue > nOp2.doubleValue) ? "T" : "F";
+                    bResult = (nOp1.doubleValue > nOp2.doubleValue);
                 }
                 // The operation is not defined for the given type
                 else
@@ -446,16 +452,16 @@ public class Utility
             case LESS_THAN_EQUAL:
                 if (resval2.type == Token.STRING)
                 {
-                    int resCompare = resval1.value.compareTo(resval2.value);
-                    result = (resCompare <= 0) ? "T" : "F";
+                    int resCompare = resval1.getValue().compareTo(resval2.getValue());
+                    bResult = (resCompare <= 0);
                 }
                 else if (resval2.type == Token.INTEGER)
                 {
-                    result = (nOp1.integerValue <= nOp2.integerValue) ? "T" : "F";
+                    bResult = (nOp1.integerValue <= nOp2.integerValue);
                 }
                 else if (resval2.type == Token.FLOAT)
                 {
-                    result = (nOp1.doubleValue <= nOp2.doubleValue) ? "T" : "F";
+                    bResult = (nOp1.doubleValue <= nOp2.doubleValue);
                 }
                 // The operation is not defined for the given type
                 else
@@ -467,16 +473,16 @@ public class Utility
             case GREATER_THAN_EQUAL:
                 if (resval2.type == Token.STRING)
                 {
-                    int resCompare = resval1.value.compareTo(resval2.value);
-                    result = (resCompare >= 0) ? "T" : "F";
+                    int resCompare = resval1.getValue().compareTo(resval2.getValue());
+                    bResult = (resCompare >= 0);
                 }
                 else if (resval2.type == Token.INTEGER)
                 {
-                    result = (nOp1.integerValue >= nOp2.integerValue) ? "T" : "F";
+                    bResult = (nOp1.integerValue >= nOp2.integerValue);
                 }
                 else if (resval2.type == Token.FLOAT)
                 {
-                    result = (nOp1.doubleValue >= nOp2.doubleValue) ? "T" : "F";
+                    bResult = (nOp1.doubleValue >= nOp2.doubleValue);
                 }
                 // The operation is not defined for the given type
                 else
@@ -491,14 +497,7 @@ public class Utility
                     Utility.coerce(parser, Token.BOOLEAN, resval1, logicalOperator.get(operation));
                     Utility.coerce(parser, Token.BOOLEAN, resval2, logicalOperator.get(operation));
                     
-                    if (resval1.value.equals("T") && resval2.value.equals("T"))
-                    {
-                        result = "T";
-                    }
-                    else
-                    {
-                        result = "F";
-                    }
+                    bResult = resval1.isTrue() && resval2.isTrue();
                 }
                 // The operation is not defined for the given type
                 else
@@ -513,14 +512,7 @@ public class Utility
                     Utility.coerce(parser, Token.BOOLEAN, resval1, logicalOperator.get(operation));
                     Utility.coerce(parser, Token.BOOLEAN, resval2, logicalOperator.get(operation));
 
-                    if (resval1.value.equals("F") && resval2.value.equals("F"))
-                    {
-                        result = "F";
-                    }
-                    else
-                    {
-                        result = "T";
-                    }
+                    bResult = resval1.isTrue() || resval2.isTrue();
                 }
                 // The operation is not defined for the giveen type
                 else
@@ -535,15 +527,14 @@ public class Utility
         }
         
         // Check to ensure the boolean result was initialized, in case we missed some logic
-        if(result.equals(""))
+        if(bResult == null)
         {
             parser.errorWithCurrent("The boolean result for operation '%s' was not evaluated properly", logicalOperator.get(operation));
         }
         
         // Create a ResultValue object to hold the boolean value to return
         ResultValue resReturn = new ResultValue();
-        resReturn.value = result;
-        resReturn.type = Token.BOOLEAN;
+        resReturn.setBoolean(bResult);
         resReturn.structure = STIdentifier.PRIMITVE;
         
         return resReturn;
@@ -564,7 +555,7 @@ public class Utility
         if(resParam instanceof ResultArray)
         {
             parser.error("Operation 'not' expected Primitive parameters, Found Array '%s'"
-                    , resParam.value);
+                    , resParam.getValue());
         }
         // Must get a copy of the passed in result value so that the
         // original result value object is not manipulated, and coerce
@@ -572,14 +563,7 @@ public class Utility
         Utility.coerce(parser, Token.BOOLEAN, resval, "not");
         
         // Reverse the value of the boolean
-        if (resval.value.equals("T"))
-        {
-            resval.value = "F";
-        }
-        else
-        {
-            resval.value = "T";
-        }
+        resval.setBoolean(! resval.isTrue());
         
         return resval;
     }
@@ -604,7 +588,7 @@ public class Utility
         if(resParam1 instanceof ResultArray || resParam2 instanceof ResultArray)
         {
             parser.error("Operation '#' expected Primitive parameters, Found '%s' and '%s' may be Array(s)"
-                        , resParam1.value, resParam2.value);
+                        , resParam1.getValue(), resParam2.getValue());
         }
 
         // Must get a copy of the passed in result values so that the
@@ -616,7 +600,7 @@ public class Utility
         Utility.coerce(parser, Token.STRING, resval1, "#");   
         Utility.coerce(parser, Token.STRING, resval2, "#");
         
-        resReturn.value = resval1.value + resval2.value;
+        resReturn.setValue(resval1.getValue() + resval2.getValue());
         resReturn.type = Token.STRING;
         resReturn.structure = STIdentifier.PRIMITVE;
         
@@ -641,7 +625,7 @@ public class Utility
         if(resParam instanceof ResultArray)
         {
             parser.error("Operation (unary) '-' expected Primitive parameters, Found Array '%s'"
-                        , resParam.value);
+                        , resParam.getValue());
         }
         // Must get a copy of the passed in result value so that the
         // original result value object is not manipulated
@@ -651,13 +635,11 @@ public class Utility
         
         if (nOp.type == Token.INTEGER)
         {
-            resval.value = String.valueOf(nOp.integerValue *= -1);
-            resval.type = Token.INTEGER;
+            resval.setInteger(nOp.integerValue * -1);
         }
         else if (nOp.type == Token.FLOAT)
         {
-            resval.value = String.valueOf(nOp.doubleValue *= -1);
-            resval.type = Token.FLOAT;
+            resval.setFloat(nOp.doubleValue * -1);
         }
         return resval;
     }
@@ -680,7 +662,7 @@ public class Utility
         if(resParam1 instanceof ResultArray || resParam2 instanceof ResultArray)
         {
             parser.errorWithCurrent("Operation '^' expected Primitive parameters, Found '%s' and '%s' may be Array(s)"
-                        , resParam1.value, resParam2.value);
+                        , resParam1.getValue(), resParam2.getValue());
         }
         // Must get a copy of the passed in result values so that the
         // original result value objects are not manipulated
@@ -706,7 +688,7 @@ public class Utility
             result = String.valueOf(exponVal);
         }
         
-        resval1.value = result;
+        resval1.setValue(result);
         return resval1;
     }
     
@@ -724,7 +706,7 @@ public class Utility
             return false;
         }
         
-        if (date.matches("\\d{4}-\\d{2}-\\d{2}"))
+        if (DATE_PATTERN.matcher(date).matches())
         {
             int year = Integer.parseInt(date.substring(0, 4));
             if (year < 0001)
@@ -769,30 +751,27 @@ public class Utility
         if(resParam1 instanceof ResultArray || resParam2 instanceof ResultArray)
         {
             parser.errorWithCurrent("Method 'dateDiff' expected Primitive parameters, Found '%s' and '%s' may be Array(s)"
-                    , resParam1.value, resParam2.value);
+                    , resParam1.getValue(), resParam2.getValue());
         }
 
-        // Validate both inputs
-        if (!isValidDate(resParam1.value))
+        // Validate both inputs, and get their day numbers (compared to March)
+        julian1 = dateDay(resParam1);
+        if (julian1 < 0)
         {
-            parser.errorWithCurrent("The first argument to dateDiff is not a valid date. | Value : %s |", resParam1.value);
+            parser.errorWithCurrent("The first argument to dateDiff is not a valid date. | Value : %s |", resParam1.getValue());
         }
 
-        if (!isValidDate(resParam2.value))
+        julian2 = dateDay(resParam2);
+        if (julian2 < 0)
         {
-            parser.errorWithCurrent("The second argument to dateDiff is not a valid date. | Value : %s |", resParam2.value);
+            parser.errorWithCurrent("The second argument to dateDiff is not a valid date. | Value : %s |", resParam2.getValue());
         }
 
-        // Compare to March
-        julian1 = dateToJulian(resParam1.value);
-        julian2 = dateToJulian(resParam2.value);
-
         // # of days between the two dates
         result = julian1 - julian2;
 
         dateDifference.structure = STIdentifier.PRIMITVE;
-        dateDifference.type = Token.INTEGER;
-        dateDifference.value = String.valueOf(result);
+        dateDifference.setInteger(result);
 
         return dateDifference;
     }
@@ -808,30 +787,41 @@ public class Utility
      * @throws ParserException
      */
     public static ResultValue dateAdj(Parser parser, ResultValue resParam1, ResultValue resParam2) throws Exception {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
         ResultValue dateAdj = new ResultValue();
 
         // Binary operands may be of subclass ResultArray. This is not valid for this function.
         if(resParam1 instanceof ResultArray || resParam2 instanceof ResultArray)
         {
             parser.errorWithCurrent("Method 'dateAdj' expected Primitive parameters, Found '%s' and '%s' may be Array(s)"
-                    , resParam1.value, resParam2.value);
+                    , resParam1.getValue(), resParam2.getValue());
         }
 
         // Validate the input for date.
-        if (!isValidDate(resParam1.value))
+        int julian = dateDay(resParam1);
+        if (julian < 0)
         {
-            parser.errorWithCurrent("The first argument to dateAdj is not a valid date. | Value : %s |", resParam1.value);
+            parser.errorWithCurrent("The first argument to dateAdj is not a valid date. | Value : %s |", resParam1.getValue());
         }
 
         // Coerce days to integer
         ResultValue days = Utility.getResultValueCopy(resParam2);
         Utility.coerce(parser, Token.INTEGER, days, "dateAdj");
 
+        // Both dates are in the Gregorian calendar that the Calendar uses, so the
+        // new date is just the number of days after the old one
+        long newJulian = (long) julian + (days.hasNumber() ? days.integerValue : Integer.parseInt(days.getValue()));
+        if (julian >= GREGORIAN_START_DAY && newJulian >= GREGORIAN_START_DAY && newJulian <= MAX_DATE_DAY)
+        {
+            dateAdj.setDate((int) newJulian);
+            dateAdj.structure = STIdentifier.PRIMITVE;
+            return dateAdj;
+        }
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
+
         // Break up the date for the gregorian calendar
-        int year = Integer.parseInt(resParam1.value.substring(0, 4));
-        int month = Integer.parseInt(resParam1.value.substring(5,7));
-        int day = Integer.parseInt(resParam1.value.substring(8, 10));
+        int year = Integer.parseInt(resParam1.getValue().substring(0, 4));
+        int month = Integer.parseInt(resParam1.getValue().substring(5,7));
+        int day = Integer.parseInt(resParam1.getValue().substring(8, 10));
 
         // Make a InvalidDateFirstParam java date
         Calendar cDate = new GregorianCalendar(year, month-1, day);
@@ -847,7 +837,7 @@ public class Utility
         // NOTE: This exception will only be raised if there is an error with coerce.
         try
         {
-            int daysAdjustment = Integer.parseInt(days.value);
+            int daysAdjustment = Integer.parseInt(days.getValue());
             cDate.add(Calendar.DAY_OF_MONTH, daysAdjustment);
             //System.err.println(cDate.get(Calendar.ERA) + " " + sdf.format(cDate.getTime()));
         }
@@ -869,7 +859,7 @@ public class Utility
 
 
         // Store the InvalidDateFirstParam calendar date in the result value object.
-        dateAdj.value = sdf.format(cDate.getTime());
+        dateAdj.setValue(sdf.format(cDate.getTime()));
         dateAdj.type  = Token.DATE;
         dateAdj.structure = STIdentifier.PRIMITVE;
 
@@ -886,37 +876,64 @@ public class Utility
      */
     public static ResultValue dateAge(Parser parser, ResultValue resParam1, ResultValue resParam2) throws ParserException
     {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
         ResultValue dateAge = new ResultValue();
 
         // Binary operands may be of subclass ResultArray. This is not valid for this function.
         if(resParam1 instanceof ResultArray || resParam2 instanceof ResultArray)
         {
             parser.errorWithCurrent("Method 'dateAge' expected Primitive parameters, Found '%s' and '%s' may be Array(s)"
-                    , resParam1.value, resParam2.value);
+                    , resParam1.getValue(), resParam2.getValue());
         }
 
         // Validate the input dates.
-        if (!isValidDate(resParam1.value))
+        int julian1 = dateDay(resParam1);
+        if (julian1 < 0)
         {
-            parser.errorWithCurrent("The first argument to dateAge is not a valid date. | Value : %s |", resParam1.value);
+            parser.errorWithCurrent("The first argument to dateAge is not a valid date. | Value : %s |", resParam1.getValue());
         }
 
-        if (!isValidDate(resParam2.value))
+        int julian2 = dateDay(resParam2);
+        if (julian2 < 0)
         {
-            parser.errorWithCurrent("The second argument to dateAge is not a valid date. | Value : %s |", resParam2.value);
+            parser.errorWithCurrent("The second argument to dateAge is not a valid date. | Value : %s |", resParam2.getValue());
         }
 
-        // Compare to March
-        // Break up the first date for the gregorian calendar
-        int year1 = Integer.parseInt(resParam1.value.substring(0, 4));
-        int month1 = Integer.parseInt(resParam1.value.substring(5,7));
-        int day1 = Integer.parseInt(resParam1.value.substring(8, 10));
+        // Break up the first date for the gregorian calendar, from its day number
+        int date1 = julianToYmd(julian1);
+        int year1 = date1 / 10000;
+        int month1 = date1 / 100 % 100;
+        int day1 = date1 % 100;
 
         // Break up the second date for the gregorian calendar
-        int year2 = Integer.parseInt(resParam2.value.substring(0, 4));
-        int month2 = Integer.parseInt(resParam2.value.substring(5,7));
-        int day2 = Integer.parseInt(resParam2.value.substring(8, 10));
+        int date2 = julianToYmd(julian2);
+        int year2 = date2 / 10000;
+        int month2 = date2 / 100 % 100;
+        int day2 = date2 % 100;
+
+        // Both dates are in the Gregorian calendar that the Calendar uses, so the
+        // fields can be compared without making Calendars
+        if (julian1 >= GREGORIAN_START_DAY && julian2 >= GREGORIAN_START_DAY)
+        {
+            int yearsApart = year1 - year2;
+            if (julian2 > julian1)
+            {
+                if (month1 > month2 || (month1 == month2 && day1 > day2))
+                {
+                    yearsApart++;
+                }
+            }
+            else
+            {
+                if (month2 > month1 || (month2 == month1 && day2 > day1))
+                {
+                    yearsApart--;
+                }
+            }
+            dateAge.setInteger(yearsApart);
+            dateAge.structure = STIdentifier.PRIMITVE;
+            return dateAge;
+        }
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
 
         // Set dates
         Calendar cDate1 = new GregorianCalendar(year1, month1-1, day1);
@@ -958,7 +975,7 @@ public class Utility
         }
 
         // Store the difference in years in the result value object.
-        dateAge.value = String.valueOf(numYearsApart);
+        dateAge.setValue(String.valueOf(numYearsApart));
         dateAge.type  = Token.INTEGER;
         dateAge.structure = STIdentifier.PRIMITVE;
 
@@ -1031,6 +1048,83 @@ public class Utility
                 + day;                          // add the days
         return countDays;
     }
+
+    /**
+     * Converts a day number of 'dateToJulian' back to a date
+     * <p>
+     * The year, month and day are from 'julianToYmd'.
+     * @param julian - The day number, of a date from 0001-01-01 to 9999-12-31
+     * @return       - The date as a string in the form "yyyy-mm-dd"
+     */
+    public static String julianToDate(int julian)
+    {
+        int date = julianToYmd(julian);
+        int year = date / 10000;
+        int month = date / 100 % 100;
+        int day = date % 100;
+
+        char[] dateM = {(char) ('0' + year / 1000), (char) ('0' + year / 100 % 10), (char) ('0' + year / 10 % 10)
+                       , (char) ('0' + year % 10), '-', (char) ('0' + month / 10), (char) ('0' + month % 10), '-'
+                       , (char) ('0' + day / 10), (char) ('0' + day % 10)};
+        return new String(dateM);
+    }
+
+    /**
+     * Converts a day number of 'dateToJulian' to its year, month and day, without making a string
+     * <p>
+     * The days since 0000-03-01 are split into 400 year eras (146097 days), then years
+     * in the era, then months since March, with the same month lengths as 'dateToJulian'.
+     * @param julian - The day number, of a date from 0001-01-01 to 9999-12-31
+     * @return       - The date as the number yyyymmdd (year * 10000 + month * 100 + day)
+     */
+    private static int julianToYmd(int julian)
+    {
+        int days = julian - 1;                  // days since 0000-03-01
+        int era = days / 146097;
+        int dayOfEra = days - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra/1460 + dayOfEra/36524 - dayOfEra/146096) / 365;
+        int dayOfYear = dayOfEra - (365*yearOfEra + yearOfEra/4 - yearOfEra/100);
+        int month = (dayOfYear * 5 + 2) / 153;  // months since March
+        int day = dayOfYear - (month * 153 + 2) / 5 + 1;
+        int year = era * 400 + yearOfEra;
+
+        // Jan and Feb are in the next year
+        if (month < 10)
+            month += 3;
+        else
+        {
+            month -= 9;
+            year++;
+        }
+        return year * 10000 + month * 100 + day;
+    }
+
+    /**
+     * Gets the day number of a date value, checking it only if it does not have one yet
+     * <p>
+     * A DATE value keeps its day number (see 'ResultValue.setDate'), so the string is
+     * only checked and parsed the first time.
+     * @param resDate - The value that should be a date
+     * @return        - The day number of 'dateToJulian', or -1 if the value is not a valid date
+     */
+    private static int dateDay(ResultValue resDate)
+    {
+        if (resDate.type == Token.DATE && resDate.hasNumber())
+        {
+            return resDate.integerValue;
+        }
+        if (!isValidDate(resDate.getValue()))
+        {
+            return -1;
+        }
+        int julian = dateToJulian(resDate.getValue());
+        if (resDate.type == Token.DATE)
+        {
+            resDate.integerValue = julian;
+            resDate.numericType = Token.DATE;
+        }
+        return julian;
+    }
     
     /**
      ******************************** START OF FUNCTIONS ***************************************************
@@ -1051,7 +1145,7 @@ public class Utility
         {
             //function takes in a ResultValue. Not a ResultArray.
             parser.error("Function 'LENGTH' expected Primitive parameter, Found Array '%s'"
-                        ,resOp.value);
+                        ,resOp.getValue());
         }
 
         // Get a copy of the operand and attempt to coerce to a string
@@ -1059,11 +1153,11 @@ public class Utility
         Utility.coerce(parser, Token.STRING, resString, "LENGTH");
         
         // Get the length of the string
-        int len = resString.value.length();
+        int len = resString.getValue().length();
         
         // Construct the return value using the length
         ResultValue resLength = new ResultValue();
-        resLength.value = String.valueOf(len);
+        resLength.setValue(String.valueOf(len));
         resLength.type = Token.INTEGER;
         resLength.structure = STIdentifier.PRIMITVE;
         
@@ -1086,7 +1180,7 @@ public class Utility
         {
             //function takes in a ResultValue. Not a ResultArray.
             parser.error("Function 'SPACES' expected Primitive parameter, Found Array '%s'"
-                    ,resOp.value);
+                    ,resOp.getValue());
         }
 
 
@@ -1095,27 +1189,26 @@ public class Utility
         Utility.coerce(parser, Token.STRING, resString, "LENGTH");
         
         ResultValue resSpaces = new ResultValue();
-        resSpaces.type = Token.BOOLEAN;
         resSpaces.structure = STIdentifier.PRIMITVE;
         
         // Determine if the string is empty
-        if(resString.value.isEmpty())
+        if(resString.getValue().isEmpty())
         {
-            resSpaces.value = "T";
+            resSpaces.setBoolean(true);
         }
         // The string is not empty, so check if it only contains spaces
         else
         {
             // Assume the string initially only contains spaces
-            resSpaces.value = "T";
+            resSpaces.setBoolean(true);
             
             // Check each character to find one that isn't a space
-            for(int i = 0; i < resString.value.length(); i++)
+            for(int i = 0; i < resString.getValue().length(); i++)
             {
                 // If the character isn't a space, return false
-                if(! (resString.value.charAt(i) == ' '))
+                if(! (resString.getValue().charAt(i) == ' '))
                 {
-                    resSpaces.value = "F";
+                    resSpaces.setBoolean(false);
                     break;
                 }
             }
@@ -1141,10 +1234,10 @@ public class Utility
         resultValue.type = Token.INTEGER;   //This will always be an integer.
         resultValue.structure = STIdentifier.PRIMITVE;
 
-        // The highest populated subscript + 1, in ArrayList's is simply the what the .size() function returns.
-        int tmp = resultArray.valueList.size();     // Returns the number of Elements in the array.
+        // The highest populated subscript + 1 is simply the what the .size() function returns.
+        int tmp = resultArray.size();     // Returns the number of Elements in the array.
 
-        resultValue.value = String.valueOf(tmp); // Converts integer value to a string.
+        resultValue.setValue(String.valueOf(tmp)); // Converts integer value to a string.
 
         return resultValue;
     }
@@ -1172,7 +1265,7 @@ public class Utility
 
         // Parser has already initialized maxElem within the resultArray
         int tmp = resultArray.maxElem;
-        resultValue.value = String.valueOf(tmp);
+        resultValue.setValue(String.valueOf(tmp));
 
         return resultValue;
     }
@@ -1192,24 +1285,11 @@ public class Utility
     public static ResultValue IN(Parser parser, ResultValue resval, ResultArray resultArray) throws Exception
     {
         ResultValue resReturn = new ResultValue();
-        resReturn.type = Token.BOOLEAN;
         resReturn.structure = STIdentifier.PRIMITVE;
-        resReturn.value = "F";
         
-        for(ResultValue resArrElem : resultArray.valueList)
-        {
-            if(resArrElem != null)
-            {
-                ResultValue resArrElemCopy = Utility.getResultValueCopy(resArrElem);
-                Utility.coerce(parser, resval.type, resArrElemCopy, "IN");
-                
-                if(resArrElemCopy.value.equals(resval.value))
-                {
-                    resReturn.value = "T";
-                    break;
-                }
-            }
-        }
+        // Each element is compared after coercing it to the type of 'resval', which
+        // the array keeps a hash index of
+        resReturn.setBoolean(resultArray.indexOf(parser, resval) >= 0);
 
         return resReturn;
     }
@@ -1231,13 +1311,13 @@ public class Utility
         if(resval instanceof ResultArray)
         {
             parser.error("Operation 'NOTIN' expected Primitive parameters, Found Array '%s'"
-                        , resval.value);
+                        , resval.getValue());
         }
 
         if (resultArray.structure != STIdentifier.FIXED_ARRAY ||
                 resultArray.structure != STIdentifier.UNBOUNDED_ARRAY)
         {
-            parser.errorWithCurrent("Cannot start search for type %s in type %s.", resval.value, Token.getType(parser, resultArray.type));
+            parser.errorWithCurrent("Cannot start search for type %s in type %s.", resval.getValue(), Token.getType(parser, resultArray.type));
         }
             
         if (resval.structure != STIdentifier.PRIMITVE)
@@ -1247,20 +1327,18 @@ public class Utility
         }
             
         ResultValue resReturn = new ResultValue();
-            
-        if (!resultArray.valueList.contains(resval.value))
-        {
-            resReturn.value = "T";
-            resReturn.type = Token.BOOLEAN;
-            resReturn.structure = STIdentifier.PRIMITVE;
-        }
-        else
+        
+        // Look for an element with the same value
+        boolean bFound = false;
+        for(int i = resultArray.nextSet(0); i >= 0 && ! bFound; i = resultArray.nextSet(i + 1))
         {
-            resReturn.value = "F";
-            resReturn.type = Token.BOOLEAN;
-            resReturn.structure = STIdentifier.PRIMITVE;
+            ResultValue resArrElem = resultArray.get(i);
+            bFound = (resArrElem != null) && resArrElem.getValue().equals(resval.getValue());
         }
             
+        resReturn.setBoolean(! bFound);
+        resReturn.structure = STIdentifier.PRIMITVE;
+            
             return resReturn;
     }
     
@@ -1301,15 +1379,14 @@ public class Utility
                     // The result value is a FLOAT to be coerced into an INTEGER
                     try
                     {
-                        double tempDouble = Double.parseDouble(resval.value);
-                        resval.value = Integer.toString((int)tempDouble);
-                        resval.type = Token.INTEGER;
+                        double tempDouble = resval.hasNumber() ? resval.doubleValue : Double.parseDouble(resval.getValue());
+                        resval.setInteger((int)tempDouble);
                     }
                     catch(NumberFormatException e)
                     {
                         // This will really only happen if we scan/store a FLOAT incorrectly
                         parser.errorWithCurrent("Unable to coerce value '%s' of type 'FLOAT' into type 'INTEGER' for operation '%s'"
-                                                , resval.value, operation);
+                                                , resval.getValue(), operation);
                     }
                     break;
                 case Token.STRING:
@@ -1317,7 +1394,7 @@ public class Utility
                     try
                     {
                         // Attempt to parse the string as an int
-                        Integer.parseInt(resval.value);
+                        Integer.parseInt(resval.getValue());
                         // It parsed properly so change the type to INTEGER
                         resval.type = Token.INTEGER;
                     }
@@ -1325,12 +1402,12 @@ public class Utility
                     {
                         // STRING could not be parsed into INTEGER
                         parser.errorWithCurrent("Unable to coerce value '%s' of type 'STRING' into type 'INTEGER' for operation '%s'"
-                                                , resval.value, operation);
+                                                , resval.getValue(), operation);
                     }
                     break;
                 default:
                     parser.errorWithCurrent("Unable to coerce value '%s' of type '%s' into type 'INTEGER' for operation '%s'"
-                                            , resval.value, Token.getType(parser, resval.type), operation);                    
+                                            , resval.getValue(), Token.getType(parser, resval.type), operation);                    
             }
         }
         else if (coerceType == Token.FLOAT)
@@ -1342,15 +1419,14 @@ public class Utility
                     // The result value is an INTEGER to be coerced into a FLOAT
                     try
                     {
-                        int tempInt = Integer.parseInt(resval.value);
-                        resval.value = Double.toString((double)tempInt);
-                        resval.type = Token.FLOAT;
+                        int tempInt = resval.hasNumber() ? resval.integerValue : Integer.parseInt(resval.getValue());
+                        resval.setFloat((double)tempInt);
                     }
                     catch(NumberFormatException e)
                     {
                         // This will really only happen if we scan/store an INTEGER incorrectly
                         parser.errorWithCurrent("Unable to coerce value '%s' of type 'INTEGER' into type 'FLOAT' for operation '%s'"
-                                                , resval.value, operation);
+                                                , resval.getValue(), operation);
                     }
                     break;
                 case Token.STRING:
@@ -1358,7 +1434,7 @@ public class Utility
                     try
                     {
                         // Attempt to parse the string as an double
-                        Double.parseDouble(resval.value);
+                        Double.parseDouble(resval.getValue());
                         // It parsed properly so change the type to FLOAT
                         resval.type = Token.FLOAT;
                     }
@@ -1366,12 +1442,12 @@ public class Utility
                     {
                         // STRING could not be parsed into FLOAT
                         parser.errorWithCurrent("Unable to coerce value '%s' of type 'STRING' into type 'FLOAT' for operation '%s'"
-                                                , resval.value, operation);
+                                                , resval.getValue(), operation);
                     }
                     break;
                 default:
                     parser.errorWithCurrent("Unable to coerce value '%s' of type '%s' into type 'FLOAT' for operation '%s'"
-                            , resval.value, Token.getType(parser, resval.type), operation);
+                            , resval.getValue(), Token.getType(parser, resval.type), operation);
             }
         }
         else if(coerceType == Token.BOOLEAN)
@@ -1383,7 +1459,7 @@ public class Utility
                     // The result value is a STRING to be coerced into a BOOLEAN
                     
                     // See if the string contains boolean values 'T' or 'F'
-                    if(Arrays.asList("T", "F").contains(resval.value))
+                    if(Arrays.asList("T", "F").contains(resval.getValue()))
                     {
                         resval.type = Token.BOOLEAN;
                     }
@@ -1391,12 +1467,12 @@ public class Utility
                     else
                     {
                         parser.errorWithCurrent("Unable to coerce value '%s' of type 'STRING' into type 'BOOLEAN' for operation '%s'"
-                                                , resval.value, operation);
+                                                , resval.getValue(), operation);
                     }
                     break;
                 default:
                     parser.errorWithCurrent("Unable to coerce value '%s' of type '%s' into type 'BOOLEAN' for operation '%s'"
-                                            , resval.value, Token.getType(parser, resval.type), operation);
+                                            , resval.getValue(), Token.getType(parser, resval.type), operation);
             }
         }
         else if(coerceType == Token.DATE)
@@ -1408,20 +1484,22 @@ public class Utility
                     // The result value is a STRING to be coerced into a DATE
                     
                     // See if the string is a valid date.
-                    if(isValidDate(resval.value))
+                    if(isValidDate(resval.getValue()))
                     {
                         resval.type = Token.DATE;
+                        resval.integerValue = dateToJulian(resval.getValue());
+                        resval.numericType = Token.DATE;
                     }
                     // String is not a valid boolean value
                     else
                     {
                         parser.errorWithCurrent("Unable to coerce value '%s' of type 'STRING' into type 'DATE' for operation '%s'"
-                                                , resval.value, operation);
+                                                , resval.getValue(), operation);
                     }
                     break;
                 default:
                     parser.errorWithCurrent("Unable to coerce value '%s' of type '%s' into type 'DATE' for operation '%s'"
-                                            , resval.value, Token.getType(parser, resval.type), operation);
+                                            , resval.getValue(), Token.getType(parser, resval.type), operation);
             }
         }
         else if(coerceType == Token.STRING)
@@ -1431,13 +1509,13 @@ public class Utility
             {
                 try
                 {
-                    resval.value = String.format("%.2f", Double.parseDouble(resval.value));
+                    resval.setValue(String.format("%.2f", Double.parseDouble(resval.getValue())));
                 }
                 catch(NumberFormatException e)
                 {
                     // STRING could not be parsed into FLOAT
                     parser.errorWithCurrent("Unable to coerce value '%s' of type 'FLOAT' into type 'STRING' for operation '%s'"
-                                            , resval.value, operation);
+                                            , resval.getValue(), operation);
                 }
             }
             
@@ -1447,7 +1525,7 @@ public class Utility
         }
         else
         {
-            parser.errorWithCurrent("Unable to coerce value '%s' into unknown type represented by '%d'", resval.value, resval.type);
+            parser.errorWithCurrent("Unable to coerce value '%s' into unknown type represented by '%d'", resval.getValue(), resval.type);
         }
     }
 
@@ -1461,11 +1539,7 @@ public class Utility
      */
     public static ResultValue getResultValueCopy(ResultValue resParam)
     {
-        ResultValue resReturn = new ResultValue();
-        resReturn.type = resParam.type;
-        resReturn.value = resParam.value;
-        resReturn.structure = resParam.structure;
-        return resReturn;
+        return resParam.copy();
     }
     
     